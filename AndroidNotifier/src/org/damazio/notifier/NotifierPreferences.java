@@ -374,6 +374,23 @@ public class NotifierPreferences {
     return preferences.getInt(context.getString(R.string.battery_min_level_change_key), 0);
   }
 
+  /**
+   * @return whether notifications which happen together should be sent as a single message
+   */
+  public boolean isSendBatchesEnabled() {
+    return preferences.getBoolean(context.getString(R.string.send_batches_key), false);
+  }
+
+  /**
+   * @return whether notifications should be sent in the protobuf format where
+   *         possible, rather than the text format all desktops understand
+   */
+  public boolean isProtobufFormatEnabled() {
+    String format = preferences.getString(context.getString(R.string.notification_format_key),
+        context.getString(R.string.notification_format_text_value));
+    return format.equals(context.getString(R.string.notification_format_protobuf_value));
+  }
+
   public boolean isEncryptionEnabled() {
     return preferences.getBoolean(context.getString(R.string.enable_encryption_key), false);
   }
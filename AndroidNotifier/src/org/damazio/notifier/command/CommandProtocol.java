@@ -3553,6 +3553,989 @@ public final class CommandProtocol {
     // @@protoc_insertion_point(class_scope:AndroidNotifier.CommandDiscoveryReply)
   }
   
+  public static final class Notification extends
+      com.google.protobuf.GeneratedMessageLite {
+    // Use Notification.newBuilder() to construct.
+    private Notification() {
+      initFields();
+    }
+    private Notification(boolean noInit) {}
+    
+    private static final Notification defaultInstance;
+    public static Notification getDefaultInstance() {
+      return defaultInstance;
+    }
+    
+    public Notification getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+    
+    public enum Type
+        implements com.google.protobuf.Internal.EnumLite {
+      RING(0, 0),
+      SMS(1, 1),
+      MMS(2, 2),
+      BATTERY(3, 3),
+      VOICEMAIL(4, 4),
+      PING(5, 5),
+      USER(6, 6),
+      ;
+      
+      
+      public final int getNumber() { return value; }
+      
+      public static Type valueOf(int value) {
+        switch (value) {
+          case 0: return RING;
+          case 1: return SMS;
+          case 2: return MMS;
+          case 3: return BATTERY;
+          case 4: return VOICEMAIL;
+          case 5: return PING;
+          case 6: return USER;
+          default: return null;
+        }
+      }
+      
+      public static com.google.protobuf.Internal.EnumLiteMap<Type>
+          internalGetValueMap() {
+        return internalValueMap;
+      }
+      private static com.google.protobuf.Internal.EnumLiteMap<Type>
+          internalValueMap =
+            new com.google.protobuf.Internal.EnumLiteMap<Type>() {
+              public Type findValueByNumber(int number) {
+                return Type.valueOf(number)
+      ;        }
+            };
+      
+      private final int index;
+      private final int value;
+      private Type(int index, int value) {
+        this.index = index;
+        this.value = value;
+      }
+      
+      // @@protoc_insertion_point(enum_scope:AndroidNotifier.Notification.Type)
+    }
+    
+    // required fixed64 device_id = 1;
+    public static final int DEVICE_ID_FIELD_NUMBER = 1;
+    private boolean hasDeviceId;
+    private long deviceId_ = 0L;
+    public boolean hasDeviceId() { return hasDeviceId; }
+    public long getDeviceId() { return deviceId_; }
+    
+    // required fixed64 id = 2;
+    public static final int ID_FIELD_NUMBER = 2;
+    private boolean hasId;
+    private long id_ = 0L;
+    public boolean hasId() { return hasId; }
+    public long getId() { return id_; }
+    
+    // required .AndroidNotifier.Notification.Type type = 3;
+    public static final int TYPE_FIELD_NUMBER = 3;
+    private boolean hasType;
+    private org.damazio.notifier.command.CommandProtocol.Notification.Type type_;
+    public boolean hasType() { return hasType; }
+    public org.damazio.notifier.command.CommandProtocol.Notification.Type getType() { return type_; }
+    
+    // optional string description = 4;
+    public static final int DESCRIPTION_FIELD_NUMBER = 4;
+    private boolean hasDescription;
+    private java.lang.String description_ = "";
+    public boolean hasDescription() { return hasDescription; }
+    public java.lang.String getDescription() { return description_; }
+    
+    // optional string title = 5;
+    public static final int TITLE_FIELD_NUMBER = 5;
+    private boolean hasTitle;
+    private java.lang.String title_ = "";
+    public boolean hasTitle() { return hasTitle; }
+    public java.lang.String getTitle() { return title_; }
+    
+    // optional bytes icon = 6;
+    public static final int ICON_FIELD_NUMBER = 6;
+    private boolean hasIcon;
+    private com.google.protobuf.ByteString icon_ = com.google.protobuf.ByteString.EMPTY;
+    public boolean hasIcon() { return hasIcon; }
+    public com.google.protobuf.ByteString getIcon() { return icon_; }
+    
+    // optional int32 battery_level = 7;
+    public static final int BATTERY_LEVEL_FIELD_NUMBER = 7;
+    private boolean hasBatteryLevel;
+    private int batteryLevel_ = 0;
+    public boolean hasBatteryLevel() { return hasBatteryLevel; }
+    public int getBatteryLevel() { return batteryLevel_; }
+    
+    // optional string phone_number = 8;
+    public static final int PHONE_NUMBER_FIELD_NUMBER = 8;
+    private boolean hasPhoneNumber;
+    private java.lang.String phoneNumber_ = "";
+    public boolean hasPhoneNumber() { return hasPhoneNumber; }
+    public java.lang.String getPhoneNumber() { return phoneNumber_; }
+    
+    // optional string third_party_data = 9;
+    public static final int THIRD_PARTY_DATA_FIELD_NUMBER = 9;
+    private boolean hasThirdPartyData;
+    private java.lang.String thirdPartyData_ = "";
+    public boolean hasThirdPartyData() { return hasThirdPartyData; }
+    public java.lang.String getThirdPartyData() { return thirdPartyData_; }
+    
+    // optional string device_id_string = 10;
+    public static final int DEVICE_ID_STRING_FIELD_NUMBER = 10;
+    private boolean hasDeviceIdString;
+    private java.lang.String deviceIdString_ = "";
+    public boolean hasDeviceIdString() { return hasDeviceIdString; }
+    public java.lang.String getDeviceIdString() { return deviceIdString_; }
+    
+    private void initFields() {
+      type_ = org.damazio.notifier.command.CommandProtocol.Notification.Type.RING;
+    }
+    public final boolean isInitialized() {
+      if (!hasDeviceId) return false;
+      if (!hasId) return false;
+      if (!hasType) return false;
+      return true;
+    }
+    
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (hasDeviceId()) {
+        output.writeFixed64(1, getDeviceId());
+      }
+      if (hasId()) {
+        output.writeFixed64(2, getId());
+      }
+      if (hasType()) {
+        output.writeEnum(3, getType().getNumber());
+      }
+      if (hasDescription()) {
+        output.writeString(4, getDescription());
+      }
+      if (hasTitle()) {
+        output.writeString(5, getTitle());
+      }
+      if (hasIcon()) {
+        output.writeBytes(6, getIcon());
+      }
+      if (hasBatteryLevel()) {
+        output.writeInt32(7, getBatteryLevel());
+      }
+      if (hasPhoneNumber()) {
+        output.writeString(8, getPhoneNumber());
+      }
+      if (hasThirdPartyData()) {
+        output.writeString(9, getThirdPartyData());
+      }
+      if (hasDeviceIdString()) {
+        output.writeString(10, getDeviceIdString());
+      }
+    }
+    
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+    
+      size = 0;
+      if (hasDeviceId()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeFixed64Size(1, getDeviceId());
+      }
+      if (hasId()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeFixed64Size(2, getId());
+      }
+      if (hasType()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeEnumSize(3, getType().getNumber());
+      }
+      if (hasDescription()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeStringSize(4, getDescription());
+      }
+      if (hasTitle()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeStringSize(5, getTitle());
+      }
+      if (hasIcon()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(6, getIcon());
+      }
+      if (hasBatteryLevel()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(7, getBatteryLevel());
+      }
+      if (hasPhoneNumber()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeStringSize(8, getPhoneNumber());
+      }
+      if (hasThirdPartyData()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeStringSize(9, getThirdPartyData());
+      }
+      if (hasDeviceIdString()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeStringSize(10, getDeviceIdString());
+      }
+      memoizedSerializedSize = size;
+      return size;
+    }
+    
+    public static org.damazio.notifier.command.CommandProtocol.Notification parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.Notification parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.Notification parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.Notification parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.Notification parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.Notification parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.Notification parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static org.damazio.notifier.command.CommandProtocol.Notification parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input, extensionRegistry)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static org.damazio.notifier.command.CommandProtocol.Notification parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.Notification parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(org.damazio.notifier.command.CommandProtocol.Notification prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+    
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageLite.Builder<
+          org.damazio.notifier.command.CommandProtocol.Notification, Builder> {
+      private org.damazio.notifier.command.CommandProtocol.Notification result;
+      
+      // Construct using org.damazio.notifier.command.CommandProtocol.Notification.newBuilder()
+      private Builder() {}
+      
+      private static Builder create() {
+        Builder builder = new Builder();
+        builder.result = new org.damazio.notifier.command.CommandProtocol.Notification();
+        return builder;
+      }
+      
+      protected org.damazio.notifier.command.CommandProtocol.Notification internalGetResult() {
+        return result;
+      }
+      
+      public Builder clear() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "Cannot call clear() after build().");
+        }
+        result = new org.damazio.notifier.command.CommandProtocol.Notification();
+        return this;
+      }
+      
+      public Builder clone() {
+        return create().mergeFrom(result);
+      }
+      
+      public org.damazio.notifier.command.CommandProtocol.Notification getDefaultInstanceForType() {
+        return org.damazio.notifier.command.CommandProtocol.Notification.getDefaultInstance();
+      }
+      
+      public boolean isInitialized() {
+        return result.isInitialized();
+      }
+      public org.damazio.notifier.command.CommandProtocol.Notification build() {
+        if (result != null && !isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return buildPartial();
+      }
+      
+      private org.damazio.notifier.command.CommandProtocol.Notification buildParsed()
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        if (!isInitialized()) {
+          throw newUninitializedMessageException(
+            result).asInvalidProtocolBufferException();
+        }
+        return buildPartial();
+      }
+      
+      public org.damazio.notifier.command.CommandProtocol.Notification buildPartial() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "build() has already been called on this Builder.");
+        }
+        org.damazio.notifier.command.CommandProtocol.Notification returnMe = result;
+        result = null;
+        return returnMe;
+      }
+      
+      public Builder mergeFrom(org.damazio.notifier.command.CommandProtocol.Notification other) {
+        if (other == org.damazio.notifier.command.CommandProtocol.Notification.getDefaultInstance()) return this;
+        if (other.hasDeviceId()) {
+          setDeviceId(other.getDeviceId());
+        }
+        if (other.hasId()) {
+          setId(other.getId());
+        }
+        if (other.hasType()) {
+          setType(other.getType());
+        }
+        if (other.hasDescription()) {
+          setDescription(other.getDescription());
+        }
+        if (other.hasTitle()) {
+          setTitle(other.getTitle());
+        }
+        if (other.hasIcon()) {
+          setIcon(other.getIcon());
+        }
+        if (other.hasBatteryLevel()) {
+          setBatteryLevel(other.getBatteryLevel());
+        }
+        if (other.hasPhoneNumber()) {
+          setPhoneNumber(other.getPhoneNumber());
+        }
+        if (other.hasThirdPartyData()) {
+          setThirdPartyData(other.getThirdPartyData());
+        }
+        if (other.hasDeviceIdString()) {
+          setDeviceIdString(other.getDeviceIdString());
+        }
+        return this;
+      }
+      
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        while (true) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              return this;
+            default: {
+              if (!parseUnknownField(input, extensionRegistry, tag)) {
+                return this;
+              }
+              break;
+            }
+            case 9: {
+              setDeviceId(input.readFixed64());
+              break;
+            }
+            case 17: {
+              setId(input.readFixed64());
+              break;
+            }
+            case 24: {
+              int rawValue = input.readEnum();
+              org.damazio.notifier.command.CommandProtocol.Notification.Type value = org.damazio.notifier.command.CommandProtocol.Notification.Type.valueOf(rawValue);
+              if (value != null) {
+                setType(value);
+              }
+              break;
+            }
+            case 34: {
+              setDescription(input.readString());
+              break;
+            }
+            case 42: {
+              setTitle(input.readString());
+              break;
+            }
+            case 50: {
+              setIcon(input.readBytes());
+              break;
+            }
+            case 56: {
+              setBatteryLevel(input.readInt32());
+              break;
+            }
+            case 66: {
+              setPhoneNumber(input.readString());
+              break;
+            }
+            case 74: {
+              setThirdPartyData(input.readString());
+              break;
+            }
+            case 82: {
+              setDeviceIdString(input.readString());
+              break;
+            }
+          }
+        }
+      }
+      
+      
+      // required fixed64 device_id = 1;
+      public boolean hasDeviceId() {
+        return result.hasDeviceId();
+      }
+      public long getDeviceId() {
+        return result.getDeviceId();
+      }
+      public Builder setDeviceId(long value) {
+        result.hasDeviceId = true;
+        result.deviceId_ = value;
+        return this;
+      }
+      public Builder clearDeviceId() {
+        result.hasDeviceId = false;
+        result.deviceId_ = 0L;
+        return this;
+      }
+      
+      // required fixed64 id = 2;
+      public boolean hasId() {
+        return result.hasId();
+      }
+      public long getId() {
+        return result.getId();
+      }
+      public Builder setId(long value) {
+        result.hasId = true;
+        result.id_ = value;
+        return this;
+      }
+      public Builder clearId() {
+        result.hasId = false;
+        result.id_ = 0L;
+        return this;
+      }
+      
+      // required .AndroidNotifier.Notification.Type type = 3;
+      public boolean hasType() {
+        return result.hasType();
+      }
+      public org.damazio.notifier.command.CommandProtocol.Notification.Type getType() {
+        return result.getType();
+      }
+      public Builder setType(org.damazio.notifier.command.CommandProtocol.Notification.Type value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        result.hasType = true;
+        result.type_ = value;
+        return this;
+      }
+      public Builder clearType() {
+        result.hasType = false;
+        result.type_ = org.damazio.notifier.command.CommandProtocol.Notification.Type.RING;
+        return this;
+      }
+      
+      // optional string description = 4;
+      public boolean hasDescription() {
+        return result.hasDescription();
+      }
+      public java.lang.String getDescription() {
+        return result.getDescription();
+      }
+      public Builder setDescription(java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  result.hasDescription = true;
+        result.description_ = value;
+        return this;
+      }
+      public Builder clearDescription() {
+        result.hasDescription = false;
+        result.description_ = getDefaultInstance().getDescription();
+        return this;
+      }
+      
+      // optional string title = 5;
+      public boolean hasTitle() {
+        return result.hasTitle();
+      }
+      public java.lang.String getTitle() {
+        return result.getTitle();
+      }
+      public Builder setTitle(java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  result.hasTitle = true;
+        result.title_ = value;
+        return this;
+      }
+      public Builder clearTitle() {
+        result.hasTitle = false;
+        result.title_ = getDefaultInstance().getTitle();
+        return this;
+      }
+      
+      // optional bytes icon = 6;
+      public boolean hasIcon() {
+        return result.hasIcon();
+      }
+      public com.google.protobuf.ByteString getIcon() {
+        return result.getIcon();
+      }
+      public Builder setIcon(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  result.hasIcon = true;
+        result.icon_ = value;
+        return this;
+      }
+      public Builder clearIcon() {
+        result.hasIcon = false;
+        result.icon_ = getDefaultInstance().getIcon();
+        return this;
+      }
+      
+      // optional int32 battery_level = 7;
+      public boolean hasBatteryLevel() {
+        return result.hasBatteryLevel();
+      }
+      public int getBatteryLevel() {
+        return result.getBatteryLevel();
+      }
+      public Builder setBatteryLevel(int value) {
+        result.hasBatteryLevel = true;
+        result.batteryLevel_ = value;
+        return this;
+      }
+      public Builder clearBatteryLevel() {
+        result.hasBatteryLevel = false;
+        result.batteryLevel_ = 0;
+        return this;
+      }
+      
+      // optional string phone_number = 8;
+      public boolean hasPhoneNumber() {
+        return result.hasPhoneNumber();
+      }
+      public java.lang.String getPhoneNumber() {
+        return result.getPhoneNumber();
+      }
+      public Builder setPhoneNumber(java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  result.hasPhoneNumber = true;
+        result.phoneNumber_ = value;
+        return this;
+      }
+      public Builder clearPhoneNumber() {
+        result.hasPhoneNumber = false;
+        result.phoneNumber_ = getDefaultInstance().getPhoneNumber();
+        return this;
+      }
+      
+      // optional string third_party_data = 9;
+      public boolean hasThirdPartyData() {
+        return result.hasThirdPartyData();
+      }
+      public java.lang.String getThirdPartyData() {
+        return result.getThirdPartyData();
+      }
+      public Builder setThirdPartyData(java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  result.hasThirdPartyData = true;
+        result.thirdPartyData_ = value;
+        return this;
+      }
+      public Builder clearThirdPartyData() {
+        result.hasThirdPartyData = false;
+        result.thirdPartyData_ = getDefaultInstance().getThirdPartyData();
+        return this;
+      }
+      
+      // optional string device_id_string = 10;
+      public boolean hasDeviceIdString() {
+        return result.hasDeviceIdString();
+      }
+      public java.lang.String getDeviceIdString() {
+        return result.getDeviceIdString();
+      }
+      public Builder setDeviceIdString(java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  result.hasDeviceIdString = true;
+        result.deviceIdString_ = value;
+        return this;
+      }
+      public Builder clearDeviceIdString() {
+        result.hasDeviceIdString = false;
+        result.deviceIdString_ = getDefaultInstance().getDeviceIdString();
+        return this;
+      }
+      
+      // @@protoc_insertion_point(builder_scope:AndroidNotifier.Notification)
+    }
+    
+    static {
+      defaultInstance = new Notification(true);
+      org.damazio.notifier.command.CommandProtocol.internalForceInit();
+      defaultInstance.initFields();
+    }
+    
+    // @@protoc_insertion_point(class_scope:AndroidNotifier.Notification)
+  }
+  
+  public static final class NotificationBatch extends
+      com.google.protobuf.GeneratedMessageLite {
+    // Use NotificationBatch.newBuilder() to construct.
+    private NotificationBatch() {
+      initFields();
+    }
+    private NotificationBatch(boolean noInit) {}
+    
+    private static final NotificationBatch defaultInstance;
+    public static NotificationBatch getDefaultInstance() {
+      return defaultInstance;
+    }
+    
+    public NotificationBatch getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+    
+    // repeated .AndroidNotifier.Notification notifications = 1;
+    public static final int NOTIFICATIONS_FIELD_NUMBER = 1;
+    private java.util.List<org.damazio.notifier.command.CommandProtocol.Notification> notifications_ =
+      java.util.Collections.emptyList();
+    public java.util.List<org.damazio.notifier.command.CommandProtocol.Notification> getNotificationsList() {
+      return notifications_;
+    }
+    public int getNotificationsCount() { return notifications_.size(); }
+    public org.damazio.notifier.command.CommandProtocol.Notification getNotifications(int index) {
+      return notifications_.get(index);
+    }
+    
+    private void initFields() {
+    }
+    public final boolean isInitialized() {
+      for (org.damazio.notifier.command.CommandProtocol.Notification element : getNotificationsList()) {
+        if (!element.isInitialized()) return false;
+      }
+      return true;
+    }
+    
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      for (org.damazio.notifier.command.CommandProtocol.Notification element : getNotificationsList()) {
+        output.writeMessage(1, element);
+      }
+    }
+    
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+    
+      size = 0;
+      for (org.damazio.notifier.command.CommandProtocol.Notification element : getNotificationsList()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(1, element);
+      }
+      memoizedSerializedSize = size;
+      return size;
+    }
+    
+    public static org.damazio.notifier.command.CommandProtocol.NotificationBatch parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.NotificationBatch parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.NotificationBatch parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.NotificationBatch parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.NotificationBatch parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.NotificationBatch parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.NotificationBatch parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static org.damazio.notifier.command.CommandProtocol.NotificationBatch parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input, extensionRegistry)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static org.damazio.notifier.command.CommandProtocol.NotificationBatch parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static org.damazio.notifier.command.CommandProtocol.NotificationBatch parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(org.damazio.notifier.command.CommandProtocol.NotificationBatch prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+    
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageLite.Builder<
+          org.damazio.notifier.command.CommandProtocol.NotificationBatch, Builder> {
+      private org.damazio.notifier.command.CommandProtocol.NotificationBatch result;
+      
+      // Construct using org.damazio.notifier.command.CommandProtocol.NotificationBatch.newBuilder()
+      private Builder() {}
+      
+      private static Builder create() {
+        Builder builder = new Builder();
+        builder.result = new org.damazio.notifier.command.CommandProtocol.NotificationBatch();
+        return builder;
+      }
+      
+      protected org.damazio.notifier.command.CommandProtocol.NotificationBatch internalGetResult() {
+        return result;
+      }
+      
+      public Builder clear() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "Cannot call clear() after build().");
+        }
+        result = new org.damazio.notifier.command.CommandProtocol.NotificationBatch();
+        return this;
+      }
+      
+      public Builder clone() {
+        return create().mergeFrom(result);
+      }
+      
+      public org.damazio.notifier.command.CommandProtocol.NotificationBatch getDefaultInstanceForType() {
+        return org.damazio.notifier.command.CommandProtocol.NotificationBatch.getDefaultInstance();
+      }
+      
+      public boolean isInitialized() {
+        return result.isInitialized();
+      }
+      public org.damazio.notifier.command.CommandProtocol.NotificationBatch build() {
+        if (result != null && !isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return buildPartial();
+      }
+      
+      private org.damazio.notifier.command.CommandProtocol.NotificationBatch buildParsed()
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        if (!isInitialized()) {
+          throw newUninitializedMessageException(
+            result).asInvalidProtocolBufferException();
+        }
+        return buildPartial();
+      }
+      
+      public org.damazio.notifier.command.CommandProtocol.NotificationBatch buildPartial() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "build() has already been called on this Builder.");
+        }
+        if (result.notifications_ != java.util.Collections.EMPTY_LIST) {
+          result.notifications_ =
+            java.util.Collections.unmodifiableList(result.notifications_);
+        }
+        org.damazio.notifier.command.CommandProtocol.NotificationBatch returnMe = result;
+        result = null;
+        return returnMe;
+      }
+      
+      public Builder mergeFrom(org.damazio.notifier.command.CommandProtocol.NotificationBatch other) {
+        if (other == org.damazio.notifier.command.CommandProtocol.NotificationBatch.getDefaultInstance()) return this;
+        if (!other.notifications_.isEmpty()) {
+          if (result.notifications_.isEmpty()) {
+            result.notifications_ = new java.util.ArrayList<org.damazio.notifier.command.CommandProtocol.Notification>();
+          }
+          result.notifications_.addAll(other.notifications_);
+        }
+        return this;
+      }
+      
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        while (true) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              return this;
+            default: {
+              if (!parseUnknownField(input, extensionRegistry, tag)) {
+                return this;
+              }
+              break;
+            }
+            case 10: {
+              org.damazio.notifier.command.CommandProtocol.Notification.Builder subBuilder = org.damazio.notifier.command.CommandProtocol.Notification.newBuilder();
+              input.readMessage(subBuilder, extensionRegistry);
+              addNotifications(subBuilder.buildPartial());
+              break;
+            }
+          }
+        }
+      }
+      
+      
+      // repeated .AndroidNotifier.Notification notifications = 1;
+      public java.util.List<org.damazio.notifier.command.CommandProtocol.Notification> getNotificationsList() {
+        return java.util.Collections.unmodifiableList(result.notifications_);
+      }
+      public int getNotificationsCount() {
+        return result.getNotificationsCount();
+      }
+      public org.damazio.notifier.command.CommandProtocol.Notification getNotifications(int index) {
+        return result.getNotifications(index);
+      }
+      public Builder setNotifications(int index, org.damazio.notifier.command.CommandProtocol.Notification value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        result.notifications_.set(index, value);
+        return this;
+      }
+      public Builder setNotifications(int index, org.damazio.notifier.command.CommandProtocol.Notification.Builder builderForValue) {
+        result.notifications_.set(index, builderForValue.build());
+        return this;
+      }
+      public Builder addNotifications(org.damazio.notifier.command.CommandProtocol.Notification value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        if (result.notifications_.isEmpty()) {
+          result.notifications_ = new java.util.ArrayList<org.damazio.notifier.command.CommandProtocol.Notification>();
+        }
+        result.notifications_.add(value);
+        return this;
+      }
+      public Builder addNotifications(org.damazio.notifier.command.CommandProtocol.Notification.Builder builderForValue) {
+        if (result.notifications_.isEmpty()) {
+          result.notifications_ = new java.util.ArrayList<org.damazio.notifier.command.CommandProtocol.Notification>();
+        }
+        result.notifications_.add(builderForValue.build());
+        return this;
+      }
+      public Builder addAllNotifications(
+          java.lang.Iterable<? extends org.damazio.notifier.command.CommandProtocol.Notification> values) {
+        if (result.notifications_.isEmpty()) {
+          result.notifications_ = new java.util.ArrayList<org.damazio.notifier.command.CommandProtocol.Notification>();
+        }
+        super.addAll(values, result.notifications_);
+        return this;
+      }
+      public Builder clearNotifications() {
+        result.notifications_ = java.util.Collections.emptyList();
+        return this;
+      }
+      
+      // @@protoc_insertion_point(builder_scope:AndroidNotifier.NotificationBatch)
+    }
+    
+    static {
+      defaultInstance = new NotificationBatch(true);
+      org.damazio.notifier.command.CommandProtocol.internalForceInit();
+      defaultInstance.initFields();
+    }
+    
+    // @@protoc_insertion_point(class_scope:AndroidNotifier.NotificationBatch)
+  }
+  
   
   static {
   }
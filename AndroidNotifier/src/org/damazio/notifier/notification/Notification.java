@@ -42,7 +42,7 @@ public class Notification implements Parcelable {
   private final String data;
   private final String description;
 
-  private Notification(String deviceId, String notificationId, NotificationType type,
+  Notification(String deviceId, String notificationId, NotificationType type,
       String data, String description) {
     this.deviceId = deviceId;
     this.notificationId = notificationId;
@@ -60,6 +60,20 @@ public class Notification implements Parcelable {
     this.description = description;
   }
   
+  /**
+   * @return the ID of the device which sent the notification, in hexadecimal
+   */
+  public String getDeviceId() {
+    return deviceId;
+  }
+
+  /**
+   * @return the unique ID of the notification, in hexadecimal
+   */
+  public String getNotificationId() {
+    return notificationId;
+  }
+
   /**
    * @return the type of notification
    */
@@ -67,6 +81,20 @@ public class Notification implements Parcelable {
     return type;
   }
 
+  /**
+   * @return the machine-readable data for the notification, may be null
+   */
+  public String getData() {
+    return data;
+  }
+
+  /**
+   * @return the human-readable description of the notification, may be null
+   */
+  public String getDescription() {
+    return description;
+  }
+
   @Override
   public String toString() {
     StringBuilder messageBuilder = new StringBuilder();
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.damazio.notifier.util.Clock;
+
+/**
+ * Holds back notifications of types which can change in quick succession
+ * (such as battery or voicemail state), so that a burst of changes results in
+ * a single notification, or none if things went back to how they were.
+ *
+ * Each type follows a {@link Policy}. Notifications of a delayed type are
+ * released once no new one came for the policy's window, or once the oldest
+ * one waited for its maximum delay. {@link NotificationType#RING} is never
+ * delayed, whatever its policy says.
+ *
+ * This doesn't keep time itself: callers send what {@link #offer} returns,
+ * and call {@link #poll} again at {@link #getNextDeadline}. Not thread-safe.
+ *
+ * @param <T> the type of notification object held back
+ */
+public class NotificationCoalescer<T> {
+
+  /**
+   * How notifications of one type are coalesced.
+   */
+  public static class Policy {
+    /** Sends every notification as soon as it's offered. */
+    public static final Policy IMMEDIATE = new Policy(0, 0, false, 0);
+
+    private final long windowMs;
+    private final long maxDelayMs;
+    private final boolean lastValueWins;
+    private final int levelBand;
+
+    private Policy(long windowMs, long maxDelayMs, boolean lastValueWins, int levelBand) {
+      this.windowMs = windowMs;
+      this.maxDelayMs = Math.max(windowMs, maxDelayMs);
+      this.lastValueWins = lastValueWins;
+      this.levelBand = levelBand;
+    }
+
+    /**
+     * Holds notifications until none came for the given window, then sends
+     * all of them together.
+     *
+     * @param windowMs how long to wait for another notification
+     * @param maxDelayMs the longest the first notification may be held
+     */
+    public static Policy debounce(long windowMs, long maxDelayMs) {
+      return new Policy(windowMs, maxDelayMs, false, 0);
+    }
+
+    /**
+     * Holds notifications until none came for the given window, then sends
+     * only the last one, and only if its state differs from the last one sent
+     * or its level moved at least the given band away from it.
+     *
+     * @param windowMs how long to wait for another notification
+     * @param maxDelayMs the longest the first notification may be held
+     * @param levelBand how much the level must move from the last one sent,
+     *        or 0 if any change counts
+     */
+    public static Policy lastValueWins(long windowMs, long maxDelayMs, int levelBand) {
+      return new Policy(windowMs, maxDelayMs, true, levelBand);
+    }
+
+    public boolean isImmediate() {
+      return windowMs == 0;
+    }
+  }
+
+  /**
+   * Gives the policy for each type, so it can follow the user's preferences.
+   */
+  public interface PolicyProvider {
+    Policy getPolicy(NotificationType type);
+  }
+
+  /**
+   * Notifications of one type being held back.
+   */
+  private static class Pending<T> {
+    final List<T> items = new ArrayList<T>();
+    Policy policy;
+    String state;
+    int level;
+    long firstTime;
+    long lastTime;
+
+    long getDeadline() {
+      return Math.min(lastTime + policy.windowMs, firstTime + policy.maxDelayMs);
+    }
+  }
+
+  /**
+   * The last state sent for one type.
+   */
+  private static class Sent {
+    final String state;
+    final int level;
+
+    Sent(String state, int level) {
+      this.state = state;
+      this.level = level;
+    }
+  }
+
+  private final Clock clock;
+  private final PolicyProvider policies;
+  private final Map<NotificationType, Pending<T>> pending =
+      new EnumMap<NotificationType, Pending<T>>(NotificationType.class);
+  private final Map<NotificationType, Sent> lastSent =
+      new EnumMap<NotificationType, Sent>(NotificationType.class);
+
+  public NotificationCoalescer(Clock clock, PolicyProvider policies) {
+    this.clock = clock;
+    this.policies = policies;
+  }
+
+  /**
+   * Offers a notification.
+   *
+   * @param type the type of notification
+   * @param state what the notification reports, changes to which are always
+   *        sent (e.g. charging or discharging), may be null
+   * @param level a level such as the battery charge, or -1 if none
+   * @param item the notification, or null to only record a state which is not
+   *        notified about (e.g. voicemail being cleared)
+   * @return the notifications to send now, in order
+   */
+  public List<T> offer(NotificationType type, String state, int level, T item) {
+    List<T> ready = poll();
+    Policy policy = getPolicy(type);
+    long now = clock.currentTimeMillis();
+
+    Pending<T> held = pending.get(type);
+    if (policy.isImmediate()) {
+      if (held != null) {
+        // Keep the order if the policy just changed
+        pending.remove(type);
+        release(type, held, ready);
+      }
+      lastSent.put(type, new Sent(state, level));
+      if (item != null) {
+        ready.add(item);
+      }
+      return ready;
+    }
+
+    if (held == null) {
+      held = new Pending<T>();
+      held.firstTime = now;
+      pending.put(type, held);
+    }
+    if (policy.lastValueWins) {
+      held.items.clear();
+    }
+    if (item != null) {
+      held.items.add(item);
+    }
+    held.policy = policy;
+    held.state = state;
+    held.level = level;
+    held.lastTime = now;
+    return ready;
+  }
+
+  /**
+   * @return the held notifications whose time has come, in order
+   */
+  public List<T> poll() {
+    List<T> ready = new ArrayList<T>();
+    long now = clock.currentTimeMillis();
+    for (Iterator<Map.Entry<NotificationType, Pending<T>>> it = pending.entrySet().iterator();
+         it.hasNext(); ) {
+      Map.Entry<NotificationType, Pending<T>> entry = it.next();
+      NotificationType type = entry.getKey();
+      Pending<T> held = entry.getValue();
+      if (now >= held.getDeadline()) {
+        it.remove();
+        release(type, held, ready);
+      }
+    }
+    return ready;
+  }
+
+  /**
+   * Releases every held notification, regardless of its deadline.
+   *
+   * @return the notifications to send now, in order
+   */
+  public List<T> flush() {
+    List<T> ready = new ArrayList<T>();
+    for (Map.Entry<NotificationType, Pending<T>> entry : pending.entrySet()) {
+      release(entry.getKey(), entry.getValue(), ready);
+    }
+    pending.clear();
+    return ready;
+  }
+
+  /**
+   * @return the time at which {@link #poll} should be called next, or -1 if
+   *         nothing is held
+   */
+  public long getNextDeadline() {
+    long next = -1;
+    for (Pending<T> held : pending.values()) {
+      long deadline = held.getDeadline();
+      if (next < 0 || deadline < next) {
+        next = deadline;
+      }
+    }
+    return next;
+  }
+
+  /**
+   * @return how many types have notifications held back
+   */
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  private Policy getPolicy(NotificationType type) {
+    if (type == NotificationType.RING) {
+      return Policy.IMMEDIATE;
+    }
+    Policy policy = policies.getPolicy(type);
+    return policy != null ? policy : Policy.IMMEDIATE;
+  }
+
+  private void release(NotificationType type, Pending<T> held, List<T> ready) {
+    if (held.policy.lastValueWins && isUnchanged(type, held)) {
+      return;
+    }
+    lastSent.put(type, new Sent(held.state, held.level));
+    ready.addAll(held.items);
+  }
+
+  private boolean isUnchanged(NotificationType type, Pending<T> held) {
+    Sent sent = lastSent.get(type);
+    if (sent == null) {
+      return false;
+    }
+    boolean sameState = (sent.state == null)
+        ? held.state == null
+        : sent.state.equals(held.state);
+    return sameState
+        && (held.level == sent.level || Math.abs(held.level - sent.level) < held.policy.levelBand);
+  }
+}
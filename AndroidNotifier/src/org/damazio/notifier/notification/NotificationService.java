@@ -26,14 +26,21 @@
  */
 package org.damazio.notifier.notification;
 
+import java.util.List;
+
 import org.damazio.notifier.NotifierConstants;
 import org.damazio.notifier.NotifierPreferences;
+import org.damazio.notifier.notification.NotificationCoalescer.Policy;
 import org.damazio.notifier.notification.events.BatteryReceiver;
 import org.damazio.notifier.notification.events.VoicemailListener;
+import org.damazio.notifier.util.Clock;
 
+import android.bluetooth.BluetoothAdapter;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.net.ConnectivityManager;
 import android.os.Handler;
 import android.telephony.PhoneStateListener;
 import android.telephony.TelephonyManager;
@@ -46,6 +53,12 @@ import android.util.Log;
  * @author Rodrigo Damazio
  */
 public class NotificationService {
+  // A charger being plugged in and out, or voicemail flickering, is only
+  // notified once things settle
+  private static final long BATTERY_WINDOW_MS = 15 * 1000;
+  private static final long BATTERY_MAX_DELAY_MS = 60 * 1000;
+  private static final long VOICEMAIL_WINDOW_MS = 5 * 1000;
+  private static final long VOICEMAIL_MAX_DELAY_MS = 30 * 1000;
 
   private final Context context;
   private final NotifierPreferences preferences;
@@ -55,22 +68,134 @@ public class NotificationService {
   private final VoicemailListener voicemailListener;
   private final BatteryReceiver batteryReceiver;
 
+  /**
+   * Coalescing policy for each type. Others are sent right away.
+   */
+  private final NotificationCoalescer.PolicyProvider coalescingPolicies =
+      new NotificationCoalescer.PolicyProvider() {
+        public Policy getPolicy(NotificationType type) {
+          switch (type) {
+            case BATTERY:
+              return Policy.lastValueWins(BATTERY_WINDOW_MS, BATTERY_MAX_DELAY_MS,
+                  preferences.getMinBatteryLevelChange());
+            case VOICEMAIL:
+              return Policy.lastValueWins(VOICEMAIL_WINDOW_MS, VOICEMAIL_MAX_DELAY_MS, 0);
+            default:
+              return Policy.IMMEDIATE;
+          }
+        }
+      };
+
+  // Only used from the instance handler
+  private final NotificationCoalescer<Notification> coalescer =
+      new NotificationCoalescer<Notification>(Clock.SYSTEM, coalescingPolicies);
+
+  /**
+   * Sends the held notifications whose time has come.
+   */
+  private final Runnable coalescerTask = new Runnable() {
+    public void run() {
+      sendReady(coalescer.poll());
+      scheduleCoalescer();
+    }
+  };
+
+  /**
+   * Sends notifications that could not be delivered when a network or bluetooth comes up.
+   */
+  private final BroadcastReceiver connectivityReceiver = new BroadcastReceiver() {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+      if (!intent.getBooleanExtra(ConnectivityManager.EXTRA_NO_CONNECTIVITY, false)) {
+        sendPendingNotifications();
+      }
+    }
+  };
+
   public NotificationService(Context context, NotifierPreferences preferences) {
     this.context = context;
     this.preferences = preferences;
 
-    this.voicemailListener = new VoicemailListener(context);
-    this.batteryReceiver = new BatteryReceiver();
+    this.voicemailListener = new VoicemailListener(context, this);
+    this.batteryReceiver = new BatteryReceiver(this, preferences);
   }
 
   /**
    * Sends the given notification.
    */
-  public void sendNotification(final Notification notification) {
+  public void sendNotification(Notification notification) {
+    sendNotification(notification, notification.getDescription(), -1);
+  }
+
+  /**
+   * Sends the given notification, possibly coalescing it with others of the
+   * same type (see {@link NotificationCoalescer#offer}).
+   *
+   * @param state what the notification reports, changes to which are always sent
+   * @param level a level such as the battery charge, or -1 if none
+   */
+  public void sendNotification(Notification notification, String state, int level) {
+    offer(notification.getType(), state, level, notification);
+  }
+
+  /**
+   * Records a state which is not notified about, so that going back to the
+   * state last notified about is not notified again.
+   */
+  public void updateState(NotificationType type, String state) {
+    offer(type, state, -1, null);
+  }
+
+  private void offer(final NotificationType type, final String state, final int level,
+      final Notification notification) {
+    synchronized (this) {
+      instanceHandler.post(new Runnable() {
+        public void run() {
+          sendReady(coalescer.offer(type, state, level, notification));
+          scheduleCoalescer();
+        }
+      });
+    }
+  }
+
+  private void sendReady(List<Notification> ready) {
+    if (ready.size() == 1) {
+      notifier.sendNotification(ready.get(0));
+    } else if (!ready.isEmpty()) {
+      notifier.sendNotifications(ready);
+    }
+  }
+
+  private void scheduleCoalescer() {
+    instanceHandler.removeCallbacks(coalescerTask);
+    long deadline = coalescer.getNextDeadline();
+    if (deadline >= 0) {
+      instanceHandler.postDelayed(coalescerTask,
+          Math.max(0, deadline - System.currentTimeMillis()));
+    }
+  }
+
+  /**
+   * Sends notifications which happened together.
+   */
+  public void sendNotifications(final List<Notification> notifications) {
+    synchronized (this) {
+      instanceHandler.post(new Runnable() {
+        public void run() {
+          notifier.sendNotifications(notifications);
+        }
+      });
+    }
+  }
+
+  /**
+   * Sends the notifications which could not be delivered before.
+   */
+  public void sendPendingNotifications() {
     synchronized (this) {
       instanceHandler.post(new Runnable() {
         public void run() {
-          notifier.sendNotification(notification);
+          notifier.sendPendingNotifications();
         }
       });
     }
@@ -95,6 +220,13 @@ public class NotificationService {
       // Register the battery receiver
       // (can't be registered in the manifest for some reason)
       context.registerReceiver(batteryReceiver, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+
+      // Catch up on notifications which could not be delivered, now or once a medium comes up
+      IntentFilter connectivityFilter = new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION);
+      // Only the constant is used, so this is safe before 2.0
+      connectivityFilter.addAction(BluetoothAdapter.ACTION_STATE_CHANGED);
+      context.registerReceiver(connectivityReceiver, connectivityFilter);
+      notifier.sendPendingNotifications();
     }
   }
 
@@ -102,8 +234,15 @@ public class NotificationService {
     Log.i(NotifierConstants.LOG_TAG, "Notification service going down.");
 
     synchronized (this) {
+      instanceHandler.removeCallbacks(coalescerTask);
       notifier.shutdown();
 
+      try {
+        context.unregisterReceiver(connectivityReceiver);
+      } catch (IllegalArgumentException e) {
+        Log.w(NotifierConstants.LOG_TAG, "Unable to unregister connectivity listener", e);
+      }
+
       try {
         context.unregisterReceiver(batteryReceiver);
       } catch (IllegalArgumentException e) {
@@ -24,8 +24,13 @@
  */
 package org.damazio.notifier.notification;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.damazio.notifier.NotifierConstants;
@@ -33,10 +38,16 @@ import org.damazio.notifier.NotifierPreferences;
 import org.damazio.notifier.notification.methods.NotificationMethod;
 import org.damazio.notifier.notification.methods.NotificationMethods;
 import org.damazio.notifier.notification.methods.NotificationMethod.NotificationCallback;
+import org.damazio.notifier.notification.outbox.NotificationOutbox;
+import org.damazio.notifier.notification.outbox.OutboxEntry;
+import org.damazio.notifier.notification.sender.LooperWorkers;
+import org.damazio.notifier.notification.sender.SendScheduler;
+import org.damazio.notifier.notification.sender.SendScheduler.Completion;
+import org.damazio.notifier.notification.sender.SendScheduler.Task;
+import org.damazio.notifier.util.Clock;
 import org.damazio.notifier.util.Encryption;
 
 import android.content.Context;
-import android.os.Looper;
 import android.util.Log;
 
 /**
@@ -48,12 +59,31 @@ import android.util.Log;
 public class Notifier {
 
   private static final byte DELIMITER_BYTE = 0;
+  private static final String OUTBOX_FILE = "outbox";
+  private static final int OUTBOX_CAPACITY = 100;
+  private static final int MAX_BATCH_SIZE = 50;
+  private static final int MAX_BATCH_BYTES = 64 * 1024;
+  private static final int SENDER_THREADS = 3;
+
   private final NotifierPreferences preferences;
   private final Set<NotificationMethod> allMethods;
+  private final NotificationOutbox outbox;
+  private final LooperWorkers senderWorkers;
+  private final SendScheduler sendScheduler;
 
   public Notifier(Context context, NotifierPreferences preferences) {
     this.preferences = preferences;
     allMethods = NotificationMethods.getAllValidMethods(context, preferences);
+    senderWorkers = new LooperWorkers("Notification sender", SENDER_THREADS);
+    sendScheduler = new SendScheduler(senderWorkers, senderWorkers.getCount());
+
+    outbox = new NotificationOutbox(new File(context.getFilesDir(), OUTBOX_FILE),
+        OUTBOX_CAPACITY, NotificationOutbox.getDefaultMaxAges(), Clock.SYSTEM);
+    try {
+      outbox.load();
+    } catch (IOException e) {
+      Log.e(NotifierConstants.LOG_TAG, "Unable to load undelivered notifications", e);
+    }
   }
 
   /**
@@ -69,34 +99,260 @@ public class Notifier {
       return;
     }
 
-    // Serialize the notification
     Log.d(NotifierConstants.LOG_TAG, "Sending notification: " + notification);
-    final byte[] payload = serializeNotification(notification);
-    if (payload == null) {
+
+    // Ping notifications can only be sent from the UI
+    boolean isForeground = notification.getType() == NotificationType.PING;
+    long timestamp = System.currentTimeMillis();
+
+    // Serialized when first needed, in the format each method takes
+    boolean protobuf = preferences.isProtobufFormatEnabled();
+    byte[] textPayload = null;
+    byte[] protobufPayload = null;
+
+    for (NotificationMethod method : allMethods) {
+      // Skip the method if disabled
+      if (!method.isEnabled()) {
+        continue;
+      }
+
+      byte[] payload;
+      if (protobuf && method.isFramed()) {
+        if (protobufPayload == null) {
+          protobufPayload = serializeProtobuf(notification);
+        }
+        payload = protobufPayload;
+      } else {
+        if (textPayload == null) {
+          textPayload = serializeNotification(notification);
+        }
+        payload = textPayload;
+      }
+      if (payload == null) {
+        continue;
+      }
+
+      sendPayload(method, payload, notification.getType(), timestamp, isForeground);
+    }
+  }
+
+  /**
+   * Sends notifications which happened together. If enabled, and the compact
+   * format is used, they're sent in a single message over the methods that
+   * allow it, otherwise each is sent as by {@link #sendNotification}.
+   *
+   * @param notifications the notifications to send, in the order they happened
+   */
+  public void sendNotifications(List<Notification> notifications) {
+    final List<Notification> enabled = new ArrayList<Notification>(notifications.size());
+    for (Notification notification : notifications) {
+      if (isNotificationEnabled(notification)) {
+        enabled.add(notification);
+      }
+    }
+
+    // Batches only exist in the compact format
+    final byte[] batchPayload = (enabled.size() > 1 && preferences.isSendBatchesEnabled()
+        && preferences.isProtobufFormatEnabled()) ? serializeBatch(enabled) : null;
+    if (batchPayload == null) {
+      for (Notification notification : enabled) {
+        sendNotification(notification);
+      }
       return;
     }
 
-    // Ping notifications can only be sent from the UI
-    final boolean isForeground = notification.getType() == NotificationType.PING;
+    // Each notification on its own, for methods and targets which can't take the batch
+    Log.d(NotifierConstants.LOG_TAG, "Sending batch of " + enabled.size() + " notifications");
+    final List<byte[]> payloads = new ArrayList<byte[]>(enabled.size());
+    final List<byte[]> framedPayloads = new ArrayList<byte[]>(enabled.size());
+    final List<NotificationType> types = new ArrayList<NotificationType>(enabled.size());
+    for (Notification notification : enabled) {
+      byte[] payload = serializeNotification(notification);
+      byte[] framedPayload = serializeProtobuf(notification);
+      if (payload != null && framedPayload != null) {
+        payloads.add(payload);
+        framedPayloads.add(framedPayload);
+        types.add(notification.getType());
+      }
+    }
+    final long timestamp = System.currentTimeMillis();
 
     for (final NotificationMethod method : allMethods) {
-      // Skip the method if disabled
       if (!method.isEnabled()) {
         continue;
       }
 
-      Iterable<?> targets = method.getTargets();
-      for (final Object target : targets) {
-        // Start a new thread with a looper to send the notification in
-        new Thread("Notification " + method.getName() + " for " + target) {
-          public void run() {
-            runNotificationThread(method, payload, target, isForeground);
+      if (!method.isFramed()) {
+        for (int i = 0; i < payloads.size(); i++) {
+          sendPayload(method, payloads.get(i), types.get(i), timestamp, false);
+        }
+        continue;
+      }
+
+      boolean hasTargets = false;
+      for (final Object target : method.getTargets()) {
+        hasTargets = true;
+        final String sendKey = getSendKey(method, target);
+        sendScheduler.submit(sendKey, new Task() {
+          public void run(final Completion completion) {
+            method.sendNotifications(Collections.singletonList(batchPayload), target,
+                new NotificationCallback() {
+                  public void notificationDone(Object target, Throwable failureReason) {
+                    try {
+                      if (failureReason == null) {
+                        sendPendingNotifications(method, target);
+                        return;
+                      }
+
+                      // Try them one by one, which also enables the medium if needed
+                      Log.d(NotifierConstants.LOG_TAG, "Unable to send batch over "
+                          + method.getName() + ", sending notifications separately");
+                      List<Task> retries = new ArrayList<Task>(framedPayloads.size());
+                      for (int i = 0; i < framedPayloads.size(); i++) {
+                        retries.add(newSendTask(method, framedPayloads.get(i), target, false,
+                            types.get(i), timestamp));
+                      }
+                      sendScheduler.submitFirst(sendKey, retries);
+                    } finally {
+                      completion.done();
+                    }
+                  }
+                });
+          }
+        });
+      }
+
+      if (!hasTargets) {
+        for (int i = 0; i < framedPayloads.size(); i++) {
+          keepUndelivered(method, null, types.get(i), timestamp, framedPayloads.get(i));
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends a serialized notification to every target of the method, keeping it
+   * for later if there are none.
+   */
+  private void sendPayload(NotificationMethod method, byte[] payload, NotificationType type,
+      long timestamp, boolean isForeground) {
+    boolean hasTargets = false;
+    for (Object target : method.getTargets()) {
+      hasTargets = true;
+      sendScheduler.submit(getSendKey(method, target),
+          newSendTask(method, payload, target, isForeground, type, timestamp));
+    }
+
+    if (!hasTargets) {
+      keepUndelivered(method, null, type, timestamp, payload);
+    }
+  }
+
+  /**
+   * Sends the notifications which could not be delivered before to every
+   * target that has some waiting, e.g. after a network comes back.
+   */
+  public void sendPendingNotifications() {
+    for (NotificationMethod method : allMethods) {
+      if (!method.isEnabled()) {
+        continue;
+      }
+
+      for (Object target : method.getTargets()) {
+        sendPendingNotifications(method, target);
+      }
+    }
+  }
+
+  /**
+   * Sends the notifications waiting for the given target in a single batch,
+   * then the next batch if there are more.
+   */
+  private void sendPendingNotifications(final NotificationMethod method, final Object target) {
+    String destination = getDestination(method, target);
+    if (destination == null || !outbox.hasPending(destination)) {
+      return;
+    }
+
+    final List<OutboxEntry> batch;
+    try {
+      batch = outbox.takeBatch(destination, MAX_BATCH_SIZE, MAX_BATCH_BYTES);
+    } catch (IOException e) {
+      Log.e(NotifierConstants.LOG_TAG, "Unable to read undelivered notifications", e);
+      return;
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    sendScheduler.submit(getSendKey(method, target), new Task() {
+      public void run(final Completion completion) {
+        Log.d(NotifierConstants.LOG_TAG, "Sending " + batch.size()
+            + " undelivered notifications over " + method.getName());
+        List<byte[]> payloads = new ArrayList<byte[]>(batch.size());
+        for (OutboxEntry entry : batch) {
+          payloads.add(entry.getPayload());
+        }
+
+        method.sendNotifications(payloads, target, new NotificationCallback() {
+          public void notificationDone(Object target, Throwable failureReason) {
+            try {
+              if (failureReason != null) {
+                outbox.failed(batch);
+                return;
+              }
+
+              try {
+                outbox.delivered(batch);
+              } catch (IOException e) {
+                Log.e(NotifierConstants.LOG_TAG, "Unable to save undelivered notifications", e);
+              }
+              sendPendingNotifications(method, target);
+            } finally {
+              completion.done();
+            }
           }
-        }.start();
+        });
+      }
+    });
+  }
+
+  /**
+   * Keeps a notification that could not be delivered, so it's sent when the target can be reached.
+   */
+  private void keepUndelivered(NotificationMethod method, Object target, NotificationType type,
+      long timestamp, byte[] payload) {
+    String destination = getDestination(method, target);
+    if (destination == null) {
+      return;
+    }
+
+    try {
+      if (outbox.add(destination, type, timestamp, payload)) {
+        Log.d(NotifierConstants.LOG_TAG, "Keeping undelivered " + type + " notification for "
+            + destination);
       }
+    } catch (IOException e) {
+      Log.e(NotifierConstants.LOG_TAG, "Unable to save undelivered notification", e);
     }
   }
 
+  /**
+   * @return the outbox destination for the method and target, null if it should not be kept
+   */
+  private static String getDestination(NotificationMethod method, Object target) {
+    String targetKey = method.getTargetKey(target);
+    return targetKey == null ? null : method.getName() + "/" + targetKey;
+  }
+
+  /**
+   * @return the key under which sends to the method and target are kept in order
+   */
+  private static String getSendKey(NotificationMethod method, Object target) {
+    String destination = getDestination(method, target);
+    return destination == null ? method.getName() + "/" + target : destination;
+  }
+
   /**
    * Serializes the notification into a byte array, applying all necessary transformations.
    *
@@ -120,23 +376,62 @@ public class Notifier {
   }
 
   /**
-   * Encrypts the given payload if the configuration has requested it.
+   * Serializes the notification into a protobuf frame, which only methods
+   * that keep payloads apart can send.
    *
-   * @param payload the payload to encrypt
-   * @return the encrypted payload
+   * @return the serialized notification, or null if it could not be serialized
    */
-  private byte[] maybeEncrypt(byte[] payload) {
+  private byte[] serializeProtobuf(Notification notification) {
+    try {
+      return new ProtobufNotificationSerializer(getEncryption()).serialize(notification);
+    } catch (GeneralSecurityException e) {
+      Log.e(NotifierConstants.LOG_TAG, "Unable to encrypt notification", e);
+      return null;
+    }
+  }
+
+  /**
+   * Serializes several notifications into a single batch message.
+   *
+   * @return the serialized batch, or null if it could not be serialized
+   */
+  private byte[] serializeBatch(List<Notification> notifications) {
+    try {
+      return new ProtobufNotificationSerializer(getEncryption()).serializeBatch(notifications);
+    } catch (GeneralSecurityException e) {
+      Log.e(NotifierConstants.LOG_TAG, "Unable to encrypt batch", e);
+      return null;
+    }
+  }
+
+  /**
+   * @return the encryption to apply to payloads, or null if they should not be encrypted
+   */
+  private Encryption getEncryption() {
     if (!preferences.isEncryptionEnabled()) {
-      return payload;
+      return null;
     }
 
     byte[] encryptionKey = preferences.getEncryptionKey();
     if (encryptionKey == null) {
       Log.w(NotifierConstants.LOG_TAG, "No encryption key specified");
+      return null;
+    }
+    return new Encryption(encryptionKey);
+  }
+
+  /**
+   * Encrypts the given payload if the configuration has requested it.
+   *
+   * @param payload the payload to encrypt
+   * @return the encrypted payload
+   */
+  private byte[] maybeEncrypt(byte[] payload) {
+    Encryption encryption = getEncryption();
+    if (encryption == null) {
       return payload;
     }
 
-    Encryption encryption = new Encryption(encryptionKey);
     try {
       return encryption.encrypt(payload);
     } catch (GeneralSecurityException e) {
@@ -161,19 +456,31 @@ public class Notifier {
   }
 
   /**
-   * Sets up the current thread to send a notification (by starting a looper),
-   * then send it.
+   * Creates a task which sends the notification, keeping it for later if it
+   * can't be delivered. Tasks run in a thread with a looper, as methods which
+   * enable their medium need one.
    */
-  private void runNotificationThread(NotificationMethod method, byte[] payload,
-      Object target, boolean isForeground) {
-    Looper.prepare();
-    final Looper looper = Looper.myLooper();
-    method.sendNotification(payload, target, new NotificationCallback() {
-      public void notificationDone(Object target, Throwable failureReason) {
-        looper.quit();
+  private Task newSendTask(final NotificationMethod method, final byte[] payload,
+      final Object target, final boolean isForeground, final NotificationType type,
+      final long timestamp) {
+    return new Task() {
+      public void run(final Completion completion) {
+        method.sendNotification(payload, target, new NotificationCallback() {
+          public void notificationDone(Object target, Throwable failureReason) {
+            try {
+              if (failureReason == null) {
+                // The target is reachable, catch up on what it missed
+                sendPendingNotifications(method, target);
+              } else {
+                keepUndelivered(method, target, type, timestamp, payload);
+              }
+            } finally {
+              completion.done();
+            }
+          }
+        }, isForeground);
       }
-    }, isForeground);
-    Looper.loop();
+    };
   }
 
   /**
@@ -201,6 +508,12 @@ public class Notifier {
   }
 
   public void shutdown() {
+    List<Task> dropped = sendScheduler.shutdown();
+    if (!dropped.isEmpty()) {
+      Log.w(NotifierConstants.LOG_TAG, "Dropping " + dropped.size() + " queued notifications");
+    }
+    senderWorkers.quit();
+
     for (NotificationMethod method : allMethods) {
       method.shutdown();
     }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.util.List;
+
+import org.damazio.notifier.command.CommandProtocol;
+import org.damazio.notifier.util.Encryption;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+
+/**
+ * Serializes notifications into the protobuf frames read by the desktop
+ * application: the length of the whole frame as a varint, a byte telling how
+ * the message is encrypted and whether it's a batch, then the message itself.
+ */
+public class ProtobufNotificationSerializer {
+  static final byte NOT_ENCRYPTED = 0;
+  static final byte ENCRYPTED_CBC = 1;
+  /** Added to the encryption byte when the message is a batch. */
+  static final byte BATCH = 0x10;
+
+  private final Encryption encryption;
+
+  /**
+   * @param encryption used to encrypt the messages, or null to not encrypt them
+   */
+  public ProtobufNotificationSerializer(Encryption encryption) {
+    this.encryption = encryption;
+  }
+
+  /**
+   * Serializes a single notification into a frame.
+   */
+  public byte[] serialize(Notification notification) throws GeneralSecurityException {
+    return frame(NOT_ENCRYPTED, toProto(notification));
+  }
+
+  /**
+   * Serializes several notifications into a single frame, which the desktop
+   * handles in the same order.
+   */
+  public byte[] serializeBatch(List<Notification> notifications)
+      throws GeneralSecurityException {
+    CommandProtocol.NotificationBatch.Builder batch =
+        CommandProtocol.NotificationBatch.newBuilder();
+    for (Notification notification : notifications) {
+      batch.addNotifications(toProto(notification));
+    }
+    return frame(BATCH, batch.build());
+  }
+
+  /**
+   * Adds the frame header to the message, encrypting it if needed.
+   * Unencrypted messages are written straight into the frame.
+   */
+  byte[] frame(byte flags, MessageLite message) throws GeneralSecurityException {
+    if (encryption != null) {
+      return frame((byte) (flags | ENCRYPTED_CBC), encryption.encrypt(message.toByteArray()));
+    }
+
+    byte[] frame = new byte[getFrameLength(message.getSerializedSize())];
+    CodedOutputStream output = CodedOutputStream.newInstance(frame);
+    try {
+      output.writeRawVarint32(frame.length);
+      output.writeRawByte(flags);
+      message.writeTo(output);
+      output.checkNoSpaceLeft();
+    } catch (IOException e) {
+      // Only thrown if the frame length is wrong
+      throw new IllegalStateException(e);
+    }
+    return frame;
+  }
+
+  /**
+   * Adds the frame header to an already encoded message.
+   */
+  byte[] frame(byte flags, byte[] message) {
+    byte[] frame = new byte[getFrameLength(message.length)];
+    CodedOutputStream output = CodedOutputStream.newInstance(frame);
+    try {
+      output.writeRawVarint32(frame.length);
+      output.writeRawByte(flags);
+      output.writeRawBytes(message);
+      output.checkNoSpaceLeft();
+    } catch (IOException e) {
+      // Only thrown if the frame length is wrong
+      throw new IllegalStateException(e);
+    }
+    return frame;
+  }
+
+  /**
+   * @return the length of the frame around a message of the given length
+   */
+  private static int getFrameLength(int messageLength) {
+    // The length includes its own varint, which may need one more byte once added
+    int length = messageLength + 1;
+    return length + CodedOutputStream.computeRawVarint32Size(
+        length + CodedOutputStream.computeRawVarint32Size(length));
+  }
+
+  static CommandProtocol.Notification toProto(Notification notification) {
+    CommandProtocol.Notification.Builder builder = CommandProtocol.Notification.newBuilder()
+        .setDeviceId(parseId(notification.getDeviceId()))
+        .setDeviceIdString(notification.getDeviceId())
+        .setId(parseId(notification.getNotificationId()))
+        .setType(toProtoType(notification.getType()));
+
+    String data = notification.getData();
+    if (data != null) {
+      switch (notification.getType()) {
+        case BATTERY:
+          try {
+            builder.setBatteryLevel(Integer.parseInt(data));
+          } catch (NumberFormatException e) {
+            // Leave it unknown
+          }
+          break;
+        case RING:
+        case SMS:
+        case MMS:
+          builder.setPhoneNumber(data);
+          break;
+        case USER:
+          builder.setTitle(data);
+          break;
+      }
+    }
+    if (notification.getDescription() != null) {
+      builder.setDescription(notification.getDescription());
+    }
+    return builder.build();
+  }
+
+  private static CommandProtocol.Notification.Type toProtoType(NotificationType type) {
+    switch (type) {
+      case RING:
+        return CommandProtocol.Notification.Type.RING;
+      case SMS:
+        return CommandProtocol.Notification.Type.SMS;
+      case MMS:
+        return CommandProtocol.Notification.Type.MMS;
+      case BATTERY:
+        return CommandProtocol.Notification.Type.BATTERY;
+      case VOICEMAIL:
+        return CommandProtocol.Notification.Type.VOICEMAIL;
+      case PING:
+        return CommandProtocol.Notification.Type.PING;
+      case USER:
+        return CommandProtocol.Notification.Type.USER;
+      default:
+        throw new IllegalArgumentException("Unknown notification type: " + type);
+    }
+  }
+
+  /**
+   * Converts a hexadecimal ID into the 64 bits the protocol carries. This loses
+   * leading zeros, so the device ID is also sent as a string.
+   */
+  static long parseId(String id) {
+    try {
+      return new BigInteger(id, 16).longValue();
+    } catch (NumberFormatException e) {
+      return id.hashCode();
+    }
+  }
+}
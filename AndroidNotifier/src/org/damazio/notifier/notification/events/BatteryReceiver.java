@@ -28,8 +28,8 @@ import org.damazio.notifier.NotifierConstants;
 import org.damazio.notifier.NotifierPreferences;
 import org.damazio.notifier.R;
 import org.damazio.notifier.notification.Notification;
+import org.damazio.notifier.notification.NotificationService;
 import org.damazio.notifier.notification.NotificationType;
-import org.damazio.notifier.service.NotifierService;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
@@ -41,16 +41,25 @@ import android.util.Log;
 /**
  * Receiver for battery state change events.
  *
+ * How much the level must change before it's notified, and waiting for the
+ * state to settle, are left to the {@link NotificationService}'s coalescing.
+ *
  * @author Rodrigo Damazio
  */
 public class BatteryReceiver extends BroadcastReceiver {
-  
-  // Keep the last notified state - only send a notification if it has changed
-  // We need this because the granularity of the battery level changes is much
-  // finer than we want to notify for.
+  private final NotificationService service;
+  private final NotifierPreferences preferences;
+
+  // Keep the last reported state - the battery changed broadcast also comes
+  // for changes we don't report, such as voltage and temperature.
   private int lastBatteryStatus = -1;
   private int lastBatteryLevelPercentage = -1;
 
+  public BatteryReceiver(NotificationService service, NotifierPreferences preferences) {
+    this.service = service;
+    this.preferences = preferences;
+  }
+
   @Override
   public void onReceive(Context context, Intent intent) {
     if (!intent.getAction().equals(Intent.ACTION_BATTERY_CHANGED)) {
@@ -58,7 +67,6 @@ public class BatteryReceiver extends BroadcastReceiver {
           "Wrong intent received by battery receiver - " + intent.getAction());
       return;
     }
-    NotifierPreferences preferences = new NotifierPreferences(context);
     if (!preferences.isBatteryEventEnabled()) {
       Log.d(NotifierConstants.LOG_TAG, "Ignoring battery event, disabled.");
       return;
@@ -116,24 +124,17 @@ public class BatteryReceiver extends BroadcastReceiver {
     }
 
     synchronized (this) {
-      int batteryLevelChange = Math.abs(lastBatteryLevelPercentage - batteryLevelPercentage);
-      Log.d(NotifierConstants.LOG_TAG, "Battery level change: " + batteryLevelChange);
-
-      // Only notify if there were relevant changes - either:
-      // 1. The status changed (charging/discharging/etc) and we're in range
-      // 2. The percentage changed enough and we're in range
       boolean inRange =
           batteryLevelPercentage >= preferences.getMinBatteryLevel() &&
           batteryLevelPercentage <= preferences.getMaxBatteryLevel();
       if (inRange &&
-          (status != lastBatteryStatus ||
-           batteryLevelChange >= preferences.getMinBatteryLevelChange())) {
-        Log.d(NotifierConstants.LOG_TAG, "Notifying of battery state change");
+          (status != lastBatteryStatus || batteryLevelPercentage != lastBatteryLevelPercentage)) {
+        Log.d(NotifierConstants.LOG_TAG, "Reporting battery state change");
         String data = Integer.toString(batteryLevelPercentage);
         Notification notification =
             new Notification(context, NotificationType.BATTERY, data, contents);
-        NotifierService.startAndSend(context, notification);
-  
+        service.sendNotification(notification, Integer.toString(status), batteryLevelPercentage);
+
         lastBatteryStatus = status;
         lastBatteryLevelPercentage = batteryLevelPercentage;
       } else {
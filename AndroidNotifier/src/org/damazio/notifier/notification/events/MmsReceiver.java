@@ -31,9 +31,8 @@ import org.damazio.notifier.notification.Notification;
 import org.damazio.notifier.notification.NotificationType;
 import org.damazio.notifier.service.NotifierService;
 import org.damazio.notifier.util.CallerId;
-import org.damazio.notifier.util.mms.EncodedStringValue;
+import org.damazio.notifier.util.mms.PduHeaderReader;
 import org.damazio.notifier.util.mms.PduHeaders;
-import org.damazio.notifier.util.mms.PduParser;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
@@ -71,28 +70,39 @@ public class MmsReceiver extends BroadcastReceiver {
       return;
     }
 
-    // Parse the WAP push contents
-    PduParser parser = new PduParser();
-    PduHeaders headers = parser.parseHeaders(intent.getByteArrayExtra("data"));
-    if (headers == null) {
-      Log.e(NotifierConstants.LOG_TAG, "Couldn't parse headers for WAP PUSH.");
+    byte[] pdu = intent.getByteArrayExtra("data");
+    if (pdu == null) {
+      Log.e(NotifierConstants.LOG_TAG, "No data in WAP PUSH.");
       return;
     }
+
+    // Only the few headers we show are read from the WAP push contents
+    PduHeaderReader headers = new PduHeaderReader(pdu);
     int messageType = headers.getMessageType();
+    if (messageType < 0) {
+      Log.e(NotifierConstants.LOG_TAG, "Couldn't parse headers for WAP PUSH.");
+      return;
+    }
     Log.d(NotifierConstants.LOG_TAG,
         "WAP PUSH message type: 0x" + Integer.toHexString(messageType));
 
     // Check if it's a MMS notification
     if (messageType == PduHeaders.MESSAGE_TYPE_NOTIFICATION_IND) {
-      String contents = null;
-      String data = null;
-      EncodedStringValue from = headers.getFrom();
-      if (from != null) {
-        String fromStr = from.getString();
-        String identifiedFrom = CallerId.create(service).buildCallerIdString(fromStr);
-        contents = service.getString(R.string.mms_contents, identifiedFrom);
-        data = fromStr;
+      String data = headers.getFrom();
+      String identifiedFrom = (data != null)
+          ? CallerId.create(service).buildCallerIdString(data)
+          : service.getString(R.string.unknown_number);
+
+      String subject = headers.getSubject();
+      String contents = (subject != null && subject.length() > 0)
+          ? service.getString(R.string.mms_contents_subject, identifiedFrom, subject)
+          : service.getString(R.string.mms_contents, identifiedFrom);
+
+      long size = headers.getMessageSize();
+      if (size > 0) {
+        contents = service.getString(R.string.mms_size, contents, (size + 1023) / 1024);
       }
+
       Notification notification = new Notification(context, NotificationType.MMS, data, contents);
       NotifierService.startAndSend(context, notification);
     }
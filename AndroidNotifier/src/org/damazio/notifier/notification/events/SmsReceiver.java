@@ -24,26 +24,46 @@
  */
 package org.damazio.notifier.notification.events;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.damazio.notifier.NotifierConstants;
 import org.damazio.notifier.NotifierPreferences;
 import org.damazio.notifier.notification.Notification;
 import org.damazio.notifier.notification.NotificationType;
 import org.damazio.notifier.service.NotifierService;
+import org.damazio.notifier.util.Clock;
+import org.damazio.notifier.util.SmsConcatenationHeader;
 import org.damazio.notifier.util.SmsDecoder;
+import org.damazio.notifier.util.SmsReassembler;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 /**
  * Receiver which catches SMS messages and notifies about them.
  *
+ * The parts of a long message are joined into a single notification. They
+ * usually arrive in the same broadcast, but when they don't, the parts
+ * received so far wait for the rest for up to {@link #PART_TIMEOUT_MS}.
+ *
  * @author Rodrigo Damazio
  */
 public class SmsReceiver extends BroadcastReceiver {
   private static final String ACTION = "android.provider.Telephony.SMS_RECEIVED";
+  private static final long PART_TIMEOUT_MS = 10 * 1000;
+
+  // Receivers are created for each broadcast, so parts waiting for the rest
+  // of their message are kept here. Only touched from the main thread.
+  private static final SmsReassembler reassembler =
+      new SmsReassembler(Clock.SYSTEM, PART_TIMEOUT_MS);
+  private static Handler handler;
+  private static Runnable expiryTask;
 
   @Override
   public void onReceive(Context context, Intent intent) {
@@ -59,7 +79,8 @@ public class SmsReceiver extends BroadcastReceiver {
     }
 
     // Create the notification contents using the SMS contents
-    boolean notificationSent = false;
+    ArrayList<Notification> notifications = new ArrayList<Notification>();
+    boolean waitingForParts = false;
     Bundle bundle = intent.getExtras();
     if (bundle != null) {
       Object[] pdus = (Object[]) bundle.get("pdus");
@@ -69,19 +90,82 @@ public class SmsReceiver extends BroadcastReceiver {
           continue;
         }
 
-        String contents = decoder.getSmsContents();
         String data = decoder.getSenderAddress();
-        Log.d(NotifierConstants.LOG_TAG, "Received Sms: " + contents);
-        Notification notification = new Notification(context, NotificationType.SMS, data, contents);
-        NotifierService.startAndSend(context, notification);
-        notificationSent = true;
+        SmsConcatenationHeader header = SmsConcatenationHeader.parse(decoder.getPdu());
+        if (header == null) {
+          String contents = decoder.getSmsContents();
+          Log.d(NotifierConstants.LOG_TAG, "Received Sms: " + contents);
+          notifications.add(new Notification(context, NotificationType.SMS, data, contents));
+          continue;
+        }
+
+        Log.d(NotifierConstants.LOG_TAG, "Received Sms part: " + header);
+        SmsReassembler.Message message = reassembler.add(data, header, decoder.getMessageBody());
+        if (message != null) {
+          notifications.add(createNotification(context, message));
+        } else {
+          waitingForParts = true;
+        }
       }
     }
 
-    if (!notificationSent) {
+    if (reassembler.getPendingCount() > 0) {
+      scheduleExpiry(context.getApplicationContext());
+    }
+
+    if (notifications.size() == 1) {
+      NotifierService.startAndSend(context, notifications.get(0));
+    } else if (!notifications.isEmpty()) {
+      // Messages received together can be sent together
+      NotifierService.startAndSend(context, notifications);
+    } else if (!waitingForParts) {
       // If no notification sent (extra info was not there), send one without info
       Notification notification = new Notification(context, NotificationType.SMS, null, null);
       NotifierService.startAndSend(context, notification);
     }
   }
+
+  private static Notification createNotification(Context context, SmsReassembler.Message message) {
+    String contents = SmsDecoder.getSmsContents(context, message.getSender(), message.getBody());
+    Log.d(NotifierConstants.LOG_TAG, "Received long Sms: " + contents);
+    return new Notification(context, NotificationType.SMS, message.getSender(), contents);
+  }
+
+  /**
+   * Schedules sending the messages whose missing parts don't arrive in time.
+   */
+  private static void scheduleExpiry(final Context context) {
+    if (handler == null) {
+      handler = new Handler(Looper.getMainLooper());
+    }
+    if (expiryTask != null) {
+      handler.removeCallbacks(expiryTask);
+    }
+
+    expiryTask = new Runnable() {
+      public void run() {
+        expiryTask = null;
+        sendExpired(context);
+      }
+    };
+    long delay = reassembler.getNextExpiry() - System.currentTimeMillis();
+    handler.postDelayed(expiryTask, Math.max(0, delay));
+  }
+
+  private static void sendExpired(Context context) {
+    List<SmsReassembler.Message> expired = reassembler.removeExpired();
+    if (!expired.isEmpty()) {
+      Log.w(NotifierConstants.LOG_TAG,
+          "Sending " + expired.size() + " long Sms without all their parts");
+      ArrayList<Notification> notifications = new ArrayList<Notification>(expired.size());
+      for (SmsReassembler.Message message : expired) {
+        notifications.add(createNotification(context, message));
+      }
+      NotifierService.startAndSend(context, notifications);
+    }
+
+    if (reassembler.getPendingCount() > 0) {
+      scheduleExpiry(context);
+    }
+  }
 }
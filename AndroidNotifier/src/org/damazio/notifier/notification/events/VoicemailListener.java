@@ -25,8 +25,8 @@
 package org.damazio.notifier.notification.events;
 
 import org.damazio.notifier.notification.Notification;
+import org.damazio.notifier.notification.NotificationService;
 import org.damazio.notifier.notification.NotificationType;
-import org.damazio.notifier.service.NotifierService;
 
 import android.content.Context;
 import android.telephony.PhoneStateListener;
@@ -39,16 +39,23 @@ import android.telephony.PhoneStateListener;
 public class VoicemailListener extends PhoneStateListener {
 
   private final Context context;
+  private final NotificationService service;
 
-  public VoicemailListener(Context context) {
+  public VoicemailListener(Context context, NotificationService service) {
     this.context = context;
+    this.service = service;
   }
 
   @Override
   public void onMessageWaitingIndicatorChanged(boolean mwi) {
+    // The indicator going off is recorded, so that it flickering back on
+    // isn't notified again
+    String state = Boolean.toString(mwi);
     if (mwi) {
       Notification notification = new Notification(context, NotificationType.VOICEMAIL, null, null);
-      NotifierService.startAndSend(context, notification);
+      service.sendNotification(notification, state, -1);
+    } else {
+      service.updateState(NotificationType.VOICEMAIL, state);
     }
   }
 }
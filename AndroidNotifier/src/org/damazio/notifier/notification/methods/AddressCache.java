@@ -0,0 +1,103 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification.methods;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.damazio.notifier.util.Clock;
+
+/**
+ * Remembers the addresses hosts resolved to for a while, so that a burst of
+ * notifications to the same desktop doesn't look it up every time. Failed
+ * lookups are not remembered.
+ */
+class AddressCache {
+
+  /**
+   * Looks up the address of a host.
+   */
+  interface Resolver {
+    InetAddress resolve(String host) throws UnknownHostException;
+  }
+
+  /** Resolver which uses the system's name lookup. */
+  static final Resolver SYSTEM_RESOLVER = new Resolver() {
+    public InetAddress resolve(String host) throws UnknownHostException {
+      return InetAddress.getByName(host);
+    }
+  };
+
+  private static class Entry {
+    final InetAddress address;
+    final long expiresAt;
+
+    Entry(InetAddress address, long expiresAt) {
+      this.address = address;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private final Resolver resolver;
+  private final long ttlMillis;
+  private final Clock clock;
+  private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  AddressCache(Resolver resolver, long ttlMillis, Clock clock) {
+    this.resolver = resolver;
+    this.ttlMillis = ttlMillis;
+    this.clock = clock;
+  }
+
+  /**
+   * @return the address of the host, looked up if it's not known or too old
+   * @throws UnknownHostException if the host cannot be resolved
+   */
+  InetAddress resolve(String host) throws UnknownHostException {
+    long now = clock.currentTimeMillis();
+    synchronized (this) {
+      Entry entry = entries.get(host);
+      if (entry != null && now < entry.expiresAt) {
+        return entry.address;
+      }
+    }
+
+    // Looked up without holding the lock, as it may take a while
+    InetAddress address = resolver.resolve(host);
+    synchronized (this) {
+      entries.put(host, new Entry(address, now + ttlMillis));
+    }
+    return address;
+  }
+
+  /**
+   * Forgets every address, e.g. because the phone moved to another network.
+   */
+  synchronized void clear() {
+    entries.clear();
+  }
+}
@@ -25,6 +25,7 @@
 package org.damazio.notifier.notification.methods;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
 
 import org.damazio.notifier.NotifierConstants;
@@ -135,7 +136,7 @@ class BluetoothNotificationMethod implements NotificationMethod {
       return;
     } else {
       Log.e(NotifierConstants.LOG_TAG, "Not sending bluetooth notification - not enabled");
-      callback.notificationDone(target, null);
+      callback.notificationDone(target, new IOException("Bluetooth not enabled"));
     }
   }
 
@@ -163,7 +164,34 @@ class BluetoothNotificationMethod implements NotificationMethod {
   private synchronized void doSendNotification(byte[] payload,
       BluetoothDevice targetDevice, NotificationCallback callback) {
     bluetoothAdapter.cancelDiscovery();
+    callback.notificationDone(targetDevice, writePayload(payload, targetDevice));
+  }
 
+  public synchronized void sendNotifications(List<byte[]> payloads, Object targetObj,
+      NotificationCallback callback) {
+    BluetoothDevice target = (BluetoothDevice) targetObj;
+    if (!isBluetoothReady()) {
+      callback.notificationDone(target, new IOException("Bluetooth not ready"));
+      return;
+    }
+
+    // The desktop reads a single notification per connection
+    for (byte[] payload : payloads) {
+      IOException failure = writePayload(payload, target);
+      if (failure != null) {
+        callback.notificationDone(target, failure);
+        return;
+      }
+    }
+    callback.notificationDone(target, null);
+  }
+
+  /**
+   * Connects to the device and writes the payload, retrying a few times.
+   *
+   * @return the last failure if it could not be written, null otherwise
+   */
+  private IOException writePayload(byte[] payload, BluetoothDevice targetDevice) {
     int retries = 0;
     while (true) {
       BluetoothSocket socket = null;
@@ -194,8 +222,7 @@ class BluetoothNotificationMethod implements NotificationMethod {
         if (retries > MAX_RETRIES) {
           Log.e(NotifierConstants.LOG_TAG,
               "Giving up sending bluetooth notification after " + retries + " retries", e);
-          callback.notificationDone(targetDevice, e);
-          return;
+          return e;
         }
 
         // Wait a bit, then let it retry
@@ -204,8 +231,17 @@ class BluetoothNotificationMethod implements NotificationMethod {
       }
     }
 
-    callback.notificationDone(targetDevice, null);
     Log.d(NotifierConstants.LOG_TAG, "Sent notification over Bluetooth (" + retries + " retries).");
+    return null;
+  }
+
+  public String getTargetKey(Object target) {
+    return target == null ? null : ((BluetoothDevice) target).getAddress();
+  }
+
+  public boolean isFramed() {
+    // Each payload is sent over its own connection
+    return true;
   }
 
   @Override
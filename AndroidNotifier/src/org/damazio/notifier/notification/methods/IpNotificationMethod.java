@@ -31,17 +31,23 @@ import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+
+import javax.net.SocketFactory;
 
 import org.damazio.notifier.NotifierConstants;
 import org.damazio.notifier.NotifierPreferences;
+import org.damazio.notifier.util.Clock;
 import org.damazio.notifier.util.NetworkUtils;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.wifi.WifiManager;
@@ -103,17 +109,46 @@ class IpNotificationMethod implements NotificationMethod {
   private static final int UDP_PORT = 10600;
   private static final int TCP_PORT = 10600;
   private static final int TCP_CONNECT_TIMEOUT_MS = 5000;
+  /** The desktop closes sessions after 3 minutes without data. */
+  private static final long TCP_KEEP_ALIVE_MS = 2 * 60 * 1000;
+  private static final long ADDRESS_TTL_MS = 5 * 60 * 1000;
+  private final Context context;
   private final NotifierPreferences preferences;
   private final WifiManager wifi;
   private final ConnectivityManager connectivity;
   private final NetworkUtils networkUtils;
+  private final AddressCache addressCache;
+  private final TcpSessionPool tcpSessions;
+  private DatagramSocket udpSocket;
+
+  /**
+   * Forgets addresses and connections when the phone changes networks, as
+   * they may not be valid on the new one.
+   */
+  private final BroadcastReceiver connectivityReceiver = new BroadcastReceiver() {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+      Log.d(NotifierConstants.LOG_TAG, "Network changed, closing connections");
+      addressCache.clear();
+      tcpSessions.closeAll();
+      closeUdpSocket();
+    }
+  };
 
   public IpNotificationMethod(Context context, NotifierPreferences preferences) {
+    this.context = context;
     this.preferences = preferences;
     this.wifi = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
     this.connectivity =
         (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
     this.networkUtils = new NetworkUtils(context);
+    this.addressCache =
+        new AddressCache(AddressCache.SYSTEM_RESOLVER, ADDRESS_TTL_MS, Clock.SYSTEM);
+    this.tcpSessions = new TcpSessionPool(SocketFactory.getDefault(), TCP_CONNECT_TIMEOUT_MS,
+        TCP_KEEP_ALIVE_MS, Clock.SYSTEM);
+
+    context.registerReceiver(connectivityReceiver,
+        new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
   }
 
   public void sendNotification(byte[] payload, Object targetObj, NotificationCallback callback,
@@ -124,6 +159,7 @@ class IpNotificationMethod implements NotificationMethod {
     // PING is the only notification that's sent from the app, so it's not considered background
     if (!isForeground && !connectivity.getBackgroundDataSetting()) {
       Log.w(NotifierConstants.LOG_TAG, "Background data is turned off, not notifying.");
+      callback.notificationDone(target, new IOException("Background data is turned off"));
       return;
     }
 
@@ -143,7 +179,7 @@ class IpNotificationMethod implements NotificationMethod {
       } else {
         // It won't be enabled, and we cannot send it over the cell phone network
         Log.d(NotifierConstants.LOG_TAG, "Not notifying over IP/wifi - not connected.");
-        callback.notificationDone(target, null);
+        callback.notificationDone(target, new IOException("Not connected"));
         return;
       }
     }
@@ -160,7 +196,7 @@ class IpNotificationMethod implements NotificationMethod {
       }
       if (preferences.isSendTcpEnabled()) {
         if (preferences.getTargetIpAddress().equals("custom")) {
-          sendTcpNotification(payload, address);
+          sendTcpNotifications(Collections.singletonList(payload), address);
         } else {
           Log.e(NotifierConstants.LOG_TAG, "TCP enabled but trying to use a broadcast address");
         }
@@ -177,23 +213,92 @@ class IpNotificationMethod implements NotificationMethod {
     }
   }
 
+  @Override
+  public void sendNotifications(List<byte[]> payloads, Object targetObj,
+      NotificationCallback callback) {
+    String target = (String) targetObj;
+    if (!connectivity.getBackgroundDataSetting()) {
+      callback.notificationDone(target, new IOException("Background data is turned off"));
+      return;
+    }
+    if (!isWifiConnected() && !canSendOverCellNetwork()) {
+      callback.notificationDone(target, new IOException("Not connected"));
+      return;
+    }
+
+    try {
+      InetAddress address = getTargetAddress(target);
+      Log.d(NotifierConstants.LOG_TAG, "Sending " + payloads.size()
+          + " wifi notifications to IP " + address.getHostAddress());
+
+      if (preferences.isSendUdpEnabled()) {
+        sendUdpNotifications(payloads, address);
+      }
+      if (preferences.isSendTcpEnabled() && preferences.getTargetIpAddress().equals("custom")) {
+        sendTcpNotifications(payloads, address);
+      }
+
+      callback.notificationDone(target, null);
+    } catch (IOException e) {
+      callback.notificationDone(target, e);
+      Log.w(NotifierConstants.LOG_TAG, "Unable to send TCP or UDP packets", e);
+    }
+  }
+
   /**
-   * Sends a notification over TCP.
+   * Sends notifications over TCP. Desktops which take the compact format also
+   * read sessions, so the one kept with them is used, opening one if needed.
+   * Older desktops get a connection per notification.
+   *
+   * @param payloads the bytes of each notification to send
+   * @param address the address to send them to
+   */
+  private void sendTcpNotifications(List<byte[]> payloads, InetAddress address)
+      throws IOException {
+    Log.d(NotifierConstants.LOG_TAG, "Sending over TCP");
+    InetSocketAddress socketAddress = new InetSocketAddress(address, TCP_PORT);
+    if (preferences.isProtobufFormatEnabled()) {
+      tcpSessions.send(socketAddress, payloads);
+    } else {
+      for (byte[] payload : payloads) {
+        sendTcpNotification(payload, socketAddress);
+      }
+    }
+    Log.d(NotifierConstants.LOG_TAG, "Sent over TCP");
+  }
+
+  /**
+   * Sends a notification over its own TCP connection, which the desktop reads
+   * up to the delimiter at its end.
    *
    * @param messageBytes the bytes of the notification to send
    * @param address the address to send it to
    */
-  private void sendTcpNotification(byte[] messageBytes, InetAddress address) throws IOException {
-    Log.d(NotifierConstants.LOG_TAG, "Sending over TCP");
+  private void sendTcpNotification(byte[] messageBytes, InetSocketAddress address)
+      throws IOException {
     Socket socket = new Socket();
-    SocketAddress remoteAddr = new InetSocketAddress(address, TCP_PORT);
-    socket.connect(remoteAddr, TCP_CONNECT_TIMEOUT_MS);
-    socket.setSendBufferSize(messageBytes.length * 2);
-    OutputStream stream = socket.getOutputStream();
-    stream.write(messageBytes);
-    stream.flush();
-    socket.close();
-    Log.d(NotifierConstants.LOG_TAG, "Sent over TCP");
+    try {
+      socket.connect(address, TCP_CONNECT_TIMEOUT_MS);
+      socket.setSendBufferSize(messageBytes.length * 2);
+      OutputStream stream = socket.getOutputStream();
+      stream.write(messageBytes);
+      stream.flush();
+    } finally {
+      socket.close();
+    }
+  }
+
+  /**
+   * Sends several notifications over UDP.
+   *
+   * @param payloads the bytes of each notification to send
+   * @param address the address to send them to
+   */
+  private void sendUdpNotifications(List<byte[]> payloads, InetAddress address)
+      throws IOException {
+    for (byte[] payload : payloads) {
+      sendDatagramPacket(new DatagramPacket(payload, payload.length, address, UDP_PORT));
+    }
   }
 
   /**
@@ -216,6 +321,17 @@ class IpNotificationMethod implements NotificationMethod {
     Log.d(NotifierConstants.LOG_TAG, "Sent over UDP");
   }
 
+  @Override
+  public String getTargetKey(Object target) {
+    return (String) target;
+  }
+
+  @Override
+  public boolean isFramed() {
+    // Each payload is a datagram, a length-prefixed frame or its own connection over TCP
+    return true;
+  }
+
   @Override
   public Iterable<String> getTargets() {
     String addressStr = preferences.getTargetIpAddress();
@@ -245,20 +361,39 @@ class IpNotificationMethod implements NotificationMethod {
       }
       return broadcastAddress;
     } else {
-      return InetAddress.getByName(addressStr);
+      return addressCache.resolve(addressStr);
     }
   }
 
   /**
-   * Sends an UDP packet.
+   * Sends an UDP packet from the shared socket, replacing it if it fails.
    *
    * @param packet the packet to send
    */
   private synchronized void sendDatagramPacket(DatagramPacket packet)
       throws IOException, SocketException {
-    DatagramSocket socket = new DatagramSocket();
-    socket.setBroadcast(true);
-    socket.send(packet);
+    try {
+      getUdpSocket().send(packet);
+    } catch (IOException e) {
+      // The socket may have been tied to a network that went away, retry once
+      closeUdpSocket();
+      getUdpSocket().send(packet);
+    }
+  }
+
+  private synchronized DatagramSocket getUdpSocket() throws SocketException {
+    if (udpSocket == null) {
+      udpSocket = new DatagramSocket();
+      udpSocket.setBroadcast(true);
+    }
+    return udpSocket;
+  }
+
+  private synchronized void closeUdpSocket() {
+    if (udpSocket != null) {
+      udpSocket.close();
+      udpSocket = null;
+    }
   }
 
   /**
@@ -314,6 +449,13 @@ class IpNotificationMethod implements NotificationMethod {
 
   @Override
   public void shutdown() {
-    // Nothing to do
+    try {
+      context.unregisterReceiver(connectivityReceiver);
+    } catch (IllegalArgumentException e) {
+      Log.w(NotifierConstants.LOG_TAG, "Unable to unregister connectivity listener", e);
+    }
+
+    tcpSessions.closeAll();
+    closeUdpSocket();
   }
 }
@@ -24,6 +24,8 @@
  */
 package org.damazio.notifier.notification.methods;
 
+import java.io.IOException;
+
 import org.damazio.notifier.NotifierConstants;
 import org.damazio.notifier.notification.methods.NotificationMethod.NotificationCallback;
 
@@ -92,7 +94,7 @@ abstract class MethodEnablingNotifier<T> extends CountDownTimer {
     if (!notificationSent) {
       Log.e(NotifierConstants.LOG_TAG, "Timed out while waiting for medium to connect");
       try {
-        callback.notificationDone(target, null);
+        callback.notificationDone(target, new IOException("Timed out waiting for medium"));
       } finally {
         restorePreviousEnabledState();
       }
@@ -24,6 +24,8 @@
  */
 package org.damazio.notifier.notification.methods;
 
+import java.util.List;
+
 /**
  * Interface that defines a method of sending notifications.
  *
@@ -58,6 +60,37 @@ public interface NotificationMethod {
   void sendNotification(byte[] payload, Object target, NotificationCallback callback,
       boolean isForeground);
 
+  /**
+   * Sends several notifications to the same target, as one transmission if the
+   * medium allows it, in the given order. The callback is called once for the
+   * whole batch, with a failure if any of them may not have been delivered.
+   * Used to catch up on notifications that could not be delivered before, so
+   * it never waits for the medium to be enabled.
+   *
+   * @param payloads the contents of each notification to send
+   * @param target the target to send to (returned from {@link #getTargets})
+   * @param callback callback which is called
+   */
+  void sendNotifications(List<byte[]> payloads, Object target, NotificationCallback callback);
+
+  /**
+   * Returns a name for the target which stays the same across reconnections
+   * and restarts, used to keep notifications for it until it can be reached.
+   *
+   * @param target the target (returned from {@link #getTargets}), or null when
+   *        there are currently no targets
+   * @return the name, or null if notifications should not be kept for it
+   */
+  String getTargetKey(Object target);
+
+  /**
+   * Tells whether each payload given to {@link #sendNotifications} reaches the
+   * desktop as a separate message, so it may contain any bytes (such as a
+   * protobuf notification or batch). Otherwise the desktop relies on the delimiter at
+   * the end of each notification to tell them apart.
+   */
+  boolean isFramed();
+
   /**
    * Returns a set of targets that notifications should be sent to.
    * {@link #sendNotification} will be called once (in parallel) for each target returned.
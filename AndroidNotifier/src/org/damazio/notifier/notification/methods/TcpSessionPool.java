@@ -0,0 +1,248 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification.methods;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.net.SocketFactory;
+
+import org.damazio.notifier.util.Clock;
+
+/**
+ * Keeps TCP sessions to desktops open between notifications, so a burst of
+ * them doesn't pay for a new connection each time.
+ *
+ * A session starts with {@link #SESSION_PREFIX}, then carries each
+ * notification preceded by its length. Sessions which were not used for a
+ * while are closed before the desktop gives up on them, and a session the
+ * desktop has closed is replaced with a new one. Only desktops which read
+ * sessions understand this framing, older ones take a single notification
+ * per connection.
+ */
+class TcpSessionPool {
+
+  /** Sent first on a TCP connection carrying several length-prefixed notifications. */
+  static final byte[] SESSION_PREFIX = { 'A', 'N', 'S', 1 };
+
+  /** How long to wait for the desktop to close an unused session. */
+  private static final int CLOSE_CHECK_TIMEOUT_MS = 1;
+
+  private static class Session {
+    final Socket socket;
+    final DataOutputStream output;
+    long lastUsed;
+
+    Session(Socket socket) throws IOException {
+      this.socket = socket;
+      this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    void write(List<byte[]> payloads) throws IOException {
+      for (byte[] payload : payloads) {
+        output.writeInt(payload.length);
+        output.write(payload);
+      }
+      output.flush();
+    }
+
+    /**
+     * Tells whether the desktop still has the session open. Anything it sent
+     * (only heartbeats) is skipped.
+     */
+    boolean isOpen() {
+      if (socket.isClosed() || socket.isInputShutdown()) {
+        return false;
+      }
+
+      try {
+        InputStream input = socket.getInputStream();
+        byte[] buffer = new byte[64];
+        while (input.available() > 0) {
+          if (input.read(buffer) < 0) {
+            return false;
+          }
+        }
+
+        socket.setSoTimeout(CLOSE_CHECK_TIMEOUT_MS);
+        return input.read() >= 0;
+      } catch (SocketTimeoutException e) {
+        // Nothing to read, and not closed
+        return true;
+      } catch (IOException e) {
+        return false;
+      }
+    }
+
+    void close() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // Nothing else to do with it
+      }
+    }
+  }
+
+  private final SocketFactory socketFactory;
+  private final int connectTimeoutMillis;
+  private final long keepAliveMillis;
+  private final Clock clock;
+
+  // Sessions not being written to, guarded by this
+  private final Map<InetSocketAddress, Session> idleSessions =
+      new HashMap<InetSocketAddress, Session>();
+
+  /**
+   * @param socketFactory creates the sockets for new sessions
+   * @param connectTimeoutMillis how long to wait for a new connection
+   * @param keepAliveMillis how long a session may stay unused and still be
+   *        written to, which must be less than the desktop waits before
+   *        closing it
+   */
+  TcpSessionPool(SocketFactory socketFactory, int connectTimeoutMillis, long keepAliveMillis,
+      Clock clock) {
+    this.socketFactory = socketFactory;
+    this.connectTimeoutMillis = connectTimeoutMillis;
+    this.keepAliveMillis = keepAliveMillis;
+    this.clock = clock;
+  }
+
+  /**
+   * Sends the payloads over a session to the given address. If a session which
+   * was kept open turns out to be broken, they're sent again over a new one.
+   *
+   * @throws IOException if they could not be sent over a new session
+   */
+  void send(InetSocketAddress address, List<byte[]> payloads) throws IOException {
+    Session session = takeIdleSession(address);
+    if (session != null) {
+      try {
+        session.write(payloads);
+        release(address, session);
+        return;
+      } catch (IOException e) {
+        // The desktop went away since the last notification, reconnect
+        session.close();
+      }
+    }
+
+    session = connect(address);
+    try {
+      session.write(payloads);
+    } catch (IOException e) {
+      session.close();
+      throw e;
+    }
+    release(address, session);
+  }
+
+  /**
+   * Closes every session, e.g. because the network they were opened on went down.
+   */
+  void closeAll() {
+    List<Session> sessions;
+    synchronized (this) {
+      sessions = new ArrayList<Session>(idleSessions.values());
+      idleSessions.clear();
+    }
+
+    for (Session session : sessions) {
+      session.close();
+    }
+  }
+
+  /**
+   * @return the number of sessions kept open
+   */
+  synchronized int getOpenCount() {
+    return idleSessions.size();
+  }
+
+  /**
+   * @return an open session to the address which is no longer kept, or null if there's none
+   */
+  private Session takeIdleSession(InetSocketAddress address) {
+    List<Session> expired = new ArrayList<Session>();
+    Session session;
+    synchronized (this) {
+      // Sessions for other desktops are also dropped once they're too old
+      long oldestUsable = clock.currentTimeMillis() - keepAliveMillis;
+      for (Map.Entry<InetSocketAddress, Session> entry : idleSessions.entrySet()) {
+        if (entry.getValue().lastUsed < oldestUsable) {
+          expired.add(entry.getValue());
+        }
+      }
+      idleSessions.values().removeAll(expired);
+
+      session = idleSessions.remove(address);
+    }
+
+    for (Session expiredSession : expired) {
+      expiredSession.close();
+    }
+
+    if (session != null && !session.isOpen()) {
+      session.close();
+      return null;
+    }
+    return session;
+  }
+
+  private Session connect(InetSocketAddress address) throws IOException {
+    Socket socket = socketFactory.createSocket();
+    try {
+      socket.connect(address, connectTimeoutMillis);
+      socket.setTcpNoDelay(true);
+      Session session = new Session(socket);
+      session.output.write(SESSION_PREFIX);
+      return session;
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+  }
+
+  private void release(InetSocketAddress address, Session session) {
+    session.lastUsed = clock.currentTimeMillis();
+    Session replaced;
+    synchronized (this) {
+      replaced = idleSessions.put(address, session);
+    }
+
+    // Two sessions were opened to the same desktop at once, one is enough
+    if (replaced != null) {
+      replaced.close();
+    }
+  }
+}
@@ -100,21 +100,55 @@ class UsbNotificationMethod implements NotificationMethod {
         stream.flush();
         callback.notificationDone(target, null);
       } catch (IOException e) {
-        Throwable throwableToReturn;
-        if ("Broken pipe".equals(e.getMessage())) {
-          Log.d(NotifierConstants.LOG_TAG, "A usb socket has been closed");
-          throwableToReturn = null;
-        } else {
-          Log.w(NotifierConstants.LOG_TAG, "Could not send notification over usb socket", e);
-          throwableToReturn = e;
-        }
-        closeSocket(socket);
-        openSockets.remove(socket);
-        callback.notificationDone(target, throwableToReturn);
+        handleWriteFailure(socket, e);
+        callback.notificationDone(target, e);
       }
     }
   }
 
+  @Override
+  public void sendNotifications(List<byte[]> payloads, Object target,
+      NotificationCallback callback) {
+    // Notifications are delimited within the stream, so they can all go in one write
+    int length = 0;
+    for (byte[] payload : payloads) {
+      length += payload.length;
+    }
+    byte[] batch = new byte[length];
+    int offset = 0;
+    for (byte[] payload : payloads) {
+      System.arraycopy(payload, 0, batch, offset, payload.length);
+      offset += payload.length;
+    }
+    sendNotification(batch, target, callback, false);
+  }
+
+  /**
+   * All connected desktops share a key, so notifications that could not be
+   * sent while none was connected go to the next one that connects.
+   */
+  @Override
+  public String getTargetKey(Object target) {
+    return "";
+  }
+
+  @Override
+  public boolean isFramed() {
+    return false;
+  }
+
+  private void handleWriteFailure(LocalSocket socket, IOException e) {
+    if ("Broken pipe".equals(e.getMessage())) {
+      Log.d(NotifierConstants.LOG_TAG, "A usb socket has been closed");
+    } else {
+      Log.w(NotifierConstants.LOG_TAG, "Could not send notification over usb socket", e);
+    }
+    closeSocket(socket);
+    synchronized (openSockets) {
+      openSockets.remove(socket);
+    }
+  }
+
   @Override
   public String getName() {
     return "usb";
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification.outbox;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.damazio.notifier.notification.NotificationType;
+import org.damazio.notifier.util.Clock;
+
+/**
+ * Bounded, persistent queue of notifications which could not be delivered,
+ * kept per destination (a notification method and one of its targets) so they
+ * can be delivered together once the destination is reachable again.
+ *
+ * Each notification type has a maximum age, after which delivering it is
+ * pointless (nobody cares about a call that ended an hour ago). When the
+ * outbox is full, the oldest notification is dropped.
+ *
+ * Plain Java, so it can be tested off-device. All methods are thread-safe.
+ */
+public class NotificationOutbox {
+
+  private static final int FILE_VERSION = 1;
+  private static final long MINUTE_MS = 60 * 1000;
+
+  private final File file;
+  private final int capacity;
+  private final Map<NotificationType, Long> maxAges;
+  private final Clock clock;
+
+  /** Pending entries, oldest first. */
+  private final LinkedList<OutboxEntry> entries = new LinkedList<OutboxEntry>();
+
+  /**
+   * @param file where to persist the outbox, or null to keep it in memory only
+   * @param capacity maximum number of notifications to keep
+   * @param maxAges how long each notification type is worth keeping, types
+   *        without an age are never kept
+   * @param clock source of the current time
+   */
+  public NotificationOutbox(File file, int capacity, Map<NotificationType, Long> maxAges,
+      Clock clock) {
+    this.file = file;
+    this.capacity = capacity;
+    this.maxAges = new EnumMap<NotificationType, Long>(maxAges);
+    this.clock = clock;
+  }
+
+  /**
+   * @return the maximum age of each notification type used by default
+   */
+  public static Map<NotificationType, Long> getDefaultMaxAges() {
+    Map<NotificationType, Long> maxAges = new EnumMap<NotificationType, Long>(NotificationType.class);
+    maxAges.put(NotificationType.RING, 5 * MINUTE_MS);
+    maxAges.put(NotificationType.BATTERY, 30 * MINUTE_MS);
+    maxAges.put(NotificationType.SMS, 24 * 60 * MINUTE_MS);
+    maxAges.put(NotificationType.MMS, 24 * 60 * MINUTE_MS);
+    maxAges.put(NotificationType.VOICEMAIL, 24 * 60 * MINUTE_MS);
+    maxAges.put(NotificationType.USER, 24 * 60 * MINUTE_MS);
+    // PING is only sent while the user is watching, never kept
+    return maxAges;
+  }
+
+  /**
+   * Adds a notification which could not be delivered to the given destination.
+   *
+   * @return whether the notification was kept (it's not if its type is never kept)
+   */
+  public synchronized boolean add(String destination, NotificationType type, long timestamp,
+      byte[] payload) throws IOException {
+    if (isExpired(type, timestamp, clock.currentTimeMillis())) {
+      return false;
+    }
+
+    removeExpired();
+    while (entries.size() >= capacity) {
+      entries.removeFirst();
+    }
+    entries.add(new OutboxEntry(destination, type, timestamp, payload));
+    save();
+    return true;
+  }
+
+  /**
+   * Returns the oldest notifications pending for the given destination, which
+   * must later be passed to either {@link #delivered} or {@link #failed}.
+   * Notifications already being delivered are not returned again.
+   *
+   * @param maxEntries maximum number of notifications to return
+   * @param maxBytes maximum total payload size, at least one notification is
+   *        returned regardless
+   * @return the notifications in the order they were added, empty if there are none
+   */
+  public synchronized List<OutboxEntry> takeBatch(String destination, int maxEntries,
+      int maxBytes) throws IOException {
+    if (removeExpired()) {
+      save();
+    }
+
+    List<OutboxEntry> batch = new ArrayList<OutboxEntry>();
+    int bytes = 0;
+    for (OutboxEntry entry : entries) {
+      if (batch.size() >= maxEntries) {
+        break;
+      }
+      if (entry.isInFlight() || !entry.getDestination().equals(destination)) {
+        continue;
+      }
+      if (!batch.isEmpty() && bytes + entry.getPayload().length > maxBytes) {
+        break;
+      }
+      entry.setInFlight(true);
+      batch.add(entry);
+      bytes += entry.getPayload().length;
+    }
+    return batch;
+  }
+
+  /**
+   * Removes a batch that was delivered successfully.
+   */
+  public synchronized void delivered(List<OutboxEntry> batch) throws IOException {
+    entries.removeAll(batch);
+    save();
+  }
+
+  /**
+   * Returns a batch that could not be delivered to the outbox, to be tried again later.
+   * Notifications that were dropped or expired in the meantime stay dropped.
+   */
+  public synchronized void failed(List<OutboxEntry> batch) {
+    for (OutboxEntry entry : batch) {
+      entry.setInFlight(false);
+    }
+  }
+
+  /**
+   * @return whether there are notifications waiting for the destination
+   */
+  public synchronized boolean hasPending(String destination) {
+    for (OutboxEntry entry : entries) {
+      if (!entry.isInFlight() && entry.getDestination().equals(destination)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Replaces the contents of the outbox with what was persisted, dropping
+   * anything that expired while it was not running.
+   */
+  public synchronized void load() throws IOException {
+    entries.clear();
+    if (file == null || !file.exists()) {
+      return;
+    }
+
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      int version = in.readInt();
+      if (version != FILE_VERSION) {
+        throw new IOException("Unknown outbox version " + version);
+      }
+      NotificationType[] types = NotificationType.values();
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        String destination = in.readUTF();
+        int type = in.readByte();
+        long timestamp = in.readLong();
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        if (type >= 0 && type < types.length) {
+          entries.add(new OutboxEntry(destination, types[type], timestamp, payload));
+        }
+      }
+    } finally {
+      in.close();
+    }
+
+    if (removeExpired()) {
+      save();
+    }
+  }
+
+  private boolean isExpired(NotificationType type, long timestamp, long now) {
+    Long maxAge = maxAges.get(type);
+    return maxAge == null || now - timestamp > maxAge;
+  }
+
+  /**
+   * @return whether any notification was removed
+   */
+  private boolean removeExpired() {
+    long now = clock.currentTimeMillis();
+    boolean removed = false;
+    for (Iterator<OutboxEntry> it = entries.iterator(); it.hasNext(); ) {
+      OutboxEntry entry = it.next();
+      if (isExpired(entry.getType(), entry.getTimestamp(), now)) {
+        it.remove();
+        removed = true;
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Writes the outbox to a temporary file which then replaces the previous one,
+   * so a crash while writing never loses what was there before.
+   */
+  private void save() throws IOException {
+    if (file == null) {
+      return;
+    }
+
+    File tempFile = new File(file.getPath() + ".tmp");
+    DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+    try {
+      out.writeInt(FILE_VERSION);
+      out.writeInt(entries.size());
+      for (OutboxEntry entry : entries) {
+        out.writeUTF(entry.getDestination());
+        out.writeByte(entry.getType().ordinal());
+        out.writeLong(entry.getTimestamp());
+        out.writeInt(entry.getPayload().length);
+        out.write(entry.getPayload());
+      }
+    } finally {
+      out.close();
+    }
+    if (!tempFile.renameTo(file)) {
+      throw new IOException("Unable to replace " + file);
+    }
+  }
+
+  /**
+   * @return the pending entries, oldest first (for testing)
+   */
+  synchronized List<OutboxEntry> getEntries() {
+    return Collections.unmodifiableList(new ArrayList<OutboxEntry>(entries));
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification.outbox;
+
+import org.damazio.notifier.notification.NotificationType;
+
+/**
+ * A serialized notification waiting in the {@link NotificationOutbox}.
+ */
+public class OutboxEntry {
+  private final String destination;
+  private final NotificationType type;
+  private final long timestamp;
+  private final byte[] payload;
+  private boolean inFlight;
+
+  OutboxEntry(String destination, NotificationType type, long timestamp, byte[] payload) {
+    this.destination = destination;
+    this.type = type;
+    this.timestamp = timestamp;
+    this.payload = payload;
+  }
+
+  /**
+   * @return the method and target the notification could not be delivered to
+   */
+  public String getDestination() {
+    return destination;
+  }
+
+  public NotificationType getType() {
+    return type;
+  }
+
+  /**
+   * @return when the notification was first sent, in milliseconds since the epoch
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * @return the notification exactly as it was first sent, already encrypted if requested
+   */
+  public byte[] getPayload() {
+    return payload;
+  }
+
+  boolean isInFlight() {
+    return inFlight;
+  }
+
+  void setInFlight(boolean inFlight) {
+    this.inFlight = inFlight;
+  }
+
+  @Override
+  public String toString() {
+    return type + " for " + destination + " at " + timestamp;
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification.sender;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+/**
+ * Workers which are threads with a looper, as needed by notification methods
+ * which wait for their medium to come up before sending.
+ */
+public class LooperWorkers implements SendScheduler.Workers {
+  private final HandlerThread[] threads;
+  private final Handler[] handlers;
+
+  public LooperWorkers(String name, int count) {
+    threads = new HandlerThread[count];
+    handlers = new Handler[count];
+    for (int i = 0; i < count; i++) {
+      threads[i] = new HandlerThread(name + " " + i);
+      threads[i].start();
+      handlers[i] = new Handler(threads[i].getLooper());
+    }
+  }
+
+  public int getCount() {
+    return threads.length;
+  }
+
+  public void execute(int worker, Runnable runnable) {
+    handlers[worker].post(runnable);
+  }
+
+  /**
+   * Stops all the workers once they're done with what they're running.
+   */
+  public void quit() {
+    for (HandlerThread thread : threads) {
+      thread.getLooper().quit();
+    }
+  }
+}
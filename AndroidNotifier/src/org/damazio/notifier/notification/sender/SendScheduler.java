@@ -0,0 +1,234 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification.sender;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs sends on a fixed set of workers. Sends to the same key (a method and
+ * target) run one at a time in the order they were submitted, and no more
+ * sends than there are workers are in progress at once. Keys with waiting
+ * sends take turns for free workers.
+ *
+ * A send is in progress from the moment it starts running until it calls
+ * {@link Completion#done}, which may happen later from any thread (e.g. after
+ * waiting for wifi to come up). Its worker is not handed to another send
+ * in the meantime.
+ */
+public class SendScheduler {
+
+  /**
+   * A send to be run by the scheduler.
+   */
+  public interface Task {
+    /**
+     * Starts the send on a worker.
+     *
+     * @param completion must be called exactly once when the send is over,
+     *        whether it succeeded or not
+     */
+    void run(Completion completion);
+  }
+
+  /**
+   * Lets a task tell the scheduler it's over.
+   */
+  public interface Completion {
+    void done();
+  }
+
+  /**
+   * The threads tasks are run in.
+   */
+  public interface Workers {
+    /**
+     * Runs the given runnable in the given worker. Must not run it in the
+     * calling thread.
+     *
+     * @param worker the worker index, from 0 to the worker count - 1
+     */
+    void execute(int worker, Runnable runnable);
+  }
+
+  private final Workers workers;
+  private final int workerCount;
+
+  // Guarded by this
+  private final Map<String, LinkedList<Task>> queues = new HashMap<String, LinkedList<Task>>();
+  private final LinkedList<String> readyKeys = new LinkedList<String>();
+  private final LinkedList<Integer> idleWorkers = new LinkedList<Integer>();
+  private int queuedCount;
+  private boolean shutdown;
+
+  public SendScheduler(Workers workers, int workerCount) {
+    if (workerCount <= 0) {
+      throw new IllegalArgumentException("Worker count must be positive");
+    }
+
+    this.workers = workers;
+    this.workerCount = workerCount;
+    for (int i = 0; i < workerCount; i++) {
+      idleWorkers.add(i);
+    }
+  }
+
+  /**
+   * Queues a task to run after every task already submitted for the same key.
+   */
+  public void submit(String key, Task task) {
+    synchronized (this) {
+      if (shutdown) {
+        return;
+      }
+
+      getQueue(key).addLast(task);
+      queuedCount++;
+    }
+    schedule();
+  }
+
+  /**
+   * Queues tasks to run, in the given order, before any other task waiting for
+   * the same key. This lets a failed send be retried in another way without
+   * losing its place.
+   */
+  public void submitFirst(String key, List<Task> tasks) {
+    synchronized (this) {
+      if (shutdown) {
+        return;
+      }
+
+      getQueue(key).addAll(0, tasks);
+      queuedCount += tasks.size();
+    }
+    schedule();
+  }
+
+  /**
+   * @return the number of tasks waiting for a worker
+   */
+  public synchronized int getQueuedCount() {
+    return queuedCount;
+  }
+
+  /**
+   * @return the number of tasks which have started and not completed yet
+   */
+  public synchronized int getRunningCount() {
+    return workerCount - idleWorkers.size();
+  }
+
+  /**
+   * Stops running tasks. Tasks in progress may still complete.
+   *
+   * @return the tasks which were waiting and will not be run
+   */
+  public List<Task> shutdown() {
+    synchronized (this) {
+      shutdown = true;
+      List<Task> dropped = new ArrayList<Task>(queuedCount);
+      for (LinkedList<Task> queue : queues.values()) {
+        dropped.addAll(queue);
+        queue.clear();
+      }
+      queuedCount = 0;
+      readyKeys.clear();
+      return dropped;
+    }
+  }
+
+  private LinkedList<Task> getQueue(String key) {
+    LinkedList<Task> queue = queues.get(key);
+    if (queue == null) {
+      // The key has nothing running, so it can take the next free worker
+      queue = new LinkedList<Task>();
+      queues.put(key, queue);
+      readyKeys.addLast(key);
+    }
+    return queue;
+  }
+
+  /**
+   * Starts waiting tasks while there are free workers.
+   */
+  private void schedule() {
+    while (true) {
+      final String key;
+      final Task task;
+      final int worker;
+      synchronized (this) {
+        if (shutdown || idleWorkers.isEmpty() || readyKeys.isEmpty()) {
+          return;
+        }
+
+        key = readyKeys.removeFirst();
+        task = queues.get(key).removeFirst();
+        queuedCount--;
+        worker = idleWorkers.removeFirst();
+      }
+
+      workers.execute(worker, new Runnable() {
+        public void run() {
+          runTask(key, task, worker);
+        }
+      });
+    }
+  }
+
+  private void runTask(final String key, Task task, final int worker) {
+    Completion completion = new Completion() {
+      private boolean done;
+
+      public void done() {
+        synchronized (SendScheduler.this) {
+          if (done) {
+            return;
+          }
+          done = true;
+
+          idleWorkers.addLast(worker);
+          LinkedList<Task> queue = queues.get(key);
+          if (queue == null || queue.isEmpty()) {
+            queues.remove(key);
+          } else {
+            readyKeys.addLast(key);
+          }
+        }
+        schedule();
+      }
+    };
+
+    try {
+      task.run(completion);
+    } catch (RuntimeException e) {
+      completion.done();
+      throw e;
+    }
+  }
+}
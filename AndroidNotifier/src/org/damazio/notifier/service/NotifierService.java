@@ -26,6 +26,7 @@
  */
 package org.damazio.notifier.service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.damazio.notifier.NotifierConstants;
@@ -61,6 +62,8 @@ public class NotifierService extends Service {
    * the service, that notification will be sent.
    */
   private static final String EXTRA_NOTIFICATION = "org.damazio.notifier.service.EXTRA_NOTIFICATION";
+  private static final String EXTRA_NOTIFICATIONS =
+      "org.damazio.notifier.service.EXTRA_NOTIFICATIONS";
 
   private NotifierPreferences preferences;
   private ServicePreferencesListener preferenceListener;
@@ -177,14 +180,22 @@ public class NotifierService extends Service {
   }
 
   /**
-   * If the given intent carries a bundled notification in its extras, sends it.
+   * If the given intent carries bundled notifications in its extras, sends them.
    */
   private void sendIntentNotification(Intent intent) {
     Notification notification = intent.getParcelableExtra(EXTRA_NOTIFICATION);
+    ArrayList<Notification> notifications =
+        intent.getParcelableArrayListExtra(EXTRA_NOTIFICATIONS);
     synchronized (this) {
-      if (notification != null && notificationService != null) {
+      if (notificationService == null) {
+        return;
+      }
+      if (notification != null) {
         notificationService.sendNotification(notification);
       }
+      if (notifications != null) {
+        notificationService.sendNotifications(notifications);
+      }
     }
   }
 
@@ -281,6 +292,15 @@ public class NotifierService extends Service {
     context.startService(intent);
   }
 
+  /**
+   * Sends notifications which happened together, first starting the service if necessary.
+   */
+  public static void startAndSend(Context context, ArrayList<Notification> notifications) {
+    Intent intent = new Intent(context, NotifierService.class);
+    intent.putParcelableArrayListExtra(EXTRA_NOTIFICATIONS, notifications);
+    context.startService(intent);
+  }
+
   /**
    * Uses the given context to determine whether the service is already running.
    */
@@ -28,10 +28,12 @@ import org.damazio.notifier.NotifierConstants;
 import org.damazio.notifier.R;
 
 import android.content.Context;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.provider.Contacts;
 import android.provider.Contacts.Phones;
+import android.provider.ContactsContract;
 import android.provider.ContactsContract.PhoneLookup;
 import android.provider.ContactsContract.CommonDataKinds.Phone;
 import android.util.Log;
@@ -44,15 +46,7 @@ import android.util.Log;
  */
 @SuppressWarnings("deprecation")
 public abstract class CallerId {
-
-  /**
-   * Structure to contain caller information.
-   */
-  private static class CallerInfo {
-    public String number;
-    public String typeName;
-    public String displayName;
-  }
+  private static final int CACHE_SIZE = 64;
 
   /**
    * Full implementation for API level 4.
@@ -69,6 +63,11 @@ public abstract class CallerId {
           number);
     }
 
+    @Override
+    protected Uri getContactsUri() {
+      return Contacts.CONTENT_URI;
+    }
+
     @Override
     protected String getTypeName(int type, String label) {
       return Phones.getDisplayLabel(context, type, label).toString();
@@ -90,6 +89,11 @@ public abstract class CallerId {
           number);
     }
 
+    @Override
+    protected Uri getContactsUri() {
+      return ContactsContract.AUTHORITY_URI;
+    }
+
     @Override
     protected String getTypeName(int type, String label) {
       return Phone.getTypeLabel(context.getResources(), type, label).toString();
@@ -110,20 +114,50 @@ public abstract class CallerId {
     }
   }
 
+  /** Shared by all instances, since each event creates its own. */
+  private static CallerInfoCache cache;
+
   protected final Context context;
 
   protected CallerId(Context context) {
     this.context = context;
   }
-  
+
+  /**
+   * Returns the cache of looked up numbers, creating it the first time. It's
+   * emptied whenever contacts change.
+   */
+  private CallerInfoCache getCache() {
+    synchronized (CallerId.class) {
+      if (cache == null) {
+        final CallerInfoCache newCache = new LruCallerInfoCache(CACHE_SIZE);
+        context.getApplicationContext().getContentResolver().registerContentObserver(
+            getContactsUri(), true, new ContentObserver(null) {
+              @Override
+              public void onChange(boolean selfChange) {
+                newCache.invalidateAll();
+              }
+            });
+        cache = newCache;
+      }
+      return cache;
+    }
+  }
+
   /**
    * Get information about the caller.
    *
    * @param number the number of the caller
-   * @return the information about the caller, or null if not found
+   * @return the information about the caller, {@link CallerInfoCache#UNKNOWN}
+   *         if the number belongs to no contact, or null if the lookup failed
    */
   protected abstract CallerInfo getCallerInfo(String number);
 
+  /**
+   * @return the URI to observe for contact changes
+   */
+  protected abstract Uri getContactsUri();
+
   /**
    * Convert a phone type + label into a user-visible string.
    *
@@ -144,7 +178,7 @@ public abstract class CallerId {
       return context.getString(R.string.unknown_number);
     }
 
-    CallerInfo callerInfo = getCallerInfo(number);
+    CallerInfo callerInfo = getCachedCallerInfo(number);
     if (callerInfo != null) {
       return buildCallerIdString(callerInfo);
     }
@@ -154,6 +188,29 @@ public abstract class CallerId {
     return number;
   }
 
+  /**
+   * Get information about the caller, only looking it up if it's not cached.
+   *
+   * @return the information about the caller, or null if not found
+   */
+  private CallerInfo getCachedCallerInfo(String number) {
+    CallerInfoCache cache = getCache();
+    CallerInfo callerInfo = cache.get(number);
+    if (callerInfo != null) {
+      return callerInfo == CallerInfoCache.UNKNOWN ? null : callerInfo;
+    }
+
+    int generation = cache.getGeneration();
+    callerInfo = getCallerInfo(number);
+    if (callerInfo == null) {
+      // Not known to have no contact, so look it up again next time
+      return null;
+    }
+
+    cache.put(number, callerInfo, generation);
+    return callerInfo == CallerInfoCache.UNKNOWN ? null : callerInfo;
+  }
+
   /**
    * Do the actual query for the caller information.
    * The source of the information, as well as the column names, are abstracted
@@ -164,7 +221,8 @@ public abstract class CallerId {
    * @param typeColumn the phone type column
    * @param labelColumn the phone type label column
    * @param number the calling number
-   * @return information about the caller, or null if not found
+   * @return information about the caller, {@link CallerInfoCache#UNKNOWN} if
+   *         no contact matched, or null if the lookup failed
    */
   protected CallerInfo getCallerInfo(Uri filterUri, String displayNameColumn,
       String typeColumn, String labelColumn, String number) {
@@ -180,36 +238,40 @@ public abstract class CallerId {
       return null;
     }
 
-    // Take the first match only
-    if (cursor != null && cursor.moveToFirst()) {
-      int nameIndex = cursor.getColumnIndex(displayNameColumn);
-      int typeIndex = cursor.getColumnIndex(typeColumn);
-      int labelIndex = cursor.getColumnIndex(labelColumn);
+    if (cursor == null) {
+      return null;
+    }
+
+    try {
+      // Take the first match only
+      if (cursor.moveToFirst()) {
+        int nameIndex = cursor.getColumnIndex(displayNameColumn);
+        int typeIndex = cursor.getColumnIndex(typeColumn);
+        int labelIndex = cursor.getColumnIndex(labelColumn);
 
-      if (nameIndex != -1) {
-        String displayName = cursor.getString(nameIndex);
+        if (nameIndex != -1) {
+          String displayName = cursor.getString(nameIndex);
 
-        // Get the phone type if possible
-        String typeStr = null;
-        if (typeIndex != -1) {
-          int numberType = cursor.getInt(typeIndex);
-          String label = "";
-          if (labelIndex != -1) {
-            label = cursor.getString(labelIndex);
+          // Get the phone type if possible
+          String typeStr = null;
+          if (typeIndex != -1) {
+            int numberType = cursor.getInt(typeIndex);
+            String label = "";
+            if (labelIndex != -1) {
+              label = cursor.getString(labelIndex);
+            }
+
+            typeStr = getTypeName(numberType, label);
           }
 
-          typeStr = getTypeName(numberType, label);
+          return new CallerInfo(number, typeStr, displayName);
         }
-
-        CallerInfo callerInfo = new CallerInfo();
-        callerInfo.number = number;
-        callerInfo.typeName = typeStr;
-        callerInfo.displayName = displayName;
-        return callerInfo;
       }
+    } finally {
+      cursor.close();
     }
 
-    return null;
+    return CallerInfoCache.UNKNOWN;
   }
 
   /**
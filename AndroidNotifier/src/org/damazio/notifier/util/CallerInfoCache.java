@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.util;
+
+/**
+ * Remembers the contact information looked up for phone numbers, including
+ * numbers which don't belong to any contact.
+ *
+ * Lookups race with contact changes, so they're stored along with the
+ * generation read before looking up: if the cache was invalidated in the
+ * meantime, the result is dropped instead of being kept past the change.
+ */
+public interface CallerInfoCache {
+
+  /** Returned by {@link #get} for numbers known not to belong to any contact. */
+  CallerInfo UNKNOWN = new CallerInfo(null, null, null);
+
+  /**
+   * @return the information for the number, {@link #UNKNOWN} if it's known
+   *         to have none, or null if it needs to be looked up
+   */
+  CallerInfo get(String number);
+
+  /**
+   * @return the current generation, to be given to {@link #put} after looking up
+   */
+  int getGeneration();
+
+  /**
+   * Stores the result of looking up a number.
+   *
+   * @param info the information found, or null if the number belongs to no contact
+   * @param generation the value of {@link #getGeneration} before looking up
+   */
+  void put(String number, CallerInfo info, int generation);
+
+  /**
+   * Forgets everything, e.g. because contacts changed.
+   */
+  void invalidateAll();
+}
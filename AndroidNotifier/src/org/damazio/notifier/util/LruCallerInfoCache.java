@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link CallerInfoCache} which keeps up to a fixed number of numbers,
+ * dropping the least recently used one when full.
+ */
+public class LruCallerInfoCache implements CallerInfoCache {
+  private final Map<String, CallerInfo> entries;
+  private int generation;
+
+  public LruCallerInfoCache(final int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+
+    entries = new LinkedHashMap<String, CallerInfo>(capacity * 4 / 3 + 1, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CallerInfo> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  public synchronized CallerInfo get(String number) {
+    return entries.get(number);
+  }
+
+  public synchronized int getGeneration() {
+    return generation;
+  }
+
+  public synchronized void put(String number, CallerInfo info, int generation) {
+    if (generation != this.generation) {
+      // Contacts changed while looking it up
+      return;
+    }
+
+    entries.put(number, info == null ? UNKNOWN : info);
+  }
+
+  public synchronized void invalidateAll() {
+    generation++;
+    entries.clear();
+  }
+
+  /**
+   * @return the number of numbers kept
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.util;
+
+/**
+ * Concatenation information element from the user data header of a GSM
+ * SMS-DELIVER PDU, which tells which part of a long message a PDU carries
+ * (3GPP TS 23.040, section 9.2.3.24.1 and 9.2.3.24.8).
+ */
+public class SmsConcatenationHeader {
+  private static final int TP_MTI_MASK = 0x03;
+  private static final int TP_MTI_DELIVER = 0x00;
+  private static final int TP_UDHI = 0x40;
+
+  /** TP-PID, TP-DCS and TP-SCTS, between the originating address and TP-UDL. */
+  private static final int PID_DCS_SCTS_LENGTH = 1 + 1 + 7;
+
+  private static final int IEI_CONCATENATED_8BIT = 0x00;
+  private static final int IEI_CONCATENATED_16BIT = 0x08;
+
+  private final int reference;
+  private final int partCount;
+  private final int partNumber;
+
+  public SmsConcatenationHeader(int reference, int partCount, int partNumber) {
+    this.reference = reference;
+    this.partCount = partCount;
+    this.partNumber = partNumber;
+  }
+
+  /**
+   * @return the reference shared by all parts of the message
+   */
+  public int getReference() {
+    return reference;
+  }
+
+  /**
+   * @return how many parts the message has
+   */
+  public int getPartCount() {
+    return partCount;
+  }
+
+  /**
+   * @return which part this is, from 1 to {@link #getPartCount}
+   */
+  public int getPartNumber() {
+    return partNumber;
+  }
+
+  /**
+   * Reads the concatenation header from a PDU as given in the "pdus" extra of
+   * a received SMS, which starts with the service center address.
+   *
+   * @return the header, or null if the PDU isn't part of a concatenated
+   *         message, or isn't a GSM SMS-DELIVER at all (e.g. CDMA)
+   */
+  public static SmsConcatenationHeader parse(byte[] pdu) {
+    if (pdu == null || pdu.length == 0) {
+      return null;
+    }
+
+    // Service center address
+    int offset = 1 + (pdu[0] & 0xFF);
+    if (offset >= pdu.length) {
+      return null;
+    }
+
+    int firstOctet = pdu[offset++] & 0xFF;
+    if ((firstOctet & TP_MTI_MASK) != TP_MTI_DELIVER
+        || (firstOctet & TP_UDHI) == 0) {
+      return null;
+    }
+
+    // TP-OA: number of digits, type of address, then two digits per octet
+    if (offset >= pdu.length) {
+      return null;
+    }
+    int addressDigits = pdu[offset] & 0xFF;
+    offset += 2 + (addressDigits + 1) / 2;
+
+    // Skip to TP-UD, past TP-UDL, whose header starts with its length
+    offset += PID_DCS_SCTS_LENGTH + 1;
+    if (offset >= pdu.length) {
+      return null;
+    }
+    int headerEnd = offset + 1 + (pdu[offset] & 0xFF);
+    if (headerEnd > pdu.length) {
+      return null;
+    }
+
+    // Information elements, each with its identifier and length
+    offset++;
+    while (offset + 2 <= headerEnd) {
+      int identifier = pdu[offset] & 0xFF;
+      int length = pdu[offset + 1] & 0xFF;
+      offset += 2;
+      if (offset + length > headerEnd) {
+        return null;
+      }
+
+      if (identifier == IEI_CONCATENATED_8BIT && length == 3) {
+        return create(pdu[offset] & 0xFF, pdu[offset + 1] & 0xFF, pdu[offset + 2] & 0xFF);
+      } else if (identifier == IEI_CONCATENATED_16BIT && length == 4) {
+        int reference = ((pdu[offset] & 0xFF) << 8) | (pdu[offset + 1] & 0xFF);
+        return create(reference, pdu[offset + 2] & 0xFF, pdu[offset + 3] & 0xFF);
+      }
+      offset += length;
+    }
+    return null;
+  }
+
+  private static SmsConcatenationHeader create(int reference, int partCount, int partNumber) {
+    // The spec says to ignore the element if these don't make sense
+    if (partCount == 0 || partNumber == 0 || partNumber > partCount) {
+      return null;
+    }
+    return new SmsConcatenationHeader(reference, partCount, partNumber);
+  }
+
+  @Override
+  public String toString() {
+    return "Part " + partNumber + "/" + partCount + " of " + reference;
+  }
+}
@@ -128,8 +128,28 @@ public abstract class SmsDecoder {
    * @return the human-readable representation of the text message
    */
   public final String getSmsContents() {
-    String sender = CallerId.create(context).buildCallerIdString(getSenderAddress());
-    return context.getString(R.string.sms_contents, sender, getMessageBody());
+    return getSmsContents(context, getSenderAddress(), getMessageBody());
+  }
+
+  /**
+   * Formats an SMS in a human-readable way, such as one joined from several
+   * PDUs.
+   *
+   * @param context the context in which decoding happens
+   * @param senderAddress the plain sender address
+   * @param body the plain message body
+   * @return the human-readable representation of the text message
+   */
+  public static String getSmsContents(Context context, String senderAddress, String body) {
+    String sender = CallerId.create(context).buildCallerIdString(senderAddress);
+    return context.getString(R.string.sms_contents, sender, body);
+  }
+
+  /**
+   * Returns the raw PDU the message was decoded from.
+   */
+  public byte[] getPdu() {
+    return (byte[]) pdu;
   }
 
   /**
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Joins the parts of long SMS messages back together.
+ *
+ * Parts are grouped by sender and by their concatenation reference and part
+ * count. A message is handed out as soon as all its parts have arrived; one
+ * which goes for longer than the timeout without a new part is handed out by
+ * {@link #removeExpired} with whatever parts arrived, so a lost part doesn't
+ * hold it back forever.
+ *
+ * Not thread-safe.
+ */
+public class SmsReassembler {
+
+  /**
+   * A whole (or, if it expired, partial) message.
+   */
+  public static class Message {
+    private final String sender;
+    private final String body;
+    private final boolean complete;
+
+    public Message(String sender, String body, boolean complete) {
+      this.sender = sender;
+      this.body = body;
+      this.complete = complete;
+    }
+
+    public String getSender() {
+      return sender;
+    }
+
+    public String getBody() {
+      return body;
+    }
+
+    /**
+     * @return false if some parts were still missing when the message expired
+     */
+    public boolean isComplete() {
+      return complete;
+    }
+  }
+
+  /**
+   * Parts received so far for one message.
+   */
+  private static class PendingMessage {
+    final String sender;
+    final String[] parts;
+    int received;
+    long lastPartTime;
+
+    PendingMessage(String sender, int partCount) {
+      this.sender = sender;
+      this.parts = new String[partCount];
+    }
+
+    boolean isComplete() {
+      return received == parts.length;
+    }
+
+    Message toMessage() {
+      StringBuilder body = new StringBuilder();
+      for (String part : parts) {
+        if (part != null) {
+          body.append(part);
+        }
+      }
+      return new Message(sender, body.toString(), isComplete());
+    }
+  }
+
+  private final Clock clock;
+  private final long timeoutMs;
+  private final Map<String, PendingMessage> pending = new LinkedHashMap<String, PendingMessage>();
+
+  public SmsReassembler(Clock clock, long timeoutMs) {
+    this.clock = clock;
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * Adds a part of a message.
+   *
+   * @param sender the sender's address
+   * @param header which part this is
+   * @param body the text of this part
+   * @return the whole message if this was its last missing part, null otherwise
+   */
+  public Message add(String sender, SmsConcatenationHeader header, String body) {
+    String key = getKey(sender, header);
+    PendingMessage message = pending.get(key);
+    if (message == null) {
+      message = new PendingMessage(sender, header.getPartCount());
+      pending.put(key, message);
+    }
+
+    int index = header.getPartNumber() - 1;
+    if (message.parts[index] == null) {
+      message.parts[index] = body;
+      message.received++;
+    }
+    message.lastPartTime = clock.currentTimeMillis();
+
+    if (!message.isComplete()) {
+      return null;
+    }
+    pending.remove(key);
+    return message.toMessage();
+  }
+
+  /**
+   * Removes the messages which waited too long for their missing parts.
+   *
+   * @return those messages, with the parts which did arrive
+   */
+  public List<Message> removeExpired() {
+    List<Message> expired = new ArrayList<Message>();
+    long now = clock.currentTimeMillis();
+    for (Iterator<PendingMessage> it = pending.values().iterator(); it.hasNext(); ) {
+      PendingMessage message = it.next();
+      if (now - message.lastPartTime >= timeoutMs) {
+        it.remove();
+        expired.add(message.toMessage());
+      }
+    }
+    return expired;
+  }
+
+  /**
+   * @return the time at which the next incomplete message expires, or -1 if
+   *         there are none
+   */
+  public long getNextExpiry() {
+    long next = -1;
+    for (PendingMessage message : pending.values()) {
+      long expiry = message.lastPartTime + timeoutMs;
+      if (next < 0 || expiry < next) {
+        next = expiry;
+      }
+    }
+    return next;
+  }
+
+  /**
+   * @return how many messages are waiting for parts
+   */
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  private static String getKey(String sender, SmsConcatenationHeader header) {
+    return sender + '/' + header.getReference() + '/' + header.getPartCount();
+  }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.util.mms;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Reads the few headers of an MMS PDU which notifications show, straight from
+ * the raw bytes.
+ *
+ * Unlike {@link PduParser}, which decodes every header into a
+ * {@link PduHeaders}, this walks the headers only until the requested one is
+ * found, and decodes nothing but the value asked for. Headers appear in the
+ * order they were sent, so the message type, which always comes first, is
+ * read without looking at the rest.
+ *
+ * Malformed PDUs don't throw: headers after the problem are just not found.
+ * Instances are not thread-safe.
+ */
+public class PduHeaderReader {
+  // From wap-230-wsp-20010705-a.pdf
+  private static final int SHORT_LENGTH_MAX = 30;
+  private static final int LENGTH_QUOTE = 31;
+  private static final int TEXT_MIN = 32;
+  private static final int QUOTE = 127;
+  private static final int SHORT_INTEGER_MIN = 128;
+  private static final int LONG_INTEGER_LENGTH_MAX = 8;
+  private static final int UINTVAR_LENGTH_MAX = 5;
+
+  private final byte[] pdu;
+  private final int end;
+
+  /** Offset of the next header to read. */
+  private int position;
+  /** Whether the end of the headers (or something unreadable) was reached. */
+  private boolean done;
+
+  /** Offsets of the values of the headers found so far, -1 if not found. */
+  private int messageTypeOffset = -1;
+  private int fromOffset = -1;
+  private int subjectOffset = -1;
+  private int messageSizeOffset = -1;
+
+  /** Where the last value length or integer read ended. */
+  private int lastEnd;
+
+  public PduHeaderReader(byte[] pdu) {
+    this(pdu, 0, pdu.length);
+  }
+
+  public PduHeaderReader(byte[] pdu, int offset, int length) {
+    this.pdu = pdu;
+    this.position = offset;
+    this.end = offset + length;
+  }
+
+  /**
+   * @return the message type, such as
+   *         {@link PduHeaders#MESSAGE_TYPE_NOTIFICATION_IND}, or -1 if not found
+   */
+  public int getMessageType() {
+    int offset = find(PduHeaders.MESSAGE_TYPE);
+    return offset < 0 ? -1 : pdu[offset] & 0xFF;
+  }
+
+  /**
+   * @return the sender's address without its type suffix (such as
+   *         "/TYPE=PLMN"), or null if not found or left for the server to insert
+   */
+  public String getFrom() {
+    // From-value = Value-length (Address-present-token Encoded-string-value | Insert-address-token)
+    int offset = find(PduHeaders.FROM);
+    if (offset < 0) {
+      return null;
+    }
+
+    int length = readValueLength(offset);
+    int valueEnd = lastEnd + length;
+    if (length <= 0 || valueEnd > end
+        || (pdu[lastEnd] & 0xFF) != PduHeaders.FROM_ADDRESS_PRESENT_TOKEN) {
+      return null;
+    }
+
+    String from = readEncodedString(lastEnd + 1, valueEnd);
+    if (from == null) {
+      return null;
+    }
+
+    int typeIndex = from.indexOf('/');
+    return typeIndex > 0 ? from.substring(0, typeIndex) : from;
+  }
+
+  /**
+   * @return the subject, or null if not found
+   */
+  public String getSubject() {
+    int offset = find(PduHeaders.SUBJECT);
+    return offset < 0 ? null : readEncodedString(offset, end);
+  }
+
+  /**
+   * @return the size of the message in bytes, or -1 if not found
+   */
+  public long getMessageSize() {
+    int offset = find(PduHeaders.MESSAGE_SIZE);
+    return offset < 0 ? -1 : readIntegerValue(offset);
+  }
+
+  /**
+   * Reads headers until the given one is found.
+   *
+   * @return the offset of its value, or -1 if it's not in the PDU
+   */
+  private int find(int field) {
+    int offset = getOffset(field);
+    while (offset < 0 && !done) {
+      readHeader();
+      offset = getOffset(field);
+    }
+    return offset;
+  }
+
+  private int getOffset(int field) {
+    switch (field) {
+      case PduHeaders.MESSAGE_TYPE:
+        return messageTypeOffset;
+      case PduHeaders.FROM:
+        return fromOffset;
+      case PduHeaders.SUBJECT:
+        return subjectOffset;
+      case PduHeaders.MESSAGE_SIZE:
+        return messageSizeOffset;
+      default:
+        throw new IllegalArgumentException("Header not supported: " + field);
+    }
+  }
+
+  /**
+   * Reads the header at the current position, remembering where its value is
+   * if it's one of those we look for, and moves on to the next one.
+   */
+  private void readHeader() {
+    if (position >= end) {
+      done = true;
+      return;
+    }
+
+    int field = pdu[position] & 0xFF;
+    int valueOffset;
+    if (field < SHORT_INTEGER_MIN) {
+      // Application-header = Token-text Application-specific-value
+      valueOffset = skipText(position);
+    } else {
+      valueOffset = position + 1;
+    }
+    if (valueOffset < 0 || valueOffset >= end) {
+      done = true;
+      return;
+    }
+
+    switch (field) {
+      case PduHeaders.MESSAGE_TYPE:
+        if (messageTypeOffset < 0) {
+          messageTypeOffset = valueOffset;
+        }
+        break;
+      case PduHeaders.FROM:
+        if (fromOffset < 0) {
+          fromOffset = valueOffset;
+        }
+        break;
+      case PduHeaders.SUBJECT:
+        if (subjectOffset < 0) {
+          subjectOffset = valueOffset;
+        }
+        break;
+      case PduHeaders.MESSAGE_SIZE:
+        if (messageSizeOffset < 0) {
+          messageSizeOffset = valueOffset;
+        }
+        break;
+      case PduHeaders.CONTENT_TYPE:
+        // Always the last header, the body follows
+        done = true;
+        return;
+    }
+
+    position = skipValue(valueOffset);
+    if (position < 0) {
+      done = true;
+    }
+  }
+
+  /**
+   * Skips any header value. Its first octet tells how it's encoded
+   * (wap-230-wsp-20010705-a.pdf, section 8.4.1.2).
+   *
+   * @return the offset after the value, or -1 if it goes past the end
+   */
+  private int skipValue(int offset) {
+    int first = pdu[offset] & 0xFF;
+    if (first <= SHORT_LENGTH_MAX || first == LENGTH_QUOTE) {
+      int length = readValueLength(offset);
+      if (length < 0 || lastEnd + length > end) {
+        return -1;
+      }
+      return lastEnd + length;
+    } else if (first < SHORT_INTEGER_MIN) {
+      return skipText(offset);
+    } else {
+      // Short-integer or well-known octet
+      return offset + 1;
+    }
+  }
+
+  /**
+   * @return the offset after the End-of-string of the text at the offset, or
+   *         -1 if there's none
+   */
+  private int skipText(int offset) {
+    for (int i = offset; i < end; i++) {
+      if (pdu[i] == 0) {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Reads a Value-length, leaving in {@link #lastEnd} where it ends.
+   *
+   * @return the length, or -1 if it's malformed
+   */
+  private int readValueLength(int offset) {
+    int first = pdu[offset] & 0xFF;
+    if (first <= SHORT_LENGTH_MAX) {
+      lastEnd = offset + 1;
+      return first;
+    } else if (first != LENGTH_QUOTE) {
+      return -1;
+    }
+
+    // Length-quote Uintvar-integer
+    int length = 0;
+    for (int i = offset + 1; i < end && i <= offset + UINTVAR_LENGTH_MAX; i++) {
+      int octet = pdu[i] & 0xFF;
+      length = (length << 7) | (octet & 0x7F);
+      if ((octet & 0x80) == 0) {
+        lastEnd = i + 1;
+        return length < 0 ? -1 : length;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Reads an Integer-Value (a Short-integer or a Long-integer), leaving in
+   * {@link #lastEnd} where it ends.
+   *
+   * @return the value, or -1 if it's malformed
+   */
+  private long readIntegerValue(int offset) {
+    if (offset >= end) {
+      return -1;
+    }
+
+    int first = pdu[offset] & 0xFF;
+    if (first >= SHORT_INTEGER_MIN) {
+      lastEnd = offset + 1;
+      return first & 0x7F;
+    } else if (first == 0 || first > LONG_INTEGER_LENGTH_MAX || offset + 1 + first > end) {
+      return -1;
+    }
+
+    long value = 0;
+    for (int i = offset + 1; i <= offset + first; i++) {
+      value = (value << 8) | (pdu[i] & 0xFF);
+    }
+    lastEnd = offset + 1 + first;
+    return value;
+  }
+
+  /**
+   * Reads an Encoded-string-value, which is either a Text-string in the
+   * default charset or Value-length Char-set Text-string.
+   *
+   * @param limit where the value must end
+   * @return the decoded string, or null if it's malformed
+   */
+  private String readEncodedString(int offset, int limit) {
+    if (offset >= limit) {
+      return null;
+    }
+
+    int charset = CharacterSets.DEFAULT_CHARSET;
+    if ((pdu[offset] & 0xFF) < TEXT_MIN) {
+      int length = readValueLength(offset);
+      if (length < 0 || lastEnd + length > limit) {
+        return null;
+      }
+      limit = lastEnd + length;
+
+      long charsetValue = readIntegerValue(lastEnd);
+      if (charsetValue < 0) {
+        return null;
+      }
+      if (charsetValue != CharacterSets.ANY_CHARSET) {
+        charset = (int) charsetValue;
+      }
+      offset = lastEnd;
+    }
+
+    // Text-string = [Quote] *TEXT End-of-string
+    if (offset < limit && (pdu[offset] & 0xFF) == QUOTE) {
+      offset++;
+    }
+    int textEnd = offset;
+    while (textEnd < limit && pdu[textEnd] != 0) {
+      textEnd++;
+    }
+    return decode(offset, textEnd - offset, charset);
+  }
+
+  private String decode(int offset, int length, int charset) {
+    try {
+      return new String(pdu, offset, length, CharacterSets.getMimeName(charset));
+    } catch (UnsupportedEncodingException e) {
+      // Same fallback as EncodedStringValue
+      try {
+        return new String(pdu, offset, length, CharacterSets.MIMENAME_ISO_8859_1);
+      } catch (UnsupportedEncodingException e2) {
+        return new String(pdu, offset, length);
+      }
+    }
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.damazio.notifier.notification.NotificationCoalescer.Policy;
+import org.damazio.notifier.util.Clock;
+
+/**
+ * Tests for {@link NotificationCoalescer}.
+ */
+public class NotificationCoalescerTest extends TestCase {
+  private static final long WINDOW_MS = 10 * 1000;
+  private static final long MAX_DELAY_MS = 60 * 1000;
+  private static final int BAND = 5;
+
+  private static class FakeClock implements Clock {
+    long now = 1000000000L;
+
+    public long currentTimeMillis() {
+      return now;
+    }
+  }
+
+  private final Map<NotificationType, Policy> policies =
+      new EnumMap<NotificationType, Policy>(NotificationType.class);
+  private FakeClock clock;
+  private NotificationCoalescer<String> coalescer;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    clock = new FakeClock();
+    policies.put(NotificationType.BATTERY, Policy.lastValueWins(WINDOW_MS, MAX_DELAY_MS, BAND));
+    policies.put(NotificationType.VOICEMAIL, Policy.lastValueWins(WINDOW_MS, MAX_DELAY_MS, 0));
+    policies.put(NotificationType.USER, Policy.debounce(WINDOW_MS, MAX_DELAY_MS));
+    coalescer = new NotificationCoalescer<String>(clock, new NotificationCoalescer.PolicyProvider() {
+      public Policy getPolicy(NotificationType type) {
+        return policies.get(type);
+      }
+    });
+  }
+
+  private List<String> battery(String status, int level) {
+    return coalescer.offer(NotificationType.BATTERY, status, level, status + " " + level);
+  }
+
+  private void advance(long millis) {
+    clock.now += millis;
+  }
+
+  public void testOffer_immediate() {
+    assertEquals(Arrays.asList("sms"), coalescer.offer(NotificationType.SMS, "sms", -1, "sms"));
+    assertEquals(-1, coalescer.getNextDeadline());
+  }
+
+  public void testOffer_ringNeverDelayed() {
+    policies.put(NotificationType.RING, Policy.debounce(WINDOW_MS, MAX_DELAY_MS));
+    assertEquals(Arrays.asList("ring"), coalescer.offer(NotificationType.RING, "ring", -1, "ring"));
+    assertEquals(0, coalescer.getPendingCount());
+  }
+
+  public void testLastValueWins_sendsLastAfterWindow() {
+    assertTrue(battery("charging", 50).isEmpty());
+    advance(1000);
+    assertTrue(battery("discharging", 50).isEmpty());
+    advance(1000);
+    assertTrue(battery("charging", 51).isEmpty());
+    assertEquals(clock.now + WINDOW_MS, coalescer.getNextDeadline());
+
+    advance(WINDOW_MS - 1);
+    assertTrue(coalescer.poll().isEmpty());
+    advance(1);
+    assertEquals(Arrays.asList("charging 51"), coalescer.poll());
+    assertEquals(-1, coalescer.getNextDeadline());
+  }
+
+  public void testLastValueWins_flapBackToSentIsDropped() {
+    battery("charging", 50);
+    advance(WINDOW_MS);
+    assertEquals(Arrays.asList("charging 50"), coalescer.poll());
+
+    // Charger unplugged and plugged back in
+    battery("discharging", 50);
+    advance(500);
+    battery("charging", 50);
+    advance(WINDOW_MS);
+    assertTrue(coalescer.poll().isEmpty());
+  }
+
+  public void testLastValueWins_hysteresis() {
+    battery("discharging", 50);
+    advance(WINDOW_MS);
+    assertEquals(Arrays.asList("discharging 50"), coalescer.poll());
+
+    // Small moves either way around the last sent level are dropped
+    for (int level : new int[] { 49, 51, 48, 46 }) {
+      battery("discharging", level);
+      advance(WINDOW_MS);
+      assertTrue("Level " + level, coalescer.poll().isEmpty());
+    }
+
+    // Moving out of the band from the last level sent is sent
+    battery("discharging", 45);
+    advance(WINDOW_MS);
+    assertEquals(Arrays.asList("discharging 45"), coalescer.poll());
+  }
+
+  public void testLastValueWins_stateChangeIgnoresBand() {
+    battery("discharging", 50);
+    advance(WINDOW_MS);
+    coalescer.poll();
+
+    battery("charging", 50);
+    advance(WINDOW_MS);
+    assertEquals(Arrays.asList("charging 50"), coalescer.poll());
+  }
+
+  public void testMaxDelay() {
+    long start = clock.now;
+    int level = 0;
+    while (clock.now - start < MAX_DELAY_MS) {
+      assertTrue(battery("discharging", level).isEmpty());
+      level += BAND;
+      advance(WINDOW_MS / 2);
+    }
+    assertEquals(start + MAX_DELAY_MS, coalescer.getNextDeadline());
+    assertEquals(1, coalescer.poll().size());
+  }
+
+  public void testStateOnly() {
+    assertTrue(coalescer.offer(NotificationType.VOICEMAIL, "true", -1, "voicemail").isEmpty());
+    advance(WINDOW_MS);
+    assertEquals(Arrays.asList("voicemail"), coalescer.poll());
+
+    // Flickering off and on again isn't a new voicemail
+    assertTrue(coalescer.offer(NotificationType.VOICEMAIL, "false", -1, null).isEmpty());
+    advance(100);
+    assertTrue(coalescer.offer(NotificationType.VOICEMAIL, "true", -1, "voicemail2").isEmpty());
+    advance(WINDOW_MS);
+    assertTrue(coalescer.poll().isEmpty());
+
+    // Going off for a while, then on, is
+    coalescer.offer(NotificationType.VOICEMAIL, "false", -1, null);
+    advance(WINDOW_MS);
+    assertTrue(coalescer.poll().isEmpty());
+    coalescer.offer(NotificationType.VOICEMAIL, "true", -1, "voicemail3");
+    advance(WINDOW_MS);
+    assertEquals(Arrays.asList("voicemail3"), coalescer.poll());
+  }
+
+  public void testDebounce_sendsAllTogether() {
+    coalescer.offer(NotificationType.USER, "a", -1, "a");
+    advance(WINDOW_MS - 1);
+    coalescer.offer(NotificationType.USER, "b", -1, "b");
+    advance(WINDOW_MS - 1);
+    assertTrue(coalescer.poll().isEmpty());
+    advance(1);
+    assertEquals(Arrays.asList("a", "b"), coalescer.poll());
+  }
+
+  public void testOffer_releasesDueFirst() {
+    battery("charging", 50);
+    advance(WINDOW_MS);
+    assertEquals(Arrays.asList("charging 50", "sms"),
+        coalescer.offer(NotificationType.SMS, "sms", -1, "sms"));
+  }
+
+  public void testOffer_policyBecameImmediate() {
+    battery("charging", 50);
+    policies.remove(NotificationType.BATTERY);
+    assertEquals(Arrays.asList("charging 50", "charging 60"), battery("charging", 60));
+    assertEquals(0, coalescer.getPendingCount());
+  }
+
+  public void testFlush() {
+    battery("charging", 50);
+    coalescer.offer(NotificationType.USER, "a", -1, "a");
+    assertEquals(2, coalescer.getPendingCount());
+    List<String> flushed = coalescer.flush();
+    Collections.sort(flushed);
+    assertEquals(Arrays.asList("a", "charging 50"), flushed);
+    assertEquals(0, coalescer.getPendingCount());
+  }
+}
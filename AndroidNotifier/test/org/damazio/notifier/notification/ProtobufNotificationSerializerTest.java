@@ -0,0 +1,173 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.damazio.notifier.command.CommandProtocol;
+import org.damazio.notifier.util.Encryption;
+
+import com.google.protobuf.CodedInputStream;
+
+/**
+ * Tests for {@link ProtobufNotificationSerializer}.
+ */
+public class ProtobufNotificationSerializerTest extends TestCase {
+  private static final String DEVICE_ID = "8f3a2b1c4d5e6f70";
+
+  /**
+   * Stands in for AES, which the JVM doesn't provide with the padding used on
+   * Android, by reversing the bytes.
+   */
+  private static class FakeEncryption extends Encryption {
+    FakeEncryption() {
+      super(new byte[16]);
+    }
+
+    @Override
+    public byte[] encrypt(byte[] unencrypted) {
+      byte[] encrypted = new byte[unencrypted.length];
+      for (int i = 0; i < unencrypted.length; i++) {
+        encrypted[i] = unencrypted[unencrypted.length - 1 - i];
+      }
+      return encrypted;
+    }
+
+    @Override
+    public byte[] decrypt(byte[] encrypted) {
+      return encrypt(encrypted);
+    }
+  }
+
+  /**
+   * A frame split into its header and message.
+   */
+  private static class Frame {
+    final int length;
+    final byte flags;
+    final byte[] message;
+
+    Frame(byte[] frame) throws Exception {
+      CodedInputStream input = CodedInputStream.newInstance(frame);
+      length = input.readRawVarint32();
+      flags = input.readRawByte();
+      message = input.readRawBytes(frame.length - input.getTotalBytesRead());
+    }
+  }
+
+  public void testSerialize_frameLayout() throws Exception {
+    byte[] bytes = new ProtobufNotificationSerializer(null).serialize(
+        new Notification(DEVICE_ID, "1f", NotificationType.SMS, "5551234", "Hello"));
+    Frame frame = new Frame(bytes);
+
+    assertEquals(bytes.length, frame.length);
+    assertEquals(ProtobufNotificationSerializer.NOT_ENCRYPTED, frame.flags);
+    CommandProtocol.Notification notification =
+        CommandProtocol.Notification.parseFrom(frame.message);
+    assertEquals(0x8f3a2b1c4d5e6f70L, notification.getDeviceId());
+    assertEquals(0x1f, notification.getId());
+    assertEquals(CommandProtocol.Notification.Type.SMS, notification.getType());
+    assertEquals("5551234", notification.getPhoneNumber());
+    assertEquals("Hello", notification.getDescription());
+  }
+
+  public void testSerialize_lengthAcrossVarintSizes() throws Exception {
+    ProtobufNotificationSerializer serializer = new ProtobufNotificationSerializer(null);
+    // Frames of 1 and 2 length bytes, and ones where adding the length needs another byte
+    for (int size = 100; size < 150; size++) {
+      char[] description = new char[size];
+      Arrays.fill(description, 'x');
+      byte[] bytes = serializer.serialize(new Notification(DEVICE_ID, "1",
+          NotificationType.USER, null, new String(description)));
+      Frame frame = new Frame(bytes);
+
+      assertEquals(bytes.length, frame.length);
+      assertEquals(new String(description),
+          CommandProtocol.Notification.parseFrom(frame.message).getDescription());
+    }
+  }
+
+  public void testSerialize_deviceIdString() throws Exception {
+    ProtobufNotificationSerializer serializer = new ProtobufNotificationSerializer(null);
+    for (String deviceId : new String[] { "0a1b2c3d4e5f6071", "000000000000ff", "not hex" }) {
+      Frame frame = new Frame(serializer.serialize(
+          new Notification(deviceId, "1", NotificationType.PING, null, null)));
+
+      assertEquals(deviceId,
+          CommandProtocol.Notification.parseFrom(frame.message).getDeviceIdString());
+    }
+  }
+
+  public void testParseId() {
+    assertEquals(0x8f3a2b1c4d5e6f70L, ProtobufNotificationSerializer.parseId(DEVICE_ID));
+    assertEquals(-1L, ProtobufNotificationSerializer.parseId("ffffffffffffffff"));
+    assertEquals("not hex".hashCode(), ProtobufNotificationSerializer.parseId("not hex"));
+  }
+
+  public void testSerializeBatch() throws Exception {
+    byte[] bytes = new ProtobufNotificationSerializer(null).serializeBatch(Arrays.asList(
+        new Notification(DEVICE_ID, "1", NotificationType.BATTERY, "42", null),
+        new Notification(DEVICE_ID, "2", NotificationType.RING, "5551234", "Call")));
+    Frame frame = new Frame(bytes);
+
+    assertEquals(ProtobufNotificationSerializer.BATCH, frame.flags);
+    assertBatch(CommandProtocol.NotificationBatch.parseFrom(frame.message));
+  }
+
+  public void testSerializeBatch_encrypted() throws Exception {
+    FakeEncryption encryption = new FakeEncryption();
+    byte[] bytes = new ProtobufNotificationSerializer(encryption).serializeBatch(Arrays.asList(
+        new Notification(DEVICE_ID, "1", NotificationType.BATTERY, "42", null),
+        new Notification(DEVICE_ID, "2", NotificationType.RING, "5551234", "Call")));
+    Frame frame = new Frame(bytes);
+
+    assertEquals(bytes.length, frame.length);
+    assertEquals(ProtobufNotificationSerializer.BATCH
+        | ProtobufNotificationSerializer.ENCRYPTED_CBC, frame.flags);
+    assertBatch(CommandProtocol.NotificationBatch.parseFrom(encryption.decrypt(frame.message)));
+  }
+
+  public void testSerialize_encrypted() throws Exception {
+    FakeEncryption encryption = new FakeEncryption();
+    byte[] bytes = new ProtobufNotificationSerializer(encryption).serialize(
+        new Notification(DEVICE_ID, "1f", NotificationType.PING, null, null));
+    Frame frame = new Frame(bytes);
+
+    assertEquals(ProtobufNotificationSerializer.ENCRYPTED_CBC, frame.flags);
+    assertEquals(CommandProtocol.Notification.Type.PING,
+        CommandProtocol.Notification.parseFrom(encryption.decrypt(frame.message)).getType());
+  }
+
+  private static void assertBatch(CommandProtocol.NotificationBatch batch) {
+    assertEquals(2, batch.getNotificationsCount());
+    assertEquals(CommandProtocol.Notification.Type.BATTERY, batch.getNotifications(0).getType());
+    assertEquals(42, batch.getNotifications(0).getBatteryLevel());
+    assertEquals(CommandProtocol.Notification.Type.RING, batch.getNotifications(1).getType());
+    assertEquals("5551234", batch.getNotifications(1).getPhoneNumber());
+    assertEquals(0x8f3a2b1c4d5e6f70L, batch.getNotifications(1).getDeviceId());
+  }
+}
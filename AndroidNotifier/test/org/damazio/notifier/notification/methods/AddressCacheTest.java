@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification.methods;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.damazio.notifier.util.Clock;
+
+/**
+ * Tests for {@link AddressCache}.
+ */
+public class AddressCacheTest extends TestCase {
+  private static final long TTL_MS = 60 * 1000;
+
+  private static class FakeClock implements Clock {
+    long now = 1000000000L;
+
+    public long currentTimeMillis() {
+      return now;
+    }
+  }
+
+  /**
+   * Resolver which gives a new address on each lookup.
+   */
+  private static class CountingResolver implements AddressCache.Resolver {
+    final List<String> lookups = new ArrayList<String>();
+    boolean fail;
+
+    public InetAddress resolve(String host) throws UnknownHostException {
+      lookups.add(host);
+      if (fail) {
+        throw new UnknownHostException(host);
+      }
+      return InetAddress.getByAddress(host, new byte[] { 10, 0, 0, (byte) lookups.size() });
+    }
+  }
+
+  private FakeClock clock;
+  private CountingResolver resolver;
+  private AddressCache cache;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    clock = new FakeClock();
+    resolver = new CountingResolver();
+    cache = new AddressCache(resolver, TTL_MS, clock);
+  }
+
+  public void testResolve_cached() throws Exception {
+    InetAddress first = cache.resolve("desktop");
+    clock.now += TTL_MS - 1;
+
+    assertSame(first, cache.resolve("desktop"));
+    assertEquals(1, resolver.lookups.size());
+  }
+
+  public void testResolve_expired() throws Exception {
+    cache.resolve("desktop");
+    clock.now += TTL_MS;
+
+    assertEquals("10.0.0.2", cache.resolve("desktop").getHostAddress());
+    assertEquals(2, resolver.lookups.size());
+  }
+
+  public void testResolve_failureNotCached() throws Exception {
+    resolver.fail = true;
+    try {
+      cache.resolve("desktop");
+      fail("Expected UnknownHostException");
+    } catch (UnknownHostException e) {
+      // Expected
+    }
+
+    resolver.fail = false;
+    assertNotNull(cache.resolve("desktop"));
+    assertEquals(2, resolver.lookups.size());
+  }
+
+  public void testClear() throws Exception {
+    cache.resolve("desktop");
+    cache.resolve("laptop");
+    cache.clear();
+    cache.resolve("desktop");
+
+    assertEquals(3, resolver.lookups.size());
+  }
+}
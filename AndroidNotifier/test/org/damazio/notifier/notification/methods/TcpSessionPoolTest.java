@@ -0,0 +1,249 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification.methods;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.SocketFactory;
+
+import junit.framework.TestCase;
+
+import org.damazio.notifier.util.Clock;
+
+/**
+ * Tests for {@link TcpSessionPool}, against a local server which reads
+ * sessions the way the desktop does.
+ */
+public class TcpSessionPoolTest extends TestCase {
+  private static final long KEEP_ALIVE_MS = 1000;
+
+  private static class FakeClock implements Clock {
+    long now = 1000000000L;
+
+    public long currentTimeMillis() {
+      return now;
+    }
+  }
+
+  /**
+   * Server which records each notification it gets as "connection:payload".
+   */
+  private static class FakeDesktop extends Thread {
+    final ServerSocket serverSocket;
+    final BlockingQueue<String> received = new LinkedBlockingQueue<String>();
+    final AtomicInteger connections = new AtomicInteger();
+    volatile boolean closeAfterEachNotification;
+
+    FakeDesktop() throws IOException {
+      serverSocket = new ServerSocket(0, 10, InetAddress.getByName("127.0.0.1"));
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          final Socket socket = serverSocket.accept();
+          final int connection = connections.incrementAndGet();
+          new Thread() {
+            @Override
+            public void run() {
+              readSession(socket, connection);
+            }
+          }.start();
+        }
+      } catch (IOException e) {
+        // Server closed
+      }
+    }
+
+    void readSession(Socket socket, int connection) {
+      try {
+        DataInputStream input = new DataInputStream(socket.getInputStream());
+        byte[] prefix = new byte[TcpSessionPool.SESSION_PREFIX.length];
+        input.readFully(prefix);
+        if (!Arrays.equals(TcpSessionPool.SESSION_PREFIX, prefix)) {
+          received.add("bad prefix");
+          return;
+        }
+
+        while (true) {
+          byte[] payload = new byte[input.readInt()];
+          input.readFully(payload);
+          if (closeAfterEachNotification) {
+            socket.close();
+          }
+          received.add(connection + ":" + new String(payload, "UTF8"));
+        }
+      } catch (IOException e) {
+        // Session over
+      } finally {
+        try {
+          socket.close();
+        } catch (IOException e) {
+          // Already closed
+        }
+      }
+    }
+
+    InetSocketAddress getAddress() {
+      return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+    }
+
+    String nextNotification() throws InterruptedException {
+      return received.poll(5, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Creates sockets which can't connect anywhere, as if the desktop refused.
+   */
+  private static class RefusingSocketFactory extends SocketFactory {
+    @Override
+    public Socket createSocket() {
+      return new Socket() {
+        @Override
+        public void connect(SocketAddress endpoint, int timeout) throws IOException {
+          throw new ConnectException("Connection refused");
+        }
+      };
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
+        int localPort) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private FakeClock clock;
+  private FakeDesktop desktop;
+  private TcpSessionPool pool;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    clock = new FakeClock();
+    desktop = new FakeDesktop();
+    desktop.start();
+    pool = new TcpSessionPool(SocketFactory.getDefault(), 5000, KEEP_ALIVE_MS, clock);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    pool.closeAll();
+    desktop.serverSocket.close();
+    super.tearDown();
+  }
+
+  private void send(String... payloads) throws IOException {
+    byte[][] bytes = new byte[payloads.length][];
+    for (int i = 0; i < payloads.length; i++) {
+      bytes[i] = payloads[i].getBytes("UTF8");
+    }
+    pool.send(desktop.getAddress(), Arrays.asList(bytes));
+  }
+
+  public void testSend_reusesSession() throws Exception {
+    send("one", "two");
+    send("three");
+
+    assertEquals("1:one", desktop.nextNotification());
+    assertEquals("1:two", desktop.nextNotification());
+    assertEquals("1:three", desktop.nextNotification());
+    assertEquals(1, desktop.connections.get());
+    assertEquals(1, pool.getOpenCount());
+  }
+
+  public void testSend_reconnectsWhenDesktopClosed() throws Exception {
+    desktop.closeAfterEachNotification = true;
+    send("one");
+    assertEquals("1:one", desktop.nextNotification());
+    // Let the close reach the client
+    Thread.sleep(100);
+
+    send("two");
+    assertEquals("2:two", desktop.nextNotification());
+  }
+
+  public void testSend_reconnectsAfterKeepAlive() throws Exception {
+    send("one");
+    assertEquals("1:one", desktop.nextNotification());
+    clock.now += KEEP_ALIVE_MS + 1;
+    send("two");
+
+    assertEquals("2:two", desktop.nextNotification());
+    assertEquals(1, pool.getOpenCount());
+  }
+
+  public void testSend_connectFailure() throws Exception {
+    pool = new TcpSessionPool(new RefusingSocketFactory(), 5000, KEEP_ALIVE_MS, clock);
+
+    try {
+      pool.send(desktop.getAddress(), Collections.singletonList(new byte[1]));
+      fail("Expected IOException");
+    } catch (IOException e) {
+      // Expected
+    }
+    assertEquals(0, pool.getOpenCount());
+  }
+
+  public void testCloseAll() throws Exception {
+    send("one");
+    assertEquals("1:one", desktop.nextNotification());
+    pool.closeAll();
+    assertEquals(0, pool.getOpenCount());
+
+    send("two");
+    assertEquals("2:two", desktop.nextNotification());
+  }
+}
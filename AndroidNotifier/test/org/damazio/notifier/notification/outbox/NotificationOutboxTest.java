@@ -0,0 +1,174 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification.outbox;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.damazio.notifier.notification.NotificationType;
+import org.damazio.notifier.util.Clock;
+
+/**
+ * Tests for {@link NotificationOutbox}.
+ */
+public class NotificationOutboxTest extends TestCase {
+  private static final long MINUTE_MS = 60 * 1000;
+
+  private FakeClock clock;
+  private File file;
+  private NotificationOutbox outbox;
+
+  private static class FakeClock implements Clock {
+    long now = 1000000000L;
+
+    public long currentTimeMillis() {
+      return now;
+    }
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    clock = new FakeClock();
+    file = File.createTempFile("outbox", null);
+    file.delete();
+    outbox = newOutbox(5);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    file.delete();
+    super.tearDown();
+  }
+
+  private NotificationOutbox newOutbox(int capacity) {
+    return new NotificationOutbox(file, capacity, NotificationOutbox.getDefaultMaxAges(), clock);
+  }
+
+  public void testAdd_neverKeepsPing() throws IOException {
+    assertFalse(outbox.add("ip/host", NotificationType.PING, clock.now, new byte[1]));
+    assertEquals(0, outbox.size());
+    assertFalse(file.exists());
+  }
+
+  public void testAdd_alreadyExpired() throws IOException {
+    assertFalse(outbox.add("ip/host", NotificationType.RING, clock.now - 6 * MINUTE_MS,
+        new byte[1]));
+    assertTrue(outbox.add("ip/host", NotificationType.SMS, clock.now - 6 * MINUTE_MS,
+        new byte[1]));
+    assertEquals(1, outbox.size());
+  }
+
+  public void testAdd_evictsOldestOverCapacity() throws IOException {
+    for (int i = 0; i < 7; i++) {
+      outbox.add("ip/host", NotificationType.SMS, clock.now, new byte[] { (byte) i });
+    }
+
+    List<OutboxEntry> entries = outbox.getEntries();
+    assertEquals(5, entries.size());
+    assertEquals(2, entries.get(0).getPayload()[0]);
+    assertEquals(6, entries.get(4).getPayload()[0]);
+  }
+
+  public void testTakeBatch_expiresByType() throws IOException {
+    outbox.add("ip/host", NotificationType.RING, clock.now, new byte[] { 1 });
+    outbox.add("ip/host", NotificationType.SMS, clock.now, new byte[] { 2 });
+    clock.now += 10 * MINUTE_MS;
+
+    List<OutboxEntry> batch = outbox.takeBatch("ip/host", 10, 1000);
+    assertEquals(1, batch.size());
+    assertEquals(NotificationType.SMS, batch.get(0).getType());
+    assertEquals(1, outbox.size());
+  }
+
+  public void testTakeBatch_onlyForDestination() throws IOException {
+    outbox.add("ip/a", NotificationType.SMS, clock.now, new byte[] { 1 });
+    outbox.add("ip/b", NotificationType.SMS, clock.now, new byte[] { 2 });
+    outbox.add("ip/a", NotificationType.MMS, clock.now, new byte[] { 3 });
+
+    List<OutboxEntry> batch = outbox.takeBatch("ip/a", 10, 1000);
+    assertEquals(2, batch.size());
+    assertEquals(1, batch.get(0).getPayload()[0]);
+    assertEquals(3, batch.get(1).getPayload()[0]);
+    assertTrue(outbox.hasPending("ip/b"));
+    assertFalse(outbox.hasPending("ip/a"));
+  }
+
+  public void testTakeBatch_limits() throws IOException {
+    for (int i = 0; i < 4; i++) {
+      outbox.add("ip/host", NotificationType.SMS, clock.now, new byte[100]);
+    }
+
+    assertEquals(2, outbox.takeBatch("ip/host", 2, 1000).size());
+    // A single notification is always returned, even if larger than the limit
+    assertEquals(1, outbox.takeBatch("ip/host", 10, 50).size());
+    assertEquals(1, outbox.takeBatch("ip/host", 10, 150).size());
+    assertTrue(outbox.takeBatch("ip/host", 10, 1000).isEmpty());
+  }
+
+  public void testDeliveredAndFailed() throws IOException {
+    outbox.add("ip/host", NotificationType.SMS, clock.now, new byte[] { 1 });
+    outbox.add("ip/host", NotificationType.SMS, clock.now, new byte[] { 2 });
+
+    List<OutboxEntry> batch = outbox.takeBatch("ip/host", 1, 1000);
+    outbox.failed(batch);
+    assertEquals(batch, outbox.takeBatch("ip/host", 1, 1000));
+
+    outbox.delivered(batch);
+    assertEquals(1, outbox.size());
+    assertEquals(2, outbox.takeBatch("ip/host", 10, 1000).get(0).getPayload()[0]);
+  }
+
+  public void testLoad() throws IOException {
+    outbox.add("ip/host", NotificationType.RING, clock.now, new byte[] { 1 });
+    outbox.add("bluetooth/00:11", NotificationType.SMS, clock.now, new byte[] { 2, 3 });
+    outbox.delivered(outbox.takeBatch("ip/host", 10, 1000));
+    outbox.add("usb/", NotificationType.BATTERY, clock.now, new byte[] { 4 });
+
+    NotificationOutbox loaded = newOutbox(5);
+    loaded.load();
+    List<OutboxEntry> entries = loaded.getEntries();
+    assertEquals(2, entries.size());
+    assertEquals("bluetooth/00:11", entries.get(0).getDestination());
+    assertEquals(NotificationType.SMS, entries.get(0).getType());
+    assertEquals(clock.now, entries.get(0).getTimestamp());
+    assertEquals(2, entries.get(0).getPayload().length);
+    assertEquals("usb/", entries.get(1).getDestination());
+  }
+
+  public void testLoad_dropsExpired() throws IOException {
+    outbox.add("ip/host", NotificationType.BATTERY, clock.now, new byte[] { 1 });
+    outbox.add("ip/host", NotificationType.VOICEMAIL, clock.now, new byte[] { 2 });
+    clock.now += 60 * MINUTE_MS;
+
+    NotificationOutbox loaded = newOutbox(5);
+    loaded.load();
+    assertEquals(1, loaded.size());
+    assertEquals(NotificationType.VOICEMAIL, loaded.getEntries().get(0).getType());
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification.sender;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.damazio.notifier.notification.sender.SendScheduler.Completion;
+import org.damazio.notifier.notification.sender.SendScheduler.Task;
+
+/**
+ * Compares sending bursts of notifications with a new thread per method and
+ * target (as the notifier used to) and with {@link SendScheduler}. Each send
+ * blocks for a while, as a TCP connection to a desktop would.
+ *
+ * Not a unit test, run it with:
+ * <pre>java -cp ... org.damazio.notifier.notification.sender.SendSchedulerBenchmark [bursts] [notifications] [targets] [workers]</pre>
+ */
+public class SendSchedulerBenchmark {
+  private static final int METHODS = 2;
+  private static final long SEND_MILLIS = 1;
+
+  private final int notifications;
+  private final int targets;
+
+  public SendSchedulerBenchmark(int notifications, int targets) {
+    this.notifications = notifications;
+    this.targets = targets;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int bursts = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    int notifications = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    int targets = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+    int workers = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+    SendSchedulerBenchmark benchmark = new SendSchedulerBenchmark(notifications, targets);
+
+    System.out.println(notifications + " notifications to " + targets + " targets over "
+        + METHODS + " methods per burst");
+    benchmark.runThreads(bursts / 10);
+    benchmark.runScheduler(bursts / 10, workers);
+    report("thread per send", bursts, benchmark.runThreads(bursts));
+    report("scheduler x" + workers, bursts, benchmark.runScheduler(bursts, workers));
+  }
+
+  private static void report(String name, int bursts, long nanos) {
+    System.out.printf("%-16s %8.2f ms/burst%n", name, nanos / 1e6 / bursts);
+  }
+
+  private int getSendCount() {
+    return notifications * targets * METHODS;
+  }
+
+  protected long runThreads(int bursts) throws InterruptedException {
+    long start = System.nanoTime();
+    for (int burst = 0; burst < bursts; burst++) {
+      final CountDownLatch sent = new CountDownLatch(getSendCount());
+      for (int i = 0; i < getSendCount(); i++) {
+        new Thread("Notification " + i) {
+          @Override
+          public void run() {
+            send();
+            sent.countDown();
+          }
+        }.start();
+      }
+      sent.await();
+    }
+    return System.nanoTime() - start;
+  }
+
+  protected long runScheduler(int bursts, int workerCount) throws InterruptedException {
+    final ExecutorService[] executors = new ExecutorService[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      executors[i] = Executors.newSingleThreadExecutor();
+    }
+    SendScheduler scheduler = new SendScheduler(new SendScheduler.Workers() {
+      public void execute(int worker, Runnable runnable) {
+        executors[worker].execute(runnable);
+      }
+    }, workerCount);
+
+    long start = System.nanoTime();
+    for (int burst = 0; burst < bursts; burst++) {
+      final CountDownLatch sent = new CountDownLatch(getSendCount());
+      for (int n = 0; n < notifications; n++) {
+        for (int m = 0; m < METHODS; m++) {
+          for (int t = 0; t < targets; t++) {
+            scheduler.submit(m + "/" + t, new Task() {
+              public void run(Completion completion) {
+                send();
+                sent.countDown();
+                completion.done();
+              }
+            });
+          }
+        }
+      }
+      sent.await();
+    }
+    long nanos = System.nanoTime() - start;
+
+    for (ExecutorService executor : executors) {
+      executor.shutdown();
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    return nanos;
+  }
+
+  private static void send() {
+    try {
+      Thread.sleep(SEND_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.notification.sender;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.damazio.notifier.notification.sender.SendScheduler.Completion;
+import org.damazio.notifier.notification.sender.SendScheduler.Task;
+
+/**
+ * Tests for {@link SendScheduler}.
+ */
+public class SendSchedulerTest extends TestCase {
+
+  /**
+   * Workers which only run what was given to them when asked to.
+   */
+  private static class ManualWorkers implements SendScheduler.Workers {
+    final LinkedList<Runnable> pending = new LinkedList<Runnable>();
+    final List<Integer> usedWorkers = new ArrayList<Integer>();
+
+    public void execute(int worker, Runnable runnable) {
+      usedWorkers.add(worker);
+      pending.add(runnable);
+    }
+
+    void runAll() {
+      while (!pending.isEmpty()) {
+        pending.removeFirst().run();
+      }
+    }
+  }
+
+  /**
+   * Task which records when it starts and completes when told to.
+   */
+  private class RecordingTask implements Task {
+    final String name;
+    Completion completion;
+
+    RecordingTask(String name) {
+      this.name = name;
+    }
+
+    public void run(Completion completion) {
+      this.completion = completion;
+      started.add(name);
+    }
+
+    void complete() {
+      completion.done();
+      workers.runAll();
+    }
+  }
+
+  private ManualWorkers workers;
+  private List<String> started;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    workers = new ManualWorkers();
+    started = new ArrayList<String>();
+  }
+
+  public void testSubmit_sameKeyRunsInOrder() {
+    SendScheduler scheduler = new SendScheduler(workers, 3);
+    RecordingTask a1 = new RecordingTask("a1");
+    RecordingTask a2 = new RecordingTask("a2");
+    RecordingTask a3 = new RecordingTask("a3");
+    scheduler.submit("a", a1);
+    scheduler.submit("a", a2);
+    scheduler.submit("a", a3);
+    workers.runAll();
+
+    // Only one send per key at a time, even with free workers
+    assertEquals(Arrays.asList("a1"), started);
+    assertEquals(1, scheduler.getRunningCount());
+    assertEquals(2, scheduler.getQueuedCount());
+
+    a1.complete();
+    assertEquals(Arrays.asList("a1", "a2"), started);
+    a2.complete();
+    a3.complete();
+    assertEquals(Arrays.asList("a1", "a2", "a3"), started);
+    assertEquals(0, scheduler.getRunningCount());
+    assertEquals(0, scheduler.getQueuedCount());
+  }
+
+  public void testSubmit_capsConcurrency() {
+    SendScheduler scheduler = new SendScheduler(workers, 2);
+    RecordingTask a = new RecordingTask("a");
+    RecordingTask b = new RecordingTask("b");
+    RecordingTask c = new RecordingTask("c");
+    scheduler.submit("a", a);
+    scheduler.submit("b", b);
+    scheduler.submit("c", c);
+    workers.runAll();
+
+    assertEquals(Arrays.asList("a", "b"), started);
+    assertEquals(2, scheduler.getRunningCount());
+    assertEquals(1, scheduler.getQueuedCount());
+
+    b.complete();
+    assertEquals(Arrays.asList("a", "b", "c"), started);
+    assertEquals(2, scheduler.getRunningCount());
+
+    // c got the worker b was done with
+    assertEquals(Arrays.asList(0, 1, 1), workers.usedWorkers);
+  }
+
+  public void testSubmit_keysTakeTurns() {
+    SendScheduler scheduler = new SendScheduler(workers, 1);
+    RecordingTask a1 = new RecordingTask("a1");
+    RecordingTask a2 = new RecordingTask("a2");
+    RecordingTask a3 = new RecordingTask("a3");
+    RecordingTask b1 = new RecordingTask("b1");
+    scheduler.submit("a", a1);
+    scheduler.submit("a", a2);
+    scheduler.submit("a", a3);
+    scheduler.submit("b", b1);
+    workers.runAll();
+
+    a1.complete();
+    b1.complete();
+    a2.complete();
+    assertEquals(Arrays.asList("a1", "b1", "a2", "a3"), started);
+  }
+
+  public void testSubmitFirst_runsBeforeWaitingTasks() {
+    SendScheduler scheduler = new SendScheduler(workers, 1);
+    RecordingTask batch = new RecordingTask("batch");
+    RecordingTask later = new RecordingTask("later");
+    scheduler.submit("a", batch);
+    scheduler.submit("a", later);
+    workers.runAll();
+
+    // The batch failed, retry its notifications one by one
+    List<Task> retries = new ArrayList<Task>();
+    retries.add(new RecordingTask("retry1"));
+    retries.add(new RecordingTask("retry2"));
+    scheduler.submitFirst("a", retries);
+    batch.complete();
+    ((RecordingTask) retries.get(0)).complete();
+    ((RecordingTask) retries.get(1)).complete();
+
+    assertEquals(Arrays.asList("batch", "retry1", "retry2", "later"), started);
+  }
+
+  public void testCompletion_synchronous() {
+    SendScheduler scheduler = new SendScheduler(workers, 1);
+    for (int i = 0; i < 3; i++) {
+      final String name = "t" + i;
+      scheduler.submit("a", new Task() {
+        public void run(Completion completion) {
+          started.add(name);
+          completion.done();
+        }
+      });
+    }
+    workers.runAll();
+
+    assertEquals(Arrays.asList("t0", "t1", "t2"), started);
+    assertEquals(0, scheduler.getRunningCount());
+  }
+
+  public void testCompletion_onlyCountsOnce() {
+    SendScheduler scheduler = new SendScheduler(workers, 1);
+    RecordingTask a1 = new RecordingTask("a1");
+    RecordingTask a2 = new RecordingTask("a2");
+    RecordingTask b = new RecordingTask("b");
+    scheduler.submit("a", a1);
+    scheduler.submit("a", a2);
+    scheduler.submit("b", b);
+    workers.runAll();
+
+    a1.complete();
+    a1.complete();
+    assertEquals(Arrays.asList("a1", "b"), started);
+    assertEquals(1, scheduler.getRunningCount());
+  }
+
+  public void testRun_exceptionFreesWorker() {
+    SendScheduler scheduler = new SendScheduler(workers, 1);
+    RecordingTask b = new RecordingTask("b");
+    scheduler.submit("a", new Task() {
+      public void run(Completion completion) {
+        throw new IllegalStateException("broken method");
+      }
+    });
+    scheduler.submit("b", b);
+
+    try {
+      workers.runAll();
+      fail("Expected exception");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+    workers.runAll();
+
+    assertEquals(Arrays.asList("b"), started);
+  }
+
+  public void testShutdown_dropsWaitingTasks() {
+    SendScheduler scheduler = new SendScheduler(workers, 1);
+    RecordingTask a = new RecordingTask("a");
+    RecordingTask b = new RecordingTask("b");
+    RecordingTask c = new RecordingTask("c");
+    scheduler.submit("a", a);
+    scheduler.submit("b", b);
+    workers.runAll();
+
+    List<Task> dropped = scheduler.shutdown();
+    assertEquals(1, dropped.size());
+    assertSame(b, dropped.get(0));
+
+    scheduler.submit("c", c);
+    a.complete();
+    assertEquals(Arrays.asList("a"), started);
+    assertEquals(0, scheduler.getQueuedCount());
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link LruCallerInfoCache}.
+ */
+public class LruCallerInfoCacheTest extends TestCase {
+  private LruCallerInfoCache cache;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    cache = new LruCallerInfoCache(3);
+  }
+
+  private CallerInfo put(String number) {
+    CallerInfo info = new CallerInfo(number, "Mobile", "Contact " + number);
+    cache.put(number, info, cache.getGeneration());
+    return info;
+  }
+
+  public void testGet_notCached() {
+    assertNull(cache.get("5551234"));
+  }
+
+  public void testGet_cached() {
+    CallerInfo info = put("5551234");
+    assertSame(info, cache.get("5551234"));
+  }
+
+  public void testPut_unknownNumber() {
+    cache.put("5551234", null, cache.getGeneration());
+    assertSame(CallerInfoCache.UNKNOWN, cache.get("5551234"));
+  }
+
+  public void testPut_evictsLeastRecentlyUsed() {
+    put("1");
+    put("2");
+    put("3");
+    // Using 1 makes 2 the least recently used
+    assertNotNull(cache.get("1"));
+    put("4");
+
+    assertEquals(3, cache.size());
+    assertNotNull(cache.get("1"));
+    assertNull(cache.get("2"));
+    assertNotNull(cache.get("3"));
+    assertNotNull(cache.get("4"));
+  }
+
+  public void testPut_unknownNumbersAreEvictedToo() {
+    cache.put("1", null, cache.getGeneration());
+    put("2");
+    put("3");
+    put("4");
+
+    assertNull(cache.get("1"));
+  }
+
+  public void testInvalidateAll() {
+    put("1");
+    cache.put("2", null, cache.getGeneration());
+    cache.invalidateAll();
+
+    assertEquals(0, cache.size());
+    assertNull(cache.get("1"));
+    assertNull(cache.get("2"));
+  }
+
+  public void testPut_droppedIfInvalidatedWhileLookingUp() {
+    int generation = cache.getGeneration();
+    // Contacts change while the number is being looked up
+    cache.invalidateAll();
+    cache.put("5551234", null, generation);
+
+    assertNull(cache.get("5551234"));
+
+    put("5551234");
+    assertNotNull(cache.get("5551234"));
+  }
+
+  public void testCreate_invalidCapacity() {
+    try {
+      new LruCallerInfoCache(0);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link SmsConcatenationHeader}.
+ */
+public class SmsConcatenationHeaderTest extends TestCase {
+  // SMS-DELIVER PDUs from +15551234567, with the service center address
+  private static final String PDU_PREFIX =
+      "07914194950010F0" + "440B915155214365F7" + "0004" + "01115021430000";
+
+  public void testParse_8bitReference() {
+    SmsConcatenationHeader header = SmsConcatenationHeader.parse(
+        hex(PDU_PREFIX + "0E" + "0500032A0302" + "706172742074776F"));
+    assertEquals(0x2A, header.getReference());
+    assertEquals(3, header.getPartCount());
+    assertEquals(2, header.getPartNumber());
+  }
+
+  public void testParse_16bitReference() {
+    SmsConcatenationHeader header = SmsConcatenationHeader.parse(
+        hex(PDU_PREFIX + "11" + "06080412340201" + "66697273742068616C66"));
+    assertEquals(0x1234, header.getReference());
+    assertEquals(2, header.getPartCount());
+    assertEquals(1, header.getPartNumber());
+  }
+
+  public void testParse_afterOtherElement() {
+    // Application port addressing, then concatenation
+    SmsConcatenationHeader header = SmsConcatenationHeader.parse(
+        hex(PDU_PREFIX + "0D" + "0B05040B8423F0000307020178"));
+    assertEquals(7, header.getReference());
+    assertEquals(2, header.getPartCount());
+    assertEquals(1, header.getPartNumber());
+  }
+
+  public void testParse_noUserDataHeader() {
+    assertNull(SmsConcatenationHeader.parse(
+        hex("07914194950010F0040B915155214365F700040111502143000005706C61696E")));
+  }
+
+  public void testParse_noConcatenationElement() {
+    assertNull(SmsConcatenationHeader.parse(
+        hex(PDU_PREFIX + "0A" + "0605040B8423F0" + "776170")));
+  }
+
+  public void testParse_badPartNumber() {
+    assertNull(SmsConcatenationHeader.parse(hex(PDU_PREFIX + "07" + "050003010203" + "78")));
+  }
+
+  public void testParse_headerPastEnd() {
+    assertNull(SmsConcatenationHeader.parse(hex(PDU_PREFIX + "06" + "2000030102" + "01")));
+  }
+
+  public void testParse_cdma() {
+    // Android's own CDMA PDU format, which starts with the message type
+    assertNull(SmsConcatenationHeader.parse(hex("0000000000001002000000000000000A")));
+  }
+
+  public void testParse_truncated() {
+    byte[] pdu = hex(PDU_PREFIX + "0E" + "0500032A0302" + "706172742074776F");
+    for (int length = 0; length < PDU_PREFIX.length() / 2 + 7; length++) {
+      byte[] truncated = new byte[length];
+      System.arraycopy(pdu, 0, truncated, 0, length);
+      assertNull(SmsConcatenationHeader.parse(truncated));
+    }
+  }
+
+  private static byte[] hex(String hex) {
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+    }
+    return bytes;
+  }
+}
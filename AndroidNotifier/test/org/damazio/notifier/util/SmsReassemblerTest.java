@@ -0,0 +1,141 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.util;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link SmsReassembler}.
+ */
+public class SmsReassemblerTest extends TestCase {
+  private static final long TIMEOUT_MS = 10 * 1000;
+  private static final String SENDER = "+15551234567";
+
+  private static class FakeClock implements Clock {
+    long now = 1000000000L;
+
+    public long currentTimeMillis() {
+      return now;
+    }
+  }
+
+  private FakeClock clock;
+  private SmsReassembler reassembler;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    clock = new FakeClock();
+    reassembler = new SmsReassembler(clock, TIMEOUT_MS);
+  }
+
+  private SmsReassembler.Message add(String sender, int reference, int count, int number) {
+    return reassembler.add(sender, new SmsConcatenationHeader(reference, count, number),
+        "[" + number + "]");
+  }
+
+  public void testAdd_inOrder() {
+    assertNull(add(SENDER, 1, 3, 1));
+    assertNull(add(SENDER, 1, 3, 2));
+    SmsReassembler.Message message = add(SENDER, 1, 3, 3);
+    assertEquals(SENDER, message.getSender());
+    assertEquals("[1][2][3]", message.getBody());
+    assertTrue(message.isComplete());
+    assertEquals(0, reassembler.getPendingCount());
+  }
+
+  public void testAdd_outOfOrder() {
+    assertNull(add(SENDER, 1, 3, 3));
+    assertNull(add(SENDER, 1, 3, 1));
+    assertEquals("[1][2][3]", add(SENDER, 1, 3, 2).getBody());
+  }
+
+  public void testAdd_singlePart() {
+    assertEquals("[1]", add(SENDER, 1, 1, 1).getBody());
+  }
+
+  public void testAdd_duplicatePart() {
+    assertNull(add(SENDER, 1, 2, 1));
+    assertNull(add(SENDER, 1, 2, 1));
+    assertEquals("[1][2]", add(SENDER, 1, 2, 2).getBody());
+  }
+
+  public void testAdd_interleaved() {
+    assertNull(add(SENDER, 1, 2, 1));
+    assertNull(add(SENDER, 2, 2, 1));
+    assertNull(add("5550000", 1, 2, 2));
+    assertEquals(3, reassembler.getPendingCount());
+
+    assertEquals("[1][2]", add(SENDER, 2, 2, 2).getBody());
+    assertEquals("[1][2]", add(SENDER, 1, 2, 2).getBody());
+    assertEquals(1, reassembler.getPendingCount());
+  }
+
+  public void testAdd_sameReferenceOtherCount() {
+    assertNull(add(SENDER, 1, 3, 1));
+    assertNull(add(SENDER, 1, 2, 2));
+    assertEquals(2, reassembler.getPendingCount());
+  }
+
+  public void testRemoveExpired() {
+    assertNull(add(SENDER, 1, 3, 1));
+    assertNull(add(SENDER, 1, 3, 3));
+    assertEquals(clock.now + TIMEOUT_MS, reassembler.getNextExpiry());
+
+    clock.now += TIMEOUT_MS - 1;
+    assertTrue(reassembler.removeExpired().isEmpty());
+
+    clock.now++;
+    List<SmsReassembler.Message> expired = reassembler.removeExpired();
+    assertEquals(1, expired.size());
+    assertEquals("[1][3]", expired.get(0).getBody());
+    assertFalse(expired.get(0).isComplete());
+    assertEquals(0, reassembler.getPendingCount());
+    assertEquals(-1, reassembler.getNextExpiry());
+  }
+
+  public void testRemoveExpired_newPartExtends() {
+    assertNull(add(SENDER, 1, 3, 1));
+    clock.now += TIMEOUT_MS - 1;
+    assertNull(add(SENDER, 1, 3, 2));
+
+    clock.now += 1;
+    assertTrue(reassembler.removeExpired().isEmpty());
+    assertEquals("[1][2][3]", add(SENDER, 1, 3, 3).getBody());
+  }
+
+  public void testRemoveExpired_onlyOld() {
+    assertNull(add(SENDER, 1, 2, 1));
+    clock.now += TIMEOUT_MS / 2;
+    assertNull(add(SENDER, 2, 2, 1));
+    assertEquals(clock.now + TIMEOUT_MS / 2, reassembler.getNextExpiry());
+
+    clock.now += TIMEOUT_MS / 2;
+    assertEquals(1, reassembler.removeExpired().size());
+    assertEquals(1, reassembler.getPendingCount());
+  }
+}
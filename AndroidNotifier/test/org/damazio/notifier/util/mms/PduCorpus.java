@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.util.mms;
+
+/**
+ * WAP push PDUs for testing the MMS header parsers.
+ *
+ * These were assembled by hand following OMA-MMS-ENC, laid out the way
+ * carriers send them (transaction ID, version, sender, subject, class, size,
+ * expiry and content location, in that order). Addresses are from the
+ * reserved fictional ranges.
+ */
+class PduCorpus {
+  /** Plain notification with a text subject. */
+  static final byte[] NOTIFICATION_IND = hex(
+      "8C8298337764464C354D396F6232008D928918802B3135353531323334353637" +
+      "2F545950453D504C4D4E00965765656B656E642070686F746F73008A808E02BC" +
+      "558805810303F48083687474703A2F2F6D6D732E6578616D706C652E6E65742F" +
+      "6D6D732F776170656E633F6C6F636174696F6E3D353535313233303030315F61" +
+      "626364267269643D30313700");
+
+  /** Notification without a subject, as most carriers send them. */
+  static final byte[] NO_SUBJECT = hex(
+      "8C82983041374633314332008D90891680353535313233343536372F54595045" +
+      "3D504C4D4E008A808E020C288805810303F48083687474703A2F2F6D6D732E65" +
+      "78616D706C652E6E65742F6D6D732F776170656E633F6C6F636174696F6E3D35" +
+      "3535313233303030315F61626364267269643D30313700");
+
+  /** Notification where the sender was left for the MMSC to insert. */
+  static final byte[] INSERT_ADDRESS = hex(
+      "8C8298543162326333008D928901818A808E0204008805810303F48083687474" +
+      "703A2F2F6D6D732E6578616D706C652E6E65742F6D6D732F776170656E633F6C" +
+      "6F636174696F6E3D353535313233303030315F61626364267269643D30313700");
+
+  /** Notification with a UTF-8 subject. */
+  static final byte[] UTF8_SUBJECT = hex(
+      "8C82986D6D732D32303130313130352D3737008D928919802B34343737303039" +
+      "30303132332F545950453D504C4D4E00961CEA466F746F7320646F2066696D20" +
+      "64652073656D616E6120E29880008A808E0301D6198805810303F48083687474" +
+      "703A2F2F6D6D732E6578616D706C652E6E65742F6D6D732F776170656E633F6C" +
+      "6F636174696F6E3D353535313233303030315F61626364267269643D30313700");
+
+  /** Notification with a UCS-2 subject, whose charset is a long integer. */
+  static final byte[] UCS2_SUBJECT = hex(
+      "8C8298756373322D30303031008D928919802B3831393031323334353637382F" +
+      "545950453D504C4D4E0096080203E85199771F008A808E030111708805810303" +
+      "F48083687474703A2F2F6D6D732E6578616D706C652E6E65742F6D6D732F7761" +
+      "70656E633F6C6F636174696F6E3D353535313233303030315F61626364267269" +
+      "643D30313700");
+
+  /** Notification from an e-mail address, with a quoted subject. */
+  static final byte[] EMAIL_FROM = hex(
+      "8C8298652D30303432008D92891480667269656E64406578616D706C652E636F" +
+      "6D00967F2251756F74656422207375626A656374008A808E0223288805810303" +
+      "F48083687474703A2F2F6D6D732E6578616D706C652E6E65742F6D6D732F7761" +
+      "70656E633F6C6F636174696F6E3D353535313233303030315F61626364267269" +
+      "643D30313700");
+
+  /** Notification with an application header before the sender. */
+  static final byte[] APPLICATION_HEADER = hex(
+      "8C8298782D3031008D92582D436172726965722D496E666F00726567696F6E3D" +
+      "37008918802B31353535373635343332312F545950453D504C4D4E0096416674" +
+      "65722061707020686561646572008A808E0202008805810303F4808368747470" +
+      "3A2F2F6D6D732E6578616D706C652E6E65742F6D6D732F776170656E633F6C6F" +
+      "636174696F6E3D353535313233303030315F61626364267269643D30313700");
+
+  /** Delivery report, which has no sender. */
+  static final byte[] DELIVERY_IND = hex(
+      "8C868D928B6D73672D30303031406D6D73632E6578616D706C652E6E65740097" +
+      "2B31353535313233343536372F545950453D504C4D4E0085044CD45A109581");
+
+  /** Notification cut in the middle of the sender. */
+  static final byte[] TRUNCATED = hex(
+      "8C8298337764464C354D396F6232008D928918802B3135353531323334353637");
+
+  /** Notification whose sender length goes past the end. */
+  static final byte[] BAD_FROM_LENGTH = hex(
+      "8C8298626164008D92891E802B3135353500");
+
+  /** The well-formed notifications. */
+  static final byte[][] NOTIFICATIONS = {
+      NOTIFICATION_IND, NO_SUBJECT, INSERT_ADDRESS, UTF8_SUBJECT, UCS2_SUBJECT,
+      EMAIL_FROM, APPLICATION_HEADER
+  };
+
+  private static byte[] hex(String hex) {
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+    }
+    return bytes;
+  }
+
+  private PduCorpus() {}
+}
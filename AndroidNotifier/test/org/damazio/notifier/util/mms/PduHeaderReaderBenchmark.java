@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.util.mms;
+
+/**
+ * Compares reading what an MMS notification shows (message type, sender,
+ * subject and size) with {@link PduParser#parseHeaders} and with
+ * {@link PduHeaderReader}, over the notifications in {@link PduCorpus}.
+ * Both are first checked to read the same values.
+ *
+ * Not a unit test, as PduParser needs the Android runtime. Run it with:
+ * <pre>java -cp ... org.damazio.notifier.util.mms.PduHeaderReaderBenchmark [iterations]</pre>
+ */
+public class PduHeaderReaderBenchmark {
+  /** Keeps the results alive so the work isn't optimized away. */
+  private int sink;
+
+  public static void main(String[] args) {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    PduHeaderReaderBenchmark benchmark = new PduHeaderReaderBenchmark();
+
+    checkSameValues();
+    System.out.println(PduCorpus.NOTIFICATIONS.length + " PDUs per iteration");
+    benchmark.runParser(iterations / 10);
+    benchmark.runReader(iterations / 10);
+    report("PduParser", iterations, benchmark.runParser(iterations));
+    report("PduHeaderReader", iterations, benchmark.runReader(iterations));
+    System.out.println(benchmark.sink);
+  }
+
+  /**
+   * @throws IllegalStateException if the reader disagrees with PduParser on any PDU
+   */
+  private static void checkSameValues() {
+    for (int i = 0; i < PduCorpus.NOTIFICATIONS.length; i++) {
+      byte[] pdu = PduCorpus.NOTIFICATIONS[i];
+      PduHeaders headers = new PduParser().parseHeaders(pdu);
+      if (headers == null) {
+        throw new IllegalStateException("PduParser could not read PDU " + i);
+      }
+      PduHeaderReader reader = new PduHeaderReader(pdu);
+
+      check(i, "message type", headers.getMessageType(), reader.getMessageType());
+      check(i, "size", headers.getLongInteger(PduHeaders.MESSAGE_SIZE), reader.getMessageSize());
+
+      // PduParser stands in a placeholder for an address left to be inserted
+      EncodedStringValue from = headers.getFrom();
+      if (from == null
+          || PduHeaders.FROM_INSERT_ADDRESS_TOKEN_STR.equals(from.getString())) {
+        check(i, "sender", null, reader.getFrom());
+      } else {
+        String fromStr = from.getString();
+        int typeIndex = fromStr.indexOf('/');
+        check(i, "sender", typeIndex > 0 ? fromStr.substring(0, typeIndex) : fromStr,
+            reader.getFrom());
+      }
+
+      // PduParser only reads charsets which fit a short integer
+      if (pdu != PduCorpus.UCS2_SUBJECT) {
+        EncodedStringValue subject = headers.getEncodedStringValue(PduHeaders.SUBJECT);
+        check(i, "subject", subject == null ? null : subject.getString(), reader.getSubject());
+      }
+    }
+  }
+
+  private static void check(int pdu, String field, Object expected, Object actual) {
+    if (expected == null ? actual != null : !expected.equals(actual)) {
+      throw new IllegalStateException("PDU " + pdu + " " + field + ": PduParser read "
+          + expected + ", PduHeaderReader read " + actual);
+    }
+  }
+
+  private static void report(String name, int iterations, long nanos) {
+    System.out.printf("%-16s %8.0f ns/PDU%n", name,
+        (double) nanos / iterations / PduCorpus.NOTIFICATIONS.length);
+  }
+
+  protected long runParser(int iterations) {
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      for (byte[] pdu : PduCorpus.NOTIFICATIONS) {
+        PduHeaders headers = new PduParser().parseHeaders(pdu);
+        sink += headers.getMessageType();
+        EncodedStringValue from = headers.getFrom();
+        if (from != null) {
+          sink += from.getString().length();
+        }
+        EncodedStringValue subject = headers.getEncodedStringValue(PduHeaders.SUBJECT);
+        if (subject != null) {
+          sink += subject.getString().length();
+        }
+        sink += headers.getLongInteger(PduHeaders.MESSAGE_SIZE);
+      }
+    }
+    return System.nanoTime() - start;
+  }
+
+  protected long runReader(int iterations) {
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      for (byte[] pdu : PduCorpus.NOTIFICATIONS) {
+        PduHeaderReader reader = new PduHeaderReader(pdu);
+        sink += reader.getMessageType();
+        String from = reader.getFrom();
+        if (from != null) {
+          sink += from.length();
+        }
+        String subject = reader.getSubject();
+        if (subject != null) {
+          sink += subject.length();
+        }
+        sink += reader.getMessageSize();
+      }
+    }
+    return System.nanoTime() - start;
+  }
+}
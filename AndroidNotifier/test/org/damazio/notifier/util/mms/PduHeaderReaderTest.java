@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 Android Notifier contributors
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.damazio.notifier.util.mms;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link PduHeaderReader}.
+ */
+public class PduHeaderReaderTest extends TestCase {
+  public void testNotificationInd() {
+    PduHeaderReader reader = new PduHeaderReader(PduCorpus.NOTIFICATION_IND);
+    assertEquals(PduHeaders.MESSAGE_TYPE_NOTIFICATION_IND, reader.getMessageType());
+    assertEquals("+15551234567", reader.getFrom());
+    assertEquals("Weekend photos", reader.getSubject());
+    assertEquals(48213, reader.getMessageSize());
+  }
+
+  public void testNotificationInd_anyOrder() {
+    PduHeaderReader reader = new PduHeaderReader(PduCorpus.NOTIFICATION_IND);
+    assertEquals(48213, reader.getMessageSize());
+    assertEquals("Weekend photos", reader.getSubject());
+    assertEquals("+15551234567", reader.getFrom());
+    assertEquals(PduHeaders.MESSAGE_TYPE_NOTIFICATION_IND, reader.getMessageType());
+  }
+
+  public void testNoSubject() {
+    PduHeaderReader reader = new PduHeaderReader(PduCorpus.NO_SUBJECT);
+    assertEquals("5551234567", reader.getFrom());
+    assertNull(reader.getSubject());
+    assertEquals(3112, reader.getMessageSize());
+  }
+
+  public void testInsertAddress() {
+    PduHeaderReader reader = new PduHeaderReader(PduCorpus.INSERT_ADDRESS);
+    assertEquals(PduHeaders.MESSAGE_TYPE_NOTIFICATION_IND, reader.getMessageType());
+    assertNull(reader.getFrom());
+    assertEquals(1024, reader.getMessageSize());
+  }
+
+  public void testUtf8Subject() {
+    PduHeaderReader reader = new PduHeaderReader(PduCorpus.UTF8_SUBJECT);
+    assertEquals("+447700900123", reader.getFrom());
+    assertEquals("Fotos do fim de semana \u2600", reader.getSubject());
+    assertEquals(120345, reader.getMessageSize());
+  }
+
+  public void testUcs2Subject() {
+    PduHeaderReader reader = new PduHeaderReader(PduCorpus.UCS2_SUBJECT);
+    assertEquals("+819012345678", reader.getFrom());
+    assertEquals("\u5199\u771f", reader.getSubject());
+    assertEquals(70000, reader.getMessageSize());
+  }
+
+  public void testEmailFrom() {
+    PduHeaderReader reader = new PduHeaderReader(PduCorpus.EMAIL_FROM);
+    assertEquals("friend@example.com", reader.getFrom());
+    assertEquals("\"Quoted\" subject", reader.getSubject());
+  }
+
+  public void testApplicationHeader() {
+    PduHeaderReader reader = new PduHeaderReader(PduCorpus.APPLICATION_HEADER);
+    assertEquals("+15557654321", reader.getFrom());
+    assertEquals("After app header", reader.getSubject());
+    assertEquals(512, reader.getMessageSize());
+  }
+
+  public void testDeliveryInd() {
+    PduHeaderReader reader = new PduHeaderReader(PduCorpus.DELIVERY_IND);
+    assertEquals(PduHeaders.MESSAGE_TYPE_DELIVERY_IND, reader.getMessageType());
+    assertNull(reader.getFrom());
+    assertNull(reader.getSubject());
+    assertEquals(-1, reader.getMessageSize());
+  }
+
+  public void testTruncated() {
+    PduHeaderReader reader = new PduHeaderReader(PduCorpus.TRUNCATED);
+    assertEquals(PduHeaders.MESSAGE_TYPE_NOTIFICATION_IND, reader.getMessageType());
+    assertNull(reader.getFrom());
+    assertNull(reader.getSubject());
+    assertEquals(-1, reader.getMessageSize());
+  }
+
+  public void testBadFromLength() {
+    PduHeaderReader reader = new PduHeaderReader(PduCorpus.BAD_FROM_LENGTH);
+    assertEquals(PduHeaders.MESSAGE_TYPE_NOTIFICATION_IND, reader.getMessageType());
+    assertNull(reader.getFrom());
+  }
+
+  public void testEmpty() {
+    PduHeaderReader reader = new PduHeaderReader(new byte[0]);
+    assertEquals(-1, reader.getMessageType());
+    assertNull(reader.getFrom());
+  }
+
+  public void testEveryPrefix() {
+    // Cutting a PDU anywhere must never throw
+    byte[] pdu = PduCorpus.UTF8_SUBJECT;
+    for (int length = 0; length <= pdu.length; length++) {
+      PduHeaderReader reader = new PduHeaderReader(pdu, 0, length);
+      reader.getMessageType();
+      reader.getFrom();
+      reader.getSubject();
+      reader.getMessageSize();
+    }
+  }
+
+  public void testOffset() {
+    byte[] pdu = PduCorpus.NOTIFICATION_IND;
+    byte[] padded = new byte[pdu.length + 10];
+    System.arraycopy(pdu, 0, padded, 5, pdu.length);
+    PduHeaderReader reader = new PduHeaderReader(padded, 5, pdu.length);
+    assertEquals(PduHeaders.MESSAGE_TYPE_NOTIFICATION_IND, reader.getMessageType());
+    assertEquals("+15551234567", reader.getFrom());
+    assertEquals(48213, reader.getMessageSize());
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.notification.parsing.impl;
+
+import java.nio.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.notifier.desktop.notification.*;
+import com.notifier.desktop.util.*;
+import com.notifier.protocol.*;
+
+/**
+ * Throughput of each parser on the receive path, for plain and encrypted payloads of
+ * realistic sizes. Run with {@code -prof gc} to see the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NotificationParserBenchmark extends AbstractNotificationParserTest {
+
+	public enum Payload {
+		RING(Notification.Type.RING, 0),
+		SMS(Notification.Type.SMS, 160),
+		LONG_SMS(Notification.Type.SMS, 3 * 153),
+		MMS(Notification.Type.MMS, 1000);
+
+		private final Notification.Type type;
+		private final int descriptionLength;
+
+		private Payload(Notification.Type type, int descriptionLength) {
+			this.type = type;
+			this.descriptionLength = descriptionLength;
+		}
+	}
+
+	private static final String SAMPLE_TEXT = "Running late, traffic on the bridge is terrible. Start without me and save some pizza. ";
+
+	@Param({ "RING", "SMS", "LONG_SMS", "MMS" })
+	public Payload payload;
+
+	@Param({ "false", "true" })
+	public boolean encrypted;
+
+	private TextNotificationParser textParser;
+	private ProtobufNotificationParser protobufParser;
+	private MultiNotificationParser multiParser;
+
+	private byte[] textMessage;
+	private byte[] protobufMessage;
+
+	@Setup
+	public void setUp() throws Exception {
+		byte[] key = Encryption.passPhraseToKey("benchmark");
+		Encryption encryption = new Encryption(key);
+
+		String description = createDescription(payload.descriptionLength);
+		byte[] text = (createTextNotification(payload.type, description) + '\0').getBytes(TextNotificationParser.CHARSET);
+		textMessage = encrypted ? encryption.encrypt(text) : text;
+
+		byte[] protoData = createProtobufNotification(Protocol.Notification.Type.valueOf(payload.type.name()), description).toByteArray();
+		protobufMessage = createMessage(encrypted, encrypted ? encryption.encrypt(protoData) : protoData);
+
+		textParser = new TextNotificationParser(getPreferencesProvider());
+		protobufParser = new ProtobufNotificationParser(getPreferencesProvider());
+		multiParser = new MultiNotificationParser(null, textParser, protobufParser);
+		multiParser.setEncryption(encrypted, key);
+	}
+
+	@Benchmark
+	public Notification text() throws Exception {
+		return textParser.parse(ByteBuffer.wrap(textMessage));
+	}
+
+	@Benchmark
+	public Notification protobuf() throws Exception {
+		return protobufParser.parse(ByteBuffer.wrap(protobufMessage));
+	}
+
+	@Benchmark
+	public Notification multiText() throws Exception {
+		return multiParser.parse(textMessage);
+	}
+
+	@Benchmark
+	public Notification multiProtobuf() throws Exception {
+		return multiParser.parse(protobufMessage);
+	}
+
+	/**
+	 * Decryption alone, a pass-through for plain payloads.
+	 */
+	@Benchmark
+	public ByteBuffer decryptIfNecessary() {
+		return textParser.decryptIfNecessary(ByteBuffer.wrap(textMessage));
+	}
+
+	protected String createDescription(int length) {
+		StringBuilder builder = new StringBuilder(length);
+		while (builder.length() < length) {
+			builder.append(SAMPLE_TEXT);
+		}
+		builder.setLength(length);
+		return builder.toString();
+	}
+}
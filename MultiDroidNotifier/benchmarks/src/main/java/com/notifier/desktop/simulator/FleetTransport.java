@@ -0,0 +1,35 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.simulator;
+
+import java.io.*;
+
+/**
+ * One way a simulated phone reaches the desktop.
+ */
+public interface FleetTransport extends Closeable {
+
+	String getName();
+
+	/**
+	 * Whether messages are framed by a trailing NUL, which only the text format survives.
+	 */
+	boolean isDelimited();
+
+	void send(SimulatedPhone phone, byte[] payload) throws IOException;
+}
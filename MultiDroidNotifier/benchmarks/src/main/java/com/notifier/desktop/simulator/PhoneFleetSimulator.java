@@ -0,0 +1,321 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.simulator;
+
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.apache.commons.cli.*;
+import org.slf4j.*;
+
+import com.google.common.base.*;
+import com.google.common.collect.*;
+import com.google.common.util.concurrent.*;
+import com.notifier.desktop.util.*;
+import com.notifier.protocol.*;
+
+/**
+ * Simulates a fleet of phones sending notifications to a desktop over the real wire protocols,
+ * to see how a shared receiver copes with a whole team's test devices.
+ * <p>
+ * Each phone raises events at random (exponential inter-arrival times) following a mix of calls,
+ * SMS, MMS and battery changes. A call rings several times, each ring is a separate notification.
+ * UDP carries framed protobuf or v2 text; one-shot TCP and usb frame messages with a NUL, so they
+ * always carry text. Like the phone, a notification can go over every enabled transport with the
+ * same id, leaving it to the desktop to drop the duplicates.
+ * <p>
+ * Run it from the benchmarks jar with:
+ * <pre>java -cp benchmarks.jar com.notifier.desktop.simulator.PhoneFleetSimulator --help</pre>
+ */
+public class PhoneFleetSimulator {
+
+	private static final Logger logger = LoggerFactory.getLogger(PhoneFleetSimulator.class);
+
+	private static final String DEVICES = "devices";
+	private static final String HOST = "host";
+	private static final String UDP_HOST = "udp-host";
+	private static final String PORT = "port";
+	private static final String USB_PORT = "usb-port";
+	private static final String TRANSPORTS = "transports";
+	private static final String RATE = "rate";
+	private static final String MIX = "mix";
+	private static final String BURST = "burst";
+	private static final String BURST_INTERVAL = "burst-interval";
+	private static final String TEXT = "text";
+	private static final String DUPLICATE = "duplicate";
+	private static final String KEY = "key";
+	private static final String GCM = "gcm";
+	private static final String DURATION = "duration";
+	private static final String SEED = "seed";
+	private static final String HELP = "help";
+
+	private static final int STATS_INTERVAL = 5;
+	private static final Protocol.Notification.Type[] EVENT_TYPES = {
+		Protocol.Notification.Type.RING, Protocol.Notification.Type.SMS, Protocol.Notification.Type.MMS, Protocol.Notification.Type.BATTERY
+	};
+
+	private final List<SimulatedPhone> phones;
+	private final List<FleetTransport> transports;
+	private final double eventsPerMinute;
+	private final int[] mix;
+	private final int mixTotal;
+	private final int burst;
+	private final long burstInterval;
+	private final int textPercent;
+	private final int duplicatePercent;
+	private final ScheduledExecutorService scheduler;
+
+	private final Map<String, AtomicLong> sentCounts;
+	private final Map<String, AtomicLong> failedCounts;
+	private final AtomicLong notificationCount = new AtomicLong();
+
+	public PhoneFleetSimulator(List<SimulatedPhone> phones, List<FleetTransport> transports, double eventsPerMinute, int[] mix,
+	                           int burst, long burstInterval, int textPercent, int duplicatePercent) {
+		Preconditions.checkArgument(!transports.isEmpty(), "At least one transport is required");
+		Preconditions.checkArgument(mix.length == EVENT_TYPES.length, "Mix must have one weight per event type");
+		this.phones = phones;
+		this.transports = transports;
+		this.eventsPerMinute = eventsPerMinute;
+		this.mix = mix;
+		int total = 0;
+		for (int weight : mix) {
+			total += weight;
+		}
+		Preconditions.checkArgument(total > 0, "Mix weights must not all be zero");
+		this.mixTotal = total;
+		this.burst = burst;
+		this.burstInterval = burstInterval;
+		this.textPercent = textPercent;
+		this.duplicatePercent = duplicatePercent;
+
+		ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
+		threadFactoryBuilder.setNameFormat("phone-fleet-%s");
+		threadFactoryBuilder.setDaemon(true);
+		// Sends block on TCP connects, a few extra threads keep one slow send from delaying every phone
+		this.scheduler = Executors.newScheduledThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2), threadFactoryBuilder.build());
+
+		this.sentCounts = Maps.newLinkedHashMap();
+		this.failedCounts = Maps.newLinkedHashMap();
+		for (FleetTransport transport : transports) {
+			sentCounts.put(transport.getName(), new AtomicLong());
+			failedCounts.put(transport.getName(), new AtomicLong());
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = createCommandLineOptions();
+		CommandLine line;
+		try {
+			line = new GnuParser().parse(options, args);
+		} catch (ParseException e) {
+			System.out.println(e.getMessage());
+			printHelp(options);
+			return;
+		}
+		if (line.hasOption(HELP)) {
+			printHelp(options);
+			return;
+		}
+
+		int deviceCount = Integer.parseInt(line.getOptionValue(DEVICES, "10"));
+		int port = Integer.parseInt(line.getOptionValue(PORT, "10600"));
+		InetAddress host = InetAddress.getByName(line.getOptionValue(HOST, "127.0.0.1"));
+		InetAddress udpHost = InetAddress.getByName(line.getOptionValue(UDP_HOST, "255.255.255.255"));
+		long seed = Long.parseLong(line.getOptionValue(SEED, "0"));
+
+		Encryption encryption = null;
+		boolean gcm = line.hasOption(GCM);
+		if (line.hasOption(KEY)) {
+			encryption = new Encryption(Encryption.passPhraseToKey(line.getOptionValue(KEY)));
+		}
+		Preconditions.checkArgument(!gcm || (encryption != null && Encryption.isGcmSupported()), "GCM needs a key and a JVM that supports it");
+
+		List<SimulatedPhone> phones = Lists.newArrayList();
+		for (int i = 0; i < deviceCount; i++) {
+			phones.add(new SimulatedPhone(i, seed + i, encryption, gcm));
+		}
+
+		List<FleetTransport> transports = Lists.newArrayList();
+		for (String name : Splitter.on(',').trimResults().omitEmptyStrings().split(line.getOptionValue(TRANSPORTS, "udp,tcp"))) {
+			if (name.equals("udp")) {
+				transports.add(new UdpFleetTransport(new InetSocketAddress(udpHost, port)));
+			} else if (name.equals("tcp")) {
+				transports.add(new TcpFleetTransport(new InetSocketAddress(host, port)));
+			} else if (name.equals("usb")) {
+				transports.add(new UsbFleetTransport(InetAddress.getByName(null), Integer.parseInt(line.getOptionValue(USB_PORT, "10602")), phones));
+			} else {
+				throw new IllegalArgumentException("Unknown transport: " + name);
+			}
+		}
+
+		PhoneFleetSimulator simulator = new PhoneFleetSimulator(phones, transports,
+		    Double.parseDouble(line.getOptionValue(RATE, "6")),
+		    parseMix(line.getOptionValue(MIX, "ring=20,sms=60,mms=5,battery=15")),
+		    Integer.parseInt(line.getOptionValue(BURST, "4")),
+		    Long.parseLong(line.getOptionValue(BURST_INTERVAL, "3000")),
+		    Integer.parseInt(line.getOptionValue(TEXT, "30")),
+		    Integer.parseInt(line.getOptionValue(DUPLICATE, "100")));
+		simulator.run(Integer.parseInt(line.getOptionValue(DURATION, "0")));
+	}
+
+	/**
+	 * Parses weights such as {@code ring=20,sms=60,mms=5,battery=15}, missing types weigh zero.
+	 */
+	static int[] parseMix(String value) {
+		int[] weights = new int[EVENT_TYPES.length];
+		for (Map.Entry<String, String> entry : parseEntries(value).entrySet()) {
+			Protocol.Notification.Type type = Protocol.Notification.Type.valueOf(entry.getKey().toUpperCase());
+			int index = Arrays.asList(EVENT_TYPES).indexOf(type);
+			Preconditions.checkArgument(index >= 0, "Type [%s] cannot be simulated", type);
+			weights[index] = Integer.parseInt(entry.getValue());
+		}
+		return weights;
+	}
+
+	private static Map<String, String> parseEntries(String value) {
+		Map<String, String> entries = Maps.newLinkedHashMap();
+		for (String pair : Splitter.on(',').trimResults().omitEmptyStrings().split(value)) {
+			int separator = pair.indexOf('=');
+			Preconditions.checkArgument(separator > 0, "Expected type=weight but got [%s]", pair);
+			entries.put(pair.substring(0, separator), pair.substring(separator + 1));
+		}
+		return entries;
+	}
+
+	public void run(int seconds) throws Exception {
+		logger.info("Simulating {} phones over {}", phones.size(), sentCounts.keySet());
+		for (SimulatedPhone phone : phones) {
+			scheduleNextEvent(phone);
+		}
+		long start = System.nanoTime();
+		long end = seconds > 0 ? start + TimeUnit.SECONDS.toNanos(seconds) : Long.MAX_VALUE;
+		while (System.nanoTime() < end) {
+			TimeUnit.SECONDS.sleep(Math.min(STATS_INTERVAL, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(end - System.nanoTime()))));
+			printStats(System.nanoTime() - start);
+		}
+		scheduler.shutdownNow();
+		scheduler.awaitTermination(5, TimeUnit.SECONDS);
+		for (FleetTransport transport : transports) {
+			transport.close();
+		}
+	}
+
+	protected void scheduleNextEvent(final SimulatedPhone phone) {
+		// Exponential inter-arrival times give a Poisson stream of events per phone
+		long delay = (long) (-Math.log(1 - phone.nextDouble()) * TimeUnit.MINUTES.toMillis(1) / eventsPerMinute);
+		scheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					raiseEvent(phone);
+				} finally {
+					scheduleNextEvent(phone);
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	protected void raiseEvent(final SimulatedPhone phone) {
+		Protocol.Notification.Type type = pickEventType(phone);
+		send(phone, phone.createNotification(type));
+		if (type == Protocol.Notification.Type.RING) {
+			for (int i = 1; i < burst; i++) {
+				scheduler.schedule(new Runnable() {
+					@Override
+					public void run() {
+						send(phone, phone.createNotification(Protocol.Notification.Type.RING));
+					}
+				}, i * burstInterval, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	protected Protocol.Notification.Type pickEventType(SimulatedPhone phone) {
+		int value = phone.nextInt(mixTotal);
+		for (int i = 0; i < mix.length; i++) {
+			value -= mix[i];
+			if (value < 0) {
+				return EVENT_TYPES[i];
+			}
+		}
+		throw new IllegalStateException("Mix weights changed");
+	}
+
+	protected void send(SimulatedPhone phone, Protocol.Notification notification) {
+		notificationCount.incrementAndGet();
+		boolean text = phone.nextInt(100) < textPercent;
+		List<FleetTransport> targets;
+		if (phone.nextInt(100) < duplicatePercent) {
+			targets = transports;
+		} else {
+			targets = Collections.singletonList(transports.get(phone.nextInt(transports.size())));
+		}
+		for (FleetTransport transport : targets) {
+			try {
+				byte[] payload = text || transport.isDelimited() ? phone.encodeText(notification) : phone.encodeProtobuf(notification);
+				transport.send(phone, payload);
+				sentCounts.get(transport.getName()).incrementAndGet();
+			} catch (Exception e) {
+				failedCounts.get(transport.getName()).incrementAndGet();
+				logger.debug("Could not send notification of " + phone + " over " + transport.getName(), e);
+			}
+		}
+	}
+
+	protected void printStats(long elapsedNanos) {
+		double seconds = elapsedNanos / 1e9;
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%6.0fs  notifications %8d (%6.1f/s)", seconds, notificationCount.get(), notificationCount.get() / seconds));
+		for (FleetTransport transport : transports) {
+			String name = transport.getName();
+			builder.append(String.format("  %s sent %d failed %d", name, sentCounts.get(name).get(), failedCounts.get(name).get()));
+			if (transport instanceof UsbFleetTransport) {
+				builder.append(String.format(" connected %d", ((UsbFleetTransport) transport).getConnectedCount()));
+			}
+		}
+		System.out.println(builder);
+	}
+
+	private static Options createCommandLineOptions() {
+		Options options = new Options();
+		options.addOption("n", DEVICES, true, "number of simulated phones (default 10)");
+		options.addOption("H", HOST, true, "desktop address for tcp (default 127.0.0.1)");
+		options.addOption("U", UDP_HOST, true, "udp destination, broadcast by default (default 255.255.255.255)");
+		options.addOption("p", PORT, true, "desktop notification port for tcp and udp (default 10600)");
+		options.addOption("u", USB_PORT, true, "local port of the first phone for usb, one more per phone (default 10602)");
+		options.addOption("t", TRANSPORTS, true, "comma separated transports among udp, tcp and usb (default udp,tcp)");
+		options.addOption("r", RATE, true, "events per phone per minute (default 6)");
+		options.addOption("m", MIX, true, "event weights (default ring=20,sms=60,mms=5,battery=15)");
+		options.addOption("b", BURST, true, "rings per incoming call (default 4)");
+		options.addOption("i", BURST_INTERVAL, true, "milliseconds between rings (default 3000)");
+		options.addOption("x", TEXT, true, "percentage of udp notifications in the legacy text format (default 30)");
+		options.addOption("D", DUPLICATE, true, "percentage of notifications sent over every transport instead of a random one (default 100)");
+		options.addOption("k", KEY, true, "encrypt with this pass phrase");
+		options.addOption("g", GCM, false, "encrypt protobuf notifications with AES-GCM instead of CBC");
+		options.addOption("d", DURATION, true, "seconds to run, 0 runs until stopped (default 0)");
+		options.addOption("s", SEED, true, "random seed, the same seed simulates the same phones (default 0)");
+		options.addOption("h", HELP, false, "show help information");
+		return options;
+	}
+
+	private static void printHelp(Options options) {
+		new HelpFormatter().printHelp("java -cp benchmarks.jar " + PhoneFleetSimulator.class.getName(), options, true);
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.simulator;
+
+import java.io.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import com.google.common.base.*;
+import com.google.protobuf.*;
+import com.notifier.desktop.notification.parsing.impl.*;
+import com.notifier.desktop.util.*;
+import com.notifier.protocol.*;
+
+/**
+ * One simulated Android device: owns a device id, numbers its notifications and encodes them
+ * exactly as the phone application does, in the legacy v2 text format or as framed protobuf.
+ */
+public class SimulatedPhone {
+
+	private static final String[] SMS_TEXTS = {
+		"On my way",
+		"Can you call me when you get this?",
+		"Build is red again, looking into it",
+		"Running late, traffic on the bridge is terrible. Start without me and save some pizza.",
+		"Standup moved to 10:30 tomorrow, same room. Please bring the numbers for the capacity review, we need them before the planning meeting on Thursday."
+	};
+
+	private final int index;
+	private final long deviceId;
+	private final Random random;
+	private final AtomicLong nextNotificationId;
+	private final Encryption encryption;
+	private final boolean gcm;
+	private int batteryLevel;
+
+	public SimulatedPhone(int index, long seed, Encryption encryption, boolean gcm) {
+		this.index = index;
+		this.random = new Random(seed);
+		this.deviceId = random.nextLong();
+		this.nextNotificationId = new AtomicLong(random.nextLong());
+		this.encryption = encryption;
+		this.gcm = gcm;
+		this.batteryLevel = 100;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public long getDeviceId() {
+		return deviceId;
+	}
+
+	/**
+	 * Creates the next notification of the given type, with a fresh id.
+	 */
+	public synchronized Protocol.Notification createNotification(Protocol.Notification.Type type) {
+		Protocol.Notification.Builder builder = Protocol.Notification.newBuilder();
+		builder.setDeviceId(deviceId).setId(nextNotificationId.getAndIncrement()).setType(type);
+		switch (type) {
+			case RING:
+				builder.setPhoneNumber(callerNumber()).setDescription("");
+				break;
+			case SMS:
+				builder.setPhoneNumber(callerNumber()).setDescription(SMS_TEXTS[random.nextInt(SMS_TEXTS.length)]);
+				break;
+			case MMS:
+				builder.setPhoneNumber(callerNumber()).setDescription("Photo");
+				break;
+			case BATTERY:
+				batteryLevel = batteryLevel <= 5 ? 100 : batteryLevel - 5;
+				builder.setBatteryLevel(batteryLevel).setDescription("Battery level is " + batteryLevel + "%");
+				break;
+			default:
+				builder.setDescription(type.name());
+				break;
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Text as sent by the phone: six fields separated by slashes, terminated with a NUL and
+	 * encrypted as a whole when a key is set.
+	 */
+	public byte[] encodeText(Protocol.Notification notification) throws GeneralSecurityException {
+		String data;
+		switch (notification.getType()) {
+			case BATTERY:
+				data = Integer.toString(notification.getBatteryLevel());
+				break;
+			default:
+				data = notification.getPhoneNumber();
+				break;
+		}
+		String text = TextNotificationParser.SUPPORTED_VERSION + "/" + Long.toHexString(notification.getDeviceId()) + "/" + Long.toHexString(notification.getId()) + "/" +
+		    notification.getType().name() + "/" + data + "/" + notification.getDescription() + "\0";
+		byte[] payload = text.getBytes(Charsets.UTF_8);
+		return encryption == null ? payload : encryption.encrypt(payload);
+	}
+
+	/**
+	 * Protobuf as sent by the phone: total length, encryption byte and the (encrypted) message.
+	 */
+	public byte[] encodeProtobuf(Protocol.Notification notification) throws GeneralSecurityException, IOException {
+		byte[] protoData = notification.toByteArray();
+		byte encryptionType = ProtobufNotificationParser.NOT_ENCRYPTED;
+		if (encryption != null) {
+			protoData = gcm ? encryption.encryptGcm(protoData) : encryption.encrypt(protoData);
+			encryptionType = gcm ? ProtobufNotificationParser.ENCRYPTED_GCM : ProtobufNotificationParser.ENCRYPTED_CBC;
+		}
+		int length = protoData.length;
+		length += CodedOutputStream.computeRawVarint32Size(length);
+		length += 1;
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(length);
+		CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(baos);
+		codedOutputStream.writeRawVarint32(length);
+		codedOutputStream.writeRawByte(encryptionType);
+		codedOutputStream.writeRawBytes(protoData);
+		codedOutputStream.flush();
+		return baos.toByteArray();
+	}
+
+	public synchronized int nextInt(int n) {
+		return random.nextInt(n);
+	}
+
+	public synchronized double nextDouble() {
+		return random.nextDouble();
+	}
+
+	protected String callerNumber() {
+		return String.format("555%07d", random.nextInt(10000000));
+	}
+
+	@Override
+	public String toString() {
+		return "phone " + index + " (" + deviceId + ")";
+	}
+}
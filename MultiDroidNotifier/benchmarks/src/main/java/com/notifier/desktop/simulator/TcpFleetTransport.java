@@ -0,0 +1,64 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.simulator;
+
+import java.io.*;
+import java.net.*;
+
+/**
+ * Same as IpNotificationMethod on the phone: connects, writes one notification and closes.
+ */
+public class TcpFleetTransport implements FleetTransport {
+
+	private static final int CONNECT_TIMEOUT = 5000;
+
+	private final InetSocketAddress target;
+
+	public TcpFleetTransport(InetSocketAddress target) {
+		this.target = target;
+	}
+
+	@Override
+	public String getName() {
+		return "tcp";
+	}
+
+	@Override
+	public boolean isDelimited() {
+		return true;
+	}
+
+	@Override
+	public void send(SimulatedPhone phone, byte[] payload) throws IOException {
+		Socket socket = new Socket();
+		try {
+			socket.connect(target, CONNECT_TIMEOUT);
+			socket.setSendBufferSize(payload.length * 2);
+			OutputStream stream = socket.getOutputStream();
+			stream.write(payload);
+			stream.flush();
+		} finally {
+			socket.close();
+		}
+	}
+
+	@Override
+	public void close() {
+		// Nothing is kept open between notifications
+	}
+}
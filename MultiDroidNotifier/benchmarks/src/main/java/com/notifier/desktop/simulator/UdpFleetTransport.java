@@ -0,0 +1,59 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.simulator;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * Sends every notification as a single datagram, by default to the broadcast address like
+ * phones that do not know the desktop address.
+ */
+public class UdpFleetTransport implements FleetTransport {
+
+	private final InetSocketAddress target;
+	private final DatagramChannel channel;
+
+	public UdpFleetTransport(InetSocketAddress target) throws IOException {
+		this.target = target;
+		this.channel = DatagramChannel.open();
+		channel.socket().setBroadcast(true);
+	}
+
+	@Override
+	public String getName() {
+		return "udp";
+	}
+
+	@Override
+	public boolean isDelimited() {
+		return false;
+	}
+
+	@Override
+	public void send(SimulatedPhone phone, byte[] payload) throws IOException {
+		channel.send(ByteBuffer.wrap(payload), target);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.simulator;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.slf4j.*;
+
+import com.google.common.collect.*;
+
+/**
+ * Plays the phone side of the usb transport. Each phone listens on its own local port, where the
+ * desktop expects {@code adb forward} to deliver it (10602 for the first device, then one port per
+ * device), accepts the desktop connection and writes NUL-delimited notifications to it for as long
+ * as it stays open. Whatever the desktop sends (the greeting byte and discovery frames) is discarded.
+ * <p>
+ * Notifications of a phone the desktop is not connected to are counted as failures, just like the
+ * phone drops them when nobody is listening.
+ */
+public class UsbFleetTransport implements FleetTransport {
+
+	private static final Logger logger = LoggerFactory.getLogger(UsbFleetTransport.class);
+
+	private final List<ServerSocket> serverSockets;
+	private final ConcurrentMap<Integer, Socket> connections;
+	private final ExecutorService executor;
+	private volatile boolean closed;
+
+	public UsbFleetTransport(InetAddress bindAddress, int firstPort, List<SimulatedPhone> phones) throws IOException {
+		this.serverSockets = Lists.newArrayList();
+		this.connections = new ConcurrentHashMap<Integer, Socket>();
+		this.executor = Executors.newCachedThreadPool();
+		for (SimulatedPhone phone : phones) {
+			ServerSocket serverSocket = new ServerSocket(firstPort + phone.getIndex(), 1, bindAddress);
+			serverSockets.add(serverSocket);
+			executor.execute(new Listener(phone, serverSocket));
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "usb";
+	}
+
+	@Override
+	public boolean isDelimited() {
+		return true;
+	}
+
+	public int getConnectedCount() {
+		return connections.size();
+	}
+
+	@Override
+	public void send(SimulatedPhone phone, byte[] payload) throws IOException {
+		Socket socket = connections.get(phone.getIndex());
+		if (socket == null) {
+			throw new IOException("Desktop is not connected to " + phone);
+		}
+		synchronized (socket) {
+			OutputStream stream = socket.getOutputStream();
+			stream.write(payload);
+			stream.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		for (ServerSocket serverSocket : serverSockets) {
+			serverSocket.close();
+		}
+		for (Socket socket : connections.values()) {
+			socket.close();
+		}
+		executor.shutdownNow();
+	}
+
+	class Listener implements Runnable {
+		private final SimulatedPhone phone;
+		private final ServerSocket serverSocket;
+
+		Listener(SimulatedPhone phone, ServerSocket serverSocket) {
+			this.phone = phone;
+			this.serverSocket = serverSocket;
+		}
+
+		@Override
+		public void run() {
+			byte[] discard = new byte[1024];
+			while (!closed) {
+				Socket socket = null;
+				try {
+					socket = serverSocket.accept();
+					socket.setTcpNoDelay(true);
+					connections.put(phone.getIndex(), socket);
+					logger.info("Desktop connected to {} over usb", phone);
+					InputStream stream = socket.getInputStream();
+					while (stream.read(discard) >= 0) {
+						// Keep reading until the desktop disconnects
+					}
+				} catch (IOException e) {
+					if (!closed) {
+						logger.debug("Usb connection of " + phone + " failed", e);
+					}
+				} finally {
+					if (socket != null) {
+						connections.remove(phone.getIndex(), socket);
+						try {
+							socket.close();
+						} catch (IOException e) {
+							// Already closed
+						}
+					}
+				}
+			}
+		}
+	}
+}
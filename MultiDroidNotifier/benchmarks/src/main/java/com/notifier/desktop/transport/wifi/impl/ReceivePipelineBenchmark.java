@@ -0,0 +1,483 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.transport.wifi.impl;
+
+import java.io.*;
+import java.lang.management.*;
+import java.lang.reflect.*;
+import java.lang.reflect.Proxy;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+import org.jboss.netty.buffer.*;
+
+import com.google.common.base.*;
+import com.google.inject.*;
+import com.google.inject.util.*;
+import com.google.protobuf.*;
+import com.notifier.desktop.*;
+import com.notifier.desktop.device.*;
+import com.notifier.desktop.metrics.*;
+import com.notifier.desktop.metrics.impl.*;
+import com.notifier.desktop.notification.*;
+import com.notifier.desktop.notification.broadcast.*;
+import com.notifier.desktop.notification.impl.*;
+import com.notifier.desktop.notification.parsing.*;
+import com.notifier.desktop.notification.parsing.impl.*;
+import com.notifier.desktop.notification.wifi.NotificationPipelineFactory;
+import com.notifier.desktop.transport.*;
+import com.notifier.desktop.transport.impl.*;
+import com.notifier.protocol.*;
+
+/**
+ * Starts a real {@link NioWifiTransport} on loopback, wired to a {@link NotificationManagerImpl}
+ * whose broadcasters only count, and drives it with persistent TCP sessions, one-shot TCP
+ * connections and UDP datagrams. Every notification carries its send time in the description,
+ * so the tray stub can measure receive-to-broadcast latency through framing, parsing, dedup and
+ * the broadcast queues.
+ * <p>
+ * Senders are paced to a total rate and stamp each notification with its scheduled send time,
+ * so a stalled receiver shows up in the latency instead of slowing the senders down. A rate of
+ * zero floods the transport to find its saturation throughput.
+ * <p>
+ * Not a unit test, run it from the benchmarks jar with:
+ * <pre>java -cp benchmarks.jar com.notifier.desktop.transport.wifi.impl.ReceivePipelineBenchmark [seconds] [senders] [notifications/s]</pre>
+ * The TCP and UDP notification ports (10600) must be free.
+ */
+public class ReceivePipelineBenchmark {
+
+	private static final String PHONE_NUMBER = "5551234";
+	private static final int PORT = 10600;
+	private static final int MAX_LATENCY_SAMPLES = 1 << 21;
+	private static final long DRAIN_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+	private static final long QUIET_PERIOD = 300;
+
+	private enum Phase {
+		TCP_SESSION("tcp session"),
+		TCP_ONE_SHOT("tcp one-shot"),
+		UDP("udp");
+
+		private final String description;
+
+		private Phase(String description) {
+			this.description = description;
+		}
+
+		@Override
+		public String toString() {
+			return description;
+		}
+	}
+
+	private final int seconds;
+	private final int senderCount;
+	private final long sendInterval;
+	private final AtomicLong nextNotificationId = new AtomicLong();
+	private final AtomicInteger nextDeviceId = new AtomicInteger(1);
+	private final AtomicLong errors = new AtomicLong();
+
+	private final CountingBroadcaster trayBroadcaster = new CountingBroadcaster("tray", true);
+	private final List<CountingBroadcaster> broadcasters = new ArrayList<CountingBroadcaster>();
+
+	private NettyTransportRuntime transportRuntime;
+	private ScheduledExecutorService executorService;
+	private NotificationManager notificationManager;
+	private NioWifiTransport transport;
+
+	public ReceivePipelineBenchmark(int seconds, int senderCount, int rate) {
+		this.seconds = seconds;
+		this.senderCount = senderCount;
+		this.sendInterval = rate > 0 ? TimeUnit.SECONDS.toNanos(senderCount) / rate : 0;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int senders = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int rate = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+		ReceivePipelineBenchmark benchmark = new ReceivePipelineBenchmark(seconds, senders, rate);
+
+		System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", senders: " + senders + ", seconds: " + seconds + ", rate: " + (rate > 0 ? rate + "/s" : "unlimited"));
+		benchmark.start();
+		try {
+			for (Phase phase : Phase.values()) {
+				benchmark.run(phase, true);
+			}
+			for (Phase phase : Phase.values()) {
+				benchmark.run(phase, false);
+			}
+		} finally {
+			benchmark.stop();
+		}
+		System.exit(benchmark.errors.get() == 0 ? 0 : 1);
+	}
+
+	protected void start() throws Exception {
+		broadcasters.add(trayBroadcaster);
+		broadcasters.add(new CountingBroadcaster("growl", false));
+		broadcasters.add(new CountingBroadcaster("libnotify", false));
+		CountingBroadcaster msnBroadcaster = new CountingBroadcaster("msn", false);
+		broadcasters.add(msnBroadcaster);
+
+		// Plain text one-shot messages cannot be decrypted, the parser benchmark covers decryption
+		ApplicationPreferences preferences = new ApplicationPreferences();
+		preferences.setEncryptCommunication(false);
+		preferences.setCommunicationPassword(new byte[0]);
+		for (Notification.Type type : Notification.Type.values()) {
+			preferences.setNotificationEnabled(type, true);
+			preferences.setNotificationClipboard(type, false);
+			preferences.setNotificationExecuteCommand(type, false);
+			preferences.setNotificationCommand(type, "");
+		}
+		final MetricRegistry metricRegistry = new MetricRegistryImpl(null);
+		executorService = Executors.newSingleThreadScheduledExecutor();
+		notificationManager = new NotificationManagerImpl(Providers.of(preferences), null, null, newDeviceManager(),
+		    trayBroadcaster, broadcasters.get(1), broadcasters.get(2), msnBroadcaster.asInstantMessaging(), metricRegistry, executorService);
+
+		MultiNotificationParser multiParser = new MultiNotificationParser(null, new TextNotificationParser(Providers.of(preferences)), new ProtobufNotificationParser(Providers.of(preferences)));
+		final NotificationParser<ChannelBuffer> parser = new ChannelBufferNotificationParser(multiParser);
+		final Application application = new Application() {
+			@Override
+			public void showError(String title, String message) {
+				errors.incrementAndGet();
+				System.err.println(title + ": " + message);
+			}
+		};
+		transportRuntime = new NettyTransportRuntime();
+
+		Injector injector = Guice.createInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				// Providers so Guice does not try to inject the stubs' own fields
+				bind(Application.class).toProvider(Providers.of(application));
+				bind(NotificationManager.class).toProvider(Providers.of(notificationManager));
+				bind(new TypeLiteral<NotificationParser<ChannelBuffer>>() {}).toProvider(Providers.of(parser));
+				bind(TransportRuntime.class).toProvider(Providers.of(transportRuntime));
+				bind(MetricRegistry.class).toProvider(Providers.of(metricRegistry));
+			}
+		});
+		transport = injector.getInstance(NioWifiTransport.class);
+		transport.start().get();
+		if (transport.getIpPort() != PORT) {
+			throw new IllegalStateException("TCP port " + PORT + " is in use, bound to " + transport.getIpPort() + " instead");
+		}
+	}
+
+	protected void stop() throws Exception {
+		transport.stop().get();
+		transportRuntime.shutdown();
+		notificationManager.shutdown();
+		executorService.shutdownNow();
+	}
+
+	protected void run(Phase phase, boolean warmUp) throws Exception {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		memory.gc();
+		long heapBefore = memory.getHeapMemoryUsage().getUsed();
+		int threadsBefore = threads.getThreadCount();
+		threads.resetPeakThreadCount();
+		for (CountingBroadcaster broadcaster : broadcasters) {
+			broadcaster.reset();
+		}
+
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicLong sent = new AtomicLong();
+		List<Callable<Void>> senders = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < senderCount; i++) {
+			senders.add(newSender(phase, running, sent));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(senderCount);
+		List<Future<Void>> results = new ArrayList<Future<Void>>();
+		long startTime = System.nanoTime();
+		for (Callable<Void> sender : senders) {
+			results.add(executor.submit(sender));
+		}
+		Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+		running.set(false);
+		executor.shutdown();
+		for (Future<Void> result : results) {
+			result.get();
+		}
+		long delivered = awaitDrained();
+		double elapsed = (Math.max(trayBroadcaster.getLastBroadcastTime(), startTime + 1) - startTime) / 1e9;
+
+		int peakThreads = threads.getPeakThreadCount() - senderCount;
+		memory.gc();
+		long heapGrowth = memory.getHeapMemoryUsage().getUsed() - heapBefore;
+		if (warmUp) {
+			return;
+		}
+
+		long fanOut = 0;
+		for (CountingBroadcaster broadcaster : broadcasters) {
+			fanOut += broadcaster.getCount();
+		}
+		long[] latencies = trayBroadcaster.getLatencies();
+		System.out.printf("%-13s sent %9d  delivered %9d (%5.1f%%)  broadcasts %9d  %8.0f notifications/s  p50 %7.1fus  p99 %8.1fus  threads %3d -> %3d  heap %+6dKB%n",
+		    phase, sent.get(), delivered, 100.0 * delivered / Math.max(1, sent.get()), fanOut, delivered / elapsed,
+		    percentile(latencies, 50) / 1e3, percentile(latencies, 99) / 1e3, threadsBefore, peakThreads, heapGrowth / 1024);
+	}
+
+	protected Callable<Void> newSender(Phase phase, final AtomicBoolean running, final AtomicLong sent) {
+		final int deviceId = nextDeviceId.getAndIncrement();
+		final InetSocketAddress target = new InetSocketAddress(InetAddress.getLoopbackAddress(), PORT);
+		final Pacer pacer = new Pacer(sendInterval);
+		switch (phase) {
+			case TCP_SESSION:
+				return new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						// One session per device, a second connection would replace the first
+						SocketChannel channel = SocketChannel.open(target);
+						channel.socket().setTcpNoDelay(true);
+						long count = 0;
+						try {
+							write(channel, ByteBuffer.wrap(NotificationPipelineFactory.SESSION_MAGIC));
+							ByteBuffer header = ByteBuffer.allocate(4);
+							while (running.get()) {
+								byte[] message = createProtobufMessage(deviceId, pacer.awaitNext());
+								header.clear();
+								header.putInt(message.length).flip();
+								write(channel, header, ByteBuffer.wrap(message));
+								count++;
+							}
+						} finally {
+							channel.close();
+						}
+						sent.addAndGet(count);
+						return null;
+					}
+				};
+			case TCP_ONE_SHOT:
+				return new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						// Same as IpNotificationMethod: connect, write and close
+						long count = 0;
+						while (running.get()) {
+							byte[] message = createTextMessage(deviceId, pacer.awaitNext());
+							SocketChannel channel = SocketChannel.open(target);
+							try {
+								write(channel, ByteBuffer.wrap(message));
+							} finally {
+								channel.close();
+							}
+							count++;
+						}
+						sent.addAndGet(count);
+						return null;
+					}
+				};
+			case UDP:
+				return new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						DatagramChannel channel = DatagramChannel.open();
+						long count = 0;
+						try {
+							while (running.get()) {
+								channel.send(ByteBuffer.wrap(createProtobufMessage(deviceId, pacer.awaitNext())), target);
+								count++;
+							}
+						} finally {
+							channel.close();
+						}
+						sent.addAndGet(count);
+						return null;
+					}
+				};
+			default:
+				throw new IllegalArgumentException("Unknown phase: " + phase);
+		}
+	}
+
+	/**
+	 * Waits until the tray stub stops receiving notifications, returns how many it got.
+	 */
+	protected long awaitDrained() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT;
+		long count = trayBroadcaster.getCount();
+		while (System.currentTimeMillis() < deadline) {
+			Thread.sleep(QUIET_PERIOD);
+			long current = trayBroadcaster.getCount();
+			if (current == count) {
+				break;
+			}
+			count = current;
+		}
+		return count;
+	}
+
+	protected byte[] createProtobufMessage(int deviceId, long sendTime) throws IOException {
+		Protocol.Notification.Builder builder = Protocol.Notification.newBuilder();
+		builder.setDeviceId(deviceId).setId(nextNotificationId.getAndIncrement());
+		builder.setType(Protocol.Notification.Type.SMS).setPhoneNumber(PHONE_NUMBER);
+		builder.setDescription(Long.toString(sendTime));
+		byte[] protoData = builder.build().toByteArray();
+
+		int length = protoData.length;
+		length += CodedOutputStream.computeRawVarint32Size(length);
+		length += 1;
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(length);
+		CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(baos);
+		codedOutputStream.writeRawVarint32(length);
+		codedOutputStream.writeRawByte(ProtobufNotificationParser.NOT_ENCRYPTED);
+		codedOutputStream.writeRawBytes(protoData);
+		codedOutputStream.flush();
+		return baos.toByteArray();
+	}
+
+	protected byte[] createTextMessage(int deviceId, long sendTime) {
+		// Phones terminate the message with a NUL, which is also the one-shot frame delimiter
+		String message = TextNotificationParser.SUPPORTED_VERSION + "/" + deviceId + "/" + Long.toHexString(nextNotificationId.getAndIncrement()) + "/" +
+		    Notification.Type.SMS.name() + "/" + PHONE_NUMBER + "/" + sendTime + "\0";
+		return message.getBytes(Charsets.UTF_8);
+	}
+
+	protected static void write(SocketChannel channel, ByteBuffer... buffers) throws IOException {
+		ByteBuffer last = buffers[buffers.length - 1];
+		while (last.hasRemaining()) {
+			channel.write(buffers);
+		}
+	}
+
+	protected static long percentile(long[] sortedValues, int percentile) {
+		if (sortedValues.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile / 100.0 * sortedValues.length) - 1;
+		return sortedValues[Math.max(0, index)];
+	}
+
+	protected DeviceManager newDeviceManager() {
+		return (DeviceManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DeviceManager.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("isAllowedDeviceId")) {
+					return Boolean.TRUE;
+				} else if (method.getName().equals("getDeviceName")) {
+					return "Benchmark " + args[0];
+				}
+				return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+			}
+		});
+	}
+
+	/**
+	 * Spaces the sends of one sender, falls behind rather than skipping when sending is slow.
+	 */
+	static class Pacer {
+
+		private final long interval;
+		private long next;
+
+		Pacer(long interval) {
+			this.interval = interval;
+			this.next = System.nanoTime();
+		}
+
+		/**
+		 * Returns the time the next notification is scheduled to be sent.
+		 */
+		long awaitNext() {
+			if (interval == 0) {
+				return System.nanoTime();
+			}
+			long delay;
+			while ((delay = next - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(delay);
+			}
+			long scheduled = next;
+			next += interval;
+			return scheduled;
+		}
+	}
+
+	/**
+	 * Counts broadcasts, the tray instance also records the latency of every notification.
+	 */
+	static class CountingBroadcaster extends RestartableService implements NotificationBroadcaster {
+
+		private final String name;
+		private final AtomicLong count = new AtomicLong();
+		// Only written by the broadcast queue thread of this broadcaster
+		private final long[] latencies;
+		private volatile int latencyCount;
+		private volatile long lastBroadcastTime;
+
+		CountingBroadcaster(String name, boolean recordLatency) {
+			this.name = name;
+			this.latencies = recordLatency ? new long[MAX_LATENCY_SAMPLES] : null;
+			start();
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public void broadcast(Notification notification, String deviceName, boolean privateMode) {
+			long now = System.nanoTime();
+			if (latencies != null && latencyCount < latencies.length) {
+				latencies[latencyCount] = now - Long.parseLong(notification.getDescription(privateMode));
+				latencyCount++;
+			}
+			lastBroadcastTime = now;
+			count.incrementAndGet();
+		}
+
+		void reset() {
+			latencyCount = 0;
+			lastBroadcastTime = 0;
+			count.set(0);
+		}
+
+		long getCount() {
+			return count.get();
+		}
+
+		long getLastBroadcastTime() {
+			return lastBroadcastTime;
+		}
+
+		long[] getLatencies() {
+			long[] sorted = Arrays.copyOf(latencies, latencyCount);
+			Arrays.sort(sorted);
+			return sorted;
+		}
+
+		InstantMessagingNotificationBroadcaster asInstantMessaging() {
+			final NotificationBroadcaster delegate = this;
+			return (InstantMessagingNotificationBroadcaster) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { InstantMessagingNotificationBroadcaster.class }, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if (method.getDeclaringClass().isAssignableFrom(NotificationBroadcaster.class)) {
+						return method.invoke(delegate, args);
+					}
+					return null;
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.transport.wifi.impl;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.lang.reflect.Proxy;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.jboss.netty.bootstrap.*;
+import org.jboss.netty.buffer.*;
+import org.jboss.netty.channel.*;
+import org.jboss.netty.channel.group.*;
+import org.jboss.netty.channel.socket.oio.*;
+
+import com.google.inject.util.*;
+import com.google.protobuf.*;
+import com.notifier.desktop.*;
+import com.notifier.desktop.notification.*;
+import com.notifier.desktop.notification.parsing.*;
+import com.notifier.desktop.notification.parsing.impl.*;
+import com.notifier.desktop.notification.wifi.NotificationPipelineFactory;
+import com.notifier.desktop.transport.*;
+import com.notifier.desktop.util.*;
+import com.notifier.protocol.*;
+
+/**
+ * Floods the UDP notification port from several sender threads and reports how many
+ * encrypted notifications reach the notification manager with the old blocking Netty
+ * receiver and with {@link NioDatagramReceiver}.
+ * <p>
+ * Run it from the benchmarks jar with:
+ * <pre>java -cp benchmarks.jar com.notifier.desktop.transport.wifi.impl.UdpReceiverBenchmark [seconds] [senders] [sockets]</pre>
+ */
+public class UdpReceiverBenchmark {
+
+	private static final int PORT = 10700;
+	private static final int MESSAGES_PER_SENDER = 4096;
+	private static final String PASSWORD = "benchmark";
+
+	private final int seconds;
+	private final int senderCount;
+	private final ByteBuffer[][] messages;
+	private final AtomicLong notifications = new AtomicLong();
+
+	public UdpReceiverBenchmark(int seconds, int senderCount) throws Exception {
+		this.seconds = seconds;
+		this.senderCount = senderCount;
+		this.messages = new ByteBuffer[senderCount][];
+		Encryption encryption = new Encryption(Encryption.passPhraseToKey(PASSWORD));
+		for (int i = 0; i < senderCount; i++) {
+			messages[i] = new ByteBuffer[MESSAGES_PER_SENDER];
+			for (int j = 0; j < MESSAGES_PER_SENDER; j++) {
+				long id = (long) i * MESSAGES_PER_SENDER + j;
+				messages[i][j] = ByteBuffer.wrap(createMessage(encryption.encrypt(createNotification(i, id).toByteArray())));
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int senders = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int sockets = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		UdpReceiverBenchmark benchmark = new UdpReceiverBenchmark(seconds, senders);
+
+		System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", senders: " + senders + ", SO_REUSEPORT: " + NioDatagramReceiver.isReusePortSupported());
+		benchmark.run("warm-up", benchmark.startNettyOio());
+		benchmark.run("warm-up", benchmark.startNio(1));
+		benchmark.run("netty oio", benchmark.startNettyOio());
+		benchmark.run("nio x1", benchmark.startNio(1));
+		benchmark.run("nio x" + sockets, benchmark.startNio(sockets));
+		System.exit(0);
+	}
+
+	protected Closeable startNettyOio() {
+		final ChannelFactory factory = new OioDatagramChannelFactory(Executors.newCachedThreadPool());
+		final ChannelGroup channels = new DefaultChannelGroup();
+		ConnectionlessBootstrap bootstrap = new ConnectionlessBootstrap(factory);
+		bootstrap.setPipelineFactory(new NotificationPipelineFactory(channels, null, newNotificationManager(), newParser(), new TransportMetrics(), null, false, false));
+		bootstrap.bind(new InetSocketAddress(PORT));
+		return new Closeable() {
+			@Override
+			public void close() {
+				channels.close().awaitUninterruptibly();
+				factory.releaseExternalResources();
+			}
+		};
+	}
+
+	protected Closeable startNio(int sockets) throws IOException {
+		final NioDatagramReceiver receiver = new NioDatagramReceiver(PORT, sockets, null, newNotificationManager(), newParser(), new TransportMetrics());
+		receiver.start();
+		return new Closeable() {
+			@Override
+			public void close() {
+				receiver.stop();
+			}
+		};
+	}
+
+	protected void run(String name, Closeable receiver) throws Exception {
+		notifications.set(0);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicLong sent = new AtomicLong();
+		final InetSocketAddress target = new InetSocketAddress(InetAddress.getByName("127.0.0.1"), PORT);
+		ExecutorService executor = Executors.newFixedThreadPool(senderCount);
+		for (int i = 0; i < senderCount; i++) {
+			final ByteBuffer[] senderMessages = messages[i];
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						DatagramChannel channel = DatagramChannel.open();
+						long count = 0;
+						while (running.get()) {
+							ByteBuffer message = senderMessages[(int) (count % senderMessages.length)];
+							message.rewind();
+							channel.send(message, target);
+							count++;
+						}
+						channel.close();
+						sent.addAndGet(count);
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			});
+		}
+		Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+		running.set(false);
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+		Thread.sleep(500); // Let the receiver drain the socket buffers
+		receiver.close();
+
+		long received = notifications.get();
+		System.out.printf("%-10s sent %9d  delivered %9d  (%5.1f%%)  %8.0f notifications/s%n", name, sent.get(), received, 100.0 * received / sent.get(), received / (double) seconds);
+	}
+
+	protected NotificationParser<ChannelBuffer> newParser() {
+		ApplicationPreferences preferences = new ApplicationPreferences();
+		preferences.setEncryptCommunication(true);
+		preferences.setCommunicationPassword(Encryption.passPhraseToKey(PASSWORD));
+		ProtobufNotificationParser protobufParser = new ProtobufNotificationParser(Providers.of(preferences));
+		MultiNotificationParser multiParser = new MultiNotificationParser(null, new TextNotificationParser(Providers.of(preferences)), protobufParser);
+		final ChannelBufferNotificationParser parser = new ChannelBufferNotificationParser(multiParser);
+		parser.setEncryption(true, Encryption.passPhraseToKey(PASSWORD));
+		return new NotificationParser<ChannelBuffer>() {
+			@Override
+			public Notification parse(ChannelBuffer data) throws ParseException {
+				// Same as the NIO receiver, empty datagrams would otherwise pop up a dialog
+				return data.readable() ? parser.parse(data) : null;
+			}
+
+			@Override
+			public Notification parse(ChannelBuffer data, ProtocolMemory memory) throws ParseException {
+				return data.readable() ? parser.parse(data, memory) : null;
+			}
+
+			@Override
+			public List<Notification> parseAll(ChannelBuffer data, ProtocolMemory memory) throws ParseException {
+				return data.readable() ? parser.parseAll(data, memory) : Collections.<Notification>emptyList();
+			}
+
+			@Override
+			public void setEncryption(boolean decrypt, byte[] key) {
+				parser.setEncryption(decrypt, key);
+			}
+		};
+	}
+
+	protected NotificationManager newNotificationManager() {
+		return (NotificationManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { NotificationManager.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("notificationReceived")) {
+					notifications.incrementAndGet();
+				} else if (method.getName().equals("runWhenDrained")) {
+					((Runnable) args[0]).run();
+				}
+				return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+			}
+		});
+	}
+
+	protected Protocol.Notification createNotification(int device, long id) {
+		Protocol.Notification.Builder builder = Protocol.Notification.newBuilder();
+		builder.setDeviceId(device).setId(id);
+		builder.setType(Protocol.Notification.Type.SMS).setPhoneNumber("5551234");
+		builder.setDescription("Benchmark message number " + id);
+		return builder.build();
+	}
+
+	protected byte[] createMessage(byte[] protoData) throws IOException {
+		int length = protoData.length;
+		length += CodedOutputStream.computeRawVarint32Size(length);
+		length += CodedOutputStream.computeBoolSizeNoTag(true);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(baos);
+		codedOutputStream.writeRawVarint32(length);
+		codedOutputStream.writeBoolNoTag(true);
+		codedOutputStream.writeRawBytes(protoData);
+		codedOutputStream.flush();
+		return baos.toByteArray();
+	}
+}
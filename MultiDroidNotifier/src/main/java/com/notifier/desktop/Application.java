@@ -31,6 +31,8 @@ import com.google.common.util.concurrent.*;
 import com.google.inject.*;
 import com.notifier.desktop.annotation.*;
 import com.notifier.desktop.device.*;
+import com.notifier.desktop.history.*;
+import com.notifier.desktop.metrics.*;
 import com.notifier.desktop.network.*;
 import com.notifier.desktop.notification.*;
 import com.notifier.desktop.notification.broadcast.*;
@@ -83,11 +85,14 @@ public class Application {
 	private @Inject WifiTransport wifiTransport;
 	private @Inject UsbTransport usbTransport;
 	private @Inject BluetoothTransport bluetoothTransport;
+	private @Inject TransportRuntime transportRuntime;
 
 	private @Inject NetworkManager networkManager;
 	private @Inject UpnpManager upnpManager;
 	private @Inject UpdateManager updateManager;
 	private @Inject ServiceServer serviceServer;
+	private @Inject MetricsServer metricsServer;
+	private @Inject NotificationHistory notificationHistory;
 	private @Inject ScheduledExecutorService executorService;
 
 	private @Inject Provider<PreferencesDialog> preferencesDialogProvider;
@@ -120,7 +125,9 @@ public class Application {
 		}
 		startService(networkManager, null);
 		startService(serviceServer, null);
+		startService(metricsServer, null);
 		startService(deviceManager, null);
+		startService(notificationHistory, null);
 
 		ApplicationPreferences preferences = preferencesProvider.get();
 		startServices(getBroadcasters(preferences), BROADCASTER, "Broadcaster Error", "Could not start at least one notification broadcaster. You will not be able to get notifications.");
@@ -201,14 +208,18 @@ public class Application {
 			}
 		}
 		stopService(serviceServer, null);
+		stopService(metricsServer, null);
 
 		ApplicationPreferences preferences = preferencesProvider.get();
 		stopServices(getTransports(preferences), TRANSPORT);
+		transportRuntime.shutdown();
 		stopServices(getBroadcasters(preferences), BROADCASTER);
+		notificationManager.shutdown();
 		if (preferences.isReceptionWithUpnp()) {
 			stopService(upnpManager, null);
 		}
 		stopService(networkManager, null);
+		stopService(notificationHistory, null);
 		stopService(deviceManager, null);
 
 		try {
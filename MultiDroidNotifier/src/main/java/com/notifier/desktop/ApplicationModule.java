@@ -19,6 +19,7 @@ package com.notifier.desktop;
 
 import java.util.concurrent.*;
 
+import org.jboss.netty.buffer.*;
 import org.slf4j.*;
 
 import com.google.common.util.concurrent.*;
@@ -26,6 +27,10 @@ import com.google.inject.*;
 import com.notifier.desktop.annotation.*;
 import com.notifier.desktop.device.*;
 import com.notifier.desktop.device.impl.*;
+import com.notifier.desktop.history.*;
+import com.notifier.desktop.history.impl.*;
+import com.notifier.desktop.metrics.*;
+import com.notifier.desktop.metrics.impl.*;
 import com.notifier.desktop.network.*;
 import com.notifier.desktop.network.impl.*;
 import com.notifier.desktop.notification.*;
@@ -41,8 +46,10 @@ import com.notifier.desktop.os.*;
 import com.notifier.desktop.os.impl.*;
 import com.notifier.desktop.service.*;
 import com.notifier.desktop.service.impl.*;
+import com.notifier.desktop.transport.*;
 import com.notifier.desktop.transport.bluetooth.*;
 import com.notifier.desktop.transport.bluetooth.impl.*;
+import com.notifier.desktop.transport.impl.*;
 import com.notifier.desktop.transport.usb.*;
 import com.notifier.desktop.transport.usb.impl.*;
 import com.notifier.desktop.transport.wifi.*;
@@ -70,6 +77,7 @@ public class ApplicationModule extends AbstractModule {
 
 		bind(NotificationManager.class).to(NotificationManagerImpl.class);
 		bind(new TypeLiteral<NotificationParser<byte[]>>() {}).to(MultiNotificationParser.class);
+		bind(new TypeLiteral<NotificationParser<ChannelBuffer>>() {}).to(ChannelBufferNotificationParser.class);
 		bind(DeviceManager.class).to(DeviceManagerImpl.class);
 
 		bind(NotificationBroadcaster.class).annotatedWith(Tray.class).to(TrayNotificationBroadcaster.class);
@@ -77,6 +85,7 @@ public class ApplicationModule extends AbstractModule {
 		bind(NotificationBroadcaster.class).annotatedWith(Libnotify.class).to(LibnotifyNotificationBroadcaster.class);
 		bind(InstantMessagingNotificationBroadcaster.class).annotatedWith(Msn.class).to(MsnNotificationBroadcaster.class);
 
+		bind(TransportRuntime.class).to(NettyTransportRuntime.class);
 		bind(WifiTransport.class).to(NioWifiTransport.class);
 		bind(BluetoothTransport.class).to(BluetoothTransportImpl.class);
 		bind(UsbTransport.class).to(UsbTransportImpl.class);
@@ -86,6 +95,9 @@ public class ApplicationModule extends AbstractModule {
 		bind(UpnpManager.class).to(UpnpManagerImpl.class);
 		bind(UpdateManager.class).to(UpdateManagerImpl.class);
 		bind(ServiceServer.class).to(ServiceServerImpl.class);
+		bind(MetricRegistry.class).to(MetricRegistryImpl.class);
+		bind(MetricsServer.class).to(HttpMetricsServer.class);
+		bind(NotificationHistory.class).to(MappedNotificationHistory.class);
 		bind(OperatingSystemProcessManager.class).to(OperatingSystemProcessManagerImpl.class);
 
 		ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
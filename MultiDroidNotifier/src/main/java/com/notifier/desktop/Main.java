@@ -50,6 +50,15 @@ public class Main {
 	private static final String STOP_SHORT = "s";
 	private static final String STOP_LONG = "stop";
 
+	private static final String STATS_SHORT = "S";
+	private static final String STATS_LONG = "stats";
+
+	private static final String DEVICES_SHORT = "d";
+	private static final String DEVICES_LONG = "devices";
+
+	private static final String TAIL_SHORT = "f";
+	private static final String TAIL_LONG = "tail";
+
 	private static final String HELP_SHORT = "h";
 	private static final String HELP_LONG = "help";
 
@@ -87,6 +96,23 @@ public class Main {
 				}
 				return;
 			}
+			if (line.hasOption(STATS_SHORT)) {
+				ServiceClient client = new ServiceClientImpl();
+				showReply(client.getStats());
+				return;
+			}
+			if (line.hasOption(DEVICES_SHORT)) {
+				ServiceClient client = new ServiceClientImpl();
+				showReply(client.getDevices());
+				return;
+			}
+			if (line.hasOption(TAIL_SHORT)) {
+				ServiceClient client = new ServiceClientImpl();
+				if (!client.tail(System.out)) {
+					showMessage(Application.NAME + " is not running or an error occurred, see log for details");
+				}
+				return;
+			}
 
 			boolean trayIcon = !line.hasOption(NO_TRAY_SHORT);
 			boolean showPreferences = line.hasOption(SHOW_PREFERENCES_SHORT);
@@ -110,6 +136,9 @@ public class Main {
 		options.addOption(SHOW_PREFERENCES_SHORT, SHOW_PREFERENCES_LONG, false, "show preferences window immediately");
 		options.addOption(IS_RUNNING_SHORT, IS_RUNNING_LONG, false, "show running status");
 		options.addOption(STOP_SHORT, STOP_LONG, false, "stop " + Application.NAME + " if it's running");
+		options.addOption(STATS_SHORT, STATS_LONG, false, "show the counters of a running " + Application.NAME);
+		options.addOption(DEVICES_SHORT, DEVICES_LONG, false, "show the devices paired with a running " + Application.NAME);
+		options.addOption(TAIL_SHORT, TAIL_LONG, false, "print notifications as a running " + Application.NAME + " receives them");
 		options.addOption(HELP_SHORT, HELP_LONG, false, "show help information");
 		return options;
 	}
@@ -126,6 +155,14 @@ public class Main {
 		}
 	}
 
+	private static void showReply(String reply) {
+		if (reply == null) {
+			showMessage(Application.NAME + " is not running or an error occurred, see log for details");
+		} else {
+			showMessage(reply);
+		}
+	}
+
 	private static boolean getExclusiveExecutionLock() throws IOException {
 		File lockFile = new File(OperatingSystems.getWorkDirectory(), Application.ARTIFACT_ID + ".lock");
 		Files.createParentDirs(lockFile);
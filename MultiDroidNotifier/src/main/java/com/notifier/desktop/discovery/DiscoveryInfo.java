@@ -19,11 +19,15 @@ package com.notifier.desktop.discovery;
 
 import java.util.*;
 
+import org.jboss.netty.buffer.*;
+
 import com.google.protobuf.*;
 import com.notifier.protocol.*;
 
 public class DiscoveryInfo {
 
+	private static final int LENGTH_FIELD_SIZE = 4;
+
 	private String desktopId;
 	private byte[] ipAddress;
 	private int ipPort;
@@ -31,6 +35,23 @@ public class DiscoveryInfo {
 	private boolean onlyPaired;
 	private Collection<String> pairedDeviceIds;
 
+	private ChannelBuffer encoded;
+
+	/**
+	 * Length-prefixed protobuf frame, encoded once and shared by all transports.
+	 * Each call returns a new view so callers can write it concurrently.
+	 */
+	public synchronized ChannelBuffer getEncoded() {
+		if (encoded == null) {
+			byte[] data = toProtobuf().toByteArray();
+			ChannelBuffer buffer = ChannelBuffers.buffer(LENGTH_FIELD_SIZE + data.length);
+			buffer.writeInt(data.length);
+			buffer.writeBytes(data);
+			encoded = buffer;
+		}
+		return encoded.duplicate();
+	}
+
 	public Protocol.Discovery toProtobuf() {
 		Protocol.Discovery.Builder builder = Protocol.Discovery.newBuilder();
 		builder.setDesktopId(desktopId);
@@ -47,6 +68,7 @@ public class DiscoveryInfo {
 	}
 
 	public void setDesktopId(String desktopId) {
+		invalidate();
 		this.desktopId = desktopId;
 	}
 
@@ -55,6 +77,7 @@ public class DiscoveryInfo {
 	}
 
 	public void setIpAddress(byte[] ipAddress) {
+		invalidate();
 		this.ipAddress = ipAddress;
 	}
 
@@ -63,6 +86,7 @@ public class DiscoveryInfo {
 	}
 
 	public void setIpPort(int ipPort) {
+		invalidate();
 		this.ipPort = ipPort;
 	}
 
@@ -71,6 +95,7 @@ public class DiscoveryInfo {
 	}
 
 	public void setBluetoothAddress(String bluetoothAddress) {
+		invalidate();
 		this.bluetoothAddress = bluetoothAddress;
 	}
 
@@ -79,6 +104,7 @@ public class DiscoveryInfo {
 	}
 
 	public void setOnlyPaired(boolean onlyPaired) {
+		invalidate();
 		this.onlyPaired = onlyPaired;
 	}
 
@@ -87,7 +113,11 @@ public class DiscoveryInfo {
 	}
 
 	public void setPairedDeviceIds(Collection<String> pairedDeviceIds) {
+		invalidate();
 		this.pairedDeviceIds = pairedDeviceIds;
 	}
 
+	private synchronized void invalidate() {
+		encoded = null;
+	}
 }
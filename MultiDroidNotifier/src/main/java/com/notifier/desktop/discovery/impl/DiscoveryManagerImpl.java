@@ -23,6 +23,8 @@ import java.util.*;
 import java.util.concurrent.*;
 
 import com.google.code.jgntp.internal.util.*;
+import com.google.common.base.Objects;
+import com.google.common.collect.*;
 import com.google.inject.*;
 import com.notifier.desktop.*;
 import com.notifier.desktop.device.*;
@@ -45,6 +47,15 @@ public class DiscoveryManagerImpl extends RestartableService implements Discover
 	private @Inject UsbTransport usbTransport;
 	private @Inject BluetoothTransport bluetoothTransport;
 
+	// Last broadcast info and the inputs it was built from, rebuilt only when they change
+	private DiscoveryInfo discoveryInfo;
+	private InetAddress lastIpAddress;
+	private byte[] lastMacAddress;
+	private int lastIpPort;
+	private String lastBluetoothAddress;
+	private boolean lastOnlyPaired;
+	private Set<String> lastPairedDeviceIds;
+
 	@Override
 	protected void doStart() throws Exception {
 		executorService.scheduleWithFixedDelay(this, 0, BROADCAST_INTERVAL, SECONDS);
@@ -53,6 +64,9 @@ public class DiscoveryManagerImpl extends RestartableService implements Discover
 	@Override
 	public void run() {
 		DiscoveryInfo info = getDiscoveryInfo();
+		if (info == null) {
+			return;
+		}
 		try {
 			wifiTransport.broadcastDiscoveryInfo(info);
 		} finally {
@@ -74,14 +88,33 @@ public class DiscoveryManagerImpl extends RestartableService implements Discover
 			return null;
 		}
 
+		if (discoveryInfo != null && ipAddress.equals(lastIpAddress) && Arrays.equals(macAddress, lastMacAddress) && ipPort == lastIpPort
+				&& Objects.equal(bluetoothAddress, lastBluetoothAddress) && onlyPaired == lastOnlyPaired && lastPairedDeviceIds.equals(pairedDeviceIds)) {
+			return discoveryInfo;
+		}
+
+		String desktopId;
+		if (discoveryInfo != null && Arrays.equals(macAddress, lastMacAddress)) {
+			desktopId = discoveryInfo.getDesktopId();
+		} else {
+			desktopId = calculateDesktopId(macAddress);
+			lastMacAddress = macAddress.clone();
+		}
+		lastIpAddress = ipAddress;
+		lastIpPort = ipPort;
+		lastBluetoothAddress = bluetoothAddress;
+		lastOnlyPaired = onlyPaired;
+		lastPairedDeviceIds = ImmutableSet.copyOf(pairedDeviceIds);
+
 		DiscoveryInfo info = new DiscoveryInfo();
-		info.setDesktopId(calculateDesktopId(macAddress));
+		info.setDesktopId(desktopId);
 		info.setIpAddress(ipAddress.getAddress());
 		info.setIpPort(ipPort);
 		info.setBluetoothAddress(bluetoothAddress);
 		info.setOnlyPaired(onlyPaired);
-		info.setPairedDeviceIds(pairedDeviceIds);
+		info.setPairedDeviceIds(lastPairedDeviceIds);
 
+		discoveryInfo = info;
 		return info;
 	}
 
@@ -0,0 +1,44 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.history;
+
+import com.notifier.desktop.notification.*;
+
+public class HistoryEntry {
+
+	private final long timestamp;
+	private final Notification notification;
+
+	public HistoryEntry(long timestamp, Notification notification) {
+		this.timestamp = timestamp;
+		this.notification = notification;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public Notification getNotification() {
+		return notification;
+	}
+
+	@Override
+	public String toString() {
+		return timestamp + " " + notification;
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.history;
+
+import java.util.*;
+
+import com.google.common.base.*;
+import com.notifier.desktop.*;
+import com.notifier.desktop.notification.*;
+
+public interface NotificationHistory extends Service, Named {
+
+	/**
+	 * Queues the notification to be written by the history thread, never blocks.
+	 */
+	void append(Notification notification);
+
+	/**
+	 * Returns notifications received between from and to, both inclusive and in milliseconds,
+	 * newest first. A null device id or type matches any.
+	 */
+	List<HistoryEntry> find(long from, long to, String deviceId, Notification.Type type, int limit);
+
+	long getRecordCount();
+}
@@ -0,0 +1,376 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.history.impl;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.zip.*;
+
+import com.google.common.base.*;
+import com.google.common.io.*;
+import com.notifier.desktop.history.*;
+import com.notifier.desktop.notification.*;
+
+/**
+ * A memory-mapped log file of records plus an index file of fixed size entries, one per record,
+ * in the order they were appended. Timestamps never decrease, so the index can be binary searched,
+ * and its header summarizes the segment so queries can skip it without touching the entries.
+ * <p>
+ * Log record: length, CRC32 of the body, then the body: timestamp, notification id, type ordinal,
+ * device id, data and description. The length is written last, so a record cut short by a crash
+ * reads as the end of the log. Strings are UTF-8 prefixed by their length, -1 meaning null.
+ * <p>
+ * Only the history writer thread appends, readers and the writer are kept apart by the caller.
+ */
+class HistorySegment {
+
+	static final String LOG_SUFFIX = ".log";
+	static final String INDEX_SUFFIX = ".idx";
+
+	private static final Charset CHARSET = Charsets.UTF_8;
+
+	private static final int INDEX_MAGIC = 0x4e484958;
+	private static final int INDEX_VERSION = 1;
+
+	// Index header: magic, version, record count, type mask, min time, max time, device mask
+	private static final int COUNT_OFFSET = 8;
+	private static final int TYPE_MASK_OFFSET = 12;
+	private static final int MIN_TIME_OFFSET = 16;
+	private static final int MAX_TIME_OFFSET = 24;
+	private static final int DEVICE_MASK_OFFSET = 32;
+	private static final int HEADER_SIZE = 40;
+
+	// Index entry: timestamp, log offset, device id hash, type ordinal
+	private static final int ENTRY_SIZE = 20;
+	// Average record is well above this, so the index fills up after the log
+	private static final int BYTES_PER_ENTRY = 32;
+
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	private final long sequence;
+	private final File logFile;
+	private final File indexFile;
+	private final RandomAccessFile logRandomAccessFile;
+	private final RandomAccessFile indexRandomAccessFile;
+	private final MappedByteBuffer log;
+	private final MappedByteBuffer index;
+	private final int indexCapacity;
+	private final CRC32 crc;
+
+	private int count;
+	private int writePosition;
+	private int typeMask;
+	private long deviceMask;
+	private long minTime;
+	private long maxTime;
+
+	private HistorySegment(long sequence, File logFile, File indexFile, int logSize) throws IOException {
+		this.sequence = sequence;
+		this.logFile = logFile;
+		this.indexFile = indexFile;
+		this.crc = new CRC32();
+		boolean created = !indexFile.exists();
+		logRandomAccessFile = new RandomAccessFile(logFile, "rw");
+		indexRandomAccessFile = new RandomAccessFile(indexFile, "rw");
+		try {
+			int size = logSize > 0 ? logSize : (int) logRandomAccessFile.length();
+			indexCapacity = size / BYTES_PER_ENTRY;
+			log = logRandomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			index = indexRandomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + indexCapacity * ENTRY_SIZE);
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+		if (created || index.getInt(0) != INDEX_MAGIC || index.getInt(4) != INDEX_VERSION || index.getInt(COUNT_OFFSET) > indexCapacity) {
+			resetIndex();
+		} else {
+			readIndexHeader();
+		}
+	}
+
+	public static HistorySegment create(File directory, long sequence, int logSize) throws IOException {
+		String name = String.format("%010d", sequence);
+		return new HistorySegment(sequence, new File(directory, name + LOG_SUFFIX), new File(directory, name + INDEX_SUFFIX), logSize);
+	}
+
+	/**
+	 * Only reads the index header, plus any records written after the last indexed one when the
+	 * process died between the two writes.
+	 */
+	public static HistorySegment open(File logFile) throws IOException {
+		long sequence = getSequence(logFile);
+		HistorySegment segment = new HistorySegment(sequence, logFile, new File(logFile.getParentFile(), String.format("%010d", sequence) + INDEX_SUFFIX), 0);
+		segment.recover();
+		return segment;
+	}
+
+	public static boolean isLogFile(File file) {
+		return file.getName().matches("\\d{10}\\" + LOG_SUFFIX);
+	}
+
+	public static long getSequence(File logFile) {
+		return Long.parseLong(logFile.getName().substring(0, logFile.getName().length() - LOG_SUFFIX.length()));
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public long getMinTime() {
+		return minTime;
+	}
+
+	public long getMaxTime() {
+		return maxTime;
+	}
+
+	/**
+	 * Writes the record body into the buffer, ready to be appended. Returns false if it doesn't fit.
+	 */
+	public static boolean encode(long timestamp, Notification notification, String description, ByteBuffer record) {
+		record.clear();
+		try {
+			record.putLong(timestamp);
+			record.putLong(notification.getNotificationId());
+			record.put((byte) notification.getType().ordinal());
+			putString(record, notification.getDeviceId(), true);
+			putString(record, notification.getData(), false);
+			putString(record, description, false);
+		} catch (BufferOverflowException e) {
+			return false;
+		}
+		record.flip();
+		return true;
+	}
+
+	/**
+	 * Returns false when the segment is full and a new one must be started.
+	 */
+	public boolean append(ByteBuffer record, long timestamp, Notification notification) {
+		int length = record.remaining();
+		if (count >= indexCapacity || writePosition + RECORD_HEADER_SIZE + length > log.capacity()) {
+			return false;
+		}
+
+		crc.reset();
+		crc.update(record.array(), record.arrayOffset() + record.position(), length);
+		log.position(writePosition + 4);
+		log.putInt((int) crc.getValue());
+		log.put(record.duplicate());
+		log.putInt(writePosition, length);
+		addToIndex(writePosition, timestamp, hash(notification.getDeviceId()), notification.getType().ordinal());
+		writePosition += RECORD_HEADER_SIZE + length;
+		return true;
+	}
+
+	/**
+	 * Adds matching records to the results, newest first, until there are limit results.
+	 */
+	public void find(long from, long to, String deviceId, Notification.Type type, int limit, List<HistoryEntry> results) {
+		if (count == 0 || maxTime < from || minTime > to) {
+			return;
+		}
+		int deviceHash = deviceId == null ? 0 : hash(deviceId);
+		if (deviceId != null && (deviceMask & deviceBit(deviceHash)) == 0) {
+			return;
+		}
+		if (type != null && (typeMask & (1 << type.ordinal())) == 0) {
+			return;
+		}
+
+		ByteBuffer reader = log.duplicate();
+		for (int i = upperBound(to) - 1; i >= 0 && results.size() < limit; i--) {
+			int entry = HEADER_SIZE + i * ENTRY_SIZE;
+			if (index.getLong(entry) < from) {
+				break;
+			}
+			if (deviceId != null && index.getInt(entry + 12) != deviceHash) {
+				continue;
+			}
+			if (type != null && index.getInt(entry + 16) != type.ordinal()) {
+				continue;
+			}
+			HistoryEntry record = read(reader, index.getInt(entry + 8));
+			if (deviceId == null || deviceId.equals(record.getNotification().getDeviceId())) {
+				results.add(record);
+			}
+		}
+	}
+
+	public void force() {
+		log.force();
+		index.force();
+	}
+
+	public void close() {
+		Closeables.closeQuietly(logRandomAccessFile);
+		Closeables.closeQuietly(indexRandomAccessFile);
+	}
+
+	/**
+	 * Mapped files can't be deleted on Windows until the mapping is garbage collected,
+	 * those are removed when the JVM exits.
+	 */
+	public void delete() {
+		close();
+		for (File file : new File[] { logFile, indexFile }) {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+
+	protected void recover() {
+		if (count > 0) {
+			int last = index.getInt(HEADER_SIZE + (count - 1) * ENTRY_SIZE + 8);
+			writePosition = last + RECORD_HEADER_SIZE + log.getInt(last);
+		}
+		while (count < indexCapacity && writePosition + RECORD_HEADER_SIZE <= log.capacity()) {
+			int length = log.getInt(writePosition);
+			if (length <= 0 || writePosition + RECORD_HEADER_SIZE + length > log.capacity()) {
+				break;
+			}
+			byte[] body = new byte[length];
+			ByteBuffer reader = log.duplicate();
+			reader.position(writePosition + RECORD_HEADER_SIZE);
+			reader.get(body);
+			crc.reset();
+			crc.update(body);
+			if ((int) crc.getValue() != log.getInt(writePosition + 4)) {
+				break;
+			}
+			HistoryEntry record = read(reader, writePosition);
+			Notification notification = record.getNotification();
+			addToIndex(writePosition, record.getTimestamp(), hash(notification.getDeviceId()), notification.getType().ordinal());
+			writePosition += RECORD_HEADER_SIZE + length;
+		}
+	}
+
+	protected void resetIndex() {
+		count = 0;
+		writePosition = 0;
+		typeMask = 0;
+		deviceMask = 0;
+		minTime = Long.MAX_VALUE;
+		maxTime = Long.MIN_VALUE;
+		index.putInt(0, INDEX_MAGIC);
+		index.putInt(4, INDEX_VERSION);
+		writeIndexHeader();
+	}
+
+	protected void readIndexHeader() {
+		count = index.getInt(COUNT_OFFSET);
+		typeMask = index.getInt(TYPE_MASK_OFFSET);
+		minTime = index.getLong(MIN_TIME_OFFSET);
+		maxTime = index.getLong(MAX_TIME_OFFSET);
+		deviceMask = index.getLong(DEVICE_MASK_OFFSET);
+	}
+
+	protected void writeIndexHeader() {
+		index.putInt(TYPE_MASK_OFFSET, typeMask);
+		index.putLong(MIN_TIME_OFFSET, minTime);
+		index.putLong(MAX_TIME_OFFSET, maxTime);
+		index.putLong(DEVICE_MASK_OFFSET, deviceMask);
+		// Count last, entries beyond it are ignored
+		index.putInt(COUNT_OFFSET, count);
+	}
+
+	protected void addToIndex(int offset, long timestamp, int deviceHash, int type) {
+		int entry = HEADER_SIZE + count * ENTRY_SIZE;
+		index.putLong(entry, timestamp);
+		index.putInt(entry + 8, offset);
+		index.putInt(entry + 12, deviceHash);
+		index.putInt(entry + 16, type);
+		count++;
+		typeMask |= 1 << type;
+		deviceMask |= deviceBit(deviceHash);
+		minTime = Math.min(minTime, timestamp);
+		maxTime = Math.max(maxTime, timestamp);
+		writeIndexHeader();
+	}
+
+	/**
+	 * Index of the first entry newer than the timestamp.
+	 */
+	protected int upperBound(long timestamp) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (index.getLong(HEADER_SIZE + middle * ENTRY_SIZE) <= timestamp) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	protected HistoryEntry read(ByteBuffer reader, int offset) {
+		reader.position(offset + RECORD_HEADER_SIZE);
+		long timestamp = reader.getLong();
+		long notificationId = reader.getLong();
+		// Type ordinals are part of the file format, new types must be added at the end
+		Notification.Type type = Notification.Type.values()[reader.get()];
+		String deviceId = getString(reader, true);
+		String data = getString(reader, false);
+		String description = getString(reader, false);
+		return new HistoryEntry(timestamp, new Notification(deviceId, notificationId, type, data, description));
+	}
+
+	protected static void putString(ByteBuffer buffer, String value, boolean shortLength) {
+		byte[] bytes = value == null ? null : value.getBytes(CHARSET);
+		int length = bytes == null ? -1 : bytes.length;
+		if (shortLength) {
+			if (length > Short.MAX_VALUE) {
+				throw new BufferOverflowException();
+			}
+			buffer.putShort((short) length);
+		} else {
+			buffer.putInt(length);
+		}
+		if (bytes != null) {
+			buffer.put(bytes);
+		}
+	}
+
+	protected static String getString(ByteBuffer buffer, boolean shortLength) {
+		int length = shortLength ? buffer.getShort() : buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, CHARSET);
+	}
+
+	protected static int hash(String deviceId) {
+		return deviceId == null ? 0 : deviceId.hashCode();
+	}
+
+	protected static long deviceBit(int deviceHash) {
+		return 1L << (deviceHash & 63);
+	}
+}
@@ -0,0 +1,313 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.history.impl;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+import org.slf4j.*;
+
+import com.google.common.collect.*;
+import com.google.common.util.concurrent.*;
+import com.google.inject.*;
+import com.notifier.desktop.*;
+import com.notifier.desktop.history.*;
+import com.notifier.desktop.metrics.*;
+import com.notifier.desktop.notification.*;
+import com.notifier.desktop.os.*;
+
+import static java.util.concurrent.TimeUnit.*;
+
+/**
+ * Keeps every broadcast notification in a series of {@link HistorySegment}s under the work directory.
+ * Notifications are handed over by the receiving thread and written by a thread of its own. A new
+ * segment is started when the current one is full or the clock was set back, the oldest ones are
+ * deleted once there are too many or they only hold records past the retention period.
+ */
+@Singleton
+public class MappedNotificationHistory extends RestartableService implements NotificationHistory {
+
+	public static final String DIRECTORY = "history";
+
+	private static final Logger logger = LoggerFactory.getLogger(MappedNotificationHistory.class);
+
+	private static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+	private static final int MAX_SEGMENTS = 32;
+	private static final long RETENTION = DAYS.toMillis(30);
+	private static final int MAX_RECORD_SIZE = 64 * 1024;
+	private static final int QUEUE_CAPACITY = 1024;
+	private static final int SHUTDOWN_TIMEOUT = 10;
+	// How far the clock may go back and records still be kept in the same segment, under the time of the last one
+	private static final long CLOCK_TOLERANCE = MINUTES.toMillis(1);
+
+	private final File directory;
+	private final int segmentSize;
+	private final int maxSegments;
+	private final long retention;
+	private final NotificationManager notificationManager;
+	private final NotificationManager.Listener listener;
+	private final Counter appended;
+	private final Counter dropped;
+
+	// Queries hold the read lock, the writer holds the write lock while appending
+	private final ReadWriteLock lock;
+	private final LinkedList<HistorySegment> segments;
+
+	// Guarded by this
+	private final Queue<HistoryEntry> pending;
+	private boolean draining;
+	private ExecutorService writer;
+
+	// Only used by the writer
+	private final ByteBuffer scratch;
+	private final Runnable drainTask;
+	private long lastTimestamp;
+	private long nextSequence;
+
+	@Inject
+	public MappedNotificationHistory(NotificationManager notificationManager, MetricRegistry metricRegistry) {
+		this(new File(OperatingSystems.getWorkDirectory(), DIRECTORY), SEGMENT_SIZE, MAX_SEGMENTS, RETENTION, notificationManager,
+		     metricRegistry.counter("notifier_history_appended_total", "Notifications written to the history"),
+		     metricRegistry.counter("notifier_history_dropped_total", "Notifications not written to the history because the writer fell behind or they were too large"));
+	}
+
+	MappedNotificationHistory(File directory, int segmentSize, int maxSegments, long retention, NotificationManager notificationManager, Counter appended, Counter dropped) {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+		this.retention = retention;
+		this.notificationManager = notificationManager;
+		this.appended = appended;
+		this.dropped = dropped;
+		this.lock = new ReentrantReadWriteLock();
+		this.segments = Lists.newLinkedList();
+		this.pending = new ArrayDeque<HistoryEntry>();
+		this.scratch = ByteBuffer.allocate(Math.min(MAX_RECORD_SIZE, segmentSize / 2));
+		this.listener = new NotificationManager.Listener() {
+			@Override
+			public void notificationBroadcast(Notification notification, String deviceName, boolean privateMode) {
+				if (privateMode) {
+					// Don't keep on disk what the user chose not to show
+					notification = new Notification(notification.getDeviceId(), notification.getNotificationId(), notification.getType(),
+					                                notification.getData(), notification.getDescription(true));
+				}
+				append(notification);
+			}
+		};
+		this.drainTask = new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		};
+	}
+
+	@Override
+	public String getName() {
+		return "notification history";
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create history directory: " + directory);
+		}
+		File[] logFiles = directory.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return HistorySegment.isLogFile(file);
+			}
+		});
+		// Names are zero padded sequence numbers
+		Arrays.sort(logFiles);
+
+		lock.writeLock().lock();
+		try {
+			long start = System.nanoTime();
+			for (File logFile : logFiles) {
+				try {
+					segments.add(HistorySegment.open(logFile));
+				} catch (IOException e) {
+					logger.error("Error opening history segment [" + logFile + "], skipping it", e);
+				}
+			}
+			nextSequence = logFiles.length == 0 ? 0 : HistorySegment.getSequence(logFiles[logFiles.length - 1]) + 1;
+			lastTimestamp = segments.isEmpty() ? 0 : segments.getLast().getMaxTime();
+			applyRetention(System.currentTimeMillis());
+			logger.debug("Opened [{}] history records in [{}]ms", getRecordCount(), NANOSECONDS.toMillis(System.nanoTime() - start));
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
+		threadFactoryBuilder.setNameFormat("history-writer-%s");
+		threadFactoryBuilder.setDaemon(true);
+		synchronized (this) {
+			writer = Executors.newSingleThreadExecutor(threadFactoryBuilder.build());
+		}
+		if (notificationManager != null) {
+			notificationManager.addListener(listener);
+		}
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		if (notificationManager != null) {
+			notificationManager.removeListener(listener);
+		}
+		ExecutorService executor;
+		synchronized (this) {
+			executor = writer;
+			writer = null;
+		}
+		if (executor != null) {
+			// Lets queued notifications be written first
+			executor.shutdown();
+			if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, SECONDS)) {
+				logger.warn("Timed out writing notification history");
+				executor.shutdownNow();
+			}
+		}
+
+		lock.writeLock().lock();
+		try {
+			for (HistorySegment segment : segments) {
+				segment.force();
+				segment.close();
+			}
+			segments.clear();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void append(Notification notification) {
+		append(notification, System.currentTimeMillis());
+	}
+
+	void append(Notification notification, long timestamp) {
+		synchronized (this) {
+			if (writer == null || pending.size() >= QUEUE_CAPACITY) {
+				dropped.increment();
+				return;
+			}
+			pending.add(new HistoryEntry(timestamp, notification));
+			if (draining) {
+				return;
+			}
+			draining = true;
+			writer.execute(drainTask);
+		}
+	}
+
+	@Override
+	public List<HistoryEntry> find(long from, long to, String deviceId, Notification.Type type, int limit) {
+		List<HistoryEntry> results = Lists.newArrayList();
+		lock.readLock().lock();
+		try {
+			Iterator<HistorySegment> newestFirst = segments.descendingIterator();
+			while (newestFirst.hasNext() && results.size() < limit) {
+				newestFirst.next().find(from, to, deviceId, type, limit, results);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return results;
+	}
+
+	@Override
+	public long getRecordCount() {
+		lock.readLock().lock();
+		try {
+			long count = 0;
+			for (HistorySegment segment : segments) {
+				count += segment.getCount();
+			}
+			return count;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	protected void drain() {
+		while (true) {
+			HistoryEntry entry;
+			synchronized (this) {
+				entry = pending.poll();
+				if (entry == null) {
+					draining = false;
+					return;
+				}
+			}
+			try {
+				write(entry);
+			} catch (Throwable t) {
+				dropped.increment();
+				logger.error("Error writing notification history", t);
+			}
+		}
+	}
+
+	protected void write(HistoryEntry entry) throws IOException {
+		// Keeps each segment sorted by time: small steps back are clamped, and once the clock was set back
+		// further a new segment is started, so a clock that was ahead doesn't pin the time of later records
+		long timestamp = entry.getTimestamp();
+		boolean clockSetBack = timestamp < lastTimestamp - CLOCK_TOLERANCE;
+		if (!clockSetBack) {
+			timestamp = Math.max(timestamp, lastTimestamp);
+		}
+		Notification notification = entry.getNotification();
+		if (!HistorySegment.encode(timestamp, notification, notification.getDescription(false), scratch)) {
+			dropped.increment();
+			logger.warn("Notification too large for history: {}", notification);
+			return;
+		}
+
+		lock.writeLock().lock();
+		try {
+			HistorySegment active = segments.peekLast();
+			if (active == null || clockSetBack || !active.append(scratch, timestamp, notification)) {
+				if (active != null) {
+					active.force();
+				}
+				active = HistorySegment.create(directory, nextSequence++, segmentSize);
+				segments.add(active);
+				if (!active.append(scratch, timestamp, notification)) {
+					throw new IllegalStateException("Record does not fit in an empty history segment");
+				}
+			}
+			lastTimestamp = timestamp;
+			applyRetention(timestamp);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		appended.increment();
+	}
+
+	protected void applyRetention(long now) {
+		while (segments.size() > 1 && (segments.size() > maxSegments || segments.getFirst().getMaxTime() < now - retention)) {
+			HistorySegment oldest = segments.removeFirst();
+			logger.debug("Deleting history segment [{}]", oldest.getSequence());
+			oldest.delete();
+		}
+	}
+}
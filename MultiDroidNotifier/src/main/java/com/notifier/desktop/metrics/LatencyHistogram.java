@@ -0,0 +1,142 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.metrics;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Durations counted in power of two buckets, from 1us (2^10ns) up to 2^35ns (about 34s).
+ * Recording only increments atomic longs, so it never allocates.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+
+	static final int FIRST_BUCKET_SHIFT = 10;
+	static final int BUCKET_COUNT = 26;
+
+	// One more bucket for everything slower than the last bound
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT + 1);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		buckets.incrementAndGet(getBucket(nanos));
+		count.incrementAndGet();
+		sum.addAndGet(nanos);
+		long currentMax;
+		while (nanos > (currentMax = max.get()) && !max.compareAndSet(currentMax, nanos)) {
+			// Retry until the maximum is updated or another thread recorded a larger value
+		}
+	}
+
+	/**
+	 * Records the time elapsed since {@code startNanos}, a value from {@link System#nanoTime()}.
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	static int getBucket(long nanos) {
+		if (nanos <= 1L << FIRST_BUCKET_SHIFT) {
+			return 0;
+		}
+		int bucket = 64 - Long.numberOfLeadingZeros(nanos - 1) - FIRST_BUCKET_SHIFT;
+		return Math.min(bucket, BUCKET_COUNT);
+	}
+
+	/**
+	 * Inclusive upper bound of a bucket in nanoseconds, {@link Long#MAX_VALUE} for the last one.
+	 */
+	public static long getBucketBound(int bucket) {
+		return bucket < BUCKET_COUNT ? 1L << (bucket + FIRST_BUCKET_SHIFT) : Long.MAX_VALUE;
+	}
+
+	public static int getBucketCount() {
+		return BUCKET_COUNT + 1;
+	}
+
+	public long getBucketValue(int bucket) {
+		return buckets.get(bucket);
+	}
+
+	@Override
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getSum() {
+		return sum.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Upper bound of the bucket holding the given percentile, in nanoseconds.
+	 */
+	public long getPercentile(double percentile) {
+		long total = 0;
+		long[] values = new long[BUCKET_COUNT + 1];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = buckets.get(i);
+			total += values[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(percentile / 100 * total);
+		long seen = 0;
+		for (int i = 0; i < values.length; i++) {
+			seen += values[i];
+			if (seen >= rank) {
+				return Math.min(getBucketBound(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	@Override
+	public double getMeanMillis() {
+		long currentCount = getCount();
+		return currentCount == 0 ? 0 : toMillis(getSum() / currentCount);
+	}
+
+	@Override
+	public double getP50Millis() {
+		return toMillis(getPercentile(50));
+	}
+
+	@Override
+	public double getP99Millis() {
+		return toMillis(getPercentile(99));
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return toMillis(getMax());
+	}
+
+	protected static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.metrics;
+
+import java.io.*;
+
+/**
+ * Names follow Prometheus conventions and may carry labels, e.g.
+ * {@code notifier_frames_received_total{transport="wifi_udp"}}. The same name always returns
+ * the same metric, so components can look theirs up again after a restart.
+ */
+public interface MetricRegistry {
+
+	Counter counter(String name, String help);
+
+	LatencyHistogram histogram(String name, String help);
+
+	/**
+	 * Publishes a count kept elsewhere, e.g. by {@link java.util.concurrent.atomic.AtomicLong}
+	 * fields a component already has. Replaces any previous registration with this name.
+	 */
+	void counter(String name, String help, Gauge count);
+
+	/**
+	 * Replaces any gauge previously registered with this name.
+	 */
+	void gauge(String name, String help, Gauge gauge);
+
+	/**
+	 * Writes every metric in the Prometheus text exposition format.
+	 */
+	void writeText(Appendable out) throws IOException;
+}
@@ -0,0 +1,125 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.metrics.impl;
+
+import java.net.*;
+
+import org.jboss.netty.bootstrap.*;
+import org.jboss.netty.buffer.*;
+import org.jboss.netty.channel.*;
+import org.jboss.netty.channel.group.*;
+import org.jboss.netty.handler.codec.http.*;
+import org.slf4j.*;
+
+import com.google.common.base.*;
+import com.google.inject.*;
+import com.notifier.desktop.*;
+import com.notifier.desktop.metrics.*;
+import com.notifier.desktop.transport.*;
+
+/**
+ * Serves the metrics in the Prometheus text format on {@code http://localhost:10701/metrics}.
+ * Only bound to the loopback interface, like the service server.
+ */
+@Singleton
+public class HttpMetricsServer extends RestartableService implements MetricsServer {
+
+	public static final int PORT = 10701;
+	public static final String PATH = "/metrics";
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private static final Logger logger = LoggerFactory.getLogger(HttpMetricsServer.class);
+
+	private static final int SHUTDOWN_TIMEOUT = 10000;
+
+	private @Inject MetricRegistry metricRegistry;
+	private @Inject TransportRuntime transportRuntime;
+
+	private ChannelGroup channels;
+
+	@Override
+	public String getName() {
+		return "metrics server";
+	}
+
+	@Override
+	public int getPort() {
+		return PORT;
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		logger.debug("Starting metrics server on port [{}]", PORT);
+		channels = new DefaultChannelGroup("metrics");
+		ServerBootstrap bootstrap = new ServerBootstrap(transportRuntime.getServerSocketChannelFactory());
+		bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+			@Override
+			public ChannelPipeline getPipeline() throws Exception {
+				ChannelPipeline pipeline = Channels.pipeline();
+				pipeline.addLast("decoder", new HttpRequestDecoder());
+				pipeline.addLast("encoder", new HttpResponseEncoder());
+				pipeline.addLast("handler", new MetricsHandler());
+				return pipeline;
+			}
+		});
+		channels.add(bootstrap.bind(new InetSocketAddress(InetAddress.getByName(null), PORT)));
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		channels.close().awaitUninterruptibly(SHUTDOWN_TIMEOUT);
+	}
+
+	class MetricsHandler extends SimpleChannelUpstreamHandler {
+		@Override
+		public void channelOpen(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+			channels.add(e.getChannel());
+		}
+
+		@Override
+		public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+			HttpRequest request = (HttpRequest) e.getMessage();
+			HttpResponse response;
+			String path = request.getUri();
+			int queryStart = path.indexOf('?');
+			if (queryStart >= 0) {
+				path = path.substring(0, queryStart);
+			}
+			if (request.getMethod() != HttpMethod.GET) {
+				response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.METHOD_NOT_ALLOWED);
+			} else if (!path.equals(PATH)) {
+				response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND);
+			} else {
+				StringBuilder text = new StringBuilder(4096);
+				metricRegistry.writeText(text);
+				response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+				response.setHeader(HttpHeaders.Names.CONTENT_TYPE, CONTENT_TYPE);
+				response.setContent(ChannelBuffers.copiedBuffer(text, Charsets.UTF_8));
+			}
+			response.setHeader(HttpHeaders.Names.CONTENT_LENGTH, response.getContent().readableBytes());
+			response.setHeader(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.CLOSE);
+			e.getChannel().write(response).addListener(ChannelFutureListener.CLOSE);
+		}
+
+		@Override
+		public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
+			logger.debug("Error serving metrics", e.getCause());
+			e.getChannel().close();
+		}
+	}
+}
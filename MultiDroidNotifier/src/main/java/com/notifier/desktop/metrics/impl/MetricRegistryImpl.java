@@ -0,0 +1,246 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.metrics.impl;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+
+import javax.management.*;
+
+import org.slf4j.*;
+
+import com.google.common.base.*;
+import com.google.common.collect.*;
+import com.google.inject.*;
+import com.notifier.desktop.metrics.*;
+
+/**
+ * Keeps metrics grouped by family for the text format and publishes each one as an MBean
+ * under {@value #JMX_DOMAIN}, with the labels as key properties.
+ */
+@Singleton
+public class MetricRegistryImpl implements MetricRegistry {
+
+	public static final String JMX_DOMAIN = "com.notifier.desktop";
+
+	private static final Logger logger = LoggerFactory.getLogger(MetricRegistryImpl.class);
+
+	private enum Type {
+		COUNTER, GAUGE, HISTOGRAM
+	}
+
+	private final MBeanServer mBeanServer;
+	// Guarded by this, metrics are registered rarely and read only when collected
+	private final SortedMap<String, Family> families;
+
+	@Inject
+	public MetricRegistryImpl() {
+		this(ManagementFactory.getPlatformMBeanServer());
+	}
+
+	/**
+	 * @param mBeanServer where to publish metrics, {@code null} to skip JMX
+	 */
+	public MetricRegistryImpl(MBeanServer mBeanServer) {
+		this.mBeanServer = mBeanServer;
+		this.families = Maps.newTreeMap();
+
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		gauge("notifier_jvm_threads", "Live threads", new Gauge() {
+			@Override
+			public long getValue() {
+				return threads.getThreadCount();
+			}
+		});
+		final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		gauge("notifier_jvm_heap_used_bytes", "Heap in use", new Gauge() {
+			@Override
+			public long getValue() {
+				return memory.getHeapMemoryUsage().getUsed();
+			}
+		});
+	}
+
+	@Override
+	public synchronized Counter counter(String name, String help) {
+		Object existing = get(name, Type.COUNTER);
+		if (existing instanceof Counter) {
+			return (Counter) existing;
+		}
+		Counter counter = new Counter();
+		put(name, help, Type.COUNTER, counter, counter);
+		return counter;
+	}
+
+	@Override
+	public synchronized LatencyHistogram histogram(String name, String help) {
+		LatencyHistogram histogram = (LatencyHistogram) get(name, Type.HISTOGRAM);
+		if (histogram == null) {
+			histogram = new LatencyHistogram();
+			put(name, help, Type.HISTOGRAM, histogram, histogram);
+		}
+		return histogram;
+	}
+
+	@Override
+	public synchronized void gauge(String name, String help, Gauge gauge) {
+		put(name, help, Type.GAUGE, gauge, new GaugeView(gauge));
+	}
+
+	@Override
+	public synchronized void counter(String name, String help, Gauge count) {
+		put(name, help, Type.COUNTER, count, new GaugeView(count));
+	}
+
+	@Override
+	public synchronized void writeText(Appendable out) throws IOException {
+		for (Map.Entry<String, Family> familyEntry : families.entrySet()) {
+			String familyName = familyEntry.getKey();
+			Family family = familyEntry.getValue();
+			out.append("# HELP ").append(familyName).append(' ').append(family.help).append('\n');
+			out.append("# TYPE ").append(familyName).append(' ').append(family.type.name().toLowerCase()).append('\n');
+			for (Map.Entry<String, Object> series : family.series.entrySet()) {
+				String labels = series.getKey();
+				Object metric = series.getValue();
+				switch (family.type) {
+					case COUNTER:
+						long count = metric instanceof Counter ? ((Counter) metric).getCount() : ((Gauge) metric).getValue();
+						writeSample(out, familyName, labels, Long.toString(count));
+						break;
+					case GAUGE:
+						writeSample(out, familyName, labels, Long.toString(((Gauge) metric).getValue()));
+						break;
+					case HISTOGRAM:
+						writeHistogram(out, familyName, labels, (LatencyHistogram) metric);
+						break;
+				}
+			}
+		}
+	}
+
+	protected void writeHistogram(Appendable out, String familyName, String labels, LatencyHistogram histogram) throws IOException {
+		String labelPrefix = labels.isEmpty() ? "" : labels + ",";
+		long cumulative = 0;
+		for (int i = 0; i < LatencyHistogram.getBucketCount(); i++) {
+			cumulative += histogram.getBucketValue(i);
+			long bound = LatencyHistogram.getBucketBound(i);
+			String le = bound == Long.MAX_VALUE ? "+Inf" : Double.toString(toSeconds(bound));
+			writeSample(out, familyName + "_bucket", labelPrefix + "le=\"" + le + "\"", Long.toString(cumulative));
+		}
+		writeSample(out, familyName + "_sum", labels, Double.toString(toSeconds(histogram.getSum())));
+		writeSample(out, familyName + "_count", labels, Long.toString(cumulative));
+	}
+
+	protected void writeSample(Appendable out, String name, String labels, String value) throws IOException {
+		out.append(name);
+		if (!labels.isEmpty()) {
+			out.append('{').append(labels).append('}');
+		}
+		out.append(' ').append(value).append('\n');
+	}
+
+	protected Object get(String name, Type type) {
+		Family family = families.get(getFamilyName(name));
+		if (family == null) {
+			return null;
+		}
+		Preconditions.checkArgument(family.type == type, "Metric [%s] is a %s", name, family.type);
+		return family.series.get(getLabels(name));
+	}
+
+	protected void put(String name, String help, Type type, Object metric, Object mBean) {
+		String familyName = getFamilyName(name);
+		Family family = families.get(familyName);
+		if (family == null) {
+			family = new Family(help, type);
+			families.put(familyName, family);
+		}
+		Preconditions.checkArgument(family.type == type, "Metric [%s] is a %s", name, family.type);
+		family.series.put(getLabels(name), metric);
+		registerMBean(familyName, getLabels(name), mBean);
+	}
+
+	protected void registerMBean(String familyName, String labels, Object mBean) {
+		if (mBeanServer == null) {
+			return;
+		}
+		try {
+			Hashtable<String, String> properties = new Hashtable<String, String>();
+			properties.put("type", familyName);
+			for (String label : Splitter.on(',').omitEmptyStrings().split(labels)) {
+				int separator = label.indexOf('=');
+				properties.put(label.substring(0, separator), label.substring(separator + 1).replace("\"", ""));
+			}
+			ObjectName objectName = new ObjectName(JMX_DOMAIN, properties);
+			if (mBeanServer.isRegistered(objectName)) {
+				mBeanServer.unregisterMBean(objectName);
+			}
+			mBeanServer.registerMBean(mBean, objectName);
+		} catch (JMException e) {
+			logger.warn("Could not publish metric [" + familyName + "{" + labels + "}] over JMX", e);
+		}
+	}
+
+	protected static String getFamilyName(String name) {
+		int labelsStart = name.indexOf('{');
+		return labelsStart < 0 ? name : name.substring(0, labelsStart);
+	}
+
+	protected static String getLabels(String name) {
+		int labelsStart = name.indexOf('{');
+		if (labelsStart < 0) {
+			return "";
+		}
+		Preconditions.checkArgument(name.endsWith("}"), "Labels of [%s] are not closed", name);
+		return name.substring(labelsStart + 1, name.length() - 1);
+	}
+
+	protected static double toSeconds(long nanos) {
+		return nanos / 1e9;
+	}
+
+	static class Family {
+		final String help;
+		final Type type;
+		final SortedMap<String, Object> series;
+
+		Family(String help, Type type) {
+			this.help = help;
+			this.type = type;
+			this.series = Maps.newTreeMap();
+		}
+	}
+
+	public interface GaugeViewMBean {
+		long getValue();
+	}
+
+	public static class GaugeView implements GaugeViewMBean {
+		private final Gauge gauge;
+
+		public GaugeView(Gauge gauge) {
+			this.gauge = gauge;
+		}
+
+		@Override
+		public long getValue() {
+			return gauge.getValue();
+		}
+	}
+}
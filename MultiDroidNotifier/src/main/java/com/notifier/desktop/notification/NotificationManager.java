@@ -21,6 +21,29 @@ public interface NotificationManager {
 
 	void notificationReceived(Notification notification);
 
+	/**
+	 * Whether all broadcasters are falling behind and transports should stop reading for a while.
+	 * Broadcasters stuck on a notification are left out, so they can't hold back reception.
+	 */
+	boolean isBacklogged();
+
+	/**
+	 * Runs the task once broadcasters are no longer backlogged, immediately if they aren't.
+	 */
+	void runWhenDrained(Runnable task);
+
+	/**
+	 * Stops the broadcast threads, notifications received afterwards are dropped.
+	 */
+	void shutdown();
+
+	/**
+	 * Listeners are called on the receiving thread for every notification that is broadcast, so they must not block.
+	 */
+	void addListener(Listener listener);
+
+	void removeListener(Listener listener);
+
 	void setPrivateMode(boolean enabled);
 
 	void setNotificationEnabled(Notification.Type type, boolean enabled);
@@ -31,4 +54,7 @@ public interface NotificationManager {
 
 	void setNotificationCommand(Notification.Type type, String command);
 
+	interface Listener {
+		void notificationBroadcast(Notification notification, String deviceName, boolean privateMode);
+	}
 }
@@ -0,0 +1,217 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.notification.impl;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.slf4j.*;
+
+import com.google.common.base.*;
+import com.google.common.util.concurrent.*;
+import com.notifier.desktop.metrics.*;
+import com.notifier.desktop.notification.*;
+import com.notifier.desktop.notification.broadcast.*;
+
+/**
+ * Bounded queue feeding a single broadcaster from its own thread, so a slow broadcaster
+ * delays neither the transports nor the other broadcasters.
+ */
+public class BroadcastQueue {
+
+	private static final Logger logger = LoggerFactory.getLogger(BroadcastQueue.class);
+
+	public enum OverflowPolicy {
+		/**
+		 * Discards the oldest queued notification.
+		 */
+		DROP_OLDEST,
+		/**
+		 * Replaces the oldest queued notification of the same type and device, falls back to dropping the oldest.
+		 */
+		COALESCE_BY_TYPE
+	}
+
+	public interface Listener {
+		void queueDrained(BroadcastQueue queue);
+	}
+
+	private final NotificationBroadcaster broadcaster;
+	private final int capacity;
+	private final int highWatermark;
+	private final int lowWatermark;
+	private final OverflowPolicy overflowPolicy;
+	private final Listener listener;
+	private final LatencyHistogram broadcastTime;
+	private final Counter broadcastErrors;
+	private final ExecutorService executor;
+	private final Runnable drainTask;
+
+	// Guarded by this
+	private final Deque<Dispatch> queue;
+	private boolean draining;
+	private boolean backlogged;
+	private long droppedCount;
+	private long lastProgress;
+
+	public BroadcastQueue(NotificationBroadcaster broadcaster, int capacity, OverflowPolicy overflowPolicy, Listener listener) {
+		this(broadcaster, capacity, overflowPolicy, listener, new LatencyHistogram(), new Counter());
+	}
+
+	public BroadcastQueue(NotificationBroadcaster broadcaster, int capacity, OverflowPolicy overflowPolicy, Listener listener, LatencyHistogram broadcastTime, Counter broadcastErrors) {
+		Preconditions.checkArgument(capacity > 0, "Capacity must be positive");
+		this.broadcaster = broadcaster;
+		this.capacity = capacity;
+		this.highWatermark = Math.max(1, capacity * 3 / 4);
+		this.lowWatermark = capacity / 4;
+		this.overflowPolicy = overflowPolicy;
+		this.listener = listener;
+		this.broadcastTime = broadcastTime;
+		this.broadcastErrors = broadcastErrors;
+		this.queue = new ArrayDeque<Dispatch>(capacity);
+
+		ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
+		threadFactoryBuilder.setNameFormat("broadcast-" + broadcaster.getName() + "-%s");
+		threadFactoryBuilder.setDaemon(true);
+		this.executor = Executors.newSingleThreadExecutor(threadFactoryBuilder.build());
+		this.drainTask = new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		};
+	}
+
+	/**
+	 * Never blocks, applies the overflow policy when the queue is full.
+	 */
+	public void offer(Notification notification, String deviceName, boolean privateMode) {
+		synchronized (this) {
+			if (queue.size() >= capacity) {
+				overflow(notification);
+			}
+			queue.addLast(new Dispatch(notification, deviceName, privateMode));
+			if (queue.size() >= highWatermark) {
+				backlogged = true;
+			}
+			if (draining) {
+				return;
+			}
+			draining = true;
+			lastProgress = System.nanoTime();
+		}
+		try {
+			executor.execute(drainTask);
+		} catch (RejectedExecutionException e) {
+			logger.debug("[{}] queue was shut down, dropping notification [{}]", broadcaster.getName(), notification);
+			synchronized (this) {
+				queue.clear();
+				draining = false;
+				backlogged = false;
+			}
+		}
+	}
+
+	public synchronized boolean isBacklogged() {
+		return backlogged;
+	}
+
+	/**
+	 * Whether the broadcaster has been stuck on a notification for longer than the given time.
+	 */
+	public synchronized boolean isStalled(long time, TimeUnit unit) {
+		return draining && System.nanoTime() - lastProgress >= unit.toNanos(time);
+	}
+
+	public synchronized int size() {
+		return queue.size();
+	}
+
+	public synchronized long getDroppedCount() {
+		return droppedCount;
+	}
+
+	public NotificationBroadcaster getBroadcaster() {
+		return broadcaster;
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	protected void overflow(Notification notification) {
+		droppedCount++;
+		if (overflowPolicy == OverflowPolicy.COALESCE_BY_TYPE) {
+			for (Iterator<Dispatch> iterator = queue.iterator(); iterator.hasNext();) {
+				Notification queued = iterator.next().notification;
+				if (queued.getType() == notification.getType() && queued.getDeviceId().equals(notification.getDeviceId())) {
+					logger.debug("[{}] queue is full, replacing queued [{}] notification", broadcaster.getName(), queued.getType());
+					iterator.remove();
+					return;
+				}
+			}
+		}
+		Dispatch dropped = queue.removeFirst();
+		logger.debug("[{}] queue is full, dropping notification [{}]", broadcaster.getName(), dropped.notification);
+	}
+
+	protected void drain() {
+		while (true) {
+			Dispatch dispatch;
+			boolean drained = false;
+			synchronized (this) {
+				dispatch = queue.pollFirst();
+				if (dispatch == null) {
+					draining = false;
+					return;
+				}
+				if (backlogged && queue.size() <= lowWatermark) {
+					backlogged = false;
+					drained = true;
+				}
+			}
+			if (drained) {
+				listener.queueDrained(this);
+			}
+			long start = System.nanoTime();
+			try {
+				broadcaster.broadcast(dispatch.notification, dispatch.deviceName, dispatch.privateMode);
+			} catch (Throwable t) {
+				broadcastErrors.increment();
+				logger.error("Error broadcasting using [" + broadcaster.getName() + "]", t);
+			} finally {
+				broadcastTime.recordSince(start);
+			}
+			synchronized (this) {
+				lastProgress = System.nanoTime();
+			}
+		}
+	}
+
+	static class Dispatch {
+		final Notification notification;
+		final String deviceName;
+		final boolean privateMode;
+
+		Dispatch(Notification notification, String deviceName, boolean privateMode) {
+			this.notification = notification;
+			this.deviceName = deviceName;
+			this.privateMode = privateMode;
+		}
+	}
+}
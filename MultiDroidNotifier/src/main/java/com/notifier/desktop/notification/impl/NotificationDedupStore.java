@@ -0,0 +1,185 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.notification.impl;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Remembers notification ids seen recently, without boxing or keeping the notifications alive.
+ * <p>
+ * Ids live in a time wheel of buckets, each one a primitive open-addressing set. The bucket
+ * that falls off the wheel is cleared in constant time by bumping its generation. Memory is
+ * fixed at construction: when the current bucket fills up the wheel turns early, so a flood
+ * shortens the window instead of growing the store.
+ */
+public class NotificationDedupStore {
+
+	private static final int BUCKET_COUNT = 8;
+
+	private final long tickNanos;
+	private final int maxPerBucket;
+	private final int mask;
+
+	private final long[][] ids;
+	private final int[][] generations;
+	private final int[] bucketGenerations;
+	private final int[] sizes;
+
+	private boolean started;
+	private long currentTick;
+	private int current;
+
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	public NotificationDedupStore(long window, TimeUnit unit, int maxEntries) {
+		if (window <= 0 || maxEntries <= 0) {
+			throw new IllegalArgumentException("Window and max entries must be positive");
+		}
+		// Ids stay at least one full window: inserted at the end of a tick they survive BUCKET_COUNT - 1 more
+		this.tickNanos = Math.max(1, (unit.toNanos(window) + BUCKET_COUNT - 2) / (BUCKET_COUNT - 1));
+		this.maxPerBucket = Math.max(1, (maxEntries + BUCKET_COUNT - 1) / BUCKET_COUNT);
+		int capacity = Integer.highestOneBit(maxPerBucket) << 2; // Load factor stays under 1/2
+		this.mask = capacity - 1;
+
+		this.ids = new long[BUCKET_COUNT][capacity];
+		this.generations = new int[BUCKET_COUNT][capacity];
+		this.bucketGenerations = new int[BUCKET_COUNT];
+		this.sizes = new int[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			// Slots start at generation 0, so a bucket at generation 1 starts empty
+			bucketGenerations[i] = 1;
+		}
+	}
+
+	/**
+	 * Records the id and returns true if it was not seen inside the window.
+	 */
+	public boolean addIfAbsent(long id) {
+		return addIfAbsent(id, System.nanoTime());
+	}
+
+	synchronized boolean addIfAbsent(long id, long now) {
+		advance(now / tickNanos);
+		int hash = hash(id);
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			if (sizes[i] > 0 && contains(i, id, hash)) {
+				hitCount++;
+				return false;
+			}
+		}
+		if (sizes[current] >= maxPerBucket) {
+			turn();
+		}
+		insert(current, id, hash);
+		missCount++;
+		return true;
+	}
+
+	public synchronized int size() {
+		int size = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			size += sizes[i];
+		}
+		return size;
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	private void advance(long tick) {
+		if (!started || tick - currentTick >= BUCKET_COUNT) {
+			// First use or idle for a whole turn, everything expired
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				clear(i);
+			}
+			started = true;
+			currentTick = tick;
+			current = bucketOf(tick);
+			return;
+		}
+		while (currentTick < tick) {
+			turn();
+		}
+	}
+
+	private void turn() {
+		currentTick++;
+		current = bucketOf(currentTick);
+		clear(current);
+	}
+
+	private void clear(int bucket) {
+		evictionCount += sizes[bucket];
+		sizes[bucket] = 0;
+		if (++bucketGenerations[bucket] == 0) {
+			// Generation wrapped around, stale slots could look live again
+			Arrays.fill(generations[bucket], 0);
+			bucketGenerations[bucket] = 1;
+		}
+	}
+
+	private boolean contains(int bucket, long id, int hash) {
+		long[] bucketIds = ids[bucket];
+		int[] bucketSlots = generations[bucket];
+		int generation = bucketGenerations[bucket];
+		for (int slot = hash & mask; bucketSlots[slot] == generation; slot = (slot + 1) & mask) {
+			if (bucketIds[slot] == id) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void insert(int bucket, long id, int hash) {
+		int[] bucketSlots = generations[bucket];
+		int generation = bucketGenerations[bucket];
+		int slot = hash & mask;
+		while (bucketSlots[slot] == generation) {
+			slot = (slot + 1) & mask;
+		}
+		ids[bucket][slot] = id;
+		bucketSlots[slot] = generation;
+		sizes[bucket]++;
+	}
+
+	private static int bucketOf(long tick) {
+		return (int) (tick & (BUCKET_COUNT - 1));
+	}
+
+	private static int hash(long id) {
+		// Murmur3 finalizer, notification ids are often sequential
+		id ^= id >>> 33;
+		id *= 0xff51afd7ed558ccdL;
+		id ^= id >>> 33;
+		id *= 0xc4ceb9fe1a85ec53L;
+		id ^= id >>> 33;
+		return (int) id;
+	}
+}
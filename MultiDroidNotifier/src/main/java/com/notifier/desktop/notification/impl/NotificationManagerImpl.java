@@ -19,6 +19,7 @@ package com.notifier.desktop.notification.impl;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import org.slf4j.*;
 
@@ -28,6 +29,7 @@ import com.google.inject.*;
 import com.notifier.desktop.*;
 import com.notifier.desktop.annotation.*;
 import com.notifier.desktop.device.*;
+import com.notifier.desktop.metrics.*;
 import com.notifier.desktop.notification.*;
 import com.notifier.desktop.notification.Notification.*;
 import com.notifier.desktop.notification.broadcast.*;
@@ -37,16 +39,25 @@ import com.notifier.desktop.view.*;
 import static java.util.concurrent.TimeUnit.*;
 
 @Singleton
-public class NotificationManagerImpl implements NotificationManager {
+public class NotificationManagerImpl implements NotificationManager, BroadcastQueue.Listener {
 
 	private static final Logger logger = LoggerFactory.getLogger(NotificationManagerImpl.class);
 
+	private static final int BROADCAST_QUEUE_CAPACITY = 50;
+	private static final int BROADCAST_STALL_TIMEOUT = 10;
+	private static final int DEDUP_WINDOW = 60;
+	private static final int DEDUP_MAX_ENTRIES = 4096;
+
 	private final SwtManager swtManager;
 	private final OperatingSystemProcessManager processManager;
 	private final DeviceManager deviceManager;
-	private final ImmutableList<NotificationBroadcaster> broadcasters;
+	private final ScheduledExecutorService executorService;
+	private final ImmutableList<BroadcastQueue> broadcastQueues;
+	private final Queue<Runnable> drainedTasks;
+	private final AtomicBoolean drainCheckScheduled;
+	private final List<NotificationManager.Listener> listeners;
 
-	private final ConcurrentMap<Long, Notification> lastNotifications;
+	private final NotificationDedupStore receivedNotifications;
 	private boolean privateMode;
 	private final Map<Notification.Type, NotificationConfiguration> notificationConfigurations;
 
@@ -58,12 +69,50 @@ public class NotificationManagerImpl implements NotificationManager {
 								   @Tray NotificationBroadcaster trayBroadcaster,
 	                               @Growl NotificationBroadcaster growlBroadcaster,
 	                               @Libnotify NotificationBroadcaster libnotifyBroadcaster,
-	                               @Msn InstantMessagingNotificationBroadcaster msnBroadcaster) {
-		this.broadcasters = ImmutableList.of(trayBroadcaster, growlBroadcaster, libnotifyBroadcaster, msnBroadcaster);
+	                               @Msn InstantMessagingNotificationBroadcaster msnBroadcaster,
+	                               MetricRegistry metricRegistry,
+	                               ScheduledExecutorService executorService) {
+		ImmutableList.Builder<BroadcastQueue> queues = ImmutableList.builder();
+		for (NotificationBroadcaster broadcaster : ImmutableList.of(trayBroadcaster, growlBroadcaster, libnotifyBroadcaster, msnBroadcaster)) {
+			String labels = "{broadcaster=\"" + broadcaster.getName().toLowerCase().replace(' ', '_') + "\"}";
+			final BroadcastQueue queue = new BroadcastQueue(broadcaster, BROADCAST_QUEUE_CAPACITY, BroadcastQueue.OverflowPolicy.COALESCE_BY_TYPE, this,
+			    metricRegistry.histogram("notifier_broadcast_seconds" + labels, "Time spent showing a notification"),
+			    metricRegistry.counter("notifier_broadcast_errors_total" + labels, "Notifications a broadcaster failed to show"));
+			metricRegistry.gauge("notifier_broadcast_queue_depth" + labels, "Notifications waiting for a broadcaster", new Gauge() {
+				@Override
+				public long getValue() {
+					return queue.size();
+				}
+			});
+			metricRegistry.counter("notifier_broadcast_dropped_total" + labels, "Notifications dropped or coalesced because a broadcaster fell behind", new Gauge() {
+				@Override
+				public long getValue() {
+					return queue.getDroppedCount();
+				}
+			});
+			queues.add(queue);
+		}
+		this.broadcastQueues = queues.build();
+		this.drainedTasks = new ConcurrentLinkedQueue<Runnable>();
+		this.drainCheckScheduled = new AtomicBoolean();
+		this.listeners = new CopyOnWriteArrayList<NotificationManager.Listener>();
 		this.swtManager = swtManager;
 		this.processManager = processManager;
 		this.deviceManager = deviceManager;
-		this.lastNotifications = new MapMaker().initialCapacity(50).expiration(60, SECONDS).makeMap();
+		this.executorService = executorService;
+		this.receivedNotifications = new NotificationDedupStore(DEDUP_WINDOW, SECONDS, DEDUP_MAX_ENTRIES);
+		metricRegistry.counter("notifier_notifications_received_total", "Notifications received, after dropping duplicates", new Gauge() {
+			@Override
+			public long getValue() {
+				return receivedNotifications.getMissCount();
+			}
+		});
+		metricRegistry.counter("notifier_dedup_hits_total", "Notifications dropped as duplicates, e.g. sent over several transports", new Gauge() {
+			@Override
+			public long getValue() {
+				return receivedNotifications.getHitCount();
+			}
+		});
 
 		ApplicationPreferences prefs = preferencesProvider.get();
 		this.privateMode = prefs.isPrivateMode();
@@ -80,7 +129,7 @@ public class NotificationManagerImpl implements NotificationManager {
 
 	@Override
 	public void notificationReceived(Notification notification) {
-		if (lastNotifications.putIfAbsent(notification.getNotificationId(), notification) == null) {
+		if (receivedNotifications.addIfAbsent(notification.getNotificationId())) {
 			logger.info("Notification received: " + notification);
 			if (notification.getType() == Notification.Type.PING &&
 				deviceManager.isWaitingForPairing()) {
@@ -91,6 +140,53 @@ public class NotificationManagerImpl implements NotificationManager {
 		}
 	}
 
+	@Override
+	public boolean isBacklogged() {
+		boolean backlogged = false;
+		for (BroadcastQueue queue : broadcastQueues) {
+			if (!queue.getBroadcaster().isRunning() || queue.isStalled(BROADCAST_STALL_TIMEOUT, SECONDS)) {
+				// Its overflow policy bounds the memory, no point in holding back the others
+				continue;
+			}
+			if (!queue.isBacklogged()) {
+				return false;
+			}
+			backlogged = true;
+		}
+		return backlogged;
+	}
+
+	@Override
+	public void runWhenDrained(Runnable task) {
+		drainedTasks.add(task);
+		// Queues may have drained before the task was added
+		runDrainedTasksIfPossible();
+		scheduleDrainCheck();
+	}
+
+	@Override
+	public void shutdown() {
+		for (BroadcastQueue queue : broadcastQueues) {
+			queue.shutdown();
+		}
+	}
+
+	@Override
+	public void addListener(NotificationManager.Listener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void removeListener(NotificationManager.Listener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public void queueDrained(BroadcastQueue queue) {
+		logger.debug("[{}] caught up with notifications", queue.getBroadcaster().getName());
+		runDrainedTasksIfPossible();
+	}
+
 	@Override
 	public void setPrivateMode(boolean enabled) {
 		if (enabled) {
@@ -143,16 +239,54 @@ public class NotificationManagerImpl implements NotificationManager {
 
 	protected void doBroadcast(Notification notification, String deviceName) {
 		if (deviceManager.isAllowedDeviceId(notification.getDeviceId())) {
-			for (NotificationBroadcaster broadcaster : broadcasters) {
+			for (BroadcastQueue queue : broadcastQueues) {
+				if (queue.getBroadcaster().isRunning()) {
+					queue.offer(notification, deviceName, privateMode);
+				}
+			}
+			for (NotificationManager.Listener listener : listeners) {
 				try {
-					broadcaster.broadcast(notification, deviceName, privateMode);
+					listener.notificationBroadcast(notification, deviceName, privateMode);
 				} catch (Throwable t) {
-					logger.error("Error broadcasting using [" + broadcaster.getName() + "]", t);
+					logger.error("Error notifying listener of notification", t);
 				}
 			}
 		}
 	}
 
+	protected void runDrainedTasksIfPossible() {
+		Runnable task;
+		while (!isBacklogged() && (task = drainedTasks.poll()) != null) {
+			try {
+				task.run();
+			} catch (Throwable t) {
+				logger.error("Error resuming after broadcasters caught up", t);
+			}
+		}
+	}
+
+	/**
+	 * Broadcasters that get stuck never report being drained, so check again once they count as stalled.
+	 */
+	protected void scheduleDrainCheck() {
+		if (drainedTasks.isEmpty() || !drainCheckScheduled.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executorService.schedule(new Runnable() {
+				@Override
+				public void run() {
+					drainCheckScheduled.set(false);
+					runDrainedTasksIfPossible();
+					scheduleDrainCheck();
+				}
+			}, BROADCAST_STALL_TIMEOUT, SECONDS);
+		} catch (RejectedExecutionException e) {
+			drainCheckScheduled.set(false);
+			logger.debug("Shutting down, not waiting for broadcasters to catch up");
+		}
+	}
+
 	protected void sendNotificationToClipboard(Notification notification) {
 		String description = notification.getDescription(privateMode);
 		if (!Strings.isNullOrEmpty(description)) {
@@ -17,11 +17,21 @@
  */
 package com.notifier.desktop.notification.parsing;
 
+import java.util.*;
+
 import com.notifier.desktop.notification.*;
 
 public interface NotificationParser<T> {
 
 	void setEncryption(boolean decrypt, byte[] key);
 	Notification parse(T data) throws ParseException;
+	Notification parse(T data, ProtocolMemory memory) throws ParseException;
+
+	/**
+	 * Parses data that may carry several notifications, e.g. a protobuf batch.
+	 *
+	 * @return the notifications in the order they were sent, empty if the data is ignored
+	 */
+	List<Notification> parseAll(T data, ProtocolMemory memory) throws ParseException;
 
 }
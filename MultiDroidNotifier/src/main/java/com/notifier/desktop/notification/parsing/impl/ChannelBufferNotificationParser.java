@@ -0,0 +1,68 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.notification.parsing.impl;
+
+import java.util.*;
+
+import org.jboss.netty.buffer.*;
+
+import com.google.inject.*;
+import com.notifier.desktop.notification.*;
+import com.notifier.desktop.notification.parsing.*;
+
+/**
+ * Parses notifications straight from Netty buffers, heap buffers are read in place without copying.
+ */
+@Singleton
+public class ChannelBufferNotificationParser implements NotificationParser<ChannelBuffer> {
+
+	private final MultiNotificationParser delegate;
+
+	@Inject
+	public ChannelBufferNotificationParser(MultiNotificationParser delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public Notification parse(ChannelBuffer data) throws ParseException {
+		return parse(data, null);
+	}
+
+	@Override
+	public Notification parse(ChannelBuffer data, ProtocolMemory memory) throws ParseException {
+		try {
+			return delegate.parse(data.toByteBuffer(), memory);
+		} finally {
+			data.skipBytes(data.readableBytes());
+		}
+	}
+
+	@Override
+	public List<Notification> parseAll(ChannelBuffer data, ProtocolMemory memory) throws ParseException {
+		try {
+			return delegate.parseAll(data.toByteBuffer(), memory);
+		} finally {
+			data.skipBytes(data.readableBytes());
+		}
+	}
+
+	@Override
+	public void setEncryption(boolean decrypt, byte[] key) {
+		delegate.setEncryption(decrypt, key);
+	}
+}
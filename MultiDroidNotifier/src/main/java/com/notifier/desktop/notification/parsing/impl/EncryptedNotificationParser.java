@@ -17,13 +17,17 @@
  */
 package com.notifier.desktop.notification.parsing.impl;
 
+import java.nio.*;
 import java.security.*;
+import java.util.*;
 
 import javax.crypto.*;
 
 import org.slf4j.*;
 
 import com.notifier.desktop.*;
+import com.notifier.desktop.metrics.*;
+import com.notifier.desktop.notification.*;
 import com.notifier.desktop.notification.parsing.*;
 import com.notifier.desktop.util.*;
 
@@ -31,10 +35,24 @@ public abstract class EncryptedNotificationParser implements NotificationParser<
 
 	private static final Logger logger = LoggerFactory.getLogger(EncryptedNotificationParser.class);
 
+	private static final int INITIAL_DECRYPTION_BUFFER_SIZE = 1024;
+
 	private boolean decrypt;
 	private Encryption encryption;
+	private final Counter decryptFailures;
+	private final ThreadLocal<ByteBuffer> decryptionBuffer = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(INITIAL_DECRYPTION_BUFFER_SIZE);
+		}
+	};
 
 	public EncryptedNotificationParser(ApplicationPreferences preferences) {
+		this(preferences, new Counter());
+	}
+
+	public EncryptedNotificationParser(ApplicationPreferences preferences, Counter decryptFailures) {
+		this.decryptFailures = decryptFailures;
 		setEncryption(preferences.isEncryptCommunication(), preferences.getCommunicationPassword());
 	}
 
@@ -48,15 +66,86 @@ public abstract class EncryptedNotificationParser implements NotificationParser<
 		}
 	}
 
-	protected byte[] decryptIfNecessary(byte[] msg) {
+	@Override
+	public Notification parse(byte[] data) throws ParseException {
+		return parse(ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * Each subclass reads a single format, so there is no protocol to remember and the memory is ignored.
+	 */
+	@Override
+	public Notification parse(byte[] data, ProtocolMemory memory) throws ParseException {
+		return parse(ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * The memory is ignored, as by {@link #parse(byte[], ProtocolMemory)}.
+	 */
+	@Override
+	public List<Notification> parseAll(byte[] data, ProtocolMemory memory) throws ParseException {
+		return parseAll(ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * Parses the remaining bytes of the buffer, which must not be kept after this call returns.
+	 */
+	public abstract Notification parse(ByteBuffer data) throws ParseException;
+
+	/**
+	 * Same as {@link #parse(ByteBuffer)} for formats that may carry several notifications.
+	 */
+	public List<Notification> parseAll(ByteBuffer data) throws ParseException {
+		Notification notification = parse(data);
+		return notification == null ? Collections.<Notification>emptyList() : Collections.singletonList(notification);
+	}
+
+	public Counter getDecryptFailures() {
+		return decryptFailures;
+	}
+
+	public boolean isDecrypting() {
+		return decrypt;
+	}
+
+	/**
+	 * Whether a payload of this length could be decrypted with the current settings.
+	 */
+	public boolean isPossibleCiphertextLength(int length) {
+		Encryption encryption = this.encryption;
+		return decrypt && encryption != null && encryption.isPossibleCiphertextLength(length);
+	}
+
+	protected ByteBuffer decryptIfNecessary(ByteBuffer msg) {
+		return decryptIfNecessary(msg, false);
+	}
+
+	/**
+	 * Decrypted data is written to a buffer reused by the calling thread, so it is only valid until the next call.
+	 *
+	 * @param gcm whether the message uses AES-GCM instead of the original AES-CBC format
+	 */
+	protected ByteBuffer decryptIfNecessary(ByteBuffer msg, boolean gcm) {
 		if (decrypt) {
 			if (encryption == null) {
 				logger.debug("Decryption enabled but no password set, ignoring notification");
 				return null;
 			}
+			if (gcm && !Encryption.isGcmSupported()) {
+				logger.debug("Got AES-GCM notification but this Java version does not support it, ignoring");
+				return null;
+			}
 			try {
-				return encryption.decrypt(msg);
+				ByteBuffer output = getDecryptionBuffer(msg.remaining());
+				if (gcm) {
+					encryption.decryptGcm(msg, output);
+				} else {
+					encryption.decrypt(msg, output);
+				}
+				output.flip();
+				return output;
 			} catch (GeneralSecurityException e) {
+				decryptFailures.increment();
 				if (e instanceof IllegalBlockSizeException) { // Message is not encrypted
 					logger.debug("Got notification not encrypted but set to decrypt, ignoring");
 					return null;
@@ -68,4 +157,15 @@ public abstract class EncryptedNotificationParser implements NotificationParser<
 		}
 		return msg;
 	}
+
+	protected ByteBuffer getDecryptionBuffer(int encryptedLength) {
+		// Decrypted output is never larger than the encrypted input, for CBC with padding or GCM
+		ByteBuffer buffer = decryptionBuffer.get();
+		if (buffer.capacity() < encryptedLength) {
+			buffer = ByteBuffer.allocate(Math.max(encryptedLength, buffer.capacity() * 2));
+			decryptionBuffer.set(buffer);
+		}
+		buffer.clear();
+		return buffer;
+	}
 }
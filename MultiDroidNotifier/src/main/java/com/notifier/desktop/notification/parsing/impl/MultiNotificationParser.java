@@ -17,12 +17,12 @@
  */
 package com.notifier.desktop.notification.parsing.impl;
 
-import java.io.*;
+import java.nio.*;
+import java.util.*;
 
 import org.slf4j.*;
 
 import com.google.inject.*;
-import com.google.protobuf.*;
 import com.notifier.desktop.notification.*;
 import com.notifier.desktop.notification.parsing.*;
 import com.notifier.desktop.view.*;
@@ -45,26 +45,115 @@ public class MultiNotificationParser implements NotificationParser<byte[]> {
 
 	@Override
 	public Notification parse(byte[] data) throws ParseException {
-		if (data.length == 0) {
-			logger.warn("Got an empty notification, it may be a bluetooth issue, discarding");
-			Dialogs.showError(swtManager, "Empty notification received", "Android Notifier sent an empty notification, this may be caused by a known issue in bluetooth communication.\nMore info: http://code.google.com/p/android-notifier/issues/detail?id=3", true);
+		return parse(ByteBuffer.wrap(data), null);
+	}
+
+	@Override
+	public Notification parse(byte[] data, ProtocolMemory memory) throws ParseException {
+		return parse(ByteBuffer.wrap(data), memory);
+	}
+
+	@Override
+	public List<Notification> parseAll(byte[] data, ProtocolMemory memory) throws ParseException {
+		return parseAll(ByteBuffer.wrap(data), memory);
+	}
+
+	public Notification parse(ByteBuffer data, ProtocolMemory memory) throws ParseException {
+		ProtocolMemory.Protocol protocol = selectProtocol(data, memory);
+		if (protocol == null) {
 			return null;
 		}
+		Notification notification;
+		int position = data.position();
+		try {
+			notification = protocol == ProtocolMemory.Protocol.PROTOBUF ? protobufParser.parse(data) : textParser.parse(data);
+		} catch (ParseException e) {
+			data.position(position);
+			if (!isGuess(protocol, data, memory)) {
+				throw e;
+			}
+			logger.debug("Could not parse as protobuf, trying as text", e);
+			protocol = ProtocolMemory.Protocol.TEXT;
+			notification = textParser.parse(data);
+		}
+		if (notification != null && memory != null) {
+			memory.setProtocol(protocol);
+		}
+		return notification;
+	}
+
+	public List<Notification> parseAll(ByteBuffer data, ProtocolMemory memory) throws ParseException {
+		ProtocolMemory.Protocol protocol = selectProtocol(data, memory);
+		if (protocol == null) {
+			return Collections.emptyList();
+		}
+		List<Notification> notifications;
+		int position = data.position();
 		try {
-			CodedInputStream codedInputStream = CodedInputStream.newInstance(data);
-			int length = codedInputStream.readRawVarint32();
-			if (length == data.length) {
-				try {
-					return protobufParser.parse(data);
-				} catch (Exception e) {
-					// Could not read protobuf message, must be text protocol
-					return textParser.parse(data);
-				}
+			notifications = protocol == ProtocolMemory.Protocol.PROTOBUF ? protobufParser.parseAll(data) : textParser.parseAll(data);
+		} catch (ParseException e) {
+			data.position(position);
+			if (!isGuess(protocol, data, memory)) {
+				throw e;
 			}
-			return textParser.parse(data);
-		} catch (IOException e) {
-			return textParser.parse(data);
+			logger.debug("Could not parse as protobuf, trying as text", e);
+			protocol = ProtocolMemory.Protocol.TEXT;
+			notifications = textParser.parseAll(data);
 		}
+		if (!notifications.isEmpty() && memory != null) {
+			memory.setProtocol(protocol);
+		}
+		return notifications;
+	}
+
+	/**
+	 * @return the protocol to parse the data with or null if it should be ignored
+	 */
+	protected ProtocolMemory.Protocol selectProtocol(ByteBuffer data, ProtocolMemory memory) {
+		if (!data.hasRemaining()) {
+			logger.warn("Got an empty notification, it may be a bluetooth issue, discarding");
+			Dialogs.showError(swtManager, "Empty notification received", "Android Notifier sent an empty notification, this may be caused by a known issue in bluetooth communication.\nMore info: http://code.google.com/p/android-notifier/issues/detail?id=3", true);
+			return null;
+		}
+		ProtocolMemory.Protocol protocol = detectProtocol(data, memory);
+		if (protocol == null) {
+			logger.debug("Got data that is not a notification, ignoring");
+		}
+		return protocol;
+	}
+
+	/**
+	 * Classifies the message from its first bytes, without decrypting or parsing it.
+	 *
+	 * @return the protocol or null if the data cannot be a notification
+	 */
+	protected ProtocolMemory.Protocol detectProtocol(ByteBuffer data, ProtocolMemory memory) {
+		boolean protobuf = ProtobufNotificationParser.isFramed(data);
+		boolean text = isPossibleText(data);
+		if (protobuf && text) {
+			ProtocolMemory.Protocol previous = memory == null ? null : memory.getProtocol();
+			return previous == null ? ProtocolMemory.Protocol.PROTOBUF : previous;
+		}
+		if (protobuf) {
+			return ProtocolMemory.Protocol.PROTOBUF;
+		}
+		if (text) {
+			return ProtocolMemory.Protocol.TEXT;
+		}
+		return null;
+	}
+
+	/**
+	 * Whether the protocol was picked for data that may be either, with nothing remembered about the sender,
+	 * so the data may still be text.
+	 */
+	protected boolean isGuess(ProtocolMemory.Protocol protocol, ByteBuffer data, ProtocolMemory memory) {
+		return protocol == ProtocolMemory.Protocol.PROTOBUF && (memory == null || memory.getProtocol() == null) && isPossibleText(data);
+	}
+
+	protected boolean isPossibleText(ByteBuffer data) {
+		// Encrypted text has no visible prefix, only its length tells
+		return textParser.isDecrypting() ? textParser.isPossibleCiphertextLength(data.remaining()) : TextNotificationParser.hasVersionPrefix(data);
 	}
 
 	@Override
@@ -18,46 +18,160 @@
 package com.notifier.desktop.notification.parsing.impl;
 
 import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+import org.slf4j.*;
 
 import com.google.inject.*;
 import com.google.protobuf.*;
 import com.notifier.desktop.*;
+import com.notifier.desktop.metrics.*;
 import com.notifier.desktop.notification.*;
 import com.notifier.desktop.notification.parsing.*;
 import com.notifier.protocol.*;
 
 public class ProtobufNotificationParser extends EncryptedNotificationParser {
 
+	private static final Logger logger = LoggerFactory.getLogger(ProtobufNotificationParser.class);
+
 	private static final int BOOL_SIZE = CodedOutputStream.computeBoolSizeNoTag(true);
 
-	@Inject
+	// Values of the byte after the length, old phones write a bool
+	public static final byte NOT_ENCRYPTED = 0;
+	public static final byte ENCRYPTED_CBC = 1;
+	public static final byte ENCRYPTED_GCM = 2;
+	// Added to the values above when the message is a NotificationBatch instead of a single Notification
+	public static final byte BATCH = 0x10;
+
 	public ProtobufNotificationParser(Provider<ApplicationPreferences> preferencesProvider) {
 		super(preferencesProvider.get());
 	}
 
+	@Inject
+	public ProtobufNotificationParser(Provider<ApplicationPreferences> preferencesProvider, MetricRegistry metricRegistry) {
+		super(preferencesProvider.get(), metricRegistry.counter("notifier_decrypt_failures_total{format=\"protobuf\"}", "Notifications that could not be decrypted"));
+	}
+
 	@Override
-	public Notification parse(byte[] data) throws ParseException {
+	public Notification parse(ByteBuffer data) throws ParseException {
 		try {
-			CodedInputStream codedInputStream = CodedInputStream.newInstance(data);
-			int length = codedInputStream.readRawVarint32();
-			boolean encrypted = codedInputStream.readBool();
-			int messageLength = length - CodedOutputStream.computeRawVarint32Size(length) - BOOL_SIZE;
-			byte[] msg = codedInputStream.readRawBytes(messageLength);
-
-			if (encrypted) {
-				msg = decryptIfNecessary(msg);
-				if (msg == null) {
-					return null;
-				}
+			ByteBuffer msg = readMessage(data);
+			if (msg == null) {
+				return null;
+			}
+			if (!isBatch(data)) {
+				return parseNotificationFromProto(Protocol.Notification.parseFrom(newCodedInputStream(msg)));
 			}
+			List<Notification> notifications = parseBatchFromProto(Protocol.NotificationBatch.parseFrom(newCodedInputStream(msg)));
+			if (notifications.size() > 1) {
+				throw new ParseException("Got a batch of [" + notifications.size() + "] notifications where only one was expected");
+			}
+			return notifications.isEmpty() ? null : notifications.get(0);
+		} catch (IOException e) {
+			throw new ParseException(e);
+		}
+	}
 
-			Protocol.Notification protoNotification = Protocol.Notification.parseFrom(msg);
-			return parseNotificationFromProto(protoNotification);
+	@Override
+	public List<Notification> parseAll(ByteBuffer data) throws ParseException {
+		try {
+			ByteBuffer msg = readMessage(data);
+			if (msg == null) {
+				return Collections.emptyList();
+			}
+			if (!isBatch(data)) {
+				return Collections.singletonList(parseNotificationFromProto(Protocol.Notification.parseFrom(newCodedInputStream(msg))));
+			}
+			return parseBatchFromProto(Protocol.NotificationBatch.parseFrom(newCodedInputStream(msg)));
 		} catch (IOException e) {
 			throw new ParseException(e);
 		}
 	}
 
+	/**
+	 * Validates the frame header and decrypts the message if needed.
+	 *
+	 * @return the message or null if it should be ignored
+	 */
+	protected ByteBuffer readMessage(ByteBuffer data) throws ParseException {
+		int length = readRawVarint32(data);
+		if (length < 0) {
+			throw new ParseException("Malformed notification length");
+		}
+		int headerLength = CodedOutputStream.computeRawVarint32Size(length) + BOOL_SIZE;
+		int messageLength = length - headerLength;
+		if (messageLength < 0 || length > data.remaining()) {
+			throw new ParseException("Notification length [" + length + "] does not match received data [" + data.remaining() + "]");
+		}
+		byte encryption = (byte) (data.get(data.position() + headerLength - BOOL_SIZE) & ~BATCH);
+		boolean encrypted = encryption != NOT_ENCRYPTED;
+		if (encrypted && !isDecrypting()) {
+			logger.debug("Got encrypted notification but decryption is disabled, ignoring");
+			return null;
+		}
+
+		ByteBuffer msg = data.duplicate();
+		msg.position(data.position() + headerLength);
+		msg.limit(data.position() + length);
+		if (encrypted) {
+			msg = decryptIfNecessary(msg, encryption == ENCRYPTED_GCM);
+		}
+		return msg;
+	}
+
+	/**
+	 * Whether the frame at the buffer position carries a NotificationBatch, the header must be valid.
+	 */
+	protected static boolean isBatch(ByteBuffer data) {
+		int length = readRawVarint32(data);
+		int headerLength = CodedOutputStream.computeRawVarint32Size(length) + BOOL_SIZE;
+		return (data.get(data.position() + headerLength - BOOL_SIZE) & BATCH) != 0;
+	}
+
+	/**
+	 * Whether the remaining bytes are exactly one frame: length varint, encryption byte and a non-empty message.
+	 */
+	public static boolean isFramed(ByteBuffer data) {
+		int length = readRawVarint32(data);
+		if (length != data.remaining()) {
+			return false;
+		}
+		int headerLength = CodedOutputStream.computeRawVarint32Size(length) + BOOL_SIZE;
+		if (length <= headerLength) {
+			return false;
+		}
+		byte encryption = (byte) (data.get(data.position() + headerLength - BOOL_SIZE) & ~BATCH);
+		return encryption == NOT_ENCRYPTED || encryption == ENCRYPTED_CBC || encryption == ENCRYPTED_GCM;
+	}
+
+	/**
+	 * Reads a varint at the buffer position without consuming it.
+	 *
+	 * @return the value or -1 if the buffer does not start with a valid varint
+	 */
+	public static int readRawVarint32(ByteBuffer data) {
+		int result = 0;
+		int position = data.position();
+		for (int shift = 0; shift < 32 && position < data.limit(); shift += 7) {
+			byte b = data.get(position++);
+			result |= (b & 0x7f) << shift;
+			if (b >= 0) {
+				return result < 0 ? -1 : result;
+			}
+		}
+		return -1;
+	}
+
+	protected CodedInputStream newCodedInputStream(ByteBuffer msg) {
+		if (msg.hasArray()) {
+			return CodedInputStream.newInstance(msg.array(), msg.arrayOffset() + msg.position(), msg.remaining());
+		}
+		byte[] copy = new byte[msg.remaining()];
+		msg.duplicate().get(copy);
+		return CodedInputStream.newInstance(copy);
+	}
+
 	protected Notification parseNotificationFromProto(Protocol.Notification protoNotification) {
 		long deviceId = protoNotification.getDeviceId();
 		long id = protoNotification.getId();
@@ -81,7 +195,17 @@ public class ProtobufNotificationParser extends EncryptedNotificationParser {
 		}
 		String description = protoNotification.getDescription();
 
-		return new Notification(Long.toString(deviceId), id, type, data, description);
+		// The numeric ID loses leading zeros and anything that isn't 64 bits of hexadecimal, only older phones send it alone
+		String deviceIdString = protoNotification.hasDeviceIdString() ? protoNotification.getDeviceIdString() : Long.toHexString(deviceId);
+		return new Notification(deviceIdString, id, type, data, description);
+	}
+
+	protected List<Notification> parseBatchFromProto(Protocol.NotificationBatch protoBatch) {
+		List<Notification> notifications = new ArrayList<Notification>(protoBatch.getNotificationsCount());
+		for (Protocol.Notification protoNotification : protoBatch.getNotificationsList()) {
+			notifications.add(parseNotificationFromProto(protoNotification));
+		}
+		return notifications;
 	}
 
 	protected Notification.Type parseTypeFromProto(Protocol.Notification.Type protoType) {
@@ -18,6 +18,7 @@
 package com.notifier.desktop.notification.parsing.impl;
 
 import java.math.*;
+import java.nio.*;
 import java.nio.charset.*;
 import java.util.*;
 
@@ -27,6 +28,7 @@ import com.google.common.base.*;
 import com.google.common.collect.*;
 import com.google.inject.*;
 import com.notifier.desktop.*;
+import com.notifier.desktop.metrics.*;
 import com.notifier.desktop.notification.*;
 import com.notifier.desktop.notification.parsing.*;
 
@@ -39,19 +41,43 @@ public class TextNotificationParser extends EncryptedNotificationParser {
 
 	private static final Logger logger = LoggerFactory.getLogger(TextNotificationParser.class);
 
-	@Inject
 	public TextNotificationParser(Provider<ApplicationPreferences> preferencesProvider) {
 		super(preferencesProvider.get());
 	}
 
+	@Inject
+	public TextNotificationParser(Provider<ApplicationPreferences> preferencesProvider, MetricRegistry metricRegistry) {
+		super(preferencesProvider.get(), metricRegistry.counter("notifier_decrypt_failures_total{format=\"text\"}", "Notifications that could not be decrypted"));
+	}
+
+	/**
+	 * Whether the buffer starts with a plain text version field, e.g. {@code v2/}.
+	 */
+	public static boolean hasVersionPrefix(ByteBuffer data) {
+		int position = data.position();
+		if (data.remaining() < 3 || data.get(position) != 'v') {
+			return false;
+		}
+		int i = position + 1;
+		while (i < data.limit() && data.get(i) >= '0' && data.get(i) <= '9') {
+			i++;
+		}
+		return i > position + 1 && i < data.limit() && data.get(i) == FIELD_SEPARATOR;
+	}
+
 	@Override
-	public Notification parse(byte[] msg) throws ParseException {
-		byte[] msgToUse = decryptIfNecessary(msg);
+	public Notification parse(ByteBuffer msg) throws ParseException {
+		ByteBuffer msgToUse = decryptIfNecessary(msg);
 		if (msgToUse == null) {
 			return null;
 		}
 
-		String s = new String(msgToUse, CHARSET);
+		String s;
+		if (msgToUse.hasArray()) {
+			s = new String(msgToUse.array(), msgToUse.arrayOffset() + msgToUse.position(), msgToUse.remaining(), CHARSET);
+		} else {
+			s = CHARSET.decode(msgToUse.duplicate()).toString();
+		}
 		Iterable<String> splitted = Splitter.on(FIELD_SEPARATOR).split(s);
 		if (Iterables.size(splitted) < FIELD_COUNT) {
 			logger.debug("Got notification but it has less fields than expected, maybe it's encrypted, ignoring");
@@ -17,6 +17,8 @@
  */
 package com.notifier.desktop.notification.wifi;
 
+import java.util.concurrent.*;
+
 import org.jboss.netty.channel.*;
 import org.jboss.netty.channel.group.*;
 import org.jboss.netty.channel.socket.*;
@@ -32,11 +34,17 @@ public class NotificationChannelHandler extends SimpleChannelHandler {
 	private final ChannelGroup channelGroup;
 	private final Application application;
 	private final NotificationManager notificationManager;
+	private final ConcurrentMap<String, Channel> deviceSessions;
 
 	public NotificationChannelHandler(ChannelGroup channelGroup, Application application, NotificationManager notificationManager) {
+		this(channelGroup, application, notificationManager, null);
+	}
+
+	public NotificationChannelHandler(ChannelGroup channelGroup, Application application, NotificationManager notificationManager, ConcurrentMap<String, Channel> deviceSessions) {
 		this.channelGroup = channelGroup;
 		this.application = application;
 		this.notificationManager = notificationManager;
+		this.deviceSessions = deviceSessions;
 	}
 
 	@Override
@@ -44,11 +52,32 @@ public class NotificationChannelHandler extends SimpleChannelHandler {
 		channelGroup.add(e.getChannel());
 	}
 
+	@Override
+	public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+		if (deviceSessions != null) {
+			deviceSessions.values().remove(e.getChannel());
+		}
+	}
+
 	@Override
 	public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
 		Notification notification = (Notification) e.getMessage();
 		if (notification != null) {
+			registerSession(notification.getDeviceId(), e.getChannel());
 			notificationManager.notificationReceived(notification);
+			ReadThrottle.suspendIfBacklogged(notificationManager, e.getChannel());
+		}
+	}
+
+	protected void registerSession(String deviceId, Channel channel) {
+		if (deviceSessions == null || channel.getPipeline().get(SessionHandler.class) == null) {
+			return;
+		}
+		Channel previous = deviceSessions.put(deviceId, channel);
+		if (previous != null && previous != channel) {
+			// Device reconnected (e.g. changed networks) before its old session timed out
+			logger.debug("Closing previous session of device [{}] from [{}]", deviceId, previous.getRemoteAddress());
+			previous.close();
 		}
 	}
 
@@ -17,29 +17,50 @@
  */
 package com.notifier.desktop.notification.wifi;
 
+import java.util.*;
+
 import org.jboss.netty.buffer.*;
 import org.jboss.netty.channel.*;
 import org.jboss.netty.handler.codec.oneone.*;
 
+import com.notifier.desktop.notification.*;
 import com.notifier.desktop.notification.parsing.*;
+import com.notifier.desktop.transport.*;
 
 public class NotificationDecoder extends OneToOneDecoder {
 
 	public static final char FIELD_SEPARATOR = '/';
 	public static final String SUPPORTED_VERSION = "v2";
 
-	private final NotificationParser<byte[]> notificationParser;
+	private final NotificationParser<ChannelBuffer> notificationParser;
+	private final TransportMetrics metrics;
+	private final ProtocolMemory protocolMemory;
 
-	public NotificationDecoder(NotificationParser<byte[]> notificationParser) {
+	public NotificationDecoder(NotificationParser<ChannelBuffer> notificationParser, TransportMetrics metrics) {
 		this.notificationParser = notificationParser;
+		this.metrics = metrics;
+		this.protocolMemory = new ProtocolMemory(); // One decoder per channel
 	}
 
 	@Override
 	protected Object decode(ChannelHandlerContext ctx, Channel channel, Object msg) throws Exception {
-		ChannelBuffer buffer = (ChannelBuffer) msg;
-		byte[] data = new byte[buffer.readableBytes()];
-		buffer.readBytes(data);
-		return notificationParser.parse(data);
+		long start = metrics.frameReceived();
+		List<Notification> notifications;
+		try {
+			notifications = notificationParser.parseAll((ChannelBuffer) msg, protocolMemory);
+		} catch (Exception e) {
+			metrics.frameFailed(start);
+			throw e;
+		}
+		metrics.frameParsed(start, notifications);
+		if (notifications.size() <= 1) {
+			return notifications.isEmpty() ? null : notifications.get(0);
+		}
+		// Batches go upstream one notification at a time, in order
+		for (Notification notification : notifications) {
+			Channels.fireMessageReceived(ctx, notification, channel.getRemoteAddress());
+		}
+		return null;
 	}
 
 }
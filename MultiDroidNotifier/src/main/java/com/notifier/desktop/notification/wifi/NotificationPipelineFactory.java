@@ -17,6 +17,8 @@
  */
 package com.notifier.desktop.notification.wifi;
 
+import java.util.concurrent.*;
+
 import org.jboss.netty.buffer.*;
 import org.jboss.netty.channel.*;
 import org.jboss.netty.channel.group.*;
@@ -24,9 +26,12 @@ import org.jboss.netty.handler.codec.frame.*;
 import org.jboss.netty.handler.timeout.*;
 import org.jboss.netty.util.*;
 
+import com.google.common.base.*;
+import com.google.common.collect.*;
 import com.notifier.desktop.*;
 import com.notifier.desktop.notification.*;
 import com.notifier.desktop.notification.parsing.*;
+import com.notifier.desktop.transport.*;
 
 public class NotificationPipelineFactory implements ChannelPipelineFactory {
 
@@ -34,48 +39,69 @@ public class NotificationPipelineFactory implements ChannelPipelineFactory {
 	public static final ChannelBuffer MESSAGE_DELIMITER = ChannelBuffers.wrappedBuffer(new byte[] { 0 });
 	public static final int READ_TIMEOUT = 30;
 
+	public static final byte[] SESSION_MAGIC = { 'A', 'N', 'S', 1 };
+	public static final int SESSION_HEARTBEAT_INTERVAL = 60;
+	public static final int SESSION_IDLE_TIMEOUT = 3 * SESSION_HEARTBEAT_INTERVAL;
+
+	static final String DECODER = "decoder";
+
 	private final ChannelGroup channelGroup;
 	private final Application application;
 	private final NotificationManager notificationManager;
-	private final NotificationParser<byte[]> notificationParser;
-	private final boolean hasTimeout;
+	private final NotificationParser<ChannelBuffer> notificationParser;
+	private final TransportMetrics metrics;
+	private final Timer timer;
 	private final boolean useDelimiter;
+	private final boolean allowSessions;
 	private final ChannelHandler handler;
+	private final ConcurrentMap<String, Channel> deviceSessions;
 
-	public NotificationPipelineFactory(ChannelGroup channelGroup, Application application, NotificationManager notificationManager, NotificationParser<byte[]> notificationParser, boolean hasTimeout, boolean useDelimiter) {
+	public NotificationPipelineFactory(ChannelGroup channelGroup, Application application, NotificationManager notificationManager, NotificationParser<ChannelBuffer> notificationParser, TransportMetrics metrics, Timer timer, boolean useDelimiter, boolean allowSessions) {
+		Preconditions.checkArgument(!allowSessions || timer != null, "Sessions require a timer");
 		this.channelGroup = channelGroup;
 		this.application = application;
 		this.notificationManager = notificationManager;
 		this.notificationParser = notificationParser;
-		this.hasTimeout = hasTimeout;
+		this.metrics = metrics;
+		this.timer = timer;
 		this.useDelimiter = useDelimiter;
+		this.allowSessions = allowSessions;
 		this.handler = null;
+		this.deviceSessions = allowSessions ? new MapMaker().<String, Channel>makeMap() : null;
 	}
 
-	public NotificationPipelineFactory(NotificationParser<byte[]> notificationParser, boolean hasTimeout, boolean useDelimiter, ChannelHandler handler) {
+	public NotificationPipelineFactory(NotificationParser<ChannelBuffer> notificationParser, TransportMetrics metrics, Timer timer, boolean useDelimiter, ChannelHandler handler) {
 		this.channelGroup = null;
 		this.application = null;
 		this.notificationManager = null;
 		this.notificationParser = notificationParser;
-		this.hasTimeout = hasTimeout;
+		this.metrics = metrics;
+		this.timer = timer;
 		this.useDelimiter = useDelimiter;
+		this.allowSessions = false;
 		this.handler = handler;
+		this.deviceSessions = null;
 	}
 
 	@Override
 	public ChannelPipeline getPipeline() throws Exception {
 		ChannelPipeline pipeline = Channels.pipeline();
-		if (useDelimiter) {
-			pipeline.addLast("delimiter", new DelimiterBasedFrameDecoder(MAX_MESSAGE_LENGTH, false, MESSAGE_DELIMITER));
-		}
-
-		if (hasTimeout) {
-			Timer timer = new HashedWheelTimer();
+		if (allowSessions) {
+			// Framing is chosen once the first bytes arrive, the read timeout stays for one-shot connections and becomes
+			// the session idle handler otherwise, so a client that never writes is still closed
 			pipeline.addLast("read-timeout", new ReadTimeoutHandler(timer, READ_TIMEOUT));
+			pipeline.addLast("detector", new SessionDetectionDecoder(timer));
+		} else {
+			if (useDelimiter) {
+				pipeline.addLast("delimiter", new DelimiterBasedFrameDecoder(MAX_MESSAGE_LENGTH, false, MESSAGE_DELIMITER));
+			}
+			if (timer != null) {
+				pipeline.addLast("read-timeout", new ReadTimeoutHandler(timer, READ_TIMEOUT));
+			}
 		}
-		pipeline.addLast("decoder", new NotificationDecoder(notificationParser));
+		pipeline.addLast(DECODER, new NotificationDecoder(notificationParser, metrics));
 		if (handler == null) {
-			pipeline.addLast("handler", new NotificationChannelHandler(channelGroup, application, notificationManager));
+			pipeline.addLast("handler", new NotificationChannelHandler(channelGroup, application, notificationManager, deviceSessions));
 		} else {
 			pipeline.addLast("handler", handler);
 		}
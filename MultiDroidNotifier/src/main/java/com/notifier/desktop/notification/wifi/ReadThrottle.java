@@ -0,0 +1,49 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.notification.wifi;
+
+import org.jboss.netty.channel.*;
+import org.slf4j.*;
+
+import com.notifier.desktop.notification.*;
+
+/**
+ * Pushes back on a transport channel while broadcasters are backlogged.
+ */
+public class ReadThrottle {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReadThrottle.class);
+
+	private ReadThrottle() {
+	}
+
+	public static void suspendIfBacklogged(NotificationManager notificationManager, final Channel channel) {
+		if (notificationManager.isBacklogged() && channel.isReadable()) {
+			logger.debug("Broadcasters are backlogged, suspending reads from [{}]", channel.getRemoteAddress());
+			channel.setReadable(false);
+			notificationManager.runWhenDrained(new Runnable() {
+				@Override
+				public void run() {
+					if (channel.isOpen()) {
+						channel.setReadable(true);
+					}
+				}
+			});
+		}
+	}
+}
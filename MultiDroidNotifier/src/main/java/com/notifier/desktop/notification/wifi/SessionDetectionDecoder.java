@@ -0,0 +1,83 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.notification.wifi;
+
+import org.jboss.netty.buffer.*;
+import org.jboss.netty.channel.*;
+import org.jboss.netty.handler.codec.frame.*;
+import org.jboss.netty.handler.timeout.*;
+import org.jboss.netty.util.*;
+
+/**
+ * Looks at the first bytes of a connection to choose between a persistent session
+ * (length-prefixed frames with heartbeats) and the one-shot, delimiter-framed protocol.
+ */
+public class SessionDetectionDecoder extends FrameDecoder {
+
+	private final Timer timer;
+
+	public SessionDetectionDecoder(Timer timer) {
+		this.timer = timer;
+	}
+
+	@Override
+	protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) throws Exception {
+		int prefixLength = Math.min(buffer.readableBytes(), NotificationPipelineFactory.SESSION_MAGIC.length);
+		for (int i = 0; i < prefixLength; i++) {
+			if (buffer.getByte(buffer.readerIndex() + i) != NotificationPipelineFactory.SESSION_MAGIC[i]) {
+				switchToOneShot(ctx);
+				return buffer.readBytes(buffer.readableBytes());
+			}
+		}
+		if (prefixLength < NotificationPipelineFactory.SESSION_MAGIC.length) {
+			return null;
+		}
+
+		buffer.skipBytes(prefixLength);
+		switchToSession(ctx);
+		if (buffer.readable()) {
+			return buffer.readBytes(buffer.readableBytes());
+		}
+		return null;
+	}
+
+	@Override
+	protected Object decodeLast(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) throws Exception {
+		if (buffer.readable()) {
+			// Connection closed before the prefix was complete, let the one-shot handlers deal with it
+			switchToOneShot(ctx);
+			return buffer.readBytes(buffer.readableBytes());
+		}
+		return null;
+	}
+
+	protected void switchToOneShot(ChannelHandlerContext ctx) {
+		ChannelPipeline pipeline = ctx.getPipeline();
+		pipeline.addBefore(NotificationPipelineFactory.DECODER, "delimiter", new DelimiterBasedFrameDecoder(NotificationPipelineFactory.MAX_MESSAGE_LENGTH, false, NotificationPipelineFactory.MESSAGE_DELIMITER));
+		pipeline.remove(this);
+	}
+
+	protected void switchToSession(ChannelHandlerContext ctx) {
+		ChannelPipeline pipeline = ctx.getPipeline();
+		pipeline.replace("read-timeout", "idle", new IdleStateHandler(timer, NotificationPipelineFactory.SESSION_IDLE_TIMEOUT, NotificationPipelineFactory.SESSION_HEARTBEAT_INTERVAL, 0));
+		pipeline.addBefore(NotificationPipelineFactory.DECODER, "frameDecoder", new LengthFieldBasedFrameDecoder(NotificationPipelineFactory.MAX_MESSAGE_LENGTH, 0, 4, 0, 4));
+		pipeline.addBefore(NotificationPipelineFactory.DECODER, "frameEncoder", new LengthFieldPrepender(4));
+		pipeline.addBefore(NotificationPipelineFactory.DECODER, "session", new SessionHandler());
+		pipeline.remove(this);
+	}
+}
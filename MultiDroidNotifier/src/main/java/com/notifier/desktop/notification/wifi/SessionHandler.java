@@ -0,0 +1,56 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.notification.wifi;
+
+import org.jboss.netty.buffer.*;
+import org.jboss.netty.channel.*;
+import org.jboss.netty.handler.timeout.*;
+import org.slf4j.*;
+
+/**
+ * Keeps a persistent session alive: empty frames are heartbeats in both directions,
+ * a heartbeat is sent when nothing was written for a while and the session is closed
+ * when the device stays silent for too long.
+ */
+public class SessionHandler extends IdleStateAwareChannelHandler {
+
+	private static final Logger logger = LoggerFactory.getLogger(SessionHandler.class);
+
+	@Override
+	public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+		ChannelBuffer frame = (ChannelBuffer) e.getMessage();
+		if (frame.readable()) {
+			ctx.sendUpstream(e);
+		}
+	}
+
+	@Override
+	public void channelIdle(ChannelHandlerContext ctx, IdleStateEvent e) throws Exception {
+		switch (e.getState()) {
+			case READER_IDLE:
+				logger.debug("No data from [{}] for [{}] seconds, closing session", e.getChannel().getRemoteAddress(), NotificationPipelineFactory.SESSION_IDLE_TIMEOUT);
+				e.getChannel().close();
+				break;
+			case WRITER_IDLE:
+				Channels.write(ctx, Channels.future(e.getChannel()), ChannelBuffers.EMPTY_BUFFER);
+				break;
+			default:
+				break;
+		}
+	}
+}
@@ -22,4 +22,20 @@ public interface ServiceClient {
 	boolean isRunning();
 	boolean stop();
 
+	/**
+	 * Returns the metrics in the Prometheus text format, or null if not running.
+	 */
+	String getStats();
+
+	/**
+	 * Returns one {@code <device id>\t<device name>} line per paired device, or null if not running.
+	 */
+	String getDevices();
+
+	/**
+	 * Writes a line per broadcast notification to the output until the application stops.
+	 * Returns false if it's not running.
+	 */
+	boolean tail(Appendable output);
+
 }
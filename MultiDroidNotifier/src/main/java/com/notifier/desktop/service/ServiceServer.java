@@ -20,9 +20,26 @@ package com.notifier.desktop.service;
 import com.google.common.base.*;
 import com.notifier.desktop.*;
 
+/**
+ * Line oriented admin protocol on the loopback interface. Clients send one command per line
+ * and may send several on the same connection. Every reply starts with {@code OK} or
+ * {@code ERROR <message>}; multi-line replies follow it with their lines and a {@code .} line.
+ * After {@code TAIL} the server writes one line per broadcast notification until the client
+ * disconnects.
+ */
 public interface ServiceServer extends Service, Named {
 
 	public enum Command {
-		STOP, PING
+		STOP(false), PING(false), STATS(true), DEVICES(true), TAIL(false);
+
+		private final boolean multiLine;
+
+		private Command(boolean multiLine) {
+			this.multiLine = multiLine;
+		}
+
+		public boolean isMultiLine() {
+			return multiLine;
+		}
 	}
 }
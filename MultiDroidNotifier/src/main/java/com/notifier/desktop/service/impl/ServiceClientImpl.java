@@ -22,7 +22,6 @@ import java.net.*;
 
 import org.slf4j.*;
 
-import com.google.common.io.*;
 import com.notifier.desktop.service.*;
 
 public class ServiceClientImpl implements ServiceClient {
@@ -31,47 +30,127 @@ public class ServiceClientImpl implements ServiceClient {
 
 	private static final Logger logger = LoggerFactory.getLogger(ServiceClientImpl.class);
 
+	private final int port;
+
+	public ServiceClientImpl() {
+		this(ServiceServerImpl.PORT);
+	}
+
+	public ServiceClientImpl(int port) {
+		this.port = port;
+	}
+
 	@Override
 	public boolean isRunning() {
-		return sendCommand(ServiceServer.Command.PING);
+		return sendCommand(ServiceServer.Command.PING) != null;
 	}
 
 	@Override
 	public boolean stop() {
-		return sendCommand(ServiceServer.Command.STOP);
+		return sendCommand(ServiceServer.Command.STOP) != null;
 	}
 
-	protected boolean sendCommand(ServiceServer.Command command) {
+	@Override
+	public String getStats() {
+		return sendCommand(ServiceServer.Command.STATS);
+	}
+
+	@Override
+	public String getDevices() {
+		return sendCommand(ServiceServer.Command.DEVICES);
+	}
+
+	@Override
+	public boolean tail(Appendable output) {
 		Socket socket = null;
 		try {
 			socket = getSocket();
-			final Socket socketToUse = socket;
-			CharStreams.write(command.name(), new OutputSupplier<BufferedWriter>() {
-				@Override
-				public BufferedWriter getOutput() throws IOException {
-					return new BufferedWriter(new OutputStreamWriter(socketToUse.getOutputStream(), ServiceServerImpl.CHARSET));
+			BufferedReader reader = send(socket, ServiceServer.Command.TAIL);
+			if (!readStatus(reader, ServiceServer.Command.TAIL)) {
+				return false;
+			}
+			// Notifications may be far apart
+			socket.setSoTimeout(0);
+			String line;
+			while ((line = reader.readLine()) != null) {
+				output.append(line).append('\n');
+				if (output instanceof Flushable) {
+					((Flushable) output).flush();
 				}
-			});
+			}
 			return true;
 		} catch (ConnectException e) {
 			return false;
 		} catch (IOException e) {
-			logger.warn("Error sending command to service server", e);
+			logger.warn("Error tailing notifications from service server", e);
 			return false;
 		} finally {
-			if (socket != null) {
-				try {
-					socket.close();
-				} catch (IOException e) {
-					logger.warn("Error closing socket to service server", e);
+			close(socket);
+		}
+	}
+
+	/**
+	 * Returns the reply body, empty for single line replies, or null if the command failed.
+	 */
+	protected String sendCommand(ServiceServer.Command command) {
+		Socket socket = null;
+		try {
+			socket = getSocket();
+			BufferedReader reader = send(socket, command);
+			if (!readStatus(reader, command)) {
+				return null;
+			}
+			StringBuilder body = new StringBuilder();
+			if (command.isMultiLine()) {
+				String line;
+				while ((line = reader.readLine()) != null && !line.equals(ServiceServerImpl.END)) {
+					body.append(line).append('\n');
+				}
+				if (line == null) {
+					logger.warn("Service server closed the connection before finishing reply to [{}]", command);
+					return null;
 				}
 			}
+			return body.toString();
+		} catch (ConnectException e) {
+			return null;
+		} catch (IOException e) {
+			logger.warn("Error sending command to service server", e);
+			return null;
+		} finally {
+			close(socket);
+		}
+	}
+
+	protected BufferedReader send(Socket socket, ServiceServer.Command command) throws IOException {
+		Writer writer = new OutputStreamWriter(socket.getOutputStream(), ServiceServerImpl.CHARSET);
+		writer.write(command.name() + "\n");
+		writer.flush();
+		return new BufferedReader(new InputStreamReader(socket.getInputStream(), ServiceServerImpl.CHARSET));
+	}
+
+	protected boolean readStatus(BufferedReader reader, ServiceServer.Command command) throws IOException {
+		String status = reader.readLine();
+		if (ServiceServerImpl.OK.equals(status)) {
+			return true;
 		}
+		logger.warn("Service server replied [{}] to [{}]", status, command);
+		return false;
 	}
 
 	protected Socket getSocket() throws IOException {
-		Socket socket = new Socket(InetAddress.getByName(null), ServiceServerImpl.PORT);
+		Socket socket = new Socket(InetAddress.getByName(null), port);
 		socket.setSoTimeout(SOCKET_TIMEOUT);
 		return socket;
 	}
+
+	protected void close(Socket socket) {
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				logger.warn("Error closing socket to service server", e);
+			}
+		}
+	}
 }
@@ -19,29 +19,78 @@ package com.notifier.desktop.service.impl;
 
 import java.io.*;
 import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
 import java.nio.charset.*;
+import java.util.*;
 import java.util.concurrent.*;
 
 import org.slf4j.*;
 
 import com.google.common.base.*;
-import com.google.common.io.*;
 import com.google.inject.*;
 import com.notifier.desktop.*;
+import com.notifier.desktop.device.*;
+import com.notifier.desktop.metrics.*;
+import com.notifier.desktop.notification.*;
 import com.notifier.desktop.service.*;
 
+/**
+ * Serves every admin connection from a single selector thread, so a client that stops reading
+ * or never finishes its command cannot hold up the others.
+ */
 @Singleton
 public class ServiceServerImpl extends RestartableService implements ServiceServer {
 
 	public static final int PORT = 10700;
 	public static final Charset CHARSET = Charsets.UTF_8;
 
+	public static final String OK = "OK";
+	public static final String ERROR = "ERROR";
+	public static final String END = ".";
+
 	private static final Logger logger = LoggerFactory.getLogger(ServiceServerImpl.class);
 
-	private @Inject Application application;
-	private @Inject ExecutorService executorService;
-	private ServerSocket serverSocket;
-	private boolean stopped;
+	private static final int SHUTDOWN_TIMEOUT = 5;
+	private static final int MAX_LINE_LENGTH = 256;
+	// Tail subscribers that fall this far behind are disconnected instead of buffered without bound
+	private static final int MAX_PENDING_BYTES = 256 * 1024;
+	private static final CharMatcher LINE_BREAKS = CharMatcher.anyOf("\t\r\n");
+
+	private final int port;
+	private final Provider<Application> applicationProvider;
+	private final ExecutorService executorService;
+	private final DeviceManager deviceManager;
+	private final NotificationManager notificationManager;
+	private final MetricRegistry metricRegistry;
+	private final NotificationManager.Listener tailListener;
+
+	private volatile SelectorLoop loop;
+
+	@Inject
+	public ServiceServerImpl(Provider<Application> applicationProvider, ExecutorService executorService, DeviceManager deviceManager,
+	                         NotificationManager notificationManager, MetricRegistry metricRegistry) {
+		this(PORT, applicationProvider, executorService, deviceManager, notificationManager, metricRegistry);
+	}
+
+	ServiceServerImpl(int port, Provider<Application> applicationProvider, ExecutorService executorService, DeviceManager deviceManager,
+	                  NotificationManager notificationManager, MetricRegistry metricRegistry) {
+		this.port = port;
+		this.applicationProvider = applicationProvider;
+		this.executorService = executorService;
+		this.deviceManager = deviceManager;
+		this.notificationManager = notificationManager;
+		this.metricRegistry = metricRegistry;
+		this.tailListener = new NotificationManager.Listener() {
+			@Override
+			public void notificationBroadcast(Notification notification, String deviceName, boolean privateMode) {
+				SelectorLoop current = loop;
+				if (current != null && current.hasTailSubscribers()) {
+					current.publish(encodeTailLine(notification, deviceName, privateMode));
+				}
+			}
+		};
+	}
 
 	@Override
 	public String getName() {
@@ -50,25 +99,35 @@ public class ServiceServerImpl extends RestartableService implements ServiceServ
 
 	@Override
 	public void doStart() {
-		logger.debug("Starting service server on port [{}]", PORT);
+		logger.debug("Starting service server on port [{}]", port);
+		Selector selector = null;
+		ServerSocketChannel serverChannel = null;
 		try {
-			serverSocket = new ServerSocket(PORT, 0, InetAddress.getByName(null));
-			stopped = false;
-			executorService.execute(new ServerRunnable());
+			selector = Selector.open();
+			serverChannel = ServerSocketChannel.open();
+			serverChannel.socket().setReuseAddress(true);
+			serverChannel.socket().bind(new InetSocketAddress(InetAddress.getByName(null), port));
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+			loop = new SelectorLoop(selector, serverChannel);
+			notificationManager.addListener(tailListener);
+			executorService.execute(loop);
 		} catch (Exception e) {
+			closeQuietly(serverChannel);
+			closeQuietly(selector);
+			loop = null;
 			throw new RuntimeException("Error starting service server, you will not be able to stop it via command line", e);
 		}
 	}
 
 	@Override
-	public void doStop() {
-		try {
-			stopped = true;
-			if (serverSocket != null) {
-				serverSocket.close();
-			}
-		} catch (IOException e) {
-			logger.warn("Error closing service socket", e);
+	public void doStop() throws InterruptedException {
+		notificationManager.removeListener(tailListener);
+		SelectorLoop current = loop;
+		loop = null;
+		// Waits for the port to be released so the server can be started again right away
+		if (current != null && !current.shutdown(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+			logger.warn("Timed out stopping service server");
 		}
 	}
 
@@ -76,44 +135,302 @@ public class ServiceServerImpl extends RestartableService implements ServiceServ
 		executorService.execute(new Runnable() {
 			@Override
 			public void run() {
-				application.shutdown();
+				applicationProvider.get().shutdown();
 			}
 		});
 	}
 
-	private class ServerRunnable implements Runnable {
+	protected ByteBuffer encodeTailLine(Notification notification, String deviceName, boolean privateMode) {
+		StringBuilder line = new StringBuilder();
+		line.append(notification.getDeviceId()).append('\t');
+		line.append(clean(deviceName)).append('\t');
+		line.append(notification.getType().name()).append('\t');
+		line.append(clean(notification.getDescription(privateMode))).append('\n');
+		return CHARSET.encode(line.toString()).asReadOnlyBuffer();
+	}
+
+	protected String getDevices() {
+		StringBuilder devices = new StringBuilder();
+		for (String deviceId : deviceManager.getPairedDeviceIds()) {
+			devices.append(deviceId).append('\t').append(clean(deviceManager.getDeviceName(deviceId))).append('\n');
+		}
+		return devices.toString();
+	}
+
+	protected static String clean(String value) {
+		return value == null ? "" : LINE_BREAKS.replaceFrom(value, ' ');
+	}
+
+	protected static void closeQuietly(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				logger.warn("Error closing service server resource", e);
+			}
+		}
+	}
+
+	private class SelectorLoop implements Runnable {
+		private final Selector selector;
+		private final ServerSocketChannel serverChannel;
+		private final Queue<ByteBuffer> published;
+		private final List<Connection> tailSubscribers;
+		private volatile int tailSubscriberCount;
+		private final CountDownLatch terminated;
+		private volatile boolean stopped;
+
+		public SelectorLoop(Selector selector, ServerSocketChannel serverChannel) {
+			this.selector = selector;
+			this.serverChannel = serverChannel;
+			this.published = new ConcurrentLinkedQueue<ByteBuffer>();
+			this.tailSubscribers = new ArrayList<Connection>();
+			this.terminated = new CountDownLatch(1);
+		}
+
+		public boolean hasTailSubscribers() {
+			return tailSubscriberCount > 0;
+		}
+
+		public void publish(ByteBuffer line) {
+			published.add(line);
+			selector.wakeup();
+		}
+
+		public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+			stopped = true;
+			selector.wakeup();
+			return terminated.await(timeout, unit);
+		}
+
 		@Override
 		public void run() {
-			while (!Thread.currentThread().isInterrupted()) {
-				try {
-					final Socket socket = serverSocket.accept();
-					try {
-						String data = CharStreams.toString(new InputSupplier<BufferedReader>() {
-							@Override
-							public BufferedReader getInput() throws IOException {
-								return new BufferedReader(new InputStreamReader(socket.getInputStream(), CHARSET));
+			try {
+				while (!stopped) {
+					selector.select();
+					if (stopped) {
+						break;
+					}
+					distributePublished();
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						if (!key.isValid()) {
+							continue;
+						}
+						if (key.isAcceptable()) {
+							accept();
+						} else {
+							Connection connection = (Connection) key.attachment();
+							try {
+								if (key.isReadable()) {
+									connection.read();
+								}
+								if (key.isValid() && key.isWritable()) {
+									connection.write();
+								}
+							} catch (IOException e) {
+								logger.debug("Closing service connection after error", e);
+								connection.close();
 							}
-						});
-						Command command = Command.valueOf(data);
-						switch (command) {
-							case STOP:
-								commandReceived(command);
-								return; // Exit this thread
-							default:
-								// Just ignore
-								break;
 						}
-					} finally {
-						socket.close();
 					}
-				} catch (SocketException e) {
-					if (stopped) {
-						break;
+				}
+			} catch (Throwable t) {
+				logger.error("Error on service server, you will not be able to stop it via command line", t);
+			} finally {
+				for (SelectionKey key : selector.keys()) {
+					closeQuietly(key.channel());
+				}
+				closeQuietly(selector);
+				terminated.countDown();
+			}
+		}
+
+		protected void accept() throws IOException {
+			SocketChannel channel = serverChannel.accept();
+			if (channel != null) {
+				channel.configureBlocking(false);
+				new Connection(this, channel);
+			}
+		}
+
+		protected void distributePublished() {
+			ByteBuffer line;
+			while ((line = published.poll()) != null) {
+				for (Connection connection : new ArrayList<Connection>(tailSubscribers)) {
+					if (connection.getPendingBytes() + line.remaining() > MAX_PENDING_BYTES) {
+						logger.warn("Tail subscriber is not keeping up, disconnecting it");
+						connection.close();
+						continue;
+					}
+					try {
+						// Subscribers share the encoded line, each only gets its own position
+						connection.send(line.duplicate());
+					} catch (IOException e) {
+						logger.debug("Closing tail subscriber after error", e);
+						connection.close();
+					}
+				}
+			}
+		}
+
+		protected void subscribe(Connection connection) {
+			tailSubscribers.add(connection);
+			tailSubscriberCount = tailSubscribers.size();
+		}
+
+		protected void unsubscribe(Connection connection) {
+			if (tailSubscribers.remove(connection)) {
+				tailSubscriberCount = tailSubscribers.size();
+			}
+		}
+	}
+
+	private class Connection {
+		private final SelectorLoop loop;
+		private final SocketChannel channel;
+		private final SelectionKey key;
+		private final ByteBuffer input;
+		private final Queue<ByteBuffer> output;
+		private int pendingBytes;
+		private boolean tailing;
+		private boolean closeWhenFlushed;
+
+		public Connection(SelectorLoop loop, SocketChannel channel) throws ClosedChannelException {
+			this.loop = loop;
+			this.channel = channel;
+			this.input = ByteBuffer.allocate(MAX_LINE_LENGTH);
+			this.output = new LinkedList<ByteBuffer>();
+			this.key = channel.register(loop.selector, SelectionKey.OP_READ, this);
+		}
+
+		public int getPendingBytes() {
+			return pendingBytes;
+		}
+
+		public void read() throws IOException {
+			int read = channel.read(input);
+			input.flip();
+			int lineStart = 0;
+			for (int i = input.position(); i < input.limit(); i++) {
+				if (input.get(i) == '\n') {
+					handle(decode(lineStart, i));
+					if (!key.isValid()) {
+						return;
 					}
-					logger.error("Error on server socket", e);
-				} catch (IOException e) {
-					logger.error("Error handling service request", e);
+					lineStart = i + 1;
+				}
+			}
+			input.position(lineStart);
+			input.compact();
+
+			if (read < 0) {
+				// Older clients send a single command without line break and close the connection
+				if (input.position() > 0) {
+					handle(decode(0, input.position()));
+					input.clear();
+				}
+				loop.unsubscribe(this);
+				closeWhenFlushed = true;
+				updateInterest();
+			} else if (!input.hasRemaining()) {
+				send(ERROR + " line too long");
+				closeWhenFlushed = true;
+				updateInterest();
+			}
+		}
+
+		public void send(String line) throws IOException {
+			send(CHARSET.encode(line + "\n"));
+		}
+
+		public void send(ByteBuffer data) throws IOException {
+			if (!key.isValid()) {
+				return;
+			}
+			output.add(data);
+			pendingBytes += data.remaining();
+			// Try right away, most replies fit in the socket buffer and never need OP_WRITE
+			write();
+		}
+
+		public void write() throws IOException {
+			ByteBuffer data;
+			while ((data = output.peek()) != null) {
+				pendingBytes -= channel.write(data);
+				if (data.hasRemaining()) {
+					break;
 				}
+				output.remove();
+			}
+			updateInterest();
+		}
+
+		public void close() {
+			loop.unsubscribe(this);
+			key.cancel();
+			closeQuietly(channel);
+		}
+
+		protected void updateInterest() {
+			if (!key.isValid()) {
+				return;
+			}
+			if (closeWhenFlushed && output.isEmpty()) {
+				close();
+				return;
+			}
+			int ops = closeWhenFlushed ? 0 : SelectionKey.OP_READ;
+			if (!output.isEmpty()) {
+				ops |= SelectionKey.OP_WRITE;
+			}
+			key.interestOps(ops);
+		}
+
+		protected String decode(int start, int end) {
+			byte[] bytes = new byte[end - start];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = input.get(start + i);
+			}
+			return new String(bytes, CHARSET).trim();
+		}
+
+		protected void handle(String line) throws IOException {
+			if (line.length() == 0) {
+				return;
+			}
+			Command command;
+			try {
+				command = Command.valueOf(line.toUpperCase(Locale.ENGLISH));
+			} catch (IllegalArgumentException e) {
+				send(ERROR + " unknown command: " + clean(line));
+				return;
+			}
+			switch (command) {
+				case STOP:
+					send(OK);
+					commandReceived(command);
+					break;
+				case PING:
+					send(OK);
+					break;
+				case STATS:
+					StringBuilder stats = new StringBuilder(OK).append('\n');
+					metricRegistry.writeText(stats);
+					send(stats.append(END).toString());
+					break;
+				case DEVICES:
+					send(OK + "\n" + getDevices() + END);
+					break;
+				case TAIL:
+					if (!tailing) {
+						tailing = true;
+						loop.subscribe(this);
+					}
+					send(OK);
+					break;
 			}
 		}
 	}
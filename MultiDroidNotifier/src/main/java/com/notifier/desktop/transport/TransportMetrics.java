@@ -0,0 +1,87 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.transport;
+
+import java.util.*;
+
+import com.notifier.desktop.metrics.*;
+import com.notifier.desktop.notification.*;
+
+/**
+ * Frames received by one transport and how long parsing (including decryption) took. A frame
+ * that throws or yields no notification counts as a parse failure.
+ */
+public class TransportMetrics {
+
+	private final Counter frames;
+	private final Counter parseFailures;
+	private final LatencyHistogram parseTime;
+
+	/**
+	 * Metrics that are recorded but not published anywhere.
+	 */
+	public TransportMetrics() {
+		this(new Counter(), new Counter(), new LatencyHistogram());
+	}
+
+	public TransportMetrics(Counter frames, Counter parseFailures, LatencyHistogram parseTime) {
+		this.frames = frames;
+		this.parseFailures = parseFailures;
+		this.parseTime = parseTime;
+	}
+
+	public static TransportMetrics create(MetricRegistry registry, String transport) {
+		String labels = "{transport=\"" + transport + "\"}";
+		return new TransportMetrics(
+		    registry.counter("notifier_frames_received_total" + labels, "Frames received per transport"),
+		    registry.counter("notifier_parse_failures_total" + labels, "Frames that could not be parsed into a notification"),
+		    registry.histogram("notifier_parse_seconds" + labels, "Time to parse and decrypt a frame"));
+	}
+
+	/**
+	 * @return the start time to pass to {@link #frameParsed} or {@link #frameFailed}
+	 */
+	public long frameReceived() {
+		frames.increment();
+		return System.nanoTime();
+	}
+
+	public void frameParsed(long startNanos, List<Notification> notifications) {
+		parseTime.recordSince(startNanos);
+		if (notifications.isEmpty()) {
+			parseFailures.increment();
+		}
+	}
+
+	public void frameFailed(long startNanos) {
+		parseTime.recordSince(startNanos);
+		parseFailures.increment();
+	}
+
+	public Counter getFrames() {
+		return frames;
+	}
+
+	public Counter getParseFailures() {
+		return parseFailures;
+	}
+
+	public LatencyHistogram getParseTime() {
+		return parseTime;
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.transport;
+
+import org.jboss.netty.channel.*;
+import org.jboss.netty.util.*;
+
+/**
+ * I/O threads shared by all transports. Transports must close their own channels
+ * but never release the factories, that happens once in {@link #shutdown()}.
+ */
+public interface TransportRuntime {
+
+	ChannelFactory getServerSocketChannelFactory();
+
+	ChannelFactory getClientSocketChannelFactory();
+
+	ChannelFactory getDatagramChannelFactory();
+
+	Timer getTimer();
+
+	void shutdown();
+
+}
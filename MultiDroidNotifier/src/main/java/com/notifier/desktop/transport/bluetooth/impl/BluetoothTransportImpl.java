@@ -18,6 +18,7 @@
 package com.notifier.desktop.transport.bluetooth.impl;
 
 import java.io.*;
+import java.util.List;
 
 import javax.bluetooth.*;
 import javax.microedition.io.*;
@@ -28,9 +29,11 @@ import com.google.common.base.*;
 import com.google.common.io.*;
 import com.google.inject.*;
 import com.notifier.desktop.*;
+import com.notifier.desktop.metrics.*;
 import com.notifier.desktop.notification.*;
 import com.notifier.desktop.notification.parsing.*;
 import com.notifier.desktop.os.*;
+import com.notifier.desktop.transport.*;
 import com.notifier.desktop.transport.bluetooth.*;
 
 @Singleton
@@ -46,6 +49,7 @@ public class BluetoothTransportImpl extends RestartableService implements Blueto
 	private @Inject Application application;
 	private @Inject NotificationManager notificationManager;
 	private @Inject NotificationParser<byte[]> notificationParser;
+	private @Inject MetricRegistry metricRegistry;
 
 	private String address;
 	private volatile boolean enabled;
@@ -79,6 +83,7 @@ public class BluetoothTransportImpl extends RestartableService implements Blueto
 		}
 		enabled = true;
 		if (localDevice != null && acceptorThread == null) {
+			final TransportMetrics metrics = TransportMetrics.create(metricRegistry, "bluetooth");
 			acceptorThread = new Thread(new Runnable() {
 				@Override
 				public void run() {
@@ -99,8 +104,16 @@ public class BluetoothTransportImpl extends RestartableService implements Blueto
 								inputStream = connection.openInputStream();
 								byte[] data = ByteStreams.toByteArray(inputStream);
 								if (enabled) {
-									Notification notification = notificationParser.parse(data);
-									if (notification != null) {
+									long start = metrics.frameReceived();
+									List<Notification> notifications;
+									try {
+										notifications = notificationParser.parseAll(data, null);
+									} catch (ParseException e) {
+										metrics.frameFailed(start);
+										throw e;
+									}
+									metrics.frameParsed(start, notifications);
+									for (Notification notification : notifications) {
 										notificationManager.notificationReceived(notification);
 									}
 								}
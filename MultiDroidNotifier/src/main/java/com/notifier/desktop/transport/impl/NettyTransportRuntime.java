@@ -0,0 +1,123 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.transport.impl;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import org.jboss.netty.channel.*;
+import org.jboss.netty.channel.socket.nio.*;
+import org.jboss.netty.util.*;
+import org.slf4j.*;
+
+import com.google.common.collect.*;
+import com.google.common.util.concurrent.*;
+import com.google.inject.*;
+import com.notifier.desktop.transport.*;
+
+/**
+ * Factories are created on first use so disabled transports cost no threads.
+ */
+@Singleton
+public class NettyTransportRuntime implements TransportRuntime {
+
+	private static final Logger logger = LoggerFactory.getLogger(NettyTransportRuntime.class);
+
+	private static final int SERVER_WORKER_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors());
+	private static final int CLIENT_WORKER_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+	private ChannelFactory serverSocketChannelFactory;
+	private ChannelFactory clientSocketChannelFactory;
+	private ChannelFactory datagramChannelFactory;
+	private HashedWheelTimer timer;
+	private final List<ExecutorService> executors;
+
+	public NettyTransportRuntime() {
+		// Keep our thread names instead of Netty's "New I/O worker #n"
+		ThreadRenamingRunnable.setThreadNameDeterminer(ThreadNameDeterminer.CURRENT);
+		executors = Lists.newArrayList();
+	}
+
+	@Override
+	public synchronized ChannelFactory getServerSocketChannelFactory() {
+		if (serverSocketChannelFactory == null) {
+			serverSocketChannelFactory = new NioServerSocketChannelFactory(newExecutor("tcp-server-boss"), newExecutor("tcp-server-worker"), SERVER_WORKER_COUNT);
+		}
+		return serverSocketChannelFactory;
+	}
+
+	@Override
+	public synchronized ChannelFactory getClientSocketChannelFactory() {
+		if (clientSocketChannelFactory == null) {
+			clientSocketChannelFactory = new NioClientSocketChannelFactory(newExecutor("tcp-client-boss"), newExecutor("tcp-client-worker"), CLIENT_WORKER_COUNT);
+		}
+		return clientSocketChannelFactory;
+	}
+
+	@Override
+	public synchronized ChannelFactory getDatagramChannelFactory() {
+		if (datagramChannelFactory == null) {
+			// Only used to send discovery broadcasts, notifications are received by NioDatagramReceiver
+			datagramChannelFactory = new NioDatagramChannelFactory(newExecutor("udp"), 1);
+		}
+		return datagramChannelFactory;
+	}
+
+	@Override
+	public synchronized Timer getTimer() {
+		if (timer == null) {
+			timer = new HashedWheelTimer(newThreadFactory("timer"));
+		}
+		return timer;
+	}
+
+	@Override
+	public synchronized void shutdown() {
+		logger.debug("Releasing transport I/O threads");
+		for (ChannelFactory factory : new ChannelFactory[] { serverSocketChannelFactory, clientSocketChannelFactory, datagramChannelFactory }) {
+			if (factory != null) {
+				factory.releaseExternalResources();
+			}
+		}
+		serverSocketChannelFactory = null;
+		clientSocketChannelFactory = null;
+		datagramChannelFactory = null;
+		if (timer != null) {
+			timer.stop();
+			timer = null;
+		}
+		for (ExecutorService executor : executors) {
+			executor.shutdownNow();
+		}
+		executors.clear();
+	}
+
+	protected ExecutorService newExecutor(String name) {
+		// Netty starts at most one boss and a fixed number of workers, so the pool size stays bounded
+		ExecutorService executor = Executors.newCachedThreadPool(newThreadFactory(name));
+		executors.add(executor);
+		return executor;
+	}
+
+	protected ThreadFactory newThreadFactory(String name) {
+		ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
+		threadFactoryBuilder.setNameFormat("io-" + name + "-%s");
+		threadFactoryBuilder.setDaemon(true);
+		return threadFactoryBuilder.build();
+	}
+}
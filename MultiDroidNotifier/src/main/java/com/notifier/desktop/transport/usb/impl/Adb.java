@@ -26,6 +26,10 @@ import com.google.common.base.*;
 import com.google.common.collect.*;
 import com.google.common.io.*;
 
+/**
+ * Devices and port forwarding go through the adb server with {@link AdbClient}, the adb command
+ * from the SDK is only run to start the server when it isn't running.
+ */
 public class Adb {
 
 	private static final Logger logger = LoggerFactory.getLogger(Adb.class);
@@ -33,32 +37,39 @@ public class Adb {
 	private static final String TOOLS_PATH = "/tools";
 	private static final String ADB_PATH = TOOLS_PATH + "/adb";
 
+	private final AdbClient client;
 	private File sdkHome;
 
-	public List<Device> devices() throws IOException, InterruptedException {
-		Preconditions.checkNotNull(sdkHome, "Android SDK home has not been set");
-		String output = runAdb("devices");
-		Iterator<String> lines = Splitter.on('\n').trimResults().split(output).iterator();
-		for (;lines.next().startsWith("*");) {
-			; // Ignore daemon messages
-		}
-		List<Device> devices = Lists.newArrayList();
-		Splitter lineSplitter = Splitter.on('\t').trimResults();
-		while (lines.hasNext()) {
-			String line = lines.next();
-			if (!line.isEmpty()) {
-				Iterator<String> parts = lineSplitter.split(line).iterator();
-				String serialNumber = parts.next();
-				Device.Type type = Device.Type.parse(parts.next());
-				devices.add(new Device(serialNumber, type));
-			}
-		}
-		return devices;
+	public Adb() {
+		this(new AdbClient());
+	}
+
+	public Adb(AdbClient client) {
+		this.client = client;
+	}
+
+	public List<Device> devices() throws IOException {
+		return client.devices();
+	}
+
+	public void forward(Device device, int hostPort, String unixSocketName) throws IOException {
+		client.forward(device.getSerialNumber(), "tcp:" + hostPort, "localabstract:" + unixSocketName);
+	}
+
+	/**
+	 * @see AdbClient#trackDevices(AdbClient.DeviceListener)
+	 */
+	public void trackDevices(AdbClient.DeviceListener listener) throws IOException {
+		client.trackDevices(listener);
+	}
+
+	public void stopTracking() {
+		client.stopTracking();
 	}
 
-	public void forward(Device device, int hostPort, String unixSocketName) throws IOException, InterruptedException {
+	public void startServer() throws IOException, InterruptedException {
 		Preconditions.checkNotNull(sdkHome, "Android SDK home has not been set");
-		runAdb("-s", device.getSerialNumber(), "forward", "tcp:" + hostPort, "localabstract:" + unixSocketName);
+		runAdb("start-server");
 	}
 
 	public File getSdkHome() {
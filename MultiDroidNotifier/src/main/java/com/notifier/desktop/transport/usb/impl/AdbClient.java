@@ -0,0 +1,210 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.transport.usb.impl;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+import com.google.common.base.*;
+import com.google.common.collect.*;
+
+/**
+ * Talks to the local adb server over its host protocol, so nothing has to run the adb command.
+ * Each request is sent as its length in 4 hex digits followed by the request itself, and is
+ * answered with OKAY, or with FAIL followed by a message in the same length-prefixed format.
+ * The server closes the connection after answering, except when tracking devices.
+ */
+public class AdbClient {
+
+	public static final int DEFAULT_PORT = 5037;
+
+	private static final int CONNECT_TIMEOUT = 2000;
+	private static final int READ_TIMEOUT = 10000;
+	private static final String OKAY = "OKAY";
+	private static final String FAIL = "FAIL";
+
+	public interface DeviceListener {
+		/**
+		 * Called with every device attached, each time one is attached, detached or changes state.
+		 */
+		void devicesChanged(List<Adb.Device> devices);
+	}
+
+	private final InetSocketAddress address;
+	private volatile Socket trackingSocket;
+	private volatile boolean trackingStopped;
+
+	public AdbClient() {
+		this(new InetSocketAddress("127.0.0.1", DEFAULT_PORT));
+	}
+
+	public AdbClient(InetSocketAddress address) {
+		this.address = address;
+	}
+
+	public List<Adb.Device> devices() throws IOException {
+		Socket socket = connect();
+		try {
+			DataInputStream input = request(socket, "host:devices");
+			return parseDevices(readString(input));
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * @param serialNumber the device whose port to forward
+	 * @param local where to listen on this machine, e.g. tcp:10602
+	 * @param remote where to connect on the device, e.g. localabstract:androidnotifier
+	 */
+	public void forward(String serialNumber, String local, String remote) throws IOException {
+		Socket socket = connect();
+		try {
+			DataInputStream input = request(socket, "host-serial:" + serialNumber + ":forward:" + local + ";" + remote);
+			// The first OKAY says the device was found, newer servers answer again once the port is bound
+			byte[] status = new byte[4];
+			int read = 0;
+			while (read < status.length) {
+				int count = input.read(status, read, status.length - read);
+				if (count < 0) {
+					if (read == 0) {
+						return;
+					}
+					throw new EOFException("adb server closed the connection");
+				}
+				read += count;
+			}
+			checkStatus(new String(status, Charsets.US_ASCII), input, "forward");
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * Blocks the calling thread reporting device changes to the listener, starting with the devices
+	 * attached now, until the server closes the connection or {@link #stopTracking()} is called.
+	 * Returns right away once tracking was stopped.
+	 *
+	 * @throws ConnectException if the adb server is not running
+	 */
+	public void trackDevices(DeviceListener listener) throws IOException {
+		Socket socket = connect();
+		trackingSocket = socket;
+		try {
+			if (trackingStopped) {
+				return;
+			}
+			DataInputStream input = request(socket, "host:track-devices");
+			socket.setSoTimeout(0);
+			while (true) {
+				String devices;
+				try {
+					devices = readString(input);
+				} catch (EOFException e) {
+					return;
+				}
+				listener.devicesChanged(parseDevices(devices));
+			}
+		} catch (IOException e) {
+			if (!trackingStopped) {
+				throw e;
+			}
+		} finally {
+			trackingSocket = null;
+			socket.close();
+		}
+	}
+
+	public void stopTracking() {
+		trackingStopped = true;
+		Socket socket = trackingSocket;
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Nothing else to do
+			}
+		}
+	}
+
+	/**
+	 * Parses the device list sent by the server, one "serial\tstate" per line.
+	 */
+	public static List<Adb.Device> parseDevices(String devices) {
+		List<Adb.Device> result = Lists.newArrayList();
+		Splitter lineSplitter = Splitter.on('\t').trimResults();
+		for (String line : Splitter.on('\n').trimResults().omitEmptyStrings().split(devices)) {
+			Iterator<String> parts = lineSplitter.split(line).iterator();
+			String serialNumber = parts.next();
+			Adb.Device.Type type = Adb.Device.Type.parse(parts.hasNext() ? parts.next() : "");
+			result.add(new Adb.Device(serialNumber, type));
+		}
+		return result;
+	}
+
+	protected Socket connect() throws IOException {
+		Socket socket = new Socket();
+		try {
+			socket.connect(address, CONNECT_TIMEOUT);
+			socket.setSoTimeout(READ_TIMEOUT);
+			socket.setTcpNoDelay(true);
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+		return socket;
+	}
+
+	protected DataInputStream request(Socket socket, String request) throws IOException {
+		byte[] bytes = request.getBytes(Charsets.US_ASCII);
+		OutputStream output = socket.getOutputStream();
+		output.write(String.format("%04x", bytes.length).getBytes(Charsets.US_ASCII));
+		output.write(bytes);
+		output.flush();
+
+		DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		checkStatus(readFixed(input, 4), input, request);
+		return input;
+	}
+
+	private static void checkStatus(String status, DataInputStream input, String request) throws IOException {
+		if (OKAY.equals(status)) {
+			return;
+		}
+		if (FAIL.equals(status)) {
+			throw new IOException("adb server failed [" + request + "]: " + readString(input));
+		}
+		throw new IOException("Unexpected reply from adb server to [" + request + "]: " + status);
+	}
+
+	private static String readString(DataInputStream input) throws IOException {
+		String length = readFixed(input, 4);
+		try {
+			return readFixed(input, Integer.parseInt(length, 16));
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid length from adb server: " + length);
+		}
+	}
+
+	private static String readFixed(DataInputStream input, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, Charsets.UTF_8);
+	}
+}
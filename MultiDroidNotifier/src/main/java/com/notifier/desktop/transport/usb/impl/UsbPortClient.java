@@ -19,20 +19,21 @@ package com.notifier.desktop.transport.usb.impl;
 
 import java.io.*;
 import java.net.*;
-import java.util.concurrent.*;
 
 import org.jboss.netty.bootstrap.*;
 import org.jboss.netty.buffer.*;
 import org.jboss.netty.channel.*;
-import org.jboss.netty.channel.socket.nio.*;
+import org.jboss.netty.util.*;
 import org.slf4j.*;
 
 import com.google.inject.*;
 import com.notifier.desktop.*;
 import com.notifier.desktop.discovery.*;
+import com.notifier.desktop.metrics.*;
 import com.notifier.desktop.notification.*;
 import com.notifier.desktop.notification.parsing.*;
 import com.notifier.desktop.notification.wifi.*;
+import com.notifier.desktop.transport.*;
 
 import static java.util.concurrent.TimeUnit.*;
 
@@ -45,20 +46,21 @@ public class UsbPortClient {
 
 	private @Inject Application application;
 	private @Inject NotificationManager notificationManager;
-	private @Inject NotificationParser<byte[]> notificationParser;
+	private @Inject NotificationParser<ChannelBuffer> notificationParser;
+	private @Inject TransportRuntime transportRuntime;
+	private @Inject MetricRegistry metricRegistry;
 
 	private Adb.Device device;
 	private int port;
 	private Channel channel;
-	private NioClientSocketChannelFactory factory;
 	private ClientBootstrap bootstrap;
+	private volatile Timeout reconnectTimeout;
 
-	private boolean stopRequested;
+	private volatile boolean stopRequested;
 
 	public void start() {
-		factory = new NioClientSocketChannelFactory(Executors.newCachedThreadPool(), Executors.newCachedThreadPool());
-		bootstrap = new ClientBootstrap(factory);
-		bootstrap.setPipelineFactory(new NotificationPipelineFactory(notificationParser, false, true, new UsbPortChannelHandler()));
+		bootstrap = new ClientBootstrap(transportRuntime.getClientSocketChannelFactory());
+		bootstrap.setPipelineFactory(new NotificationPipelineFactory(notificationParser, TransportMetrics.create(metricRegistry, "usb"), null, true, new UsbPortChannelHandler()));
 		bootstrap.setOption("tcpNoDelay", true);
 		bootstrap.setOption("keepAlive", true);
 		tryToConnect(false);
@@ -66,30 +68,41 @@ public class UsbPortClient {
 
 	public void stop() {
 		stopRequested = true;
+		Timeout timeout = reconnectTimeout;
+		if (timeout != null) {
+			timeout.cancel();
+		}
 		if (channel != null) {
 			channel.close().awaitUninterruptibly(SHUTDOWN_TIMEOUT);
 		}
-		factory.releaseExternalResources();
 	}
 
 	public void sendDiscoveryInfo(DiscoveryInfo discoveryInfo) {
+		Channel channel = this.channel;
 		if (channel != null) {
-			channel.write(discoveryInfo.toProtobuf());
+			channel.write(discoveryInfo.getEncoded());
 		}
 	}
 
-	protected void tryToConnect(boolean sleep) {
+	protected void tryToConnect(boolean delay) {
 		if (stopRequested) {
 			return;
 		}
-		if (sleep) {
+		if (delay) {
 			logger.debug("Could not connect to device [{}] over usb, will try again in [{}] seconds", device, RECONNECT_INTERVAL);
-			try {
-				SECONDS.sleep(RECONNECT_INTERVAL);
-			} catch (InterruptedException ie) {
-				return;
-			}
+			reconnectTimeout = transportRuntime.getTimer().newTimeout(new TimerTask() {
+				@Override
+				public void run(Timeout timeout) throws Exception {
+					reconnectTimeout = null;
+					connect();
+				}
+			}, RECONNECT_INTERVAL, SECONDS);
+		} else {
+			connect();
 		}
+	}
+
+	protected void connect() {
 		if (!stopRequested) {
 			try {
 				bootstrap.connect(new InetSocketAddress(InetAddress.getByName(null), port)).addListener(new ChannelFutureListener() {
@@ -118,6 +131,7 @@ public class UsbPortClient {
 			Notification notification = (Notification) e.getMessage();
 			if (notification != null) {
 				notificationManager.notificationReceived(notification);
+				ReadThrottle.suspendIfBacklogged(notificationManager, e.getChannel());
 			}
 		}
 
@@ -18,6 +18,7 @@
 package com.notifier.desktop.transport.usb.impl;
 
 import java.io.*;
+import java.net.*;
 import java.util.*;
 
 import org.slf4j.*;
@@ -26,6 +27,11 @@ import com.google.common.base.*;
 import com.google.common.collect.*;
 import com.google.inject.*;
 
+/**
+ * Forwards a port to each device attached, as the adb server reports them. Each run follows the
+ * devices until the connection to the server ends, so it's meant to be run again after a delay.
+ * Devices whose port could not be forwarded are retried by {@link #retryFailedDevices()}.
+ */
 public class UsbPortForwarder implements Runnable {
 
 	private static final Logger logger = LoggerFactory.getLogger(UsbPortForwarder.class);
@@ -36,8 +42,12 @@ public class UsbPortForwarder implements Runnable {
 	private Provider<UsbPortClient> portClientProvider;
 
 	private Adb adb;
+	// Guarded by this
 	private int localPortCounter;
 	private Map<Adb.Device, UsbPortClient> devicesAndListeners;
+	// Guarded by this
+	private Set<Adb.Device> failedDevices;
+	private volatile boolean stopRequested;
 
 	public UsbPortForwarder(File androidSdkHome, Provider<UsbPortClient> portClientProvider) {
 		this.adb = new Adb();
@@ -45,54 +55,101 @@ public class UsbPortForwarder implements Runnable {
 		this.portClientProvider = portClientProvider;
 		this.localPortCounter = LOCAL_PORT;
 		this.devicesAndListeners = Maps.newConcurrentMap();
+		this.failedDevices = Sets.newHashSet();
 	}
 
 	@Override
 	public void run() {
-		logger.trace("Listing adb devices");
-		Collection<Adb.Device> actualDevices = Collections.emptyList();
+		if (stopRequested) {
+			return;
+		}
+		logger.trace("Tracking adb devices");
 		try {
-			List<Adb.Device> devices = adb.devices();
-			purgeDisconnectedDevices(devices);
-			actualDevices = Collections2.filter(devices, new Adb.Device.TypePredicate(Adb.Device.Type.DEVICE));
-			actualDevices = Collections2.filter(actualDevices, new Predicate<Adb.Device>() {
-				public boolean apply(Adb.Device input) {
-					return !devicesAndListeners.keySet().contains(input);
+			adb.trackDevices(new AdbClient.DeviceListener() {
+				@Override
+				public void devicesChanged(List<Adb.Device> devices) {
+					updateDevices(devices);
 				}
 			});
-		} catch (IOException e) {
-			logger.error("Error running adb", e);
-		} catch (InterruptedException e) {
-			return;
+			logger.debug("adb server closed the connection");
+		} catch (ConnectException e) {
+			startServer();
 		} catch (Exception e) {
-			logger.error("Error running adb", e);
+			logger.error("Error tracking adb devices", e);
 		}
+	}
+
+	protected synchronized void updateDevices(List<Adb.Device> devices) {
+		purgeDisconnectedDevices(devices);
+		failedDevices.retainAll(devices);
+		Collection<Adb.Device> actualDevices = Collections2.filter(devices, new Adb.Device.TypePredicate(Adb.Device.Type.DEVICE));
+		actualDevices = Collections2.filter(actualDevices, new Predicate<Adb.Device>() {
+			public boolean apply(Adb.Device input) {
+				return !devicesAndListeners.keySet().contains(input);
+			}
+		});
 		if (!actualDevices.isEmpty()) {
 			logger.debug("Found [{}] new device(s)", actualDevices.size());
 
 			for (Adb.Device device : actualDevices) {
 				try {
 					forwardAndListen(device);
-				} catch (InterruptedException e) {
-					return;
+					failedDevices.remove(device);
 				} catch (Exception e) {
-					logger.error("Error forwarding port for device [" + device.getSerialNumber() + "]", e);
+					logger.error("Error forwarding port for device [" + device.getSerialNumber() + "], will retry", e);
+					failedDevices.add(device);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Forwards ports again for devices which failed, as adb won't report them until something changes.
+	 */
+	public synchronized void retryFailedDevices() {
+		if (stopRequested) {
+			return;
+		}
+		for (Iterator<Adb.Device> iterator = failedDevices.iterator(); iterator.hasNext();) {
+			Adb.Device device = iterator.next();
+			try {
+				forwardAndListen(device);
+				iterator.remove();
+			} catch (Exception e) {
+				logger.debug("Error forwarding port for device [" + device.getSerialNumber() + "] again", e);
+			}
+		}
+	}
+
+	/**
+	 * Runs adb once to start its server, devices will be tracked on the next run.
+	 */
+	protected void startServer() {
+		logger.debug("adb server is not running, starting it");
+		try {
+			adb.startServer();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			logger.error("Error starting adb server", e);
+		}
+	}
+
 	public void stop() {
+		stopRequested = true;
+		adb.stopTracking();
 		for (UsbPortClient client : devicesAndListeners.values()) {
 			client.stop();
 		}
 	}
 
-	protected void forwardAndListen(Adb.Device device) throws InterruptedException, IOException {
+	protected void forwardAndListen(Adb.Device device) throws IOException {
 		if (!devicesAndListeners.containsKey(device)) {
-			int port = localPortCounter++;
+			// Only taken once forwarded, so failed attempts don't use up ports
+			int port = localPortCounter;
 			logger.debug("Forwarding port [{}] for device [{}]", port, device);
 			adb.forward(device, port, ANDROID_SOCKET_NAME);
+			localPortCounter++;
 			logger.debug("Forwarded successfully, starting client");
 			UsbPortClient client = portClientProvider.get();
 			client.setDevice(device);
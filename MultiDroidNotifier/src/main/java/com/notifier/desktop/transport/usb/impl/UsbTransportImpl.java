@@ -21,6 +21,7 @@ import java.io.*;
 import java.util.*;
 import java.util.concurrent.*;
 
+import com.google.common.util.concurrent.*;
 import com.google.inject.*;
 import com.notifier.desktop.*;
 import com.notifier.desktop.discovery.*;
@@ -31,14 +32,15 @@ import static java.util.concurrent.TimeUnit.*;
 @Singleton
 public class UsbTransportImpl extends RestartableService implements UsbTransport {
 
-	private static final int PORT_FORWARD_INTERVAL = 3;
+	// Delay before following the adb server's devices again after losing it, and between forwarding retries
+	private static final int ADB_RECONNECT_INTERVAL = 3;
 
-	private @Inject ScheduledExecutorService executorService;
 	private @Inject Provider<ApplicationPreferences> preferencesProvider;
 	private @Inject Provider<UsbPortClient> portClientProvider;
 
 	private UsbPortForwarder portForwarder;
-	private ScheduledFuture<?> portForwarderFuture;
+	// Tracking blocks one thread for as long as the adb server is up, the other retries failed devices
+	private ScheduledExecutorService adbExecutor;
 
 	@Override
 	public String getName() {
@@ -61,13 +63,25 @@ public class UsbTransportImpl extends RestartableService implements UsbTransport
 			throw new IllegalStateException("Android SDK home has not been set");
 		}
 		portForwarder = new UsbPortForwarder(new File(androidSdkHome), portClientProvider);
-		portForwarderFuture = executorService.scheduleWithFixedDelay(portForwarder, 0, PORT_FORWARD_INTERVAL, SECONDS);
+		ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
+		threadFactoryBuilder.setNameFormat("usb-adb-%s");
+		threadFactoryBuilder.setDaemon(true);
+		adbExecutor = Executors.newScheduledThreadPool(2, threadFactoryBuilder.build());
+		adbExecutor.scheduleWithFixedDelay(portForwarder, 0, ADB_RECONNECT_INTERVAL, SECONDS);
+		final UsbPortForwarder forwarder = portForwarder;
+		adbExecutor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				forwarder.retryFailedDevices();
+			}
+		}, ADB_RECONNECT_INTERVAL, ADB_RECONNECT_INTERVAL, SECONDS);
 	}
 
 	@Override
 	protected void doStop() throws Exception {
-		portForwarderFuture.cancel(true);
 		portForwarder.stop();
+		adbExecutor.shutdownNow();
+		adbExecutor = null;
 		portForwarder = null;
 	}
 
@@ -0,0 +1,75 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.transport.wifi.impl;
+
+import java.net.*;
+import java.nio.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Remembers recently received datagrams so copies can be dropped before parsing.
+ * Collisions simply evict the older entry, the notification manager still catches
+ * whatever slips through.
+ */
+class DatagramFingerprints {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final int mask;
+	private final long windowNanos;
+	private final AtomicLongArray fingerprints;
+	private final AtomicLongArray timestamps;
+
+	DatagramFingerprints(int capacity, long windowNanos) {
+		if (Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two");
+		}
+		this.mask = capacity - 1;
+		this.windowNanos = windowNanos;
+		this.fingerprints = new AtomicLongArray(capacity);
+		this.timestamps = new AtomicLongArray(capacity);
+	}
+
+	/**
+	 * Records the fingerprint and returns whether it had already been seen inside the window.
+	 */
+	boolean isDuplicate(long fingerprint, long now) {
+		int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+		long previous = fingerprints.getAndSet(slot, fingerprint);
+		long previousTime = timestamps.getAndSet(slot, now);
+		return previous == fingerprint && now - previousTime < windowNanos;
+	}
+
+	/**
+	 * FNV-1a over sender address and payload, does not move the buffer position.
+	 */
+	static long fingerprint(SocketAddress sender, ByteBuffer datagram) {
+		long hash = FNV_OFFSET_BASIS;
+		if (sender instanceof InetSocketAddress) {
+			// Port left out, phones send each copy from a new socket
+			for (byte b : ((InetSocketAddress) sender).getAddress().getAddress()) {
+				hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+			}
+		}
+		for (int i = datagram.position(); i < datagram.limit(); i++) {
+			hash = (hash ^ (datagram.get(i) & 0xff)) * FNV_PRIME;
+		}
+		return hash;
+	}
+}
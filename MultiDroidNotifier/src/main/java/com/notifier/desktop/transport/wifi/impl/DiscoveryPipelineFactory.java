@@ -18,10 +18,11 @@
 package com.notifier.desktop.transport.wifi.impl;
 
 import org.jboss.netty.channel.*;
-import org.jboss.netty.handler.codec.frame.*;
-import org.jboss.netty.handler.codec.protobuf.*;
 import org.slf4j.*;
 
+/**
+ * Discovery frames are encoded once by {@link com.notifier.desktop.discovery.DiscoveryInfo#getEncoded()}.
+ */
 public class DiscoveryPipelineFactory implements ChannelPipelineFactory {
 
 	private static final Logger logger = LoggerFactory.getLogger(DiscoveryPipelineFactory.class);
@@ -29,8 +30,6 @@ public class DiscoveryPipelineFactory implements ChannelPipelineFactory {
 	@Override
 	public ChannelPipeline getPipeline() throws Exception {
 		ChannelPipeline pipeline = Channels.pipeline();
-		pipeline.addLast("frameEncoder", new LengthFieldPrepender(4));
-		pipeline.addLast("protobufEncoder", new ProtobufEncoder());
 		pipeline.addLast("handler", new SimpleChannelHandler() {
 			@Override
 			public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
@@ -0,0 +1,306 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.transport.wifi.impl;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.jboss.netty.buffer.*;
+import org.slf4j.*;
+
+import com.google.common.collect.*;
+import com.google.common.util.concurrent.*;
+import com.notifier.desktop.*;
+import com.notifier.desktop.notification.*;
+import com.notifier.desktop.notification.parsing.*;
+import com.notifier.desktop.transport.*;
+
+/**
+ * Receives UDP notifications on non-blocking sockets, each served by its own thread
+ * and reading into its own reusable buffer.
+ * <p>
+ * On Linux, when the JVM exposes SO_REUSEPORT, several sockets are bound to the same
+ * port and the kernel spreads unicast datagrams across them. Broadcasts are delivered to
+ * every socket of the group (and phones often broadcast to more than one address), so
+ * copies are dropped by fingerprint before they reach the parser.
+ */
+public class NioDatagramReceiver {
+
+	private static final Logger logger = LoggerFactory.getLogger(NioDatagramReceiver.class);
+
+	/**
+	 * Largest UDP payload over IPv4, datagrams are never truncated.
+	 */
+	public static final int MAX_DATAGRAM_SIZE = 65507;
+	private static final int SOCKET_RECEIVE_BUFFER_SIZE = 1024 * 1024;
+	private static final int FINGERPRINT_CAPACITY = 1024;
+	private static final long DUPLICATE_WINDOW = TimeUnit.SECONDS.toNanos(2);
+	private static final int SHUTDOWN_TIMEOUT = 10000;
+	private static final int SENDER_MEMORY_EXPIRATION = 10;
+
+	private static final Object SO_REUSEPORT = findReusePortOption();
+
+	private final int port;
+	private final int socketCount;
+	private final Application application;
+	private final NotificationManager notificationManager;
+	private final NotificationParser<ChannelBuffer> notificationParser;
+	private final TransportMetrics metrics;
+	private final DatagramFingerprints fingerprints;
+	private final ConcurrentMap<InetAddress, ProtocolMemory> senderProtocols;
+	private final ThreadFactory threadFactory;
+	private final List<Receiver> receivers;
+
+	private final AtomicLong receivedCount;
+	private final AtomicLong duplicateCount;
+
+	public NioDatagramReceiver(int port, int socketCount, Application application, NotificationManager notificationManager, NotificationParser<ChannelBuffer> notificationParser, TransportMetrics metrics) {
+		this.port = port;
+		this.socketCount = socketCount;
+		this.application = application;
+		this.notificationManager = notificationManager;
+		this.notificationParser = notificationParser;
+		this.metrics = metrics;
+		this.fingerprints = new DatagramFingerprints(FINGERPRINT_CAPACITY, DUPLICATE_WINDOW);
+		this.senderProtocols = new MapMaker().expiration(SENDER_MEMORY_EXPIRATION, TimeUnit.MINUTES).makeMap();
+		this.threadFactory = new ThreadFactoryBuilder().setNameFormat("io-udp-receiver-%s").setDaemon(true).build();
+		this.receivers = Lists.newArrayList();
+		this.receivedCount = new AtomicLong();
+		this.duplicateCount = new AtomicLong();
+	}
+
+	public static boolean isReusePortSupported() {
+		return SO_REUSEPORT != null;
+	}
+
+	public synchronized void start() throws IOException {
+		int count = isReusePortSupported() ? Math.max(1, socketCount) : 1;
+		try {
+			for (int i = 0; i < count; i++) {
+				Receiver receiver = new Receiver(openChannel(count > 1));
+				receivers.add(receiver);
+			}
+		} catch (IOException e) {
+			for (Receiver receiver : receivers) {
+				receiver.close();
+			}
+			receivers.clear();
+			throw e;
+		}
+		for (Receiver receiver : receivers) {
+			threadFactory.newThread(receiver).start();
+		}
+		logger.debug("Receiving UDP notifications on port [{}] with [{}] socket(s)", port, count);
+	}
+
+	public synchronized void stop() {
+		for (Receiver receiver : receivers) {
+			receiver.stop();
+		}
+		for (Receiver receiver : receivers) {
+			receiver.awaitTermination(SHUTDOWN_TIMEOUT);
+		}
+		receivers.clear();
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public synchronized int getSocketCount() {
+		return receivers.size();
+	}
+
+	public long getReceivedCount() {
+		return receivedCount.get();
+	}
+
+	public long getDuplicateCount() {
+		return duplicateCount.get();
+	}
+
+	protected DatagramChannel openChannel(boolean reusePort) throws IOException {
+		DatagramChannel channel = DatagramChannel.open();
+		try {
+			channel.socket().setReceiveBufferSize(SOCKET_RECEIVE_BUFFER_SIZE);
+			if (reusePort) {
+				setReusePort(channel);
+			}
+			channel.socket().bind(new InetSocketAddress(port));
+			channel.configureBlocking(false);
+			return channel;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	protected void handle(SocketAddress sender, ByteBuffer datagram) {
+		receivedCount.incrementAndGet();
+		long start = metrics.frameReceived();
+		if (fingerprints.isDuplicate(DatagramFingerprints.fingerprint(sender, datagram), start)) {
+			duplicateCount.incrementAndGet();
+			return;
+		}
+		try {
+			List<Notification> notifications;
+			try {
+				notifications = notificationParser.parseAll(ChannelBuffers.wrappedBuffer(datagram), getProtocolMemory(sender));
+			} catch (Exception e) {
+				metrics.frameFailed(start);
+				throw e;
+			}
+			metrics.frameParsed(start, notifications);
+			for (Notification notification : notifications) {
+				notificationManager.notificationReceived(notification);
+			}
+		} catch (Exception e) {
+			logger.error("Error handling network notification", e);
+			application.showError(Application.NAME + " Wifi Error", "An error occurred while receiving wifi notification:\n" + e.getMessage());
+		}
+	}
+
+	protected ProtocolMemory getProtocolMemory(SocketAddress sender) {
+		if (!(sender instanceof InetSocketAddress)) {
+			return null;
+		}
+		InetAddress address = ((InetSocketAddress) sender).getAddress();
+		ProtocolMemory memory = senderProtocols.get(address);
+		if (memory == null) {
+			memory = new ProtocolMemory();
+			ProtocolMemory previous = senderProtocols.putIfAbsent(address, memory);
+			if (previous != null) {
+				memory = previous;
+			}
+		}
+		return memory;
+	}
+
+	private static Object findReusePortOption() {
+		// BSD and Mac OS accept the option but do not balance load between sockets
+		if (!System.getProperty("os.name", "").toLowerCase().contains("linux")) {
+			return null;
+		}
+		try {
+			// Java 9+, looked up reflectively to keep compiling against Java 6
+			Object option = Class.forName("java.net.StandardSocketOptions").getField("SO_REUSEPORT").get(null);
+			DatagramChannel channel = DatagramChannel.open();
+			try {
+				Method supportedOptions = DatagramChannel.class.getMethod("supportedOptions");
+				return ((Set<?>) supportedOptions.invoke(channel)).contains(option) ? option : null;
+			} finally {
+				channel.close();
+			}
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	private static void setReusePort(DatagramChannel channel) throws IOException {
+		try {
+			Method setOption = DatagramChannel.class.getMethod("setOption", Class.forName("java.net.SocketOption"), Object.class);
+			setOption.invoke(channel, SO_REUSEPORT, Boolean.TRUE);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Could not enable SO_REUSEPORT: " + e.getCause());
+		} catch (Exception e) {
+			throw new IOException("Could not enable SO_REUSEPORT: " + e);
+		}
+	}
+
+	class Receiver implements Runnable {
+
+		private final DatagramChannel channel;
+		private final Selector selector;
+		private final ByteBuffer buffer;
+		private final CountDownLatch terminated;
+		private volatile boolean running;
+
+		Receiver(DatagramChannel channel) throws IOException {
+			this.channel = channel;
+			try {
+				this.selector = Selector.open();
+				channel.register(selector, SelectionKey.OP_READ);
+			} catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+			this.buffer = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+			this.terminated = new CountDownLatch(1);
+			this.running = true;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (running) {
+					selector.select();
+					selector.selectedKeys().clear();
+					SocketAddress sender;
+					while (running && (sender = channel.receive(buffer)) != null) {
+						buffer.flip();
+						if (buffer.hasRemaining()) {
+							handle(sender, buffer);
+						}
+						buffer.clear();
+					}
+				}
+			} catch (IOException e) {
+				if (running) {
+					logger.error("Error receiving UDP notifications", e);
+				}
+			} finally {
+				close();
+				terminated.countDown();
+			}
+		}
+
+		void stop() {
+			running = false;
+			selector.wakeup();
+		}
+
+		void awaitTermination(long timeoutMillis) {
+			try {
+				if (!terminated.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+					logger.warn("UDP receiver did not stop in time");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		void close() {
+			try {
+				selector.close();
+				channel.close();
+			} catch (IOException e) {
+				logger.warn("Error closing UDP socket", e);
+			}
+		}
+	}
+}
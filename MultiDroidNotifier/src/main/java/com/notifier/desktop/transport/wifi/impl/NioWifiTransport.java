@@ -19,21 +19,21 @@ package com.notifier.desktop.transport.wifi.impl;
 
 import java.io.*;
 import java.net.*;
-import java.util.concurrent.*;
 
 import org.jboss.netty.bootstrap.*;
+import org.jboss.netty.buffer.*;
 import org.jboss.netty.channel.*;
 import org.jboss.netty.channel.group.*;
-import org.jboss.netty.channel.socket.nio.*;
-import org.jboss.netty.channel.socket.oio.*;
 import org.slf4j.*;
 
 import com.google.inject.*;
 import com.notifier.desktop.*;
 import com.notifier.desktop.discovery.*;
+import com.notifier.desktop.metrics.*;
 import com.notifier.desktop.notification.*;
 import com.notifier.desktop.notification.parsing.*;
 import com.notifier.desktop.notification.wifi.NotificationPipelineFactory;
+import com.notifier.desktop.transport.*;
 import com.notifier.desktop.transport.wifi.*;
 
 /**
@@ -47,29 +47,28 @@ public class NioWifiTransport extends RestartableService implements WifiTranspor
 	private static final int PREFERRED_PORT = 10600;
 	private static final int MAX_PORTS = 10;
 	private static final int SHUTDOWN_TIMEOUT = 10000;
+	private static final int UDP_RECEIVER_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
 
 	private @Inject Application application;
 	private @Inject NotificationManager notificationManager;
-	private @Inject NotificationParser<byte[]> notificationParser;
+	private @Inject NotificationParser<ChannelBuffer> notificationParser;
+	private @Inject TransportRuntime transportRuntime;
+	private @Inject MetricRegistry metricRegistry;
 
 	// TCP
 	private ChannelGroup tcpChannels;
-	private ChannelFactory tcpFactory;
 	private ServerBootstrap tcpBootstrap;
 	private int tcpPort;
 
 	// UDP
-	private ChannelFactory udpFactory;
-	private ConnectionlessBootstrap udpBootstrap;
+	private volatile Channel udpChannel;
+	private InetSocketAddress udpBroadcastAddress;
 
 	// UDP Notifications
-	private ChannelFactory udpNotificationFactory;
-	private ConnectionlessBootstrap udpNotificationBootstrap;
-	private ChannelGroup udpNotificationChannels;
+	private NioDatagramReceiver udpNotificationReceiver;
 
 	public NioWifiTransport() {
 		tcpChannels = new DefaultChannelGroup("TCP");
-		udpNotificationChannels = new DefaultChannelGroup("UDP-Notification");
 	}
 
 	@Override
@@ -83,15 +82,11 @@ public class NioWifiTransport extends RestartableService implements WifiTranspor
 	}
 
 	@Override
-	public void broadcastDiscoveryInfo(final DiscoveryInfo discoveryInfo) {
-		udpBootstrap.connect().addListener(new ChannelFutureListener() {
-			@Override
-			public void operationComplete(ChannelFuture future) throws Exception {
-				if (future.isSuccess()) {
-					future.getChannel().write(discoveryInfo.toProtobuf()).addListener(ChannelFutureListener.CLOSE);
-				}
-			}
-		});
+	public void broadcastDiscoveryInfo(DiscoveryInfo discoveryInfo) {
+		Channel channel = udpChannel;
+		if (channel != null) {
+			channel.write(discoveryInfo.getEncoded(), udpBroadcastAddress);
+		}
 	}
 
 	@Override
@@ -109,9 +104,8 @@ public class NioWifiTransport extends RestartableService implements WifiTranspor
 	}
 
 	protected void startTcp() throws IOException {
-		tcpFactory = new NioServerSocketChannelFactory(Executors.newCachedThreadPool(), Executors.newCachedThreadPool());
-		tcpBootstrap = new ServerBootstrap(tcpFactory);
-		tcpBootstrap.setPipelineFactory(new NotificationPipelineFactory(tcpChannels, application, notificationManager, notificationParser, true, true));
+		tcpBootstrap = new ServerBootstrap(transportRuntime.getServerSocketChannelFactory());
+		tcpBootstrap.setPipelineFactory(new NotificationPipelineFactory(tcpChannels, application, notificationManager, notificationParser, TransportMetrics.create(metricRegistry, "wifi_tcp"), transportRuntime.getTimer(), true, true));
 
 		tcpBootstrap.setOption("child.tcpNoDelay", true);
 		tcpBootstrap.setOption("child.keepAlive", true);
@@ -138,42 +132,39 @@ public class NioWifiTransport extends RestartableService implements WifiTranspor
 	}
 
 	protected void stopTcp() {
-		if (tcpFactory != null) {
-			tcpChannels.close().awaitUninterruptibly(SHUTDOWN_TIMEOUT);
-			tcpFactory.releaseExternalResources();
-		}
+		tcpChannels.close().awaitUninterruptibly(SHUTDOWN_TIMEOUT);
 	}
 
 	protected void startUdp() {
-		udpFactory = new OioDatagramChannelFactory(Executors.newCachedThreadPool());
-		udpBootstrap = new ConnectionlessBootstrap(udpFactory);
-		udpBootstrap.setPipelineFactory(new DiscoveryPipelineFactory());
-		InetSocketAddress address;
 		try {
-			address = new InetSocketAddress(InetAddress.getByAddress(new byte[] { -1, -1, -1, -1 }), PREFERRED_PORT);
+			udpBroadcastAddress = new InetSocketAddress(InetAddress.getByAddress(new byte[] { -1, -1, -1, -1 }), PREFERRED_PORT);
 		} catch (UnknownHostException e) {
 			throw new RuntimeException(e);
 		}
-		udpBootstrap.setOption("remoteAddress", address);
+		// Kept open for the lifetime of the transport, discovery is broadcast every few seconds
+		ConnectionlessBootstrap udpBootstrap = new ConnectionlessBootstrap(transportRuntime.getDatagramChannelFactory());
+		udpBootstrap.setPipelineFactory(new DiscoveryPipelineFactory());
+		udpBootstrap.setOption("broadcast", true);
+		udpChannel = udpBootstrap.bind(new InetSocketAddress(0));
 	}
 
 	protected void stopUdp() {
-		if (udpFactory != null) {
-			udpFactory.releaseExternalResources();
+		Channel channel = udpChannel;
+		udpChannel = null;
+		if (channel != null) {
+			channel.close().awaitUninterruptibly(SHUTDOWN_TIMEOUT);
 		}
 	}
 
-	protected void startUdpNotification() {
-		udpNotificationFactory = new OioDatagramChannelFactory(Executors.newCachedThreadPool());
-		udpNotificationBootstrap = new ConnectionlessBootstrap(udpNotificationFactory);
-		udpNotificationBootstrap.setPipelineFactory(new NotificationPipelineFactory(udpNotificationChannels, application, notificationManager, notificationParser, false, false));
-		udpNotificationBootstrap.bind(new InetSocketAddress(PREFERRED_PORT));
+	protected void startUdpNotification() throws IOException {
+		udpNotificationReceiver = new NioDatagramReceiver(PREFERRED_PORT, UDP_RECEIVER_COUNT, application, notificationManager, notificationParser, TransportMetrics.create(metricRegistry, "wifi_udp"));
+		udpNotificationReceiver.start();
 	}
 
 	protected void stopUdpNotification() {
-		if (udpNotificationFactory != null) {
-			udpNotificationChannels.close().awaitUninterruptibly(SHUTDOWN_TIMEOUT);
-			udpNotificationFactory.releaseExternalResources();
+		if (udpNotificationReceiver != null) {
+			udpNotificationReceiver.stop();
+			udpNotificationReceiver = null;
 		}
 	}
 }
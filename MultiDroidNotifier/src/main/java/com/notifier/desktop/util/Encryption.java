@@ -25,7 +25,10 @@
 package com.notifier.desktop.util;
 
 import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
 import java.security.*;
+import java.security.spec.AlgorithmParameterSpec;
 
 import javax.crypto.*;
 import javax.crypto.spec.IvParameterSpec;
@@ -43,11 +46,29 @@ public class Encryption {
 
   private static final String ENCRYPTION_KEY_TYPE = "AES";
   private static final String ENCRYPTION_ALGORITHM = "AES/CBC/PKCS5Padding";
+  private static final String GCM_ALGORITHM = "AES/GCM/NoPadding";
   private static final String HASH_ALGORITHM = "MD5";
   private static final int NUM_HASHES = 10;
+  private static final int BLOCK_SIZE = 16;
+
+  /** Size of the random nonce that prefixes every GCM payload. */
+  public static final int GCM_NONCE_SIZE = 12;
+  /** Size of the authentication tag that ends every GCM payload. */
+  public static final int GCM_TAG_SIZE = 16;
+
+  // GCMParameterSpec is Java 7+, looked up reflectively to keep compiling against Java 6
+  private static final Constructor<?> GCM_PARAMETER_SPEC = findGcmParameterSpec();
 
   private final SecretKeySpec keySpec;
   private final byte[] iv;
+  private final SecureRandom random = new SecureRandom();
+
+  // Provider lookup and key setup cost more than decrypting a small notification,
+  // so each thread keeps initialized ciphers. CBC ciphers return to their initial
+  // state after doFinal, GCM ones only need a new nonce.
+  private final ThreadLocal<Cipher> encryptCipher = new CipherThreadLocal(Cipher.ENCRYPT_MODE);
+  private final ThreadLocal<Cipher> decryptCipher = new CipherThreadLocal(Cipher.DECRYPT_MODE);
+  private final ThreadLocal<Cipher> gcmCipher = new ThreadLocal<Cipher>();
 
   /**
    * Converts a user-entered pass phrase into a hashed binary value which is
@@ -78,17 +99,131 @@ public class Encryption {
   }
 
   public byte[] encrypt(byte[] unencrypted) throws GeneralSecurityException {
-    return doCipher(unencrypted, Cipher.ENCRYPT_MODE);
+    return doCipher(unencrypted, encryptCipher);
   }
 
   public byte[] decrypt(byte[] encrypted) throws GeneralSecurityException {
-    return doCipher(encrypted, Cipher.DECRYPT_MODE);
+    return doCipher(encrypted, decryptCipher);
+  }
+
+  /**
+   * Decrypts the remaining bytes of {@code encrypted} into {@code decrypted} without
+   * allocating an output array. {@code decrypted} must have at least as many bytes
+   * remaining as {@code encrypted}.
+   */
+  public int decrypt(ByteBuffer encrypted, ByteBuffer decrypted) throws GeneralSecurityException {
+    try {
+      return decryptCipher.get().doFinal(encrypted, decrypted);
+    } catch (GeneralSecurityException e) {
+      // State after a failed doFinal is unspecified, start over next time
+      decryptCipher.remove();
+      throw e;
+    }
+  }
+
+  /**
+   * Whether this JVM provides AES-GCM, available since Java 8.
+   */
+  public static boolean isGcmSupported() {
+    return GCM_PARAMETER_SPEC != null;
+  }
+
+  /**
+   * Encrypts with AES-GCM under a fresh random nonce.
+   *
+   * @return the nonce, followed by the ciphertext and the authentication tag
+   */
+  public byte[] encryptGcm(byte[] unencrypted) throws GeneralSecurityException {
+    byte[] nonce = new byte[GCM_NONCE_SIZE];
+    random.nextBytes(nonce);
+    Cipher cipher = getGcmCipher(Cipher.ENCRYPT_MODE, nonce);
+    byte[] encrypted = new byte[GCM_NONCE_SIZE + cipher.getOutputSize(unencrypted.length)];
+    System.arraycopy(nonce, 0, encrypted, 0, GCM_NONCE_SIZE);
+    cipher.doFinal(unencrypted, 0, unencrypted.length, encrypted, GCM_NONCE_SIZE);
+    return encrypted;
+  }
+
+  /**
+   * Decrypts and authenticates a payload produced by {@link #encryptGcm}. Like
+   * {@link #decrypt(ByteBuffer, ByteBuffer)} nothing is allocated for the output,
+   * {@code decrypted} may even share the array of {@code encrypted}.
+   */
+  public int decryptGcm(ByteBuffer encrypted, ByteBuffer decrypted) throws GeneralSecurityException {
+    if (encrypted.remaining() < GCM_NONCE_SIZE + GCM_TAG_SIZE) {
+      throw new BadPaddingException("GCM payload too short");
+    }
+    byte[] nonce = new byte[GCM_NONCE_SIZE];
+    encrypted.get(nonce);
+    try {
+      return getGcmCipher(Cipher.DECRYPT_MODE, nonce).doFinal(encrypted, decrypted);
+    } catch (GeneralSecurityException e) {
+      gcmCipher.remove();
+      throw e;
+    }
   }
 
-  private byte[] doCipher(byte[] original, int mode) throws GeneralSecurityException {
+  /**
+   * Whether {@link #encrypt} could have produced a payload of this length.
+   */
+  public boolean isPossibleCiphertextLength(int length) {
+    return length > 0 && length % BLOCK_SIZE == 0;
+  }
+
+  private byte[] doCipher(byte[] original, ThreadLocal<Cipher> cipher) throws GeneralSecurityException {
+    try {
+      return cipher.get().doFinal(original);
+    } catch (GeneralSecurityException e) {
+      cipher.remove();
+      throw e;
+    }
+  }
+
+  private Cipher getGcmCipher(int mode, byte[] nonce) throws GeneralSecurityException {
+    Cipher cipher = gcmCipher.get();
+    if (cipher == null) {
+      cipher = Cipher.getInstance(GCM_ALGORITHM);
+      gcmCipher.set(cipher);
+    }
+    AlgorithmParameterSpec spec;
+    try {
+      spec = (AlgorithmParameterSpec) GCM_PARAMETER_SPEC.newInstance(GCM_TAG_SIZE * 8, nonce);
+    } catch (Exception e) {
+      throw new InvalidAlgorithmParameterException(e);
+    }
+    cipher.init(mode, keySpec, spec);
+    return cipher;
+  }
+
+  private Cipher createCipher(int mode) throws GeneralSecurityException {
     Cipher cipher = Cipher.getInstance(ENCRYPTION_ALGORITHM);
     cipher.init(mode, keySpec, new IvParameterSpec(iv));
-    return cipher.doFinal(original);
+    return cipher;
+  }
+
+  private static Constructor<?> findGcmParameterSpec() {
+    try {
+      Cipher.getInstance(GCM_ALGORITHM);
+      return Class.forName("javax.crypto.spec.GCMParameterSpec").getConstructor(int.class, byte[].class);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private class CipherThreadLocal extends ThreadLocal<Cipher> {
+    private final int mode;
+
+    CipherThreadLocal(int mode) {
+      this.mode = mode;
+    }
+
+    @Override
+    protected Cipher initialValue() {
+      try {
+        return createCipher(mode);
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException(e);
+      }
+    }
   }
 
   private static byte[] doDigest(byte[] data, String algorithm) {
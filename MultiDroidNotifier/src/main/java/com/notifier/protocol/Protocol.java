@@ -154,6 +154,13 @@ public final class Protocol {
     public boolean hasThirdPartyData() { return hasThirdPartyData; }
     public java.lang.String getThirdPartyData() { return thirdPartyData_; }
     
+    // optional string device_id_string = 10;
+    public static final int DEVICE_ID_STRING_FIELD_NUMBER = 10;
+    private boolean hasDeviceIdString;
+    private java.lang.String deviceIdString_ = "";
+    public boolean hasDeviceIdString() { return hasDeviceIdString; }
+    public java.lang.String getDeviceIdString() { return deviceIdString_; }
+    
     private void initFields() {
       type_ = com.notifier.protocol.Protocol.Notification.Type.RING;
     }
@@ -194,6 +201,9 @@ public final class Protocol {
       if (hasThirdPartyData()) {
         output.writeString(9, getThirdPartyData());
       }
+      if (hasDeviceIdString()) {
+        output.writeString(10, getDeviceIdString());
+      }
     }
     
     private int memoizedSerializedSize = -1;
@@ -238,6 +248,10 @@ public final class Protocol {
         size += com.google.protobuf.CodedOutputStream
           .computeStringSize(9, getThirdPartyData());
       }
+      if (hasDeviceIdString()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeStringSize(10, getDeviceIdString());
+      }
       memoizedSerializedSize = size;
       return size;
     }
@@ -409,6 +423,9 @@ public final class Protocol {
         if (other.hasThirdPartyData()) {
           setThirdPartyData(other.getThirdPartyData());
         }
+        if (other.hasDeviceIdString()) {
+          setDeviceIdString(other.getDeviceIdString());
+        }
         return this;
       }
       
@@ -467,6 +484,10 @@ public final class Protocol {
               setThirdPartyData(input.readString());
               break;
             }
+            case 82: {
+              setDeviceIdString(input.readString());
+              break;
+            }
           }
         }
       }
@@ -652,6 +673,27 @@ public final class Protocol {
         return this;
       }
       
+      // optional string device_id_string = 10;
+      public boolean hasDeviceIdString() {
+        return result.hasDeviceIdString();
+      }
+      public java.lang.String getDeviceIdString() {
+        return result.getDeviceIdString();
+      }
+      public Builder setDeviceIdString(java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  result.hasDeviceIdString = true;
+        result.deviceIdString_ = value;
+        return this;
+      }
+      public Builder clearDeviceIdString() {
+        result.hasDeviceIdString = false;
+        result.deviceIdString_ = getDefaultInstance().getDeviceIdString();
+        return this;
+      }
+      
       // @@protoc_insertion_point(builder_scope:android_notifier.Notification)
     }
     
@@ -664,6 +706,308 @@ public final class Protocol {
     // @@protoc_insertion_point(class_scope:android_notifier.Notification)
   }
   
+  public static final class NotificationBatch extends
+      com.google.protobuf.GeneratedMessageLite {
+    // Use NotificationBatch.newBuilder() to construct.
+    private NotificationBatch() {
+      initFields();
+    }
+    private NotificationBatch(boolean noInit) {}
+    
+    private static final NotificationBatch defaultInstance;
+    public static NotificationBatch getDefaultInstance() {
+      return defaultInstance;
+    }
+    
+    public NotificationBatch getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+    
+    // repeated .android_notifier.Notification notifications = 1;
+    public static final int NOTIFICATIONS_FIELD_NUMBER = 1;
+    private java.util.List<com.notifier.protocol.Protocol.Notification> notifications_ =
+      java.util.Collections.emptyList();
+    public java.util.List<com.notifier.protocol.Protocol.Notification> getNotificationsList() {
+      return notifications_;
+    }
+    public int getNotificationsCount() { return notifications_.size(); }
+    public com.notifier.protocol.Protocol.Notification getNotifications(int index) {
+      return notifications_.get(index);
+    }
+    
+    private void initFields() {
+    }
+    public final boolean isInitialized() {
+      for (com.notifier.protocol.Protocol.Notification element : getNotificationsList()) {
+        if (!element.isInitialized()) return false;
+      }
+      return true;
+    }
+    
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      for (com.notifier.protocol.Protocol.Notification element : getNotificationsList()) {
+        output.writeMessage(1, element);
+      }
+    }
+    
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+    
+      size = 0;
+      for (com.notifier.protocol.Protocol.Notification element : getNotificationsList()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(1, element);
+      }
+      memoizedSerializedSize = size;
+      return size;
+    }
+    
+    public static com.notifier.protocol.Protocol.NotificationBatch parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static com.notifier.protocol.Protocol.NotificationBatch parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static com.notifier.protocol.Protocol.NotificationBatch parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static com.notifier.protocol.Protocol.NotificationBatch parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static com.notifier.protocol.Protocol.NotificationBatch parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static com.notifier.protocol.Protocol.NotificationBatch parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    public static com.notifier.protocol.Protocol.NotificationBatch parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static com.notifier.protocol.Protocol.NotificationBatch parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input, extensionRegistry)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static com.notifier.protocol.Protocol.NotificationBatch parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static com.notifier.protocol.Protocol.NotificationBatch parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(com.notifier.protocol.Protocol.NotificationBatch prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+    
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageLite.Builder<
+          com.notifier.protocol.Protocol.NotificationBatch, Builder> {
+      private com.notifier.protocol.Protocol.NotificationBatch result;
+      
+      // Construct using com.notifier.protocol.Protocol.NotificationBatch.newBuilder()
+      private Builder() {}
+      
+      private static Builder create() {
+        Builder builder = new Builder();
+        builder.result = new com.notifier.protocol.Protocol.NotificationBatch();
+        return builder;
+      }
+      
+      protected com.notifier.protocol.Protocol.NotificationBatch internalGetResult() {
+        return result;
+      }
+      
+      public Builder clear() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "Cannot call clear() after build().");
+        }
+        result = new com.notifier.protocol.Protocol.NotificationBatch();
+        return this;
+      }
+      
+      public Builder clone() {
+        return create().mergeFrom(result);
+      }
+      
+      public com.notifier.protocol.Protocol.NotificationBatch getDefaultInstanceForType() {
+        return com.notifier.protocol.Protocol.NotificationBatch.getDefaultInstance();
+      }
+      
+      public boolean isInitialized() {
+        return result.isInitialized();
+      }
+      public com.notifier.protocol.Protocol.NotificationBatch build() {
+        if (result != null && !isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return buildPartial();
+      }
+      
+      private com.notifier.protocol.Protocol.NotificationBatch buildParsed()
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        if (!isInitialized()) {
+          throw newUninitializedMessageException(
+            result).asInvalidProtocolBufferException();
+        }
+        return buildPartial();
+      }
+      
+      public com.notifier.protocol.Protocol.NotificationBatch buildPartial() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "build() has already been called on this Builder.");
+        }
+        if (result.notifications_ != java.util.Collections.EMPTY_LIST) {
+          result.notifications_ =
+            java.util.Collections.unmodifiableList(result.notifications_);
+        }
+        com.notifier.protocol.Protocol.NotificationBatch returnMe = result;
+        result = null;
+        return returnMe;
+      }
+      
+      public Builder mergeFrom(com.notifier.protocol.Protocol.NotificationBatch other) {
+        if (other == com.notifier.protocol.Protocol.NotificationBatch.getDefaultInstance()) return this;
+        if (!other.notifications_.isEmpty()) {
+          if (result.notifications_.isEmpty()) {
+            result.notifications_ = new java.util.ArrayList<com.notifier.protocol.Protocol.Notification>();
+          }
+          result.notifications_.addAll(other.notifications_);
+        }
+        return this;
+      }
+      
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        while (true) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              return this;
+            default: {
+              if (!parseUnknownField(input, extensionRegistry, tag)) {
+                return this;
+              }
+              break;
+            }
+            case 10: {
+              com.notifier.protocol.Protocol.Notification.Builder subBuilder = com.notifier.protocol.Protocol.Notification.newBuilder();
+              input.readMessage(subBuilder, extensionRegistry);
+              addNotifications(subBuilder.buildPartial());
+              break;
+            }
+          }
+        }
+      }
+      
+      
+      // repeated .android_notifier.Notification notifications = 1;
+      public java.util.List<com.notifier.protocol.Protocol.Notification> getNotificationsList() {
+        return java.util.Collections.unmodifiableList(result.notifications_);
+      }
+      public int getNotificationsCount() {
+        return result.getNotificationsCount();
+      }
+      public com.notifier.protocol.Protocol.Notification getNotifications(int index) {
+        return result.getNotifications(index);
+      }
+      public Builder setNotifications(int index, com.notifier.protocol.Protocol.Notification value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        result.notifications_.set(index, value);
+        return this;
+      }
+      public Builder setNotifications(int index, com.notifier.protocol.Protocol.Notification.Builder builderForValue) {
+        result.notifications_.set(index, builderForValue.build());
+        return this;
+      }
+      public Builder addNotifications(com.notifier.protocol.Protocol.Notification value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        if (result.notifications_.isEmpty()) {
+          result.notifications_ = new java.util.ArrayList<com.notifier.protocol.Protocol.Notification>();
+        }
+        result.notifications_.add(value);
+        return this;
+      }
+      public Builder addNotifications(com.notifier.protocol.Protocol.Notification.Builder builderForValue) {
+        if (result.notifications_.isEmpty()) {
+          result.notifications_ = new java.util.ArrayList<com.notifier.protocol.Protocol.Notification>();
+        }
+        result.notifications_.add(builderForValue.build());
+        return this;
+      }
+      public Builder addAllNotifications(
+          java.lang.Iterable<? extends com.notifier.protocol.Protocol.Notification> values) {
+        if (result.notifications_.isEmpty()) {
+          result.notifications_ = new java.util.ArrayList<com.notifier.protocol.Protocol.Notification>();
+        }
+        super.addAll(values, result.notifications_);
+        return this;
+      }
+      public Builder clearNotifications() {
+        result.notifications_ = java.util.Collections.emptyList();
+        return this;
+      }
+      
+      // @@protoc_insertion_point(builder_scope:android_notifier.NotificationBatch)
+    }
+    
+    static {
+      defaultInstance = new NotificationBatch(true);
+      com.notifier.protocol.Protocol.internalForceInit();
+      defaultInstance.initFields();
+    }
+    
+    // @@protoc_insertion_point(class_scope:android_notifier.NotificationBatch)
+  }
+  
   public static final class Contact extends
       com.google.protobuf.GeneratedMessageLite {
     // Use Contact.newBuilder() to construct.
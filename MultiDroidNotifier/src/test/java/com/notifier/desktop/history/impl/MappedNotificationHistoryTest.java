@@ -0,0 +1,165 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.history.impl;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+
+import com.notifier.desktop.history.*;
+import com.notifier.desktop.metrics.*;
+import com.notifier.desktop.notification.*;
+
+import static org.junit.Assert.*;
+
+public class MappedNotificationHistoryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Counter dropped;
+
+	@Before
+	public void setUp() {
+		dropped = new Counter();
+	}
+
+	@Test
+	public void findsByTimeDeviceAndTypeAfterReopening() throws Exception {
+		MappedNotificationHistory history = newHistory(64 * 1024, 10);
+		history.startAndWait();
+		history.append(new Notification("phone", 1, Notification.Type.SMS, "555", "Hello"), 1000);
+		history.append(new Notification("tablet", 2, Notification.Type.BATTERY, "50", null), 2000);
+		history.append(new Notification("phone", 3, Notification.Type.RING, "555", "Mom"), 3000);
+		history.append(new Notification("phone", 4, Notification.Type.SMS, null, "Bye"), 4000);
+		history.stopAndWait();
+
+		history = newHistory(64 * 1024, 10);
+		history.startAndWait();
+		try {
+			assertEquals(4, history.getRecordCount());
+			assertIds(history.find(0, Long.MAX_VALUE, null, null, 10), 4, 3, 2, 1);
+			assertIds(history.find(2000, 3000, null, null, 10), 3, 2);
+			assertIds(history.find(0, Long.MAX_VALUE, "phone", null, 10), 4, 3, 1);
+			assertIds(history.find(0, Long.MAX_VALUE, "phone", Notification.Type.SMS, 10), 4, 1);
+			assertIds(history.find(0, Long.MAX_VALUE, null, null, 2), 4, 3);
+			assertIds(history.find(0, Long.MAX_VALUE, "laptop", null, 10));
+
+			HistoryEntry entry = history.find(1000, 1000, null, null, 1).get(0);
+			assertEquals(1000, entry.getTimestamp());
+			assertEquals("phone", entry.getNotification().getDeviceId());
+			assertEquals("555", entry.getNotification().getData());
+			assertEquals("Hello", entry.getNotification().getDescription(false));
+		} finally {
+			history.stopAndWait();
+		}
+	}
+
+	@Test
+	public void rollsSegmentsAndDropsTheOldest() throws Exception {
+		MappedNotificationHistory history = newHistory(4096, 3);
+		history.startAndWait();
+		try {
+			for (int i = 1; i <= 300; i++) {
+				history.append(new Notification("phone", i, Notification.Type.SMS, "555", "Message " + i), i);
+				if (i % 100 == 0) {
+					// Stays under the queue capacity
+					history.stopAndWait();
+					history.startAndWait();
+				}
+			}
+			assertEquals(0, dropped.getCount());
+			assertEquals(6, folder.getRoot().list().length);
+			long count = history.getRecordCount();
+			assertTrue(count > 0 && count < 300);
+			List<HistoryEntry> all = history.find(0, Long.MAX_VALUE, null, null, 300);
+			assertEquals(count, all.size());
+			assertEquals(300, all.get(0).getNotification().getNotificationId());
+			assertEquals(300 - count + 1, all.get(all.size() - 1).getNotification().getNotificationId());
+		} finally {
+			history.stopAndWait();
+		}
+	}
+
+	@Test
+	public void recoversRecordsMissingFromIndex() throws Exception {
+		MappedNotificationHistory history = newHistory(64 * 1024, 10);
+		history.startAndWait();
+		for (int i = 1; i <= 5; i++) {
+			history.append(new Notification("phone", i, Notification.Type.SMS, null, "Message " + i), i);
+		}
+		history.stopAndWait();
+
+		// As if the process died after writing records but before indexing the last three
+		RandomAccessFile index = new RandomAccessFile(new File(folder.getRoot(), "0000000000" + HistorySegment.INDEX_SUFFIX), "rw");
+		try {
+			index.seek(8);
+			index.writeInt(2);
+		} finally {
+			index.close();
+		}
+
+		history = newHistory(64 * 1024, 10);
+		history.startAndWait();
+		try {
+			assertIds(history.find(0, Long.MAX_VALUE, null, null, 10), 5, 4, 3, 2, 1);
+		} finally {
+			history.stopAndWait();
+		}
+	}
+
+	@Test
+	public void clockSetBackStartsNewSegment() throws Exception {
+		MappedNotificationHistory history = newHistory(64 * 1024, 10);
+		history.startAndWait();
+		try {
+			// Clock ahead by a day, then corrected
+			history.append(new Notification("phone", 1, Notification.Type.SMS, null, "Ahead"), 86400000 + 1000);
+			history.append(new Notification("phone", 2, Notification.Type.SMS, null, "Corrected"), 2000);
+			// A small step back stays in the segment, at the time of the previous record
+			history.append(new Notification("phone", 3, Notification.Type.SMS, null, "Jitter"), 1500);
+			history.append(new Notification("phone", 4, Notification.Type.SMS, null, "Later"), 3000);
+			history.stopAndWait();
+			history.startAndWait();
+
+			assertEquals(4, folder.getRoot().list().length);
+			assertIds(history.find(0, 10000, null, null, 10), 4, 3, 2);
+			assertIds(history.find(86400000, Long.MAX_VALUE, null, null, 10), 1);
+			List<HistoryEntry> corrected = history.find(0, 10000, null, null, 10);
+			assertEquals(3000, corrected.get(0).getTimestamp());
+			assertEquals(2000, corrected.get(1).getTimestamp());
+			assertEquals(2000, corrected.get(2).getTimestamp());
+		} finally {
+			history.stopAndWait();
+		}
+	}
+
+	protected MappedNotificationHistory newHistory(int segmentSize, int maxSegments) {
+		return new MappedNotificationHistory(folder.getRoot(), segmentSize, maxSegments, Long.MAX_VALUE / 2, null, new Counter(), dropped);
+	}
+
+	protected void assertIds(List<HistoryEntry> entries, long... ids) {
+		long[] actual = new long[entries.size()];
+		for (int i = 0; i < actual.length; i++) {
+			actual[i] = entries.get(i).getNotification().getNotificationId();
+		}
+		assertEquals(Arrays.toString(ids), Arrays.toString(actual));
+	}
+}
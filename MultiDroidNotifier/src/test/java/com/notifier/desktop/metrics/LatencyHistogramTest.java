@@ -0,0 +1,54 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.metrics;
+
+import org.junit.*;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void bucketsArePowersOfTwo() {
+		assertEquals(0, LatencyHistogram.getBucket(0));
+		assertEquals(0, LatencyHistogram.getBucket(1024));
+		assertEquals(1, LatencyHistogram.getBucket(1025));
+		assertEquals(1, LatencyHistogram.getBucket(2048));
+		assertEquals(2, LatencyHistogram.getBucket(2049));
+		assertEquals(LatencyHistogram.BUCKET_COUNT, LatencyHistogram.getBucket(Long.MAX_VALUE));
+		for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+			assertEquals(i, LatencyHistogram.getBucket(LatencyHistogram.getBucketBound(i)));
+		}
+	}
+
+	@Test
+	public void percentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 99; i++) {
+			histogram.record(MICROSECONDS.toNanos(100));
+		}
+		histogram.record(MILLISECONDS.toNanos(40));
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(131072, histogram.getPercentile(50));
+		assertEquals(131072, histogram.getPercentile(99));
+		assertEquals(MILLISECONDS.toNanos(40), histogram.getPercentile(100));
+		assertEquals(40.0, histogram.getMaxMillis(), 0);
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.metrics.impl;
+
+import java.lang.management.*;
+
+import javax.management.*;
+
+import org.junit.*;
+
+import com.notifier.desktop.metrics.*;
+
+import static org.junit.Assert.*;
+
+public class MetricRegistryImplTest {
+
+	@Test
+	public void sameNameReturnsSameMetric() {
+		MetricRegistry registry = new MetricRegistryImpl(null);
+		Counter counter = registry.counter("test_frames_total{transport=\"udp\"}", "Frames");
+		assertSame(counter, registry.counter("test_frames_total{transport=\"udp\"}", "Frames"));
+		assertNotSame(counter, registry.counter("test_frames_total{transport=\"tcp\"}", "Frames"));
+	}
+
+	@Test
+	public void writesTextFormat() throws Exception {
+		MetricRegistry registry = new MetricRegistryImpl(null);
+		registry.counter("test_frames_total{transport=\"udp\"}", "Frames").add(3);
+		registry.counter("test_frames_total{transport=\"tcp\"}", "Frames").increment();
+		registry.gauge("test_depth", "Depth", new Gauge() {
+			@Override
+			public long getValue() {
+				return 7;
+			}
+		});
+		LatencyHistogram histogram = registry.histogram("test_seconds{broadcaster=\"growl\"}", "Latency");
+		histogram.record(500);
+		histogram.record(1500);
+		histogram.record(Long.MAX_VALUE / 2);
+
+		StringBuilder text = new StringBuilder();
+		registry.writeText(text);
+		String output = text.toString();
+
+		assertTrue(output, output.contains("# HELP test_frames_total Frames\n# TYPE test_frames_total counter\n" +
+		    "test_frames_total{transport=\"tcp\"} 1\ntest_frames_total{transport=\"udp\"} 3\n"));
+		assertTrue(output, output.contains("# TYPE test_depth gauge\ntest_depth 7\n"));
+		assertTrue(output, output.contains("# TYPE test_seconds histogram\n"));
+		assertTrue(output, output.contains("test_seconds_bucket{broadcaster=\"growl\",le=\"1.024E-6\"} 1\n"));
+		assertTrue(output, output.contains("test_seconds_bucket{broadcaster=\"growl\",le=\"2.048E-6\"} 2\n"));
+		assertTrue(output, output.contains("test_seconds_bucket{broadcaster=\"growl\",le=\"+Inf\"} 3\n"));
+		assertTrue(output, output.contains("test_seconds_count{broadcaster=\"growl\"} 3\n"));
+		assertTrue(output, output.contains("notifier_jvm_threads "));
+	}
+
+	@Test
+	public void publishesOverJmx() throws Exception {
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		MetricRegistry registry = new MetricRegistryImpl(server);
+		registry.counter("test_frames_total{transport=\"udp\"}", "Frames").add(2);
+		registry.histogram("test_seconds", "Latency").record(3000000);
+
+		assertEquals(2L, server.getAttribute(new ObjectName("com.notifier.desktop:type=test_frames_total,transport=udp"), "Count"));
+		assertEquals(1L, server.getAttribute(new ObjectName("com.notifier.desktop:type=test_seconds"), "Count"));
+		assertEquals(ManagementFactory.getThreadMXBean().getThreadCount(), ((Long) server.getAttribute(new ObjectName("com.notifier.desktop:type=notifier_jvm_threads"), "Value")).intValue(), 5);
+	}
+}
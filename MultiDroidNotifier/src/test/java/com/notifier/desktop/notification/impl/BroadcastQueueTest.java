@@ -0,0 +1,159 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.notification.impl;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.notifier.desktop.*;
+import com.notifier.desktop.notification.*;
+import com.notifier.desktop.notification.broadcast.*;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.junit.Assert.*;
+
+public class BroadcastQueueTest {
+
+	private BlockingBroadcaster broadcaster;
+	private BroadcastQueue queue;
+	private CountDownLatch drained;
+
+	@Before
+	public void setUp() {
+		broadcaster = new BlockingBroadcaster();
+		drained = new CountDownLatch(1);
+	}
+
+	@After
+	public void tearDown() {
+		broadcaster.release.countDown();
+		queue.shutdown();
+	}
+
+	@Test
+	public void dropOldest() throws Exception {
+		createQueue(BroadcastQueue.OverflowPolicy.DROP_OLDEST);
+		fill();
+		queue.offer(notification(10, Notification.Type.SMS), null, false);
+
+		assertEquals(4, queue.size());
+		assertEquals(1, queue.getDroppedCount());
+		assertEquals(Arrays.asList(0L, 2L, 3L, 4L, 10L), releaseAndCollect(5));
+	}
+
+	@Test
+	public void coalesceByType() throws Exception {
+		createQueue(BroadcastQueue.OverflowPolicy.COALESCE_BY_TYPE);
+		fill();
+		queue.offer(notification(10, Notification.Type.BATTERY), null, false);
+
+		assertEquals(4, queue.size());
+		assertEquals(Arrays.asList(0L, 1L, 2L, 4L, 10L), releaseAndCollect(5));
+	}
+
+	@Test
+	public void backlogClearsWhenDrained() throws Exception {
+		createQueue(BroadcastQueue.OverflowPolicy.DROP_OLDEST);
+		fill();
+		assertTrue(queue.isBacklogged());
+
+		broadcaster.release.countDown();
+		assertTrue(drained.await(5, SECONDS));
+		assertFalse(queue.isBacklogged());
+	}
+
+	@Test
+	public void stalledWhileBroadcasterIsStuck() throws Exception {
+		createQueue(BroadcastQueue.OverflowPolicy.DROP_OLDEST);
+		assertFalse(queue.isStalled(0, MILLISECONDS));
+
+		fill();
+		Thread.sleep(50);
+		assertTrue(queue.isStalled(10, MILLISECONDS));
+		assertFalse(queue.isStalled(1, HOURS));
+	}
+
+	@Test
+	public void offerAfterShutdownDrops() throws Exception {
+		createQueue(BroadcastQueue.OverflowPolicy.DROP_OLDEST);
+		queue.shutdown();
+		queue.offer(notification(0, Notification.Type.SMS), null, false);
+
+		assertEquals(0, queue.size());
+		assertFalse(queue.isStalled(0, MILLISECONDS));
+	}
+
+	protected void createQueue(BroadcastQueue.OverflowPolicy policy) {
+		queue = new BroadcastQueue(broadcaster, 4, policy, new BroadcastQueue.Listener() {
+			@Override
+			public void queueDrained(BroadcastQueue queue) {
+				drained.countDown();
+			}
+		});
+	}
+
+	/**
+	 * Notification 0 is taken by the blocked broadcaster, 1 to 4 stay queued and 3 is the only battery one.
+	 */
+	protected void fill() throws InterruptedException {
+		queue.offer(notification(0, Notification.Type.SMS), null, false);
+		assertTrue(broadcaster.started.await(5, SECONDS));
+		for (int i = 1; i <= 4; i++) {
+			queue.offer(notification(i, i == 3 ? Notification.Type.BATTERY : Notification.Type.SMS), null, false);
+		}
+	}
+
+	protected List<Long> releaseAndCollect(int expected) throws InterruptedException {
+		broadcaster.release.countDown();
+		List<Long> ids = new ArrayList<Long>();
+		for (int i = 0; i < expected; i++) {
+			Notification notification = broadcaster.received.poll(5, SECONDS);
+			assertNotNull(notification);
+			ids.add(notification.getNotificationId());
+		}
+		return ids;
+	}
+
+	protected Notification notification(long id, Notification.Type type) {
+		return new Notification("1", id, type, null, null);
+	}
+
+	static class BlockingBroadcaster extends RestartableService implements NotificationBroadcaster {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final BlockingQueue<Notification> received = new LinkedBlockingQueue<Notification>();
+
+		@Override
+		public String getName() {
+			return "blocking";
+		}
+
+		@Override
+		public void broadcast(Notification notification, String deviceName, boolean privateMode) {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				return;
+			}
+			received.add(notification);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.notification.impl;
+
+import org.junit.*;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.junit.Assert.*;
+
+public class NotificationDedupStoreTest {
+
+	@Test
+	public void duplicatesInsideWindow() {
+		NotificationDedupStore store = new NotificationDedupStore(60, SECONDS, 100);
+		long now = SECONDS.toNanos(1000);
+
+		assertTrue(store.addIfAbsent(1, now));
+		assertTrue(store.addIfAbsent(0, now));
+		assertTrue(store.addIfAbsent(-1, now));
+		assertFalse(store.addIfAbsent(1, now + SECONDS.toNanos(30)));
+		assertFalse(store.addIfAbsent(0, now + SECONDS.toNanos(59)));
+		assertFalse(store.addIfAbsent(-1, now + SECONDS.toNanos(59)));
+
+		assertEquals(3, store.getMissCount());
+		assertEquals(3, store.getHitCount());
+	}
+
+	@Test
+	public void expiresAfterWindow() {
+		NotificationDedupStore store = new NotificationDedupStore(60, SECONDS, 100);
+		long now = SECONDS.toNanos(1000);
+
+		assertTrue(store.addIfAbsent(1, now));
+		assertTrue(store.addIfAbsent(2, now + SECONDS.toNanos(40)));
+		assertTrue(store.addIfAbsent(1, now + SECONDS.toNanos(70)));
+		assertFalse(store.addIfAbsent(2, now + SECONDS.toNanos(70)));
+		assertEquals(1, store.getEvictionCount());
+
+		// Idle for longer than a whole turn of the wheel
+		assertTrue(store.addIfAbsent(2, now + SECONDS.toNanos(1000)));
+		assertEquals(1, store.size());
+	}
+
+	@Test
+	public void memoryIsBounded() {
+		NotificationDedupStore store = new NotificationDedupStore(60, SECONDS, 80);
+		long now = SECONDS.toNanos(1000);
+
+		for (long id = 0; id < 10000; id++) {
+			assertTrue(store.addIfAbsent(id * 31, now));
+			assertTrue(store.size() <= 80);
+		}
+		assertEquals(10000 - store.size(), store.getEvictionCount());
+		// Most recent ids are still remembered
+		assertFalse(store.addIfAbsent(9999 * 31, now));
+	}
+}
@@ -17,8 +17,11 @@
  */
 package com.notifier.desktop.notification.parsing.impl;
 
+import java.io.*;
+
 import com.google.inject.*;
 import com.google.inject.util.*;
+import com.google.protobuf.*;
 import com.notifier.desktop.*;
 import com.notifier.desktop.notification.*;
 import com.notifier.protocol.*;
@@ -39,18 +42,52 @@ public abstract class AbstractNotificationParserTest {
 	}
 
 	protected String createTextNotification() {
+		return createTextNotification(type, description);
+	}
+
+	protected String createTextNotification(Notification.Type type, String description) {
 		return TextNotificationParser.SUPPORTED_VERSION + "/" + deviceId + "/" + Long.toHexString(notificationId) + "/" + type.name() + "/" + data + "/" + description;
 	}
 
 	protected Protocol.Notification createProtobufNotification() {
+		return createProtobufNotification(Protocol.Notification.Type.RING, description);
+	}
+
+	protected Protocol.Notification createProtobufNotification(Protocol.Notification.Type type, String description) {
 		Protocol.Notification.Builder builder = Protocol.Notification.newBuilder();
-		builder.setDeviceId(Long.parseLong(deviceId)).setId(notificationId);
-		builder.setType(Protocol.Notification.Type.RING).setPhoneNumber(data);
+		builder.setDeviceId(Long.parseLong(deviceId, 16)).setId(notificationId);
+		builder.setType(type).setPhoneNumber(data);
 		builder.setDescription(description);
 
 		return builder.build();
 	}
 
+	protected byte[] createMessage(boolean encrypted, byte[] protoData) throws IOException {
+		return createMessage(encrypted ? ProtobufNotificationParser.ENCRYPTED_CBC : ProtobufNotificationParser.NOT_ENCRYPTED, protoData);
+	}
+
+	/**
+	 * Frames protobuf data as phones do: total length, encryption byte and the message.
+	 */
+	protected byte[] createMessage(byte encryption, byte[] protoData) throws IOException {
+		int length = protoData.length;
+		length += CodedOutputStream.computeRawVarint32Size(length);
+		length += 1;
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(baos);
+		codedOutputStream.writeRawVarint32(length);
+		codedOutputStream.writeRawByte(encryption);
+		codedOutputStream.writeRawBytes(protoData);
+		codedOutputStream.flush();
+
+		byte[] msg = baos.toByteArray();
+		if (msg.length != length) {
+			throw new IllegalStateException("Expected message length [" + length + "] but was [" + msg.length + "]");
+		}
+		return msg;
+	}
+
 	protected Notification createNotification() {
 		return new Notification(deviceId, notificationId, type, data, description);
 	}
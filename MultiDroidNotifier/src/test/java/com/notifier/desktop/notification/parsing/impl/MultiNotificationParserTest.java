@@ -17,11 +17,14 @@
  */
 package com.notifier.desktop.notification.parsing.impl;
 
+import java.nio.*;
 import java.util.*;
 
 import org.junit.*;
 
 import com.notifier.desktop.notification.*;
+import com.notifier.desktop.notification.parsing.*;
+import com.notifier.desktop.util.*;
 
 import static org.junit.Assert.*;
 
@@ -42,4 +45,86 @@ public class MultiNotificationParserTest extends AbstractNotificationParserTest
 		assertEquals(expectedNotification, notification);
 	}
 
+	@Test
+	public void selectEncryptedText() throws Exception {
+		byte[] key = Encryption.passPhraseToKey("secret");
+		MultiNotificationParser parser = new MultiNotificationParser(null, new TextNotificationParser(getPreferencesProvider()), new ProtobufNotificationParser(getPreferencesProvider()));
+		parser.setEncryption(true, key);
+
+		byte[] text = (createTextNotification() + '\0').getBytes(TextNotificationParser.CHARSET);
+		byte[] data = new Encryption(key).encrypt(text);
+		ProtocolMemory memory = new ProtocolMemory();
+		assertEquals(createNotification(), parser.parse(data, memory));
+		assertEquals(ProtocolMemory.Protocol.TEXT, memory.getProtocol());
+	}
+
+	@Test
+	public void rejectGarbageBeforeDecrypting() throws Exception {
+		final int[] decryptions = new int[1];
+		TextNotificationParser textParser = new TextNotificationParser(getPreferencesProvider()) {
+			@Override
+			protected ByteBuffer decryptIfNecessary(ByteBuffer msg) {
+				decryptions[0]++;
+				return super.decryptIfNecessary(msg);
+			}
+		};
+		MultiNotificationParser parser = new MultiNotificationParser(null, textParser, new ProtobufNotificationParser(getPreferencesProvider()));
+		parser.setEncryption(true, Encryption.passPhraseToKey("secret"));
+
+		assertNull(parser.parse(new byte[] { 'G', 'E', 'T', ' ', '/', ' ', 'H', 'T', 'T', 'P', '/', '1', '.', '1', '\r', '\n', '\r' }));
+		assertNull(parser.parse(createTextNotification().getBytes(TextNotificationParser.CHARSET)));
+		assertEquals(0, decryptions[0]);
+	}
+
+	@Test
+	public void ambiguousDataFollowsMemory() throws Exception {
+		MultiNotificationParser parser = new MultiNotificationParser(null, new TextNotificationParser(getPreferencesProvider()), new ProtobufNotificationParser(getPreferencesProvider()));
+		parser.setEncryption(true, Encryption.passPhraseToKey("secret"));
+
+		// Framed like protobuf and a whole number of cipher blocks
+		byte[] data = new byte[32];
+		data[0] = 32;
+		data[1] = 0;
+		ProtocolMemory memory = new ProtocolMemory();
+		assertEquals(ProtocolMemory.Protocol.PROTOBUF, parser.detectProtocol(ByteBuffer.wrap(data), memory));
+		memory.setProtocol(ProtocolMemory.Protocol.TEXT);
+		assertEquals(ProtocolMemory.Protocol.TEXT, parser.detectProtocol(ByteBuffer.wrap(data), memory));
+	}
+
+	@Test
+	public void ambiguousDataFallsBackToText() throws Exception {
+		final Notification expected = createNotification();
+		TextNotificationParser textParser = new TextNotificationParser(getPreferencesProvider()) {
+			@Override
+			public Notification parse(ByteBuffer data) throws ParseException {
+				assertEquals(32, data.remaining());
+				return expected;
+			}
+		};
+		ProtobufNotificationParser protobufParser = new ProtobufNotificationParser(getPreferencesProvider()) {
+			@Override
+			public Notification parse(ByteBuffer data) throws ParseException {
+				data.position(data.limit());
+				throw new ParseException("Not protobuf");
+			}
+		};
+		MultiNotificationParser parser = new MultiNotificationParser(null, textParser, protobufParser);
+		parser.setEncryption(true, Encryption.passPhraseToKey("secret"));
+
+		byte[] data = new byte[32];
+		data[0] = 32;
+		data[1] = 0;
+		ProtocolMemory memory = new ProtocolMemory();
+		assertSame(expected, parser.parse(data, memory));
+		assertEquals(ProtocolMemory.Protocol.TEXT, memory.getProtocol());
+
+		// Once the sender is known to use protobuf, its failures are not retried
+		memory.setProtocol(ProtocolMemory.Protocol.PROTOBUF);
+		try {
+			parser.parse(data, memory);
+			fail("Expected ParseException");
+		} catch (ParseException e) {
+			// Expected
+		}
+	}
 }
@@ -17,12 +17,14 @@
  */
 package com.notifier.desktop.notification.parsing.impl;
 
-import java.io.*;
+import java.util.*;
 
+import org.jboss.netty.buffer.*;
 import org.junit.*;
 
-import com.google.protobuf.*;
 import com.notifier.desktop.notification.*;
+import com.notifier.desktop.notification.parsing.*;
+import com.notifier.desktop.util.*;
 import com.notifier.protocol.*;
 
 import static org.junit.Assert.*;
@@ -35,20 +37,7 @@ public class ProtobufNotificationParserTest extends AbstractNotificationParserTe
 
 		Protocol.Notification protoNotification = createProtobufNotification();
 		byte[] protoData = protoNotification.toByteArray();
-
-		int length = protoData.length;
-		length += CodedOutputStream.computeRawVarint32Size(length);
-		length += CodedOutputStream.computeBoolSizeNoTag(encrypted);
-
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(baos);
-		codedOutputStream.writeRawVarint32(length);
-		codedOutputStream.writeBoolNoTag(encrypted);
-		codedOutputStream.writeRawBytes(protoNotification.toByteArray());
-		codedOutputStream.flush();
-
-		byte[] msg = baos.toByteArray();
-		assertEquals(length, msg.length);
+		byte[] msg = createMessage(encrypted, protoData);
 
 		ProtobufNotificationParser parser = new ProtobufNotificationParser(getPreferencesProvider());
 		Notification notification = parser.parse(msg);
@@ -56,4 +45,115 @@ public class ProtobufNotificationParserTest extends AbstractNotificationParserTe
 		Notification expectedNotification = createNotification();
 		assertEquals(expectedNotification, notification);
 	}
+
+	@Test
+	public void parseEncryptedFromChannelBuffer() throws Exception {
+		byte[] key = Encryption.passPhraseToKey("secret");
+		byte[] protoData = new Encryption(key).encrypt(createProtobufNotification().toByteArray());
+		byte[] msg = createMessage(true, protoData);
+
+		ProtobufNotificationParser protobufParser = new ProtobufNotificationParser(getPreferencesProvider());
+		MultiNotificationParser multiParser = new MultiNotificationParser(null, new TextNotificationParser(getPreferencesProvider()), protobufParser);
+		ChannelBufferNotificationParser parser = new ChannelBufferNotificationParser(multiParser);
+		parser.setEncryption(true, key);
+
+		// Frame in the middle of a larger buffer, as handed over by the frame decoders
+		ChannelBuffer buffer = ChannelBuffers.buffer(msg.length + 10);
+		buffer.writeZero(5);
+		buffer.writeBytes(msg);
+		buffer.writeZero(5);
+		ChannelBuffer frame = buffer.slice(5, msg.length);
+
+		for (int i = 0; i < 2; i++) { // Second time reuses decryption buffer
+			assertEquals(createNotification(), parser.parse(frame.duplicate()));
+		}
+	}
+
+	@Test
+	public void parseGcmEncrypted() throws Exception {
+		Assume.assumeTrue(Encryption.isGcmSupported());
+		byte[] key = Encryption.passPhraseToKey("secret");
+		byte[] protoData = new Encryption(key).encryptGcm(createProtobufNotification().toByteArray());
+		byte[] msg = createMessage(ProtobufNotificationParser.ENCRYPTED_GCM, protoData);
+
+		ProtobufNotificationParser parser = new ProtobufNotificationParser(getPreferencesProvider());
+		parser.setEncryption(true, key);
+		for (int i = 0; i < 2; i++) { // Second time reuses the cached cipher
+			assertEquals(createNotification(), parser.parse(msg));
+		}
+
+		// Tampered messages fail authentication
+		msg[msg.length - 1] ^= 1;
+		assertNull(parser.parse(msg));
+	}
+
+	@Test
+	public void parseDeviceIdString() throws Exception {
+		ProtobufNotificationParser parser = new ProtobufNotificationParser(getPreferencesProvider());
+		Protocol.Notification leadingZero = Protocol.Notification.newBuilder(createProtobufNotification())
+			.setDeviceId(0x0a1b2c3d4e5f6071L)
+			.setDeviceIdString("0a1b2c3d4e5f6071")
+			.build();
+		assertEquals("0a1b2c3d4e5f6071", parser.parse(createMessage(false, leadingZero.toByteArray())).getDeviceId());
+
+		Protocol.Notification notHex = Protocol.Notification.newBuilder(createProtobufNotification())
+			.setDeviceIdString("emulator-5554")
+			.build();
+		assertEquals("emulator-5554", parser.parse(createMessage(false, notHex.toByteArray())).getDeviceId());
+
+		// Phones that only send the number
+		Protocol.Notification numeric = Protocol.Notification.newBuilder(createProtobufNotification())
+			.setDeviceId(0x0a1b2c3d4e5f6071L)
+			.build();
+		assertEquals("a1b2c3d4e5f6071", parser.parse(createMessage(false, numeric.toByteArray())).getDeviceId());
+	}
+
+	@Test
+	public void parseBatch() throws Exception {
+		Protocol.NotificationBatch batch = Protocol.NotificationBatch.newBuilder()
+			.addNotifications(createProtobufNotification())
+			.addNotifications(createProtobufNotification(Protocol.Notification.Type.SMS, "Second"))
+			.build();
+		byte[] msg = createMessage((byte) (ProtobufNotificationParser.NOT_ENCRYPTED | ProtobufNotificationParser.BATCH), batch.toByteArray());
+
+		ProtobufNotificationParser parser = new ProtobufNotificationParser(getPreferencesProvider());
+		List<Notification> notifications = parser.parseAll(msg, null);
+		assertEquals(2, notifications.size());
+		assertEquals(createNotification(), notifications.get(0));
+		assertEquals(Notification.Type.SMS, notifications.get(1).getType());
+		assertEquals("Second", notifications.get(1).getDescription(false));
+
+		// Callers expecting a single notification cannot drop the rest silently
+		try {
+			parser.parse(msg);
+			fail("Expected batch to be rejected");
+		} catch (ParseException e) {
+			// Expected
+		}
+
+		byte[] single = createMessage(false, createProtobufNotification().toByteArray());
+		assertEquals(Collections.singletonList(createNotification()), parser.parseAll(single, null));
+	}
+
+	@Test
+	public void parseEncryptedBatchFromChannelBuffer() throws Exception {
+		byte[] key = Encryption.passPhraseToKey("secret");
+		Protocol.NotificationBatch.Builder batch = Protocol.NotificationBatch.newBuilder();
+		for (int i = 0; i < 3; i++) {
+			batch.addNotifications(createProtobufNotification());
+		}
+		byte[] protoData = new Encryption(key).encrypt(batch.build().toByteArray());
+		byte[] msg = createMessage((byte) (ProtobufNotificationParser.ENCRYPTED_CBC | ProtobufNotificationParser.BATCH), protoData);
+
+		ProtobufNotificationParser protobufParser = new ProtobufNotificationParser(getPreferencesProvider());
+		MultiNotificationParser multiParser = new MultiNotificationParser(null, new TextNotificationParser(getPreferencesProvider()), protobufParser);
+		ChannelBufferNotificationParser parser = new ChannelBufferNotificationParser(multiParser);
+		parser.setEncryption(true, key);
+
+		ProtocolMemory memory = new ProtocolMemory();
+		ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(msg);
+		assertEquals(Arrays.asList(createNotification(), createNotification(), createNotification()), parser.parseAll(buffer, memory));
+		assertFalse(buffer.readable());
+		assertEquals(ProtocolMemory.Protocol.PROTOBUF, memory.getProtocol());
+	}
 }
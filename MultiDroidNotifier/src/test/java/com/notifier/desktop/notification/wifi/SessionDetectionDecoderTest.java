@@ -0,0 +1,164 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.notification.wifi;
+
+import org.jboss.netty.buffer.*;
+import org.jboss.netty.channel.*;
+import org.jboss.netty.handler.codec.embedder.*;
+import org.jboss.netty.handler.timeout.*;
+import org.jboss.netty.util.*;
+import org.junit.*;
+
+import com.google.common.base.*;
+
+import static org.junit.Assert.*;
+
+public class SessionDetectionDecoderTest {
+
+	private HashedWheelTimer timer;
+	private Embedder embedder;
+
+	@Before
+	public void setUp() {
+		timer = new HashedWheelTimer();
+		// The decoder adds its handlers in front of the notification decoder, which only passes frames on here
+		embedder = new Embedder(new SessionDetectionDecoder(timer));
+		getPipeline().addAfter(getPipeline().getContext(SessionDetectionDecoder.class).getName(), NotificationPipelineFactory.DECODER, new SimpleChannelUpstreamHandler());
+		getPipeline().addFirst("read-timeout", new ReadTimeoutHandler(timer, NotificationPipelineFactory.READ_TIMEOUT));
+	}
+
+	@After
+	public void tearDown() {
+		embedder.finish();
+		timer.stop();
+	}
+
+	@Test
+	public void sessionPrefixSwitchesToLengthFrames() throws Exception {
+		embedder.offer(buffer(NotificationPipelineFactory.SESSION_MAGIC, frame("first")));
+
+		assertEquals("first", poll());
+		assertNotNull(getPipeline().get("session"));
+		assertNotNull(getPipeline().get("idle"));
+		assertNull(getPipeline().get("read-timeout"));
+		assertNull(getPipeline().get("delimiter"));
+		assertNull(getPipeline().get(SessionDetectionDecoder.class));
+	}
+
+	@Test
+	public void sessionCarriesSeveralFrames() throws Exception {
+		embedder.offer(buffer(NotificationPipelineFactory.SESSION_MAGIC, frame("first"), frame("second")));
+		embedder.offer(buffer(frame("third")));
+
+		assertEquals("first", poll());
+		assertEquals("second", poll());
+		assertEquals("third", poll());
+		assertNull(embedder.poll());
+	}
+
+	@Test
+	public void sessionFrameSplitAcrossReads() throws Exception {
+		byte[] frame = frame("first");
+		embedder.offer(buffer(new byte[] { 'A', 'N' }));
+		assertNull(embedder.poll());
+		embedder.offer(buffer(new byte[] { 'S', 1 }, new byte[] { frame[0], frame[1] }));
+		assertNull(embedder.poll());
+		embedder.offer(ChannelBuffers.wrappedBuffer(frame, 2, frame.length - 2));
+
+		assertEquals("first", poll());
+	}
+
+	@Test
+	public void heartbeatsAreNotNotifications() throws Exception {
+		embedder.offer(buffer(NotificationPipelineFactory.SESSION_MAGIC, frame(""), frame("first"), frame("")));
+
+		assertEquals("first", poll());
+		assertNull(embedder.poll());
+	}
+
+	@Test
+	public void legacyOneShotIsDelimited() throws Exception {
+		embedder.offer(buffer("v2/1/2/PING//Test\0".getBytes("UTF-8")));
+
+		assertEquals("v2/1/2/PING//Test\0", poll());
+		assertNotNull(getPipeline().get("delimiter"));
+		assertNotNull(getPipeline().get("read-timeout"));
+		assertNull(getPipeline().get("idle"));
+		assertNull(getPipeline().get("session"));
+	}
+
+	@Test
+	public void readTimeoutKeptUntilPrefixIsComplete() throws Exception {
+		embedder.offer(buffer(new byte[] { 'A', 'N' }));
+
+		assertNotNull(getPipeline().get("read-timeout"));
+		assertNotNull(getPipeline().get(SessionDetectionDecoder.class));
+	}
+
+	@Test
+	public void otherSessionVersionIsOneShot() throws Exception {
+		embedder.offer(buffer(new byte[] { 'A', 'N', 'S', 2 }, "\0".getBytes("UTF-8")));
+
+		assertEquals("ANS\2\0", poll());
+		assertNull(getPipeline().get("session"));
+	}
+
+	@Test
+	public void connectionClosedWithinPrefixIsOneShot() throws Exception {
+		embedder.offer(buffer(new byte[] { 'A', 'N' }));
+		assertNull(getPipeline().get("delimiter"));
+		embedder.finish();
+
+		// Without its delimiter it is dropped, as it was before sessions
+		assertNull(embedder.poll());
+		assertNotNull(getPipeline().get("delimiter"));
+		assertNull(getPipeline().get("session"));
+	}
+
+	protected ChannelPipeline getPipeline() {
+		return embedder.getPipeline();
+	}
+
+	protected String poll() {
+		ChannelBuffer frame = embedder.poll();
+		assertNotNull(frame);
+		return frame.toString(Charsets.UTF_8);
+	}
+
+	protected static byte[] frame(String payload) throws Exception {
+		byte[] bytes = payload.getBytes("UTF-8");
+		ChannelBuffer frame = ChannelBuffers.buffer(4 + bytes.length);
+		frame.writeInt(bytes.length);
+		frame.writeBytes(bytes);
+		return frame.array();
+	}
+
+	protected static ChannelBuffer buffer(byte[]... parts) {
+		return ChannelBuffers.wrappedBuffer(parts);
+	}
+
+	static class Embedder extends DecoderEmbedder<ChannelBuffer> {
+		Embedder(ChannelUpstreamHandler... handlers) {
+			super(handlers);
+		}
+
+		ChannelPipeline getPipeline() {
+			return getChannel().getPipeline();
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.notification.wifi;
+
+import java.util.concurrent.atomic.*;
+
+import org.jboss.netty.buffer.*;
+import org.jboss.netty.channel.*;
+import org.jboss.netty.handler.codec.embedder.*;
+import org.jboss.netty.handler.timeout.*;
+import org.junit.*;
+
+import com.google.common.base.*;
+
+import static org.junit.Assert.*;
+
+public class SessionHandlerTest {
+
+	private AtomicBoolean closed;
+	private Embedder embedder;
+
+	@Before
+	public void setUp() {
+		closed = new AtomicBoolean();
+		SimpleChannelDownstreamHandler closeRecorder = new SimpleChannelDownstreamHandler() {
+			@Override
+			public void closeRequested(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+				closed.set(true);
+			}
+		};
+		embedder = new Embedder(new SessionHandler());
+		embedder.getPipeline().addFirst("close", closeRecorder);
+	}
+
+	@Test
+	public void framesArePassedOn() throws Exception {
+		embedder.offer(ChannelBuffers.copiedBuffer("first", Charsets.UTF_8));
+		embedder.offer(ChannelBuffers.copiedBuffer("second", Charsets.UTF_8));
+
+		assertEquals("first", embedder.poll().toString(Charsets.UTF_8));
+		assertEquals("second", embedder.poll().toString(Charsets.UTF_8));
+	}
+
+	@Test
+	public void heartbeatsAreDropped() throws Exception {
+		embedder.offer(ChannelBuffers.EMPTY_BUFFER);
+
+		assertNull(embedder.poll());
+		assertFalse(closed.get());
+	}
+
+	@Test
+	public void heartbeatSentWhenNothingWritten() throws Exception {
+		embedder.fireIdle(IdleState.WRITER_IDLE);
+
+		ChannelBuffer heartbeat = embedder.poll();
+		assertNotNull(heartbeat);
+		assertFalse(heartbeat.readable());
+		assertFalse(closed.get());
+	}
+
+	@Test
+	public void closedWhenDeviceIsSilent() throws Exception {
+		embedder.fireIdle(IdleState.READER_IDLE);
+
+		assertTrue(closed.get());
+		assertNull(embedder.poll());
+	}
+
+	@Test
+	public void otherIdleStatesAreIgnored() throws Exception {
+		embedder.fireIdle(IdleState.ALL_IDLE);
+
+		assertFalse(closed.get());
+		assertNull(embedder.poll());
+	}
+
+	static class Embedder extends DecoderEmbedder<ChannelBuffer> {
+		Embedder(ChannelUpstreamHandler... handlers) {
+			super(handlers);
+		}
+
+		ChannelPipeline getPipeline() {
+			return getChannel().getPipeline();
+		}
+
+		void fireIdle(IdleState state) {
+			getPipeline().sendUpstream(new DefaultIdleStateEvent(getChannel(), state, System.currentTimeMillis()));
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.service.impl;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.lang.reflect.Proxy;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.google.inject.*;
+import com.notifier.desktop.*;
+import com.notifier.desktop.device.*;
+import com.notifier.desktop.metrics.impl.*;
+import com.notifier.desktop.notification.*;
+
+import static org.junit.Assert.*;
+
+public class ServiceServerImplTest {
+
+	private static final int PORT = 10711;
+
+	private ExecutorService executorService;
+	private BlockingQueue<NotificationManager.Listener> listeners;
+	private ServiceServerImpl server;
+	private ServiceClientImpl client;
+
+	@Before
+	public void setUp() {
+		executorService = Executors.newCachedThreadPool();
+		listeners = new LinkedBlockingQueue<NotificationManager.Listener>();
+		Provider<Application> application = new Provider<Application>() {
+			@Override
+			public Application get() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		server = new ServiceServerImpl(PORT, application, executorService, newDeviceManager(), newNotificationManager(), new MetricRegistryImpl(null));
+		server.startAndWait();
+		client = new ServiceClientImpl(PORT);
+	}
+
+	@After
+	public void tearDown() {
+		server.stopAndWait();
+		executorService.shutdownNow();
+	}
+
+	@Test
+	public void stuckClientDoesNotBlockOthers() throws Exception {
+		Socket stuck = new Socket(InetAddress.getByName(null), PORT);
+		try {
+			stuck.getOutputStream().write("PI".getBytes("UTF-8"));
+			assertTrue(client.isRunning());
+			assertTrue(client.getStats().contains("notifier_jvm_threads "));
+		} finally {
+			stuck.close();
+		}
+	}
+
+	@Test
+	public void severalCommandsPerConnection() throws Exception {
+		Socket socket = new Socket(InetAddress.getByName(null), PORT);
+		try {
+			socket.setSoTimeout(5000);
+			BufferedReader reader = send(socket, "ping\nBOGUS\nDEVICES\n");
+			assertEquals("OK", reader.readLine());
+			assertEquals("ERROR unknown command: BOGUS", reader.readLine());
+			assertEquals("OK", reader.readLine());
+			assertEquals("0123\tMy phone", reader.readLine());
+			assertEquals(".", reader.readLine());
+		} finally {
+			socket.close();
+		}
+		assertEquals("0123\tMy phone\n", client.getDevices());
+	}
+
+	@Test
+	public void tailSubscribersShareNotifications() throws Exception {
+		Socket first = new Socket(InetAddress.getByName(null), PORT);
+		Socket second = new Socket(InetAddress.getByName(null), PORT);
+		try {
+			first.setSoTimeout(5000);
+			second.setSoTimeout(5000);
+			BufferedReader firstReader = send(first, "TAIL\n");
+			BufferedReader secondReader = send(second, "TAIL\n");
+			assertEquals("OK", firstReader.readLine());
+			assertEquals("OK", secondReader.readLine());
+
+			NotificationManager.Listener listener = listeners.poll(5, TimeUnit.SECONDS);
+			listener.notificationBroadcast(new Notification("0123", 1, Notification.Type.SMS, null, "Hi\nthere"), "My phone", false);
+			listener.notificationBroadcast(new Notification("0123", 2, Notification.Type.SMS, null, "Secret"), "My phone", true);
+
+			for (BufferedReader reader : new BufferedReader[] { firstReader, secondReader }) {
+				assertEquals("0123\tMy phone\tSMS\tHi there", reader.readLine());
+				assertEquals("0123\tMy phone\tSMS\t", reader.readLine());
+			}
+		} finally {
+			first.close();
+			second.close();
+		}
+	}
+
+	protected BufferedReader send(Socket socket, String commands) throws IOException {
+		socket.getOutputStream().write(commands.getBytes("UTF-8"));
+		return new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+	}
+
+	protected DeviceManager newDeviceManager() {
+		return (DeviceManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DeviceManager.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getPairedDeviceIds")) {
+					return Collections.singleton("0123");
+				} else if (method.getName().equals("getDeviceName")) {
+					return "My phone";
+				}
+				return null;
+			}
+		});
+	}
+
+	protected NotificationManager newNotificationManager() {
+		return (NotificationManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { NotificationManager.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("addListener")) {
+					listeners.add((NotificationManager.Listener) args[0]);
+				}
+				return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+			}
+		});
+	}
+}
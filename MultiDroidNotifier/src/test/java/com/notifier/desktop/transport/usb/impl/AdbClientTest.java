@@ -0,0 +1,254 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.transport.usb.impl;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class AdbClientTest {
+
+	/**
+	 * Stands in for the adb server, answering each connection with the next scripted conversation.
+	 */
+	static class FakeAdbServer implements Runnable {
+		interface Conversation {
+			void reply(String request, OutputStream output) throws IOException;
+		}
+
+		final ServerSocket serverSocket;
+		final BlockingQueue<Conversation> conversations = new LinkedBlockingQueue<Conversation>();
+		final BlockingQueue<String> requests = new LinkedBlockingQueue<String>();
+		final Thread thread;
+
+		FakeAdbServer() throws IOException {
+			serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+			thread = new Thread(this, "fake-adb");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		InetSocketAddress getAddress() {
+			return new InetSocketAddress("127.0.0.1", serverSocket.getLocalPort());
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Socket socket;
+				try {
+					socket = serverSocket.accept();
+				} catch (IOException e) {
+					return;
+				}
+				try {
+					DataInputStream input = new DataInputStream(socket.getInputStream());
+					byte[] length = new byte[4];
+					input.readFully(length);
+					byte[] request = new byte[Integer.parseInt(new String(length, "US-ASCII"), 16)];
+					input.readFully(request);
+					String requestString = new String(request, "US-ASCII");
+					requests.add(requestString);
+					conversations.take().reply(requestString, socket.getOutputStream());
+				} catch (Exception e) {
+					// The client sees the connection closing
+				} finally {
+					try {
+						socket.close();
+					} catch (IOException e) {
+						// Ignore
+					}
+				}
+			}
+		}
+
+		void close() throws IOException {
+			serverSocket.close();
+		}
+	}
+
+	private FakeAdbServer server;
+	private AdbClient client;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new FakeAdbServer();
+		client = new AdbClient(server.getAddress());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		client.stopTracking();
+		server.close();
+	}
+
+	private static void write(OutputStream output, String text) throws IOException {
+		output.write(text.getBytes("US-ASCII"));
+		output.flush();
+	}
+
+	private static String string(String text) {
+		return String.format("%04x", text.length()) + text;
+	}
+
+	private static FakeAdbServer.Conversation replying(final String reply) {
+		return new FakeAdbServer.Conversation() {
+			@Override
+			public void reply(String request, OutputStream output) throws IOException {
+				write(output, reply);
+			}
+		};
+	}
+
+	@Test
+	public void devices() throws Exception {
+		server.conversations.add(replying("OKAY" + string("0123456789ABCDEF\tdevice\nemulator-5554\toffline\n")));
+
+		List<Adb.Device> devices = client.devices();
+		assertEquals("host:devices", server.requests.poll(5, TimeUnit.SECONDS));
+		assertEquals(2, devices.size());
+		assertEquals("0123456789ABCDEF", devices.get(0).getSerialNumber());
+		assertEquals(Adb.Device.Type.DEVICE, devices.get(0).getType());
+		assertEquals("emulator-5554", devices.get(1).getSerialNumber());
+		assertEquals(Adb.Device.Type.UNKNOWN, devices.get(1).getType());
+	}
+
+	@Test
+	public void devicesNone() throws Exception {
+		server.conversations.add(replying("OKAY" + string("")));
+		assertTrue(client.devices().isEmpty());
+	}
+
+	@Test
+	public void forward() throws Exception {
+		server.conversations.add(replying("OKAYOKAY"));
+		client.forward("0123", "tcp:10602", "localabstract:androidnotifier");
+		assertEquals("host-serial:0123:forward:tcp:10602;localabstract:androidnotifier", server.requests.poll(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void forwardSingleOkay() throws Exception {
+		// Older servers only answer once
+		server.conversations.add(replying("OKAY"));
+		client.forward("0123", "tcp:10602", "localabstract:androidnotifier");
+	}
+
+	@Test
+	public void forwardFailure() throws Exception {
+		server.conversations.add(replying("FAIL" + string("device not found")));
+		try {
+			client.forward("0123", "tcp:10602", "localabstract:androidnotifier");
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().endsWith("device not found"));
+		}
+	}
+
+	@Test
+	public void forwardBindFailure() throws Exception {
+		server.conversations.add(replying("OKAYFAIL" + string("cannot bind to socket")));
+		try {
+			client.forward("0123", "tcp:10602", "localabstract:androidnotifier");
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().endsWith("cannot bind to socket"));
+		}
+	}
+
+	@Test
+	public void trackDevices() throws Exception {
+		server.conversations.add(new FakeAdbServer.Conversation() {
+			@Override
+			public void reply(String request, OutputStream output) throws IOException {
+				write(output, "OKAY" + string("0123\tdevice\n"));
+				write(output, string("0123\tdevice\n4567\toffline\n"));
+				write(output, string(""));
+			}
+		});
+
+		final List<List<Adb.Device>> updates = new CopyOnWriteArrayList<List<Adb.Device>>();
+		client.trackDevices(new AdbClient.DeviceListener() {
+			@Override
+			public void devicesChanged(List<Adb.Device> devices) {
+				updates.add(devices);
+			}
+		});
+
+		// Returns once the server closes the connection
+		assertEquals("host:track-devices", server.requests.poll(5, TimeUnit.SECONDS));
+		assertEquals(3, updates.size());
+		assertEquals(Arrays.asList(new Adb.Device("0123", Adb.Device.Type.DEVICE)), updates.get(0));
+		assertEquals(2, updates.get(1).size());
+		assertTrue(updates.get(2).isEmpty());
+	}
+
+	@Test
+	public void stopTracking() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		server.conversations.add(new FakeAdbServer.Conversation() {
+			@Override
+			public void reply(String request, OutputStream output) throws IOException {
+				write(output, "OKAY" + string("0123\tdevice\n"));
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+
+		final CountDownLatch updated = new CountDownLatch(1);
+		final CountDownLatch returned = new CountDownLatch(1);
+		Thread tracker = new Thread() {
+			@Override
+			public void run() {
+				try {
+					client.trackDevices(new AdbClient.DeviceListener() {
+						@Override
+						public void devicesChanged(List<Adb.Device> devices) {
+							updated.countDown();
+						}
+					});
+					returned.countDown();
+				} catch (IOException e) {
+					// Fails the test by not counting down
+				}
+			}
+		};
+		tracker.start();
+		try {
+			assertTrue(updated.await(5, TimeUnit.SECONDS));
+			client.stopTracking();
+			assertTrue(returned.await(5, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test(expected = ConnectException.class)
+	public void serverNotRunning() throws Exception {
+		InetSocketAddress address = server.getAddress();
+		server.close();
+		new AdbClient(address).devices();
+	}
+}
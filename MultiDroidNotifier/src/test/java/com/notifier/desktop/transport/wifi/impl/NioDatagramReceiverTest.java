@@ -0,0 +1,104 @@
+/*
+ * Android Notifier Desktop is a multiplatform remote notification client for Android devices.
+ *
+ * Copyright (C) 2010  Leandro Aparecido
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.notifier.desktop.transport.wifi.impl;
+
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jboss.netty.buffer.*;
+import org.junit.*;
+
+import com.google.common.base.*;
+import com.notifier.desktop.notification.*;
+import com.notifier.desktop.notification.parsing.*;
+import com.notifier.desktop.transport.*;
+
+import static org.junit.Assert.*;
+
+public class NioDatagramReceiverTest {
+
+	private static final int PORT = 10710;
+
+	private BlockingQueue<String> parsed;
+	private NioDatagramReceiver receiver;
+
+	@Before
+	public void setUp() {
+		parsed = new LinkedBlockingQueue<String>();
+		NotificationParser<ChannelBuffer> parser = new NotificationParser<ChannelBuffer>() {
+			@Override
+			public Notification parse(ChannelBuffer data) throws ParseException {
+				parsed.add(data.toString(Charsets.UTF_8));
+				return null;
+			}
+
+			@Override
+			public Notification parse(ChannelBuffer data, ProtocolMemory memory) throws ParseException {
+				return parse(data);
+			}
+
+			@Override
+			public List<Notification> parseAll(ChannelBuffer data, ProtocolMemory memory) throws ParseException {
+				parse(data);
+				return Collections.emptyList();
+			}
+
+			@Override
+			public void setEncryption(boolean decrypt, byte[] key) {
+			}
+		};
+		receiver = new NioDatagramReceiver(PORT, 2, null, null, parser, new TransportMetrics());
+	}
+
+	@After
+	public void tearDown() {
+		receiver.stop();
+	}
+
+	@Test
+	public void copiesAreDroppedBeforeParsing() throws Exception {
+		receiver.start();
+		assertEquals(NioDatagramReceiver.isReusePortSupported() ? 2 : 1, receiver.getSocketCount());
+
+		// Each copy from a new socket, as phones do when sending to several broadcast addresses
+		send("first");
+		send("first");
+		send("second");
+
+		// Sockets are served by different threads, so order is not guaranteed
+		Set<String> messages = new HashSet<String>();
+		messages.add(parsed.poll(5, TimeUnit.SECONDS));
+		messages.add(parsed.poll(5, TimeUnit.SECONDS));
+		assertEquals(new HashSet<String>(Arrays.asList("first", "second")), messages);
+		assertNull(parsed.poll(200, TimeUnit.MILLISECONDS));
+		assertEquals(3, receiver.getReceivedCount());
+		assertEquals(1, receiver.getDuplicateCount());
+	}
+
+	protected void send(String message) throws Exception {
+		DatagramChannel channel = DatagramChannel.open();
+		try {
+			channel.send(ByteBuffer.wrap(message.getBytes("UTF-8")), new InetSocketAddress(InetAddress.getByName("127.0.0.1"), PORT));
+		} finally {
+			channel.close();
+		}
+	}
+}